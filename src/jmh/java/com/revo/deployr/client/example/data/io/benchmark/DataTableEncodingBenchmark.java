@@ -0,0 +1,78 @@
+/*
+ * DataTableEncodingBenchmark.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.benchmark;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * DataTableEncodingBenchmark
+ *
+ * Encoding of hipStar.dat as a DeployR-encoded "hip" data.frame input,
+ * the work done by simulateGeneratedData() in the EncodedDataIn flows:
+ *
+ * - createDataTable: RDataFactory.createDataTable(is, "\\s+", true, true)
+ * - readColumnar: WhitespaceTableReader into primitive columns
+ * - asDataFrame: RDataTable.asDataFrame("hip") on a parsed table
+ * - columnarAsDataFrame: ColumnarTable.asDataFrame("hip")
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataTableEncodingBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int scale;
+
+    private byte[] data;
+    private RDataTable table;
+    private ColumnarTable columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = HipStarData.scaled(scale);
+        table = RDataFactory.createDataTable(
+                    new ByteArrayInputStream(data), "\\s+", true, true);
+        columnar = WhitespaceTableReader.read(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public RDataTable createDataTable() throws Exception {
+        return RDataFactory.createDataTable(
+                    new ByteArrayInputStream(data), "\\s+", true, true);
+    }
+
+    @Benchmark
+    public ColumnarTable readColumnar() throws IOException {
+        return WhitespaceTableReader.read(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public RDataFrame asDataFrame() {
+        return table.asDataFrame("hip");
+    }
+
+    @Benchmark
+    public RDataFrame columnarAsDataFrame() {
+        return columnar.asDataFrame("hip");
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * HipStarData.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.benchmark;
+
+import java.io.*;
+import java.nio.file.*;
+
+/*
+ * HipStarData
+ *
+ * Benchmark input derived from analytics/hipStar.dat. The file is
+ * replicated scale times, keeping a single header row, so encoding
+ * cost can be measured at 1x, 10x and 100x the example dataset.
+ */
+final class HipStarData {
+
+    private HipStarData() {
+    }
+
+    /*
+     * Location of hipStar.dat, relative to the project directory the
+     * jmh task runs in unless overridden with -DhipDataFile.
+     */
+    static Path location() {
+        return Paths.get(System.getProperty("hipDataFile",
+                                            "analytics/hipStar.dat"));
+    }
+
+    static byte[] scaled(int scale) throws IOException {
+
+        byte[] file = Files.readAllBytes(location());
+        int headerEnd = 0;
+        while(headerEnd < file.length && file[headerEnd] != '\n') {
+            headerEnd++;
+        }
+        headerEnd = Math.min(headerEnd + 1, file.length);
+        int bodyLength = file.length - headerEnd;
+
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream(headerEnd + bodyLength * scale + scale);
+        out.write(file, 0, headerEnd);
+        for(int i = 0; i < scale; i++) {
+            out.write(file, headerEnd, bodyLength);
+            if(bodyLength > 0 && file[file.length - 1] != '\n') {
+                out.write('\n');
+            }
+        }
+        return out.toByteArray();
+    }
+
+}
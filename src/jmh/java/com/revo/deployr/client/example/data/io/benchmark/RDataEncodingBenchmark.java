@@ -0,0 +1,43 @@
+/*
+ * RDataEncodingBenchmark.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.benchmark;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * RDataEncodingBenchmark
+ *
+ * Encoding of the scalar "hipStarUrl" input used by the
+ * ExternalDataIn and MultipleDataIn flows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RDataEncodingBenchmark {
+
+    private static final String HIP_DAT_URL =
+        "http://astrostatistics.psu.edu/datasets/HIP_star.dat";
+
+    @Benchmark
+    public RData createString() {
+        return RDataFactory.createString("hipStarUrl", HIP_DAT_URL);
+    }
+
+}
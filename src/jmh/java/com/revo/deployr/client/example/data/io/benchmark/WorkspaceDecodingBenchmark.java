@@ -0,0 +1,160 @@
+/*
+ * WorkspaceDecodingBenchmark.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.benchmark;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * WorkspaceDecodingBenchmark
+ *
+ * Decoding of DeployR-encoded workspace object outputs the way the
+ * MultipleDataOut examples walk them: hipSubset [ RDataFrame ],
+ * hipDim [ RNumericVector ] and hipNames [ RStringVector ].
+ *
+ * The workspace is built locally from hipStar.dat so the benchmark
+ * measures client-side decoding only, never the server round trip.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkspaceDecodingBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int scale;
+
+    private List<RData> workspaceObjects;
+    private RDataFrame hipSubset;
+    private RNumericVector hipDim;
+    private RStringVector hipNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        byte[] data = HipStarData.scaled(scale);
+        hipSubset = RDataFactory.createDataTable(
+                        new ByteArrayInputStream(data), "\\s+", true, true)
+                                    .asDataFrame("hipSubset");
+
+        List<RData> columns = hipSubset.getValue();
+        int rows = 0;
+        List<String> names = new ArrayList<String>(columns.size());
+        for(RData column : columns) {
+            names.add(column.getName());
+            if(column instanceof RNumericVector) {
+                rows = ((RNumericVector) column).getValue().size();
+            }
+        }
+        hipDim = RDataFactory.createNumericVector("hipDim",
+                    Arrays.asList((double) rows, (double) columns.size()));
+        hipNames = RDataFactory.createStringVector("hipNames", names);
+
+        workspaceObjects = Arrays.asList(hipSubset, hipDim, hipNames);
+    }
+
+    /*
+     * workspaceObjects
+     *
+     * The full instanceof loop over exec.about().workspaceObjects,
+     * touching every decoded value.
+     */
+    @Benchmark
+    public void workspaceObjects(Blackhole bh) {
+        for(RData rData : workspaceObjects) {
+            if(rData instanceof RDataFrame) {
+                decodeFrame((RDataFrame) rData, bh);
+            } else
+            if(rData instanceof RNumericVector) {
+                decodeNumeric((RNumericVector) rData, bh);
+            } else
+            if(rData instanceof RStringVector) {
+                decodeString((RStringVector) rData, bh);
+            }
+        }
+    }
+
+    @Benchmark
+    public void dataFrame(Blackhole bh) {
+        decodeFrame(hipSubset, bh);
+    }
+
+    @Benchmark
+    public void numericVector(Blackhole bh) {
+        decodeNumeric(hipDim, bh);
+    }
+
+    @Benchmark
+    public void stringVector(Blackhole bh) {
+        decodeString(hipNames, bh);
+    }
+
+    /*
+     * dataFrameAsDataTable
+     *
+     * The optional RDataFrame to RDataTable conversion used by the
+     * stateful MultipleDataOut examples.
+     */
+    @Benchmark
+    public RDataTable dataFrameAsDataTable() throws Exception {
+        return RDataFactory.createDataTable(hipSubset);
+    }
+
+    /*
+     * dataFrameAsColumnarTable
+     *
+     * WorkspaceDecoder decoding of the same RDataFrame straight into
+     * primitive and dictionary-encoded columns.
+     */
+    @Benchmark
+    public ColumnarTable dataFrameAsColumnarTable() {
+        return WorkspaceDecoder.decode(hipSubset);
+    }
+
+    private static void decodeFrame(RDataFrame frame, Blackhole bh) {
+        for(RData column : frame.getValue()) {
+            if(column instanceof RNumericVector) {
+                decodeNumeric((RNumericVector) column, bh);
+            } else
+            if(column instanceof RStringVector) {
+                decodeString((RStringVector) column, bh);
+            } else {
+                bh.consume(column);
+            }
+        }
+    }
+
+    private static void decodeNumeric(RNumericVector vector, Blackhole bh) {
+        for(Double value : vector.getValue()) {
+            if(value != null) {
+                bh.consume(value.doubleValue());
+            }
+        }
+    }
+
+    private static void decodeString(RStringVector vector, Blackhole bh) {
+        for(String value : vector.getValue()) {
+            bh.consume(value);
+        }
+    }
+
+}
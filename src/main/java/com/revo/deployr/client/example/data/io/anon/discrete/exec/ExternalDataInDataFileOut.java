@@ -12,51 +12,32 @@
  */
 package com.revo.deployr.client.example.data.io.anon.discrete.exec;
 
-import com.revo.deployr.client.*;
 import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
+import com.revo.deployr.client.example.data.io.stream.*;
 import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
 public class ExternalDataInDataFileOut {
 
     private static Logger log = Logger.getLogger(ExternalDataInDataFileOut.class);
-    /*
-     * Hipparcos star dataset URL endpoint.
-     */
-    private static String HIP_DAT_URL =
-        "http://astrostatistics.psu.edu/datasets/HIP_star.dat";
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
+        /*
+         * Establish an anonymous RClient connection to the DeployR
+         * server, released when the session is closed.
+         *
+         * An RClient connection is the mandatory starting
+         * point for any application using the client library.
+         */
+        try(Session session = Session.anonymous()) {
 
             /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -70,7 +51,7 @@ public class ExternalDataInDataFileOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Load an R object literal "hipStarUrl" into the
              * workspace prior to script execution.
              *
@@ -79,10 +60,7 @@ public class ExternalDataInDataFileOut {
              * to load the Hipparcos star dataset from the DAT file
              * at that location.
              */
-            RData hipStarUrl =
-                RDataFactory.createString("hipStarUrl", HIP_DAT_URL);
-            List<RData> rinputs = Arrays.asList(hipStarUrl);
-            options.rinputs = rinputs;
+            options.rinputs = Arrays.asList(Inputs.hipStarUrl());
 
             log.info("[   DATA INPUT   ] External data source input " +
                 "set on execution, [ ProjectPreloadOptions.rinputs ].");
@@ -92,54 +70,25 @@ public class ExternalDataInDataFileOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
-             * Retrieve the working directory file (artifact) called
-             * hip.csv that was generated by the execution.
-             *
-             * Outputs generated by an execution can be used in any
-             * number of ways by client applications, including:
-             *
-             * 1. Use output data to perform further calculations.
-             * 2. Display output data to an end-user.
-             * 3. Write output data to a database.
-             * 4. Pass output data along to another Web service.
-             * 5. etc.
+             * Stream the working directory file (artifact) called
+             * hip.csv that was generated by the execution, summarizing
+             * each column as its rows arrive rather than after the
+             * whole file has downloaded.
              */
-            List<RProjectFile> wdFiles = exec.about().artifacts;
-
-            for(RProjectFile wdFile : wdFiles) {
-                if(wdFile.about().filename.equals("hip.csv")) {
-                log.info("[  DATA OUTPUT   ] Retrieved working directory " +
-                    "file output " + wdFile.about().filename +
-                    " [ RProjectFile ].");
-                    InputStream fis = null;
-                    try { fis = wdFile.download(); } catch(Exception ex) {
-                        log.warn("Working directory data file " + ex);
-                    } finally {
-                        IOUtils.closeQuietly(fis);
-                    }
-                }
+            SummarySink summary = new SummarySink();
+            Outputs.csvArtifact(result, "hip.csv", summary);
+            for(SummarySink.ColumnSummary column : summary.getSummaries()) {
+                log.info("[  DATA OUTPUT   ] Summarized hip.csv " +
+                    "column " + column);
             }
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
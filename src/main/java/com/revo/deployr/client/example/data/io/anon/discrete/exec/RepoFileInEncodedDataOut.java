@@ -12,10 +12,10 @@
  */
 package com.revo.deployr.client.example.data.io.anon.discrete.exec;
 
-import com.revo.deployr.client.*;
 import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 import java.util.*;
 
 import org.apache.log4j.Logger;
@@ -26,29 +26,17 @@ public class RepoFileInEncodedDataOut {
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
+        /*
+         * Establish an anonymous RClient connection to the DeployR
+         * server, released when the session is closed.
+         *
+         * An RClient connection is the mandatory starting
+         * point for any application using the client library.
+         */
+        try(Session session = Session.anonymous()) {
 
             /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -62,7 +50,7 @@ public class RepoFileInEncodedDataOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * binary R object input file:
              * /testuser/example-data-io/hipStar.rData
@@ -71,12 +59,7 @@ public class RepoFileInEncodedDataOut {
              * must have it's repository-managed access controls
              * set to "public".
              */
-            ProjectPreloadOptions preloadWorkspace =
-                                new ProjectPreloadOptions();
-            preloadWorkspace.filename = "hipStar.rData";
-            preloadWorkspace.directory = "example-data-io";
-            preloadWorkspace.author = "testuser";
-            options.preloadWorkspace = preloadWorkspace;
+            options.preloadWorkspace = Inputs.repositoryFile("hipStar.rData");
 
             log.info("[   DATA INPUT   ] Repository binary file input " +
                 "set on execution, [ ProjectExecutionOptions.preloadWorkspace ].");
@@ -88,8 +71,7 @@ public class RepoFileInEncodedDataOut {
              * follows:
              * 'hip', hipDim', 'hipNames'.
              */
-            options.routputs =
-                Arrays.asList("hip", "hipDim", "hipNames");
+            options.routputs = Inputs.HIP_ROUTPUTS;
 
             log.info("[  EXEC OPTION   ] DeployR-encoded R object request " +
                 "set on execution [ ProjectExecutionOptions.routputs ].");
@@ -99,87 +81,18 @@ public class RepoFileInEncodedDataOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
              * Retrieve the requested R object data encodings from
-             * the results of the script execution. 
-             *
-             * See the R Object Data Decoding chapter in the
-             * Client Library Tutorial on the DeployR website for
-             * further details.
+             * the results of the script execution.
              */
-            List<RData> objects = exec.about().workspaceObjects;
-
-            for(RData rData : objects) {
-                if(rData instanceof RDataFrame) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RDataFrame ].");
-                    List<RData> hipSubsetVal =
-                        ((RDataFrame) rData).getValue();
-                    /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
-                     */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-
-                } else
-                if(rData instanceof RNumericVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RNumericVector ].");
-                    List<Double> hipDimVal =
-                        ((RNumericVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipDimVal);
-                    /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
-                     */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-
-                } else
-                if(rData instanceof RStringVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RStringVector ].");
-                    List<String> hipNamesVal =
-                        ((RStringVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipNamesVal);
-                    /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
-                     */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-                } else {
-                    log.info("Unexpected DeployR-encoded R object returned, " +
-                        "object name=" + rData.getName() + ", encoding=" +
-                                                        rData.getClass());
-                }
-            }
-
+            Outputs.workspaceObjects(result);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
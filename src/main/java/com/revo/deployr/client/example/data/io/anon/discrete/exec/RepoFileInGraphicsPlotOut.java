@@ -12,14 +12,11 @@
  */
 package com.revo.deployr.client.example.data.io.anon.discrete.exec;
 
-import com.revo.deployr.client.*;
 import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
@@ -29,29 +26,17 @@ public class RepoFileInGraphicsPlotOut {
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
+        /*
+         * Establish an anonymous RClient connection to the DeployR
+         * server, released when the session is closed.
+         *
+         * An RClient connection is the mandatory starting
+         * point for any application using the client library.
+         */
+        try(Session session = Session.anonymous()) {
 
             /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -65,17 +50,13 @@ public class RepoFileInGraphicsPlotOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * data input file:
              * /testuser/example-data-io/hipStar.dat
              */
-            ProjectPreloadOptions preloadDirectory =
-                                new ProjectPreloadOptions();
-            preloadDirectory.filename = "hipStar.dat";
-            preloadDirectory.directory = "example-data-io";
-            preloadDirectory.author = "testuser";
-            options.preloadDirectory = preloadDirectory;
+            options.preloadDirectory = Inputs.repositoryFile("hipStar.dat");
+
             /*
              * Blackbox must be enabled in order for an anonymous
              * caller to request a repository-managed file (hipStar.dat)
@@ -91,52 +72,18 @@ public class RepoFileInGraphicsPlotOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
-             * Retrieve R graphics device plot (result) called
+             * Retrieve the R graphics device plot (result) called
              * unnamedplot*.png that was generated by the execution.
-             *
-             * Outputs generated by an execution can be used in any
-             * number of ways by client applications, including:
-             *
-             * 1. Use output data to perform further calculations.
-             * 2. Display output data to an end-user.
-             * 3. Write output data to a database.
-             * 4. Pass output data along to another Web service.
-             * 5. etc.
              */
-            List<RProjectResult> results = exec.about().results;
-
-            for(RProjectResult result : results) {
-                log.info("[  DATA OUTPUT   ] Retrieved graphics device " +
-                    "plot output " + result.about().filename +
-                    " [ RProjectResult ].");
-                InputStream fis = null;
-                try { fis = result.download(); } catch(Exception ex) {
-                    log.warn("Graphics device plot " + ex);
-                } finally {
-                    IOUtils.closeQuietly(fis);
-                }
-            }
+            Outputs.results(result);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
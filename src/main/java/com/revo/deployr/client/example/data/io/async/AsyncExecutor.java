@@ -0,0 +1,210 @@
+/*
+ * AsyncExecutor.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.async;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.params.*;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * AsyncExecutor
+ *
+ * Non-blocking facade over the synchronous execution calls on RClient
+ * (anonymous or authenticated discrete execution, RScriptExecution)
+ * and RProject (stateful execution, RProjectExecution).
+ *
+ * Each call is dispatched onto the configured executor and returns a
+ * CompletableFuture completed with the execution handle, or completed
+ * exceptionally with the RClientException, RSecurityException etc.
+ * raised by the client library.
+ *
+ * On a JDK that supports virtual threads, newVirtualThreadExecutor
+ * lets a single JVM keep hundreds of executions in flight without
+ * dedicating a platform thread to each blocked HTTP call.
+ *
+ * Usage:
+ *
+ * AsyncExecutor async = AsyncExecutor.fromSystemProperties();
+ * async.executeScript(rProject, "dataIO.R", "example-data-io",
+ *                     "testuser", null, options)
+ *      .thenAccept(exec -> ...);
+ */
+public class AsyncExecutor {
+
+    private static Logger log = Logger.getLogger(AsyncExecutor.class);
+
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AsyncExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /*
+     * fromSystemProperties
+     *
+     * Selects the executor using async.executor=virtual|fixed|cached
+     * (default virtual) with async.threads sizing the fixed executor.
+     */
+    public static AsyncExecutor fromSystemProperties() {
+
+        String type = System.getProperty("async.executor", "virtual");
+        ExecutorService executor;
+        if("fixed".equals(type)) {
+            executor = newFixedExecutor(Integer.getInteger("async.threads",
+                    Runtime.getRuntime().availableProcessors() * 4));
+        } else
+        if("cached".equals(type)) {
+            executor = newCachedExecutor();
+        } else {
+            executor = newVirtualThreadExecutor();
+        }
+        return new AsyncExecutor(executor);
+    }
+
+    /*
+     * newVirtualThreadExecutor
+     *
+     * Returns a thread-per-task executor backed by virtual threads
+     * when running on JDK 21 or later. Resolved reflectively so the
+     * project still builds for older targets, on which a cached pool
+     * of daemon platform threads is returned instead.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod(
+                                "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch(Exception ex) {
+            log.debug("Virtual threads unavailable on this JDK, " +
+                                    "falling back to cached executor.");
+            return newCachedExecutor();
+        }
+    }
+
+    public static ExecutorService newFixedExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads,
+                                daemonThreads("AsyncExecutor-fixed-"));
+    }
+
+    public static ExecutorService newCachedExecutor() {
+        return Executors.newCachedThreadPool(
+                                daemonThreads("AsyncExecutor-cached-"));
+    }
+
+    /*
+     * Discrete execution of a repository-managed R script.
+     */
+    public CompletableFuture<RScriptExecution> executeScript(
+                        final RClient rClient,
+                        final String filename,
+                        final String directory,
+                        final String author,
+                        final String version,
+                        final AnonymousProjectExecutionOptions options) {
+        return submit(() -> rClient.executeScript(filename,
+                            directory, author, version, options));
+    }
+
+    /*
+     * Discrete execution of a block of R code.
+     */
+    public CompletableFuture<RScriptExecution> executeCode(
+                        final RClient rClient,
+                        final String code,
+                        final AnonymousProjectExecutionOptions options) {
+        return submit(() -> rClient.executeCode(code, options));
+    }
+
+    /*
+     * Stateful execution of a repository-managed R script.
+     */
+    public CompletableFuture<RProjectExecution> executeScript(
+                        final RProject rProject,
+                        final String filename,
+                        final String directory,
+                        final String author,
+                        final String version,
+                        final ProjectExecutionOptions options) {
+        return submit(() -> rProject.executeScript(filename,
+                            directory, author, version, options));
+    }
+
+    /*
+     * Stateful execution of a block of R code.
+     */
+    public CompletableFuture<RProjectExecution> executeCode(
+                        final RProject rProject,
+                        final String code,
+                        final ProjectExecutionOptions options) {
+        return submit(() -> rProject.executeCode(code, options));
+    }
+
+    /*
+     * submit
+     *
+     * Runs any blocking client library call on the executor, for
+     * example output downloads that should overlap with executions.
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> call) {
+
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch(Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch(RejectedExecutionException rex) {
+            inFlight.decrementAndGet();
+            future.completeExceptionally(rex);
+        }
+        return future;
+    }
+
+    /*
+     * Number of submitted calls that have not yet completed.
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+}
@@ -12,70 +12,31 @@
  */
 package com.revo.deployr.client.example.data.io.auth.discrete.exec;
 
-import com.revo.deployr.client.*;
 import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
 public class EncodedDataInBinaryFileOut {
 
     private static Logger log = Logger.getLogger(EncodedDataInBinaryFileOut.class);
-    /*
-     * Hipparcos star dataset URL endpoint.
-     */
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
-
-            /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -89,7 +50,7 @@ public class EncodedDataInBinaryFileOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Simulate application generated data. This data
              * is first encoded using the RDataFactory before
              * being passed as an input on the execution.
@@ -97,10 +58,9 @@ public class EncodedDataInBinaryFileOut {
              * This encoded R input is automatically converted
              * into a workspace object before script execution.
              */
-            RData generatedData = simulateGeneratedData();
+            RData generatedData = Inputs.hipStarData();
             if(generatedData != null) {
-                List<RData> rinputs = Arrays.asList(generatedData);
-                options.rinputs = rinputs;
+                options.rinputs = Arrays.asList(generatedData);
             }
 
             log.info("[   DATA INPUT   ] DeployR-encoded R input " +
@@ -111,90 +71,20 @@ public class EncodedDataInBinaryFileOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
              * Retrieve the working directory file (artifact) called
-             * hip.rData that was generated by the execution.
-             *
-             * Outputs generated by an execution can be used in any
-             * number of ways by client applications, including:
-             *
-             * 1. Use output data to perform further calculations.
-             * 2. Display output data to an end-user.
-             * 3. Write output data to a database.
-             * 4. Pass output data along to another Web service.
-             * 5. etc.
+             * hip.rData that was generated by the execution and decode
+             * the "hip" data.frame it holds client-side, no second
+             * DeployR-encoded transfer of the same data is needed.
              */
-            List<RProjectFile> wdFiles = exec.about().artifacts;
-
-            for(RProjectFile wdFile : wdFiles) {
-                if(wdFile.about().filename.equals("hip.rData")) {
-                    log.info("[  DATA OUTPUT   ] Retrieved working directory " +
-                        "file output " + wdFile.about().filename +
-                        " [ RProjectFile ].");
-                    InputStream fis = null;
-                    try { fis = wdFile.download(); } catch(Exception ex) {
-                        log.warn("Working directory binary file " + ex);
-                    } finally {
-                        IOUtils.closeQuietly(fis);
-                    }
-                }
-            }
+            Outputs.rDataArtifact(result, "hip.rData", "hip");
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
-        }
-
-    }
-
-    /*
-     * simulateGeneratedData
-     *
-     * This method is used to generate sample data within the
-     * application. In a real-world application this data may 
-     * originate from any number of sources, for example:
-     *
-     * - Data read from a file
-     * - Data read from a database
-     * - Data read from an external Web service
-     * - Data read from direct user input
-     * - Data generated in real time by the application itself
-     *
-     * This data is encoded using the RDataFactory and then
-     * passed as an input the execution.
-     *
-     */
-    private static RData simulateGeneratedData() {
-
-        RData df = null;
-        try {
-
-            URL url =
-                new URL("http://astrostatistics.psu.edu/datasets/HIP_star.dat");
-            InputStream is = url.openStream();
-            RDataTable table = RDataFactory.createDataTable(is, "\\s+", true, true);
-            df = table.asDataFrame("hip");
-
-        } catch(Exception ex) {
-            log.warn("Simulate generated data failed, ex=" + ex);
-        } finally {
-            return df;
         }
 
     }
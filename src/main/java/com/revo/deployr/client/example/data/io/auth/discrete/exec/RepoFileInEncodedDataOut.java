@@ -12,13 +12,9 @@
  */
 package com.revo.deployr.client.example.data.io.auth.discrete.exec;
 
-import com.revo.deployr.client.*;
-import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
-import java.util.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 
 import org.apache.log4j.Logger;
 
@@ -28,47 +24,17 @@ public class RepoFileInEncodedDataOut {
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
-
-            /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -82,17 +48,12 @@ public class RepoFileInEncodedDataOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * binary R object input file:
              * /testuser/example-data-io/hipStar.rData
              */
-            ProjectPreloadOptions preloadWorkspace =
-                                new ProjectPreloadOptions();
-            preloadWorkspace.filename = "hipStar.rData";
-            preloadWorkspace.directory = "example-data-io";
-            preloadWorkspace.author = "testuser";
-            options.preloadWorkspace = preloadWorkspace;
+            options.preloadWorkspace = Inputs.repositoryFile("hipStar.rData");
 
             log.info("[   DATA INPUT   ] Repository binary file input " +
                 "set on execution, [ ProjectExecutionOptions.preloadWorkspace ].");
@@ -104,8 +65,7 @@ public class RepoFileInEncodedDataOut {
              * follows:
              * 'hip', hipDim', 'hipNames'.
              */
-            options.routputs =
-                Arrays.asList("hip", "hipDim", "hipNames");
+            options.routputs = Inputs.HIP_ROUTPUTS;
 
             log.info("[  EXEC OPTION   ] DeployR-encoded R object request " +
                 "set on execution [ ProjectExecutionOptions.routputs ].");
@@ -115,66 +75,18 @@ public class RepoFileInEncodedDataOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
              * Retrieve the requested R object data encodings from
-             * the results of the script execution. 
-             *
-             * See the R Object Data Decoding chapter in the
-             * Client Library Tutorial on the DeployR website for
-             * further details.
+             * the workspace following the script execution.
              */
-            List<RData> objects = exec.about().workspaceObjects;
-
-            for(RData rData : objects) {
-                if(rData instanceof RDataFrame) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RDataFrame ].");
-                    List<RData> hipSubsetVal =
-                        ((RDataFrame) rData).getValue();
-                } else
-                if(rData instanceof RNumericVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RNumericVector ].");
-                    List<Double> hipDimVal =
-                        ((RNumericVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipDimVal);
-                } else
-                if(rData instanceof RStringVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RStringVector ].");
-                    List<String> hipNamesVal =
-                        ((RStringVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipNamesVal);
-                } else {
-                    log.info("Unexpected DeployR-encoded R object returned, " +
-                        "object name=" + rData.getName() + ", encoding=" +
-                                                        rData.getClass());
-                }
-            }
+            Outputs.workspaceObjects(result);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
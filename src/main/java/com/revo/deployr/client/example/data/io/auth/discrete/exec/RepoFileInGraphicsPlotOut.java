@@ -12,16 +12,9 @@
  */
 package com.revo.deployr.client.example.data.io.auth.discrete.exec;
 
-import com.revo.deployr.client.*;
-import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
-import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 
 import org.apache.log4j.Logger;
 
@@ -31,47 +24,17 @@ public class RepoFileInGraphicsPlotOut {
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
-
-            /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Create the AnonymousProjectExecutionOptions object·
+             * Create the AnonymousProjectExecutionOptions object
              * to specify data inputs and output to the script.
              *
              * This options object can be used to pass standard
@@ -85,17 +48,12 @@ public class RepoFileInGraphicsPlotOut {
             AnonymousProjectExecutionOptions options =
                     new AnonymousProjectExecutionOptions();
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * data input file:
              * /testuser/example-data-io/hipStar.dat
              */
-            ProjectPreloadOptions preloadDirectory =
-                                new ProjectPreloadOptions();
-            preloadDirectory.filename = "hipStar.dat";
-            preloadDirectory.directory = "example-data-io";
-            preloadDirectory.author = "testuser";
-            options.preloadDirectory = preloadDirectory;
+            options.preloadDirectory = Inputs.repositoryFile("hipStar.dat");
 
             log.info("[   DATA INPUT   ] Repository data file input " +
                 "set on execution, [ ProjectExecutionOptions.preloadDirectory ].");
@@ -105,52 +63,18 @@ public class RepoFileInGraphicsPlotOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RScriptExecution exec =
-                    rClient.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Discrete R script " +
-                    "execution completed [ RScriptExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
-             * Retrieve R graphics device plot (result) called
+             * Retrieve the R graphics device plot (result) called
              * unnamedplot*.png that was generated by the execution.
-             *
-             * Outputs generated by an execution can be used in any
-             * number of ways by client applications, including:
-             *
-             * 1. Use output data to perform further calculations.
-             * 2. Display output data to an end-user.
-             * 3. Write output data to a database.
-             * 4. Pass output data along to another Web service.
-             * 5. etc.
              */
-            List<RProjectResult> results = exec.about().results;
-
-            for(RProjectResult result : results) {
-                log.info("[  DATA OUTPUT   ] Retrieved graphics device " +
-                    "plot output " + result.about().filename +
-                    " [ RProjectResult ].");
-                InputStream fis = null;
-                try { fis = result.download(); } catch(Exception ex) {
-                    log.warn("Graphics device plot " + ex);
-                } finally {
-                    IOUtils.closeQuietly(fis);
-                }
-            }
+            Outputs.results(result);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
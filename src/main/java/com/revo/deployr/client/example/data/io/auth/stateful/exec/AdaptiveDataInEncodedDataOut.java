@@ -0,0 +1,103 @@
+/*
+ * AdaptiveDataInEncodedDataOut.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.auth.stateful.exec;
+
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
+
+import org.apache.log4j.Logger;
+
+public class AdaptiveDataInEncodedDataOut {
+
+    private static Logger log = Logger.getLogger(AdaptiveDataInEncodedDataOut.class);
+
+    public static void main(String args[]) throws Exception {
+
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
+
+            /*
+             * Create a temporary project (R session), closed when
+             * the session is closed.
+             */
+            session.createProject();
+
+            /*
+             * Create a ProjectExecutionOptions instance
+             * to specify data inputs and output to the
+             * execution of the repository-managed R script.
+             *
+             * This options object can be used to pass standard
+             * execution model parameters on execution calls. All
+             * fields are optional.
+             *
+             * See the Standard Execution Model chapter in the
+             * Client Library Tutorial on the DeployR website for
+             * further details.
+             */
+            ProjectExecutionOptions options =
+                new ProjectExecutionOptions();
+
+            /*
+             * Make the Hipparcos star dataset available to the
+             * execution through whichever of its locations is
+             * estimated cheapest: DeployR-encoded rinputs, an upload
+             * of the local analytics/hipStar.dat to the working
+             * directory, a binary workspace written client-side, the
+             * repository-managed copies or the external URL. The
+             * estimate follows the payload size, whether the content
+             * is already on the server and past transfer rates.
+             */
+            session.addInput(Inputs.hipStar(), options);
+
+            /*
+             * Request the retrieval of the "hip" data.frame and
+             * two vector objects from the workspace following the
+             * execution. The corresponding R objects are named as
+             * follows:
+             * 'hip', hipDim', 'hipNames'.
+             */
+            options.routputs = Inputs.HIP_ROUTPUTS;
+
+            log.info("[  EXEC OPTION   ] DeployR-encoded R object request " +
+                "set on execution [ ProjectExecutionOptions.routputs ].");
+
+            /*
+             * Execute a public analytics Web service as an authenticated
+             * user based on a repository-managed R script:
+             * /testuser/example-data-io/dataIO.R
+             */
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
+
+            /*
+             * Retrieve the requested R object data encodings from
+             * the workspace following the script execution.
+             */
+            Outputs.workspaceObjects(result);
+
+        } catch (Exception ex) {
+            log.warn("Unexpected runtime exception=" + ex);
+        }
+
+    }
+
+}
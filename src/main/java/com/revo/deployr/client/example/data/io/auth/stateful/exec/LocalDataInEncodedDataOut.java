@@ -12,72 +12,32 @@
  */
 package com.revo.deployr.client.example.data.io.auth.stateful.exec;
 
-import com.revo.deployr.client.*;
-import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
-import java.util.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
+import com.revo.deployr.client.example.data.io.upload.*;
 import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
 public class LocalDataInEncodedDataOut {
 
     private static Logger log = Logger.getLogger(LocalDataInEncodedDataOut.class);
-    /*
-     * Hipparcos star dataset URL endpoint.
-     */
-    private static String HIP_DAT_URL =
-        "http://astrostatistics.psu.edu/datasets/HIP_star.dat";
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-        RProject rProject = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
-            
-            /*
-             * Create a temporary project (R session).
+             * Create a temporary project (R session), closed when
+             * the session is closed.
              *
              * Optionally:
              * ProjectCreationOptions options =
@@ -85,26 +45,30 @@ public class LocalDataInEncodedDataOut {
              *
              * Populate options as needed, then:
              *
-             * rProject = rUser.createProject(options);
+             * session.createProject(options);
              */
-            rProject = rUser.createProject();
-
-            log.info("[  GO STATEFUL   ] Created stateful temporary " +
-                    "R session [ RProject ].");
+            session.createProject();
 
-            /* 
-             * Upload a data file from local disk to the working
-             * directory of your temporary project (R session.)
+            /*
+             * Upload the local data file analytics/hipStar.dat into
+             * the working directory of the project ahead of the
+             * execution, skipped when the same content is already
+             * on the server.
              */
-            File upFile = new File("analytics/hipStar.dat");
-            InputStream is = new FileInputStream(upFile);
             DirectoryUploadOptions upOpts = new DirectoryUploadOptions();
             upOpts.filename = "hipStar.dat";
             upOpts.overwrite = true;
-            RProjectFile projFile = rProject.uploadFile(is, upOpts);
-
-            log.info("[  DATA UPLOAD   ] Uploaded data file input " +
-                "to working directory, [ RProjectFile ].");
+            long uploaded = DedupUploader.shared().getUploadedBytes();
+            session.uploadFile(new File("analytics/hipStar.dat"), upOpts);
+
+            if(DedupUploader.shared().getUploadedBytes() > uploaded) {
+                log.info("[  DATA UPLOAD   ] Uploaded data file input " +
+                    "to working directory, [ RProjectFile ].");
+            } else {
+                log.info("[  DATA UPLOAD   ] Skipped upload of data file " +
+                    "input, same content already on server, " +
+                    "[ RProjectFile ].");
+            }
 
             /*
              * Create a ProjectExecutionOptions instance
@@ -122,7 +86,6 @@ public class LocalDataInEncodedDataOut {
             ProjectExecutionOptions options =
                 new ProjectExecutionOptions();
 
-
             /*
              * Request the retrieval of the "hip" data.frame and
              * two vector objects from the workspace following the
@@ -130,8 +93,7 @@ public class LocalDataInEncodedDataOut {
              * follows:
              * 'hip', hipDim', 'hipNames'.
              */
-            options.routputs =
-                Arrays.asList("hip", "hipDim", "hipNames");
+            options.routputs = Inputs.HIP_ROUTPUTS;
 
             log.info("[  EXEC OPTION   ] DeployR-encoded R object request " +
                 "set on execution [ ProjectExecutionOptions.routputs ].");
@@ -141,74 +103,18 @@ public class LocalDataInEncodedDataOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RProjectExecution exec =
-                    rProject.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Stateful R script " +
-                    "execution completed [ RProjectExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
              * Retrieve the requested R object data encodings from
-             * the results of the script execution. 
-             *
-             * See the R Object Data Decoding chapter in the
-             * Client Library Tutorial on the DeployR website for
-             * further details.
+             * the workspace following the script execution.
              */
-            List<RData> objects = exec.about().workspaceObjects;
-
-            for(RData rData : objects) {
-                if(rData instanceof RDataFrame) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RDataFrame ].");
-                    List<RData> hipSubsetVal =
-                        ((RDataFrame) rData).getValue();
-                } else
-                if(rData instanceof RNumericVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RNumericVector ].");
-                    List<Double> hipDimVal =
-                        ((RNumericVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipDimVal);
-                } else
-                if(rData instanceof RStringVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RStringVector ].");
-                    List<String> hipNamesVal =
-                        ((RStringVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipNamesVal);
-                } else {
-                    log.info("Unexpected DeployR-encoded R object returned, " +
-                        "object name=" + rData.getName() + ", encoding=" +
-                                                        rData.getClass());
-                }
-            }
+            Outputs.workspaceObjects(result);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rProject != null) {
-                    /*
-                     * Close rProject before application exits.
-                     */
-                    rProject.close();
-                }
-            } catch (Exception fex) { }
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
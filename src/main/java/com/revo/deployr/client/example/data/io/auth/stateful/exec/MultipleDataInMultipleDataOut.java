@@ -12,16 +12,11 @@
  */
 package com.revo.deployr.client.example.data.io.auth.stateful.exec;
 
-import com.revo.deployr.client.*;
-import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
+import com.revo.deployr.client.example.data.io.table.*;
 import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
@@ -29,56 +24,20 @@ public class MultipleDataInMultipleDataOut {
 
     private static Logger log = Logger.getLogger(MultipleDataInMultipleDataOut.class);
 
-    /*
-     * Hipparcos star dataset URL endpoint.
-     */
-    private static String HIP_DAT_URL =
-        "http://astrostatistics.psu.edu/datasets/HIP_star.dat";
-
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-        RProject rProject = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
-
-            /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Create a temporary project (R session).
+             * Create a temporary project (R session), closed when
+             * the session is closed.
              *
              * Optionally:
              * ProjectCreationOptions options =
@@ -86,12 +45,9 @@ public class MultipleDataInMultipleDataOut {
              *
              * Populate options as needed, then:
              *
-             * rProject = rUser.createProject(options);
+             * session.createProject(options);
              */
-            rProject = rUser.createProject();
-
-            log.info("[  GO STATEFUL   ] Created stateful temporary " +
-                    "R session [ RProject ].");
+            session.createProject();
 
             /*
              * Create a ProjectExecutionOptions instance
@@ -111,33 +67,28 @@ public class MultipleDataInMultipleDataOut {
 
             /*
              * MultipleDataInMultipleDataOut Example Note:
-             * 
+             *
              * The inputs sent on this example are contrived
              * and superfluous as the hipStar.rData binary R
              * object input and the hipStarUrl input perform
              * the exact same purpose...to load the Hip STAR
              * dataset into the workspace ahead of execution.
-             * 
+             *
              * The example is provided to simply demonstrate
              * the mechanism of specifying multiple inputs.
              */
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * binary R object input file:
              * /testuser/example-data-io/hipStar.rData
              */
-            ProjectPreloadOptions preloadWorkspace =
-                                new ProjectPreloadOptions();
-            preloadWorkspace.filename = "hipStar.rData";
-            preloadWorkspace.directory = "example-data-io";
-            preloadWorkspace.author = "testuser";
-            options.preloadWorkspace = preloadWorkspace;
+            options.preloadWorkspace = Inputs.repositoryFile("hipStar.rData");
 
             log.info("[   DATA INPUT   ] Repository binary file input " +
                 "set on execution, [ ProjectExecutionOptions.preloadWorkspace ].");
 
-            /* 
+            /*
              * Load an R object literal "hipStarUrl" into the
              * workspace prior to script execution.
              *
@@ -146,10 +97,7 @@ public class MultipleDataInMultipleDataOut {
              * to load the Hipparcos star dataset from the DAT file
              * at that location.
              */
-            RData hipStarUrl =
-                RDataFactory.createString("hipStarUrl", HIP_DAT_URL);
-            List<RData> rinputs = Arrays.asList(hipStarUrl);
-            options.rinputs = rinputs;
+            options.rinputs = Arrays.asList(Inputs.hipStarUrl());
 
             log.info("[   DATA INPUT   ] External data source input " +
                 "set on execution, [ ProjectExecutionOptions.rinputs ].");
@@ -161,8 +109,7 @@ public class MultipleDataInMultipleDataOut {
              * follows:
              * 'hip', hipDim', 'hipNames'.
              */
-            options.routputs =
-                Arrays.asList("hip", "hipDim", "hipNames");
+            options.routputs = Inputs.HIP_ROUTPUTS;
 
             log.info("[  EXEC OPTION   ] DeployR-encoded R object request " +
                 "set on execution [ ProjectExecutionOptions.routputs ].");
@@ -172,142 +119,47 @@ public class MultipleDataInMultipleDataOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RProjectExecution exec =
-                    rProject.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Stateful R script " +
-                    "execution completed [ RProjectExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
              * Retrieve multiple outputs following the execution:
              *
              * 1. R console output.
-             * 2. R console output.
-             * 3. R console output.
-             * 4. R console output.
-             * 5. R console output.
+             * 2. DeployR-encoded R object outputs.
+             * 3. Working directory files (artifacts).
+             * 4. R graphics device plots (results).
+             *
+             * Artifacts and plots are downloaded concurrently.
              */
-
-            String console = exec.about().console;
-            log.info("[  DATA OUTPUT   ] Retrieved R console " +
-                "output [ String ].");
+            Outputs.console(result);
+            Outputs.workspaceObjects(result);
+            Outputs.files(result);
 
             /*
-             * Retrieve the requested R object data encodings from
-             * the workspace follwing the script execution. 
-             *
-             * See the R Object Data Decoding chapter in the
-             * Client Library Tutorial on the DeployR website for
-             * further details.
+             * Decode the "hip" data.frame into primitive columns,
+             * avoiding a boxed RData per value when working with
+             * the data values of the Hip STAR dataset. With
+             * -DoffHeap.enabled=true the columns are held outside
+             * the Java heap, released when the table is closed.
              */
-            List<RData> objects = exec.about().workspaceObjects;
-
-            for(RData rData : objects) {
-                if(rData instanceof RDataFrame) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RDataFrame ].");
-                    List<RData> hipSubsetVal =
-                        ((RDataFrame) rData).getValue();
-                    /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
-                     */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-                } else
-                if(rData instanceof RNumericVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RNumericVector ].");
-                    List<Double> hipDimVal =
-                        ((RNumericVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipDimVal);
+            if(OffHeapOptions.fromSystemProperties().enabled) {
+                OffHeapTable hip = Outputs.offHeapDataFrame(result, "hip");
+                if(hip != null) {
                     /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
+                     * Work with the column buffers, for example
+                     * hip.getDoubleColumn(hip.getColumnIndex("Vmag")),
+                     * then release them.
                      */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-                } else
-                if(rData instanceof RStringVector) {
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object output " + rData.getName() + " [ RStringVector ].");
-                    List<String> hipNamesVal =
-                        ((RStringVector) rData).getValue();
-                    log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
-                        "object " + rData.getName() +
-                        " value=" + hipNamesVal);
-                    /*
-                     * Optionally convert RDataFrame to RTableData to
-                     * simplify working with data values within the object.
-                     */
-                    RDataTable table =
-                        RDataFactory.createDataTable(rData);
-                } else {
-                    log.info("Unexpected DeployR-encoded R object returned, " +
-                        "object name=" + rData.getName() + ", encoding=" +
-                                                        rData.getClass());
-                }
-            }
-
-            /*
-             * Retrieve the working directory files (artifact)
-             * was generated by the execution.
-             */
-            List<RProjectFile> wdFiles = exec.about().artifacts;
-
-            for(RProjectFile wdFile : wdFiles) {
-                log.info("[  DATA OUTPUT   ] Retrieved working directory " +
-                    "file output " + wdFile.about().filename +
-                    " [ RProjectFile ].");
-                InputStream fis = null;
-                try { fis = wdFile.download(); } catch(Exception ex) {
-                    log.warn("Working directory binary file download " + ex);
-                } finally {
-                    IOUtils.closeQuietly(fis);
-                }
-            }
-
-            /*
-             * Retrieve R graphics device plots (results) called
-             * unnamedplot*.png that was generated by the execution.
-             */
-            List<RProjectResult> results = exec.about().results;
-
-            for(RProjectResult result : results) {
-                log.info("[  DATA OUTPUT   ] Retrieved graphics device " +
-                    "plot output " + result.about().filename +
-                    " [ RProjectResult ].");
-                InputStream fis = null;
-                try { fis = result.download(); } catch(Exception ex) {
-                    log.warn("Graphics device plot download " + ex);
-                } finally {
-                    IOUtils.closeQuietly(fis);
+                    hip.close();
                 }
+            } else {
+                Outputs.dataFrame(result, "hip");
             }
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rProject != null) {
-                    /*
-                     * Close rProject before application exits.
-                     */
-                    rProject.close();
-                }
-            } catch (Exception fex) { }
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
@@ -12,16 +12,9 @@
  */
 package com.revo.deployr.client.example.data.io.auth.stateful.exec;
 
-import com.revo.deployr.client.*;
-import com.revo.deployr.client.data.*;
-import com.revo.deployr.client.factory.*;
 import com.revo.deployr.client.params.*;
-import com.revo.deployr.client.auth.RAuthentication;
-import com.revo.deployr.client.auth.basic.RBasicAuthentication;
-import java.util.*;
-import java.io.*;
-import java.net.*;
-import org.apache.commons.io.IOUtils;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.core.*;
 
 import org.apache.log4j.Logger;
 
@@ -31,48 +24,18 @@ public class RepoFileInRepoFileOut {
 
     public static void main(String args[]) throws Exception {
 
-        RClient rClient = null;
-        RProject rProject = null;
-
-        try {
-
-            /*
-             * Determine DeployR server endpoint.
-             */
-            String endpoint = System.getProperty("endpoint");
-            log.info("[ CONFIGURATION  ] Using endpoint=" + endpoint);
+        /*
+         * Establish an RClient connection to the DeployR server and
+         * upgrade it to an authenticated connection [ RUser ] using
+         * basic authentication. All calls on the session inherit the
+         * access permissions of the authenticated user. The connection
+         * is released when the session is closed.
+         */
+        try(Session session = Session.authenticated()) {
 
             /*
-             * Establish RClient connection to DeployR server.
-             *
-             * An RClient connection is the mandatory starting
-             * point for any application using the client library.
-             */
-            rClient = RClientFactory.createClient(endpoint);
-
-            log.info("[   CONNECTION   ] Established anonymous " +
-                    "connection [ RClient ].");
-
-            /*
-             * Build a basic authentication token.
-             */
-            RAuthentication rAuth =
-                    new RBasicAuthentication(System.getProperty("username"),
-                            System.getProperty("password"));
-
-            /*
-             * Establish an authenticated handle with the DeployR
-             * server, rUser. Following this call the rClient 
-             * connection is operating as an authenticated connection
-             * and all calls on rClient inherit the access permissions
-             * of the authenticated user, rUser.
-             */
-            RUser rUser = rClient.login(rAuth);
-            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
-                    "connection [ RUser ].");
-
-            /*
-             * Create a temporary project (R session).
+             * Create a temporary project (R session), closed when
+             * the session is closed.
              *
              * Optionally:
              * ProjectCreationOptions options =
@@ -80,12 +43,9 @@ public class RepoFileInRepoFileOut {
              *
              * Populate options as needed, then:
              *
-             * rProject = rUser.createProject(options);
+             * session.createProject(options);
              */
-            rProject = rUser.createProject();
-
-            log.info("[  GO STATEFUL   ] Created stateful temporary " +
-                    "R session [ RProject ].");
+            session.createProject();
 
             /*
              * Create a ProjectExecutionOptions instance
@@ -103,22 +63,17 @@ public class RepoFileInRepoFileOut {
             ProjectExecutionOptions options =
                 new ProjectExecutionOptions();
 
-            /* 
+            /*
              * Preload from the DeployR repository the following
              * binary R object input file:
              * /testuser/example-data-io/hipStar.rData
              */
-            ProjectPreloadOptions preloadWorkspace =
-                                new ProjectPreloadOptions();
-            preloadWorkspace.filename = "hipStar.rData";
-            preloadWorkspace.directory = "example-data-io";
-            preloadWorkspace.author = "testuser";
-            options.preloadWorkspace = preloadWorkspace;
+            options.preloadWorkspace = Inputs.repositoryFile("hipStar.rData");
 
             log.info("[   DATA INPUT   ] Repository binary file input " +
                 "set on execution, [ ProjectExecutionOptions.preloadWorkspace ].");
 
-            /* 
+            /*
              * Request storage of entire workspace as a
              * binary rData file to the DeployR-repository
              * following the execution.
@@ -126,13 +81,7 @@ public class RepoFileInRepoFileOut {
              * Alternatively, you could use storageOptions.objects
              * to store individual objects from the workspace.
              */
-            ProjectStorageOptions storageOptions =
-                                new ProjectStorageOptions();
-            // Use random file name for this example.
-            storageOptions.workspace =
-                Long.toHexString(Double.doubleToLongBits(Math.random()));
-            storageOptions.directory = "example-data-io";
-            options.storageOptions = storageOptions;
+            options.storageOptions = Inputs.repositoryStorage();
 
             log.info("[  EXEC OPTION   ] Repository storage request " +
                 "set on execution [ ProjectExecutionOptions.storageOptions ].");
@@ -142,65 +91,21 @@ public class RepoFileInRepoFileOut {
              * user based on a repository-managed R script:
              * /testuser/example-data-io/dataIO.R
              */
-            RProjectExecution exec =
-                    rProject.executeScript("dataIO.R",
-                            "example-data-io", "testuser", null, options);
-
-            log.info("[   EXECUTION    ] Stateful R script " +
-                    "execution completed [ RProjectExecution ].");
+            ExecutionResult result =
+                    session.executeScript(Inputs.SCRIPT,
+                            Inputs.DIRECTORY, Inputs.AUTHOR, null, options);
 
             /*
-             * Retrieve repository-managed file(s) that were 
-             * generated by the execution per ProjectStorageOptions.
-             *
-             * Outputs generated by an execution can be used in any
-             * number of ways by client applications, including:
-             *
-             * 1. Use output data to perform further calculations.
-             * 2. Display output data to an end-user.
-             * 3. Write output data to a database.
-             * 4. Pass output data along to another Web service.
-             * 5. etc.
+             * Retrieve the repository-managed file(s) that were
+             * generated by the execution per ProjectStorageOptions,
+             * decoding the workspace objects each holds client-side
+             * and deleting each afterwards to clean-up after the
+             * example.
              */
-            List<RRepositoryFile> repoFiles = exec.about().repositoryFiles;
-
-            for(RRepositoryFile repoFile : repoFiles) {
-                log.info("[  DATA OUTPUT   ] Retrieved repository " +
-                    "file output " + repoFile.about().filename +
-                    " [ RRepositoryFile ].");
-                InputStream fis = null;
-                try { fis = repoFile.download(); } catch(Exception ex) {
-                    log.warn("Repository-managed file download " + ex);
-                } finally {
-                    IOUtils.closeQuietly(fis);
-                    try { // Clean-up after example.
-                        repoFile.delete();
-                    } catch(Exception dex) {
-                        log.warn("Repository-managed file delete " + dex);
-                    }
-                }
-            }
+            Outputs.repositoryWorkspaces(result, true);
 
         } catch (Exception ex) {
             log.warn("Unexpected runtime exception=" + ex);
-        } finally {
-            try {
-                if (rProject != null) {
-                    /*
-                     * Close rProject before application exits.
-                     */
-                    rProject.close();
-                }
-            } catch (Exception fex) { }
-            try {
-                if (rClient != null) {
-                    /*
-                     * Release rClient connection before application exits.
-                     */
-                    rClient.release();
-                }
-            } catch (Exception fex) {
-            }
         }
 
     }
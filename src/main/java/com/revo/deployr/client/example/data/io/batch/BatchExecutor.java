@@ -0,0 +1,305 @@
+/*
+ * BatchExecutor.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.batch;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.cache.ExecutionResult;
+import com.revo.deployr.client.example.data.io.output.ExecutionDetails;
+import com.revo.deployr.client.example.data.io.pool.PreloadSpec;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+/*
+ * BatchExecutor
+ *
+ * Runs a stream of BatchItems through one repository-managed R script
+ * on a fixed set of projects (R sessions), back-to-back, so
+ * high-volume scoring pays for project creation and preload once per
+ * project rather than once per item.
+ *
+ * Items are read from the caller's iterator into a bounded queue and
+ * taken by one worker thread per project, keeping every R session
+ * busy while the next items are prepared. Each item yields exactly
+ * one BatchResult. A failed item is reported on its result and does
+ * not stop the batch: the project is pinged after the failure and
+ * replaced when its R session is no longer usable.
+ *
+ * Usage:
+ *
+ * BatchExecutor batch = new BatchExecutor(session.getUser(),
+ *     "dataIO.R", "example-data-io", "testuser", null,
+ *     PreloadSpec.NONE, BatchOptions.fromSystemProperties());
+ * batch.run(items.iterator(), result -> ...);
+ */
+public class BatchExecutor {
+
+    private static Logger log = Logger.getLogger(BatchExecutor.class);
+
+    private static final String SNAPSHOT_FILE = ".batch.snapshot.rData";
+
+    private static final String SNAPSHOT_CODE =
+        "save.image(file = '" + SNAPSHOT_FILE + "')";
+
+    private static final String RESET_CODE =
+        "rm(list = ls(all.names = TRUE)); load('" + SNAPSHOT_FILE + "')";
+
+    private static final Task END = new Task(null, -1);
+
+    private final RUser rUser;
+    private final String filename;
+    private final String directory;
+    private final String author;
+    private final String version;
+    private final PreloadSpec spec;
+    private final BatchOptions options;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public BatchExecutor(RUser rUser, String filename, String directory,
+                         String author, String version, PreloadSpec spec,
+                         BatchOptions options) {
+
+        if(options.projects < 1 || options.queueCapacity < 1) {
+            throw new IllegalArgumentException("BatchExecutor requires " +
+                "1 <= projects and 1 <= queueCapacity.");
+        }
+
+        this.rUser = rUser;
+        this.filename = filename;
+        this.directory = directory;
+        this.author = author;
+        this.version = version;
+        this.spec = spec != null ? spec : PreloadSpec.NONE;
+        this.options = options;
+    }
+
+    /*
+     * run
+     *
+     * Executes every item and delivers its BatchResult to sink, then
+     * closes the projects. Reading items blocks while queueCapacity
+     * items are waiting for a project. The sink is called on the
+     * worker threads, concurrently and in completion order.
+     *
+     * Interrupting the calling thread abandons the items still
+     * queued, items already executing complete and are delivered.
+     */
+    public void run(Iterator<BatchItem> items, Consumer<BatchResult> sink)
+        throws InterruptedException {
+
+        BlockingQueue<Task> queue =
+            new LinkedBlockingQueue<Task>(options.queueCapacity);
+        CountDownLatch done = new CountDownLatch(options.projects);
+
+        for(int i = 0; i < options.projects; i++) {
+            Thread t = new Thread(new Worker(queue, sink, done),
+                                  "BatchExecutor-worker-" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+        }
+
+        long sequence = 0;
+        try {
+            while(items.hasNext()) {
+                queue.put(new Task(items.next(), sequence++));
+            }
+        } catch(InterruptedException iex) {
+            queue.clear();
+            throw iex;
+        } finally {
+            boolean interrupted = Thread.interrupted();
+            for(int i = 0; i < options.projects; i++) {
+                queue.put(END);
+            }
+            done.await();
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Items executed successfully over the lifetime of this executor.
+     */
+    public long getSucceededCount() {
+        return succeeded.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private static class Task {
+
+        final BatchItem item;
+        final long sequence;
+
+        Task(BatchItem item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+
+    /*
+     * Owns a single project for the duration of a run, created up
+     * front so R session setup overlaps with reading the first items.
+     */
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<Task> queue;
+        private final Consumer<BatchResult> sink;
+        private final CountDownLatch done;
+
+        private RProject rProject;
+        private boolean dirty;
+
+        Worker(BlockingQueue<Task> queue, Consumer<BatchResult> sink,
+               CountDownLatch done) {
+            this.queue = queue;
+            this.sink = sink;
+            this.done = done;
+        }
+
+        public void run() {
+
+            try {
+                try {
+                    open();
+                } catch(Exception ex) {
+                    log.warn("Batch project creation failed, retrying " +
+                                        "on next item, ex=" + ex);
+                }
+
+                Task task;
+                while((task = queue.take()) != END) {
+                    deliver(execute(task));
+                }
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                discard();
+                done.countDown();
+            }
+        }
+
+        private BatchResult execute(Task task) {
+
+            long started = System.currentTimeMillis();
+            try {
+                if(rProject == null) {
+                    open();
+                } else
+                if(dirty && options.resetBetweenItems) {
+                    reset();
+                }
+
+                ProjectExecutionOptions execOpts =
+                    new ProjectExecutionOptions();
+                execOpts.rinputs = task.item.getRinputs();
+                execOpts.routputs = task.item.getRoutputs();
+                execOpts.consoleoff = options.consoleoff;
+
+                dirty = true;
+                RProjectExecution exec = rProject.executeScript(filename,
+                                directory, author, version, execOpts);
+
+                succeeded.incrementAndGet();
+                return new BatchResult(task.item, task.sequence,
+                    ExecutionResult.of(new ExecutionDetails(exec)), null,
+                    System.currentTimeMillis() - started);
+
+            } catch(Exception ex) {
+                failed.incrementAndGet();
+                log.warn("Batch item " + task.item.getId() +
+                                        " failed, ex=" + ex);
+                if(rProject != null && !ping()) {
+                    discard();
+                }
+                return new BatchResult(task.item, task.sequence, null, ex,
+                                       System.currentTimeMillis() - started);
+            }
+        }
+
+        private void deliver(BatchResult result) {
+            try {
+                sink.accept(result);
+            } catch(RuntimeException rex) {
+                log.warn("Batch result sink failed for item " +
+                                result.getItem().getId() + ", ex=" + rex);
+            }
+        }
+
+        private void open() throws RClientException, RSecurityException {
+
+            RProject created = spec.isEmpty() ? rUser.createProject() :
+                                rUser.createProject(spec.toCreationOptions());
+            try {
+                if(options.resetBetweenItems) {
+                    created.executeCode(SNAPSHOT_CODE);
+                }
+            } catch(RClientException | RSecurityException |
+                    RuntimeException ex) {
+                close(created);
+                throw ex;
+            }
+            rProject = created;
+            dirty = false;
+        }
+
+        /*
+         * A project whose workspace cannot be restored is replaced
+         * rather than risk leaking objects into the next item.
+         */
+        private void reset() throws RClientException, RSecurityException {
+            try {
+                rProject.executeCode(RESET_CODE);
+                dirty = false;
+            } catch(RClientException | RSecurityException |
+                    RuntimeException ex) {
+                log.warn("Batch project workspace reset failed, " +
+                                        "replacing project, ex=" + ex);
+                discard();
+                open();
+            }
+        }
+
+        private boolean ping() {
+            try {
+                return rProject.ping();
+            } catch(Exception ex) {
+                return false;
+            }
+        }
+
+        private void discard() {
+            close(rProject);
+            rProject = null;
+        }
+
+        private void close(RProject project) {
+            if(project != null) {
+                try {
+                    project.close();
+                } catch(Exception ex) {
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * BatchItem.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.batch;
+
+import com.revo.deployr.client.data.*;
+import java.util.*;
+
+/*
+ * BatchItem
+ *
+ * One input set of a batch: the rinputs loaded into the workspace
+ * ahead of the execution and the routputs retrieved from it after.
+ */
+public final class BatchItem {
+
+    private final String id;
+    private final List<RData> rinputs;
+    private final List<String> routputs;
+
+    public BatchItem(String id, List<RData> rinputs, List<String> routputs) {
+        this.id = id;
+        this.rinputs = rinputs;
+        this.routputs = routputs;
+    }
+
+    /*
+     * Caller assigned identifier, reported back on the BatchResult.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public List<RData> getRinputs() {
+        return rinputs;
+    }
+
+    public List<String> getRoutputs() {
+        return routputs;
+    }
+
+    public String toString() {
+        return "BatchItem[" + id + "]";
+    }
+
+}
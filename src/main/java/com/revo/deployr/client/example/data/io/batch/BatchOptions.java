@@ -0,0 +1,67 @@
+/*
+ * BatchOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.batch;
+
+/*
+ * BatchOptions
+ *
+ * Configuration for a BatchExecutor. Follows the same convention as
+ * the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class BatchOptions {
+
+    /*
+     * Number of projects (R sessions) items are pipelined through,
+     * each driven by its own worker thread.
+     */
+    public int projects = 2;
+
+    /*
+     * Maximum number of items read ahead of the workers. The caller
+     * blocks in run once the queue is full.
+     */
+    public int queueCapacity = 16;
+
+    /*
+     * When enabled the workspace of a project is restored to its
+     * state immediately after creation before each item, so no
+     * objects leak from one item to the next. dataIO.R, for example,
+     * changes behavior when hipStarUrl is present in the workspace.
+     * Costs one round trip per item.
+     */
+    public boolean resetBetweenItems = true;
+
+    /*
+     * Suppress the R console output of each item execution when the
+     * caller only needs the workspace objects.
+     */
+    public boolean consoleoff;
+
+    public static BatchOptions fromSystemProperties() {
+
+        BatchOptions options = new BatchOptions();
+        options.projects = Integer.getInteger("batch.projects",
+                                        options.projects);
+        options.queueCapacity = Integer.getInteger("batch.queueCapacity",
+                                        options.queueCapacity);
+        options.resetBetweenItems =
+            Boolean.valueOf(System.getProperty("batch.resetBetweenItems",
+                            String.valueOf(options.resetBetweenItems)));
+        options.consoleoff =
+            Boolean.valueOf(System.getProperty("batch.consoleoff",
+                            String.valueOf(options.consoleoff)));
+        return options;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * BatchResult.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.batch;
+
+import com.revo.deployr.client.example.data.io.cache.ExecutionResult;
+
+/*
+ * BatchResult
+ *
+ * Outcome of a single BatchItem: the ExecutionResult on success or
+ * the exception raised by the execution on failure. A failed item
+ * never affects the outcome of any other item in the batch.
+ */
+public final class BatchResult {
+
+    private final BatchItem item;
+    private final long sequence;
+    private final ExecutionResult result;
+    private final Exception error;
+    private final long elapsedMillis;
+
+    BatchResult(BatchItem item, long sequence, ExecutionResult result,
+                Exception error, long elapsedMillis) {
+        this.item = item;
+        this.sequence = sequence;
+        this.result = result;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public BatchItem getItem() {
+        return item;
+    }
+
+    /*
+     * Zero-based position of the item in the input stream. Results
+     * are delivered in completion order, not input order.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /*
+     * Execution outputs, null when the item failed.
+     */
+    public ExecutionResult getResult() {
+        return result;
+    }
+
+    /*
+     * Failure cause, null when the item succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /*
+     * Time spent on the item by its worker, including the workspace
+     * reset when enabled.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * ExecutionResult.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.example.data.io.output.ExecutionDetails;
+import java.util.*;
+
+/*
+ * ExecutionResult
+ *
+ * The console and DeployR-encoded R object outputs of an execution,
+ * either just executed on the server or served by a ResultCache.
+ *
+ * Only live results carry ExecutionDetails: artifacts, results and
+ * repository files are server-side handles and are never cached,
+ * which is why only executions with artifactsoff set are.
+ */
+public class ExecutionResult {
+
+    private final String key;
+    private final String console;
+    private final List<RData> workspaceObjects;
+    private final long createdAt;
+    private final boolean cached;
+    private final ExecutionDetails details;
+    private Map<String, RData> objectsByName;
+
+    ExecutionResult(String key, String console, List<RData> workspaceObjects,
+                    long createdAt, boolean cached,
+                    ExecutionDetails details) {
+        this.key = key;
+        this.console = console;
+        this.workspaceObjects = Collections.unmodifiableList(
+            workspaceObjects != null ? workspaceObjects :
+                                       Collections.<RData>emptyList());
+        this.createdAt = createdAt;
+        this.cached = cached;
+        this.details = details;
+    }
+
+    /*
+     * of
+     *
+     * Wraps a live execution that bypassed the cache.
+     */
+    public static ExecutionResult of(ExecutionDetails details) {
+        return new ExecutionResult(null, details.getConsole(),
+                                   details.getWorkspaceObjects(),
+                                   System.currentTimeMillis(), false,
+                                   details);
+    }
+
+    /*
+     * Cache key, null when the execution was not cacheable.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getConsole() {
+        return console;
+    }
+
+    public List<RData> getWorkspaceObjects() {
+        return workspaceObjects;
+    }
+
+    /*
+     * Returns the named workspace object or null if it was not
+     * among the execution routputs.
+     */
+    public synchronized RData getWorkspaceObject(String name) {
+
+        if(objectsByName == null) {
+            Map<String, RData> map = new LinkedHashMap<String, RData>();
+            for(RData rData : workspaceObjects) {
+                map.put(rData.getName(), rData);
+            }
+            objectsByName = map;
+        }
+        return objectsByName.get(name);
+    }
+
+    /*
+     * Time the outputs were produced by the server.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    /*
+     * Details of the live execution, null when served from cache.
+     */
+    public ExecutionDetails getDetails() {
+        return details;
+    }
+
+    ExecutionResult asCached() {
+        return new ExecutionResult(key, console, workspaceObjects,
+                                   createdAt, true, null);
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * RDataCodec.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * RDataCodec
+ *
+ * Compact binary encoding of DeployR-encoded R objects, used to
+ * fingerprint execution inputs and to persist cached outputs.
+ *
+ * Scalars, vectors and data.frames of numeric, character and logical
+ * values are rebuilt on decode through RDataFactory. Factors can be
+ * fingerprinted but not rebuilt, other encodings are unsupported.
+ */
+final class RDataCodec {
+
+    private static final int NUMERIC = 1;
+    private static final int STRING = 2;
+    private static final int BOOLEAN = 3;
+    private static final int NUMERIC_VECTOR = 4;
+    private static final int STRING_VECTOR = 5;
+    private static final int BOOLEAN_VECTOR = 6;
+    private static final int DATA_FRAME = 7;
+    private static final int FACTOR = 8;
+
+    /*
+     * Unsupported
+     *
+     * Thrown when an object cannot be encoded, or in the decodable
+     * mode, rebuilt.
+     */
+    static class Unsupported extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String message) {
+            super(message);
+        }
+    }
+
+    private RDataCodec() {
+    }
+
+    /*
+     * write
+     *
+     * Encodes objects to out. When decodable is true objects that
+     * could not be rebuilt by read are rejected.
+     */
+    static void write(List<? extends RData> objects, DataOutput out,
+                      boolean decodable) throws IOException {
+
+        out.writeInt(objects.size());
+        for(RData rData : objects) {
+            writeObject(rData, out, decodable);
+        }
+    }
+
+    static List<RData> read(DataInput in) throws IOException {
+
+        int count = in.readInt();
+        List<RData> objects = new ArrayList<RData>(count);
+        for(int i = 0; i < count; i++) {
+            objects.add(readObject(in));
+        }
+        return objects;
+    }
+
+    static void writeString(String s, DataOutput out) throws IOException {
+        if(s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeObject(RData rData, DataOutput out,
+                                    boolean decodable) throws IOException {
+
+        if(rData instanceof RDataFrame) {
+            out.writeByte(DATA_FRAME);
+            writeString(rData.getName(), out);
+            write(((RDataFrame) rData).getValue(), out, decodable);
+        } else
+        if(rData instanceof RNumericVector) {
+            out.writeByte(NUMERIC_VECTOR);
+            writeString(rData.getName(), out);
+            List<Double> values = ((RNumericVector) rData).getValue();
+            out.writeInt(values.size());
+            for(Double value : values) {
+                writeDouble(value, out);
+            }
+        } else
+        if(rData instanceof RStringVector) {
+            out.writeByte(STRING_VECTOR);
+            writeString(rData.getName(), out);
+            writeStrings(((RStringVector) rData).getValue(), out);
+        } else
+        if(rData instanceof RBooleanVector) {
+            out.writeByte(BOOLEAN_VECTOR);
+            writeString(rData.getName(), out);
+            List<Boolean> values = ((RBooleanVector) rData).getValue();
+            out.writeInt(values.size());
+            for(Boolean value : values) {
+                writeBoolean(value, out);
+            }
+        } else
+        if(rData instanceof RNumeric) {
+            out.writeByte(NUMERIC);
+            writeString(rData.getName(), out);
+            writeDouble(((RNumeric) rData).getValue(), out);
+        } else
+        if(rData instanceof RString) {
+            out.writeByte(STRING);
+            writeString(rData.getName(), out);
+            writeString(((RString) rData).getValue(), out);
+        } else
+        if(rData instanceof RBoolean) {
+            out.writeByte(BOOLEAN);
+            writeString(rData.getName(), out);
+            writeBoolean(((RBoolean) rData).getValue(), out);
+        } else
+        if(rData instanceof RFactor && !decodable) {
+            out.writeByte(FACTOR);
+            writeString(rData.getName(), out);
+            writeStrings(((RFactor) rData).getValue(), out);
+            writeStrings(((RFactor) rData).getLevels(), out);
+        } else {
+            throw new Unsupported("Unsupported R object encoding " +
+                (rData != null ? rData.getClass().getName() : "null"));
+        }
+    }
+
+    private static RData readObject(DataInput in) throws IOException {
+
+        int type = in.readByte();
+        String name = readString(in);
+        switch(type) {
+            case DATA_FRAME:
+                return RDataFactory.createDataFrame(name, read(in));
+            case NUMERIC_VECTOR: {
+                int size = in.readInt();
+                List<Double> values = new ArrayList<Double>(size);
+                for(int i = 0; i < size; i++) {
+                    values.add(readDouble(in));
+                }
+                return RDataFactory.createNumericVector(name, values);
+            }
+            case STRING_VECTOR:
+                return RDataFactory.createStringVector(name, readStrings(in));
+            case BOOLEAN_VECTOR: {
+                int size = in.readInt();
+                List<Boolean> values = new ArrayList<Boolean>(size);
+                for(int i = 0; i < size; i++) {
+                    values.add(readBoolean(in));
+                }
+                return RDataFactory.createBooleanVector(name, values);
+            }
+            case NUMERIC: {
+                Double value = readDouble(in);
+                return RDataFactory.createNumeric(name,
+                            value != null ? value : Double.NaN);
+            }
+            case STRING:
+                return RDataFactory.createString(name, readString(in));
+            case BOOLEAN: {
+                Boolean value = readBoolean(in);
+                return RDataFactory.createBoolean(name,
+                            value != null && value);
+            }
+            default:
+                throw new Unsupported("Unsupported R object tag " + type);
+        }
+    }
+
+    private static void writeDouble(Double value, DataOutput out)
+                                                    throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    private static void writeBoolean(Boolean value, DataOutput out)
+                                                    throws IOException {
+        out.writeByte(value == null ? -1 : (value ? 1 : 0));
+    }
+
+    private static Boolean readBoolean(DataInput in) throws IOException {
+        int b = in.readByte();
+        return b < 0 ? null : b == 1;
+    }
+
+    private static void writeStrings(List<String> values, DataOutput out)
+                                                    throws IOException {
+        out.writeInt(values.size());
+        for(String value : values) {
+            writeString(value, out);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<String>(size);
+        for(int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+}
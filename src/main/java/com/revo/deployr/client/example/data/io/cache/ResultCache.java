@@ -0,0 +1,425 @@
+/*
+ * ResultCache.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.output.ExecutionDetails;
+import com.revo.deployr.client.example.data.io.pool.PreloadSpec;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ResultCache
+ *
+ * Opt-in client-side cache of execution outputs for deterministic
+ * analytics. Executions are keyed on script identity and an input
+ * fingerprint, see ResultKey, and a hit returns the console and
+ * routputs of an earlier identical execution without a server call.
+ * Only executions with artifactsoff set are cached, all others run on
+ * the server so their artifacts and plots are always available.
+ *
+ * Results are held in a size-bounded LRU, expire after a TTL and can
+ * be persisted to a directory so later runs share them. Results with
+ * R object encodings the RDataCodec cannot rebuild are not cached.
+ *
+ * Results are scoped by endpoint and by user, null for anonymous
+ * executions, so one user's outputs, including those of scripts
+ * restricted to that user, are never served to another.
+ *
+ * Stateful executions on an RProject are cached on the assumption
+ * that their outputs depend only on their inputs and the preloads the
+ * project was created with. A hit does not replay the execution's
+ * effect on the project workspace.
+ *
+ * Usage:
+ *
+ * options.artifactsoff = true;
+ * ExecutionResult result = ResultCache.shared().executeScript(rClient,
+ *      "testuser", "dataIO.R", "example-data-io", "testuser", null, options);
+ * RData hipDim = result.getWorkspaceObject("hipDim");
+ */
+public class ResultCache {
+
+    private static Logger log = Logger.getLogger(ResultCache.class);
+
+    private static final int MAGIC = 0x44524343;
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".result";
+
+    private static ResultCache shared;
+
+    private final ResultCacheOptions options;
+    private final File directory;
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(ResultCacheOptions options) {
+        this.options = options;
+        this.directory = options.directory != null ?
+                                new File(options.directory) : null;
+        if(directory != null) {
+            directory.mkdirs();
+        }
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide cache configured from system
+     * properties, see ResultCacheOptions.fromSystemProperties.
+     */
+    public static synchronized ResultCache shared() {
+        if(shared == null) {
+            shared = new ResultCache(ResultCacheOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    public ResultCacheOptions getOptions() {
+        return options;
+    }
+
+    /*
+     * executeScript
+     *
+     * Discrete execution on rClient, authenticated as user or
+     * anonymous when user is null.
+     */
+    public ExecutionResult executeScript(RClient rClient, String user,
+                                         String filename, String directory,
+                                         String author, String version,
+                                         AnonymousProjectExecutionOptions opts)
+        throws RClientException, RSecurityException,
+               RDataException, RGridException {
+
+        String key = scriptKey(scope("discrete", user, null), filename,
+                               directory, author, version, opts);
+        ExecutionResult hit = lookup(key);
+        if(hit != null) {
+            return hit;
+        }
+        RScriptExecution exec = rClient.executeScript(filename, directory,
+                                                  author, version, opts);
+        return store(key, new ExecutionDetails(exec));
+    }
+
+    public ExecutionResult executeCode(RClient rClient, String user,
+                                       String code,
+                                       AnonymousProjectExecutionOptions opts)
+        throws RClientException, RSecurityException,
+               RDataException, RGridException {
+
+        String key = codeKey(scope("discrete", user, null), code, opts);
+        ExecutionResult hit = lookup(key);
+        if(hit != null) {
+            return hit;
+        }
+        RScriptExecution exec = rClient.executeCode(code, opts);
+        return store(key, new ExecutionDetails(exec));
+    }
+
+    /*
+     * executeScript
+     *
+     * Stateful execution on rProject, owned by user and created with
+     * preloads.
+     */
+    public ExecutionResult executeScript(RProject rProject, String user,
+                                         PreloadSpec preloads,
+                                         String filename, String directory,
+                                         String author, String version,
+                                         ProjectExecutionOptions opts)
+        throws RClientException, RSecurityException {
+
+        String key = scriptKey(scope("project", user, preloads), filename,
+                               directory, author, version, opts);
+        ExecutionResult hit = lookup(key);
+        if(hit != null) {
+            return hit;
+        }
+        RProjectExecution exec = rProject.executeScript(filename, directory,
+                                                   author, version, opts);
+        return store(key, new ExecutionDetails(exec));
+    }
+
+    public ExecutionResult executeCode(RProject rProject, String user,
+                                       PreloadSpec preloads, String code,
+                                       ProjectExecutionOptions opts)
+        throws RClientException, RSecurityException {
+
+        String key = codeKey(scope("project", user, preloads), code, opts);
+        ExecutionResult hit = lookup(key);
+        if(hit != null) {
+            return hit;
+        }
+        RProjectExecution exec = rProject.executeCode(code, opts);
+        return store(key, new ExecutionDetails(exec));
+    }
+
+    /*
+     * invalidate
+     *
+     * Drops every cached result, in memory and on disk.
+     */
+    public void invalidate() {
+
+        synchronized(this) {
+            entries.clear();
+            bytes = 0;
+        }
+        if(directory != null) {
+            File[] files = directory.listFiles();
+            if(files != null) {
+                for(File f : files) {
+                    if(f.getName().endsWith(SUFFIX)) {
+                        f.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /*
+     * Keys are null when the cache is disabled or the execution is
+     * not cacheable.
+     */
+    private String scriptKey(String scope, String filename, String directory,
+                             String author, String version,
+                             ProjectExecutionOptions opts) {
+        return options.enabled ? ResultKey.forScript(scope, filename,
+                                directory, author, version, opts) : null;
+    }
+
+    private String codeKey(String scope, String code,
+                           ProjectExecutionOptions opts) {
+        return options.enabled ?
+            ResultKey.forCode(scope, code, opts) : null;
+    }
+
+    /*
+     * Scopes keys by endpoint, execution mode, user and, for projects,
+     * the preloads the project was created with.
+     */
+    private String scope(String mode, String user, PreloadSpec preloads) {
+        return (options.endpoint != null ? options.endpoint : "") +
+            "|" + mode + "|" + (user != null ? "user=" + user : "anonymous") +
+            (preloads != null ? "|" + preloads : "");
+    }
+
+    private ExecutionResult lookup(String key) {
+
+        if(key == null) {
+            return null;
+        }
+
+        Entry entry;
+        synchronized(this) {
+            entry = entries.get(key);
+            if(entry != null && expired(entry.result.getCreatedAt())) {
+                remove(key);
+                entry = null;
+            }
+        }
+
+        if(entry == null && directory != null) {
+            entry = readFile(key);
+            if(entry != null) {
+                synchronized(this) {
+                    insert(key, entry);
+                }
+            }
+        }
+
+        if(entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        log.debug("[   EXECUTION    ] Served execution outputs from " +
+                                            "result cache, key=" + key);
+        return entry.result;
+    }
+
+    private ExecutionResult store(String key, ExecutionDetails details) {
+
+        long now = System.currentTimeMillis();
+        String console = details.getConsole();
+        List<RData> objects = details.getWorkspaceObjects();
+        ExecutionResult live = new ExecutionResult(key, console, objects,
+                                                   now, false, details);
+        if(key == null) {
+            return live;
+        }
+
+        byte[] encoded;
+        try {
+            encoded = encode(key, now, console, objects);
+        } catch(RDataCodec.Unsupported uex) {
+            log.debug("Execution outputs not cacheable, " + uex.getMessage());
+            return new ExecutionResult(null, console, objects,
+                                       now, false, details);
+        } catch(IOException ioex) {
+            throw new IllegalStateException(ioex);
+        }
+
+        synchronized(this) {
+            insert(key, new Entry(live.asCached(), encoded.length));
+        }
+        if(directory != null) {
+            writeFile(key, encoded);
+        }
+        return live;
+    }
+
+    private void insert(String key, Entry entry) {
+
+        if(entry.size > options.maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if(previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += entry.size;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while((entries.size() > options.maxEntries ||
+                bytes > options.maxBytes) && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            bytes -= eldest.getValue().size;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String key) {
+
+        Entry removed = entries.remove(key);
+        if(removed != null) {
+            bytes -= removed.size;
+        }
+        if(directory != null) {
+            new File(directory, key + SUFFIX).delete();
+        }
+    }
+
+    private boolean expired(long createdAt) {
+        return System.currentTimeMillis() - createdAt > options.ttlMillis;
+    }
+
+    private static byte[] encode(String key, long createdAt, String console,
+                                 List<RData> objects) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(createdAt);
+        RDataCodec.writeString(key, out);
+        RDataCodec.writeString(console, out);
+        RDataCodec.write(objects, out, true);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private Entry readFile(String key) {
+
+        File file = new File(directory, key + SUFFIX);
+        if(!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] encoded = Files.readAllBytes(file.toPath());
+            DataInputStream in = new DataInputStream(
+                                    new ByteArrayInputStream(encoded));
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                file.delete();
+                return null;
+            }
+            long createdAt = in.readLong();
+            if(expired(createdAt) || !key.equals(RDataCodec.readString(in))) {
+                file.delete();
+                return null;
+            }
+            String console = RDataCodec.readString(in);
+            List<RData> objects = RDataCodec.read(in);
+            return new Entry(new ExecutionResult(key, console, objects,
+                                        createdAt, true, null),
+                             encoded.length);
+        } catch(IOException ioex) {
+            log.warn("Result cache file " + file + " unreadable, " +
+                                                    "ex=" + ioex);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeFile(String key, byte[] encoded) {
+
+        File target = new File(directory, key + SUFFIX);
+        File part = new File(directory, key + SUFFIX + ".part");
+        try {
+            Files.write(part.toPath(), encoded);
+            Files.move(part.toPath(), target.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException ioex) {
+            part.delete();
+            log.warn("Result cache file " + target + " not written, " +
+                                                    "ex=" + ioex);
+        }
+    }
+
+    private static final class Entry {
+
+        final ExecutionResult result;
+        final long size;
+
+        Entry(ExecutionResult result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * ResultCacheOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+/*
+ * ResultCacheOptions
+ *
+ * Configuration for a ResultCache. Follows the same convention as
+ * the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class ResultCacheOptions {
+
+    /*
+     * The cache is opt-in, when false every call executes on the
+     * server.
+     */
+    public boolean enabled = false;
+
+    /*
+     * DeployR server endpoint, part of every key so one cache
+     * directory can serve several servers.
+     */
+    public String endpoint;
+
+    /*
+     * Age after which a cached result is no longer served. Scripts
+     * executed without an explicit version resolve to the latest
+     * repository version, so this also bounds how long a script
+     * update can go unnoticed.
+     */
+    public long ttlMillis = 10 * 60 * 1000L;
+
+    /*
+     * In-memory bounds, least recently used results are evicted
+     * first once either is exceeded. Size is measured as the encoded
+     * size of the cached console and R objects.
+     */
+    public int maxEntries = 256;
+    public long maxBytes = 64 * 1024 * 1024L;
+
+    /*
+     * Optional directory persisting cached results across runs.
+     * Null keeps results in memory only.
+     */
+    public String directory;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from resultCache.* system properties.
+     */
+    public static ResultCacheOptions fromSystemProperties() {
+
+        ResultCacheOptions options = new ResultCacheOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("resultCache.enabled",
+                                String.valueOf(options.enabled)));
+        options.endpoint = System.getProperty("endpoint");
+        options.ttlMillis = Long.getLong("resultCache.ttlMillis",
+                                        options.ttlMillis);
+        options.maxEntries = Integer.getInteger("resultCache.maxEntries",
+                                        options.maxEntries);
+        options.maxBytes = Long.getLong("resultCache.maxBytes",
+                                        options.maxBytes);
+        options.directory = System.getProperty("resultCache.directory");
+        return options;
+    }
+
+}
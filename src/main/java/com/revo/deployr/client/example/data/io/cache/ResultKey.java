@@ -0,0 +1,134 @@
+/*
+ * ResultKey.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+import com.revo.deployr.client.params.*;
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+/*
+ * ResultKey
+ *
+ * Cache keys identifying an execution by what determines its
+ * outputs: the script (filename, directory, author, version) or code,
+ * a fingerprint of the rinputs, the preload specs, the routputs and
+ * the console, artifact, graphics device and blackbox options.
+ *
+ * Only executions whose outputs a cache entry fully captures, the
+ * console and routputs with artifactsoff set, are keyed. Executions
+ * generating artifacts or plots would lose them on a hit, executions
+ * that write to the repository (storageOptions) have side effects a
+ * hit would skip, and inputs the RDataCodec cannot fingerprint make
+ * the key unknowable; all yield null.
+ */
+final class ResultKey {
+
+    private ResultKey() {
+    }
+
+    static String forScript(String scope, String filename, String directory,
+                            String author, String version,
+                            ProjectExecutionOptions options) {
+
+        return compute(scope, "script", filename, directory, author,
+                       version, options);
+    }
+
+    static String forCode(String scope, String code,
+                          ProjectExecutionOptions options) {
+
+        return compute(scope, "code", code, null, null, null, options);
+    }
+
+    private static String compute(String scope, String kind, String a,
+                                  String b, String c, String d,
+                                  ProjectExecutionOptions options) {
+
+        if(options == null || !options.artifactsoff ||
+                                    options.storageOptions != null) {
+            return null;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException nsaex) {
+            throw new IllegalStateException(nsaex);
+        }
+
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(new OutputStream() {
+                    public void write(int b) {
+                    }
+                    public void write(byte[] b, int off, int len) {
+                    }
+                }, md));
+
+            RDataCodec.writeString(scope, out);
+            RDataCodec.writeString(kind, out);
+            RDataCodec.writeString(a, out);
+            RDataCodec.writeString(b, out);
+            RDataCodec.writeString(c, out);
+            RDataCodec.writeString(d, out);
+
+            out.writeBoolean(options.rinputs != null);
+            if(options.rinputs != null) {
+                RDataCodec.write(options.rinputs, out, false);
+            }
+            RDataCodec.writeString(options.csvrinputs, out);
+            writePreload(options.preloadWorkspace, out);
+            writePreload(options.preloadDirectory, out);
+            List<String> routputs = options.routputs != null ?
+                options.routputs : Collections.<String>emptyList();
+            out.writeInt(routputs.size());
+            for(String routput : routputs) {
+                RDataCodec.writeString(routput, out);
+            }
+            out.writeBoolean(options.echooff);
+            out.writeBoolean(options.consoleoff);
+            out.writeBoolean(options.artifactsoff);
+            RDataCodec.writeString(options.graphicsDevice, out);
+            out.writeBoolean(options instanceof
+                                AnonymousProjectExecutionOptions &&
+                ((AnonymousProjectExecutionOptions) options).blackbox);
+            out.flush();
+        } catch(RDataCodec.Unsupported uex) {
+            return null;
+        } catch(IOException ioex) {
+            throw new IllegalStateException(ioex);
+        }
+
+        byte[] bytes = md.digest();
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte x : bytes) {
+            sb.append(Character.forDigit((x >> 4) & 0xF, 16))
+              .append(Character.forDigit(x & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void writePreload(ProjectPreloadOptions preload,
+                                     DataOutputStream out)
+                                                    throws IOException {
+        out.writeBoolean(preload != null);
+        if(preload != null) {
+            RDataCodec.writeString(preload.filename, out);
+            RDataCodec.writeString(preload.directory, out);
+            RDataCodec.writeString(preload.author, out);
+            RDataCodec.writeString(preload.version, out);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * ChunkedInputLoader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.chunked;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ChunkedInputLoader
+ *
+ * Loads a data.frame too large for a single request body into the
+ * workspace of a project (R session) as a sequence of row blocks.
+ *
+ * Each block is read from a WhitespaceTableReader, encoded as an
+ * rinput and sent on its own executeCode call that appends it to a
+ * list in the workspace. A final call binds the blocks into the named
+ * data.frame with a single rbind, avoiding the quadratic cost of
+ * growing the data.frame block by block. Only one block is held on
+ * the client at a time.
+ *
+ * Chunking needs a workspace that outlives a single execution, so it
+ * applies to stateful projects only. Anonymous discrete executions
+ * still send their rinputs in one request.
+ *
+ * Usage:
+ *
+ * WhitespaceTableReader reader = new WhitespaceTableReader(in, true);
+ * new ChunkedInputLoader(options).load(rProject, "hip", reader);
+ * rProject.executeScript("dataIO.R", ...);
+ */
+public class ChunkedInputLoader {
+
+    private static Logger log = Logger.getLogger(ChunkedInputLoader.class);
+
+    private static final String CHUNK = "dataio_chunk";
+    private static final String CHUNKS = "dataio_chunks";
+
+    private static final String APPEND_CODE =
+        "if(!exists('" + CHUNKS + "')) " + CHUNKS + " <- list(); " +
+        CHUNKS + "[[length(" + CHUNKS + ") + 1L]] <- " + CHUNK + "; " +
+        "rm(" + CHUNK + ")";
+
+    private final ChunkedInputOptions options;
+
+    public ChunkedInputLoader(ChunkedInputOptions options) {
+
+        if(options.rows < 1) {
+            throw new IllegalArgumentException("ChunkedInputLoader " +
+                                            "requires 1 <= rows.");
+        }
+        this.options = options;
+    }
+
+    /*
+     * load
+     *
+     * Reads reader to the end and assigns the rows to name in the
+     * project workspace. Returns the number of rows loaded, zero
+     * leaves name unassigned.
+     */
+    public long load(RProject rProject, String name,
+                     WhitespaceTableReader reader)
+        throws RClientException, RSecurityException, IOException {
+
+        if(!name.matches("[A-Za-z][A-Za-z0-9._]*")) {
+            throw new IllegalArgumentException("ChunkedInputLoader " +
+                "requires a syntactic R object name, name=" + name);
+        }
+
+        long rows = 0;
+        int chunks = 0;
+        ColumnarTable chunk;
+        while((chunk = reader.readChunk(options.rows)) != null) {
+
+            ProjectExecutionOptions execOpts = quiet();
+            execOpts.rinputs = Arrays.asList(chunk.asDataFrame(CHUNK));
+            rProject.executeCode(APPEND_CODE, execOpts);
+
+            rows += chunk.getRowCount();
+            chunks++;
+            log.debug("Loaded chunk " + chunks + " of " + name + ", " +
+                                        rows + " rows so far.");
+        }
+
+        if(chunks > 0) {
+            rProject.executeCode(name + " <- do.call(rbind, " + CHUNKS +
+                    "); rownames(" + name + ") <- NULL; rm(" + CHUNKS + ")",
+                    quiet());
+        }
+        return rows;
+    }
+
+    /*
+     * Chunk calls only change the workspace, skip returning the
+     * console echo and artifacts.
+     */
+    private static ProjectExecutionOptions quiet() {
+
+        ProjectExecutionOptions execOpts = new ProjectExecutionOptions();
+        execOpts.echooff = true;
+        execOpts.consoleoff = true;
+        execOpts.artifactsoff = true;
+        return execOpts;
+    }
+
+}
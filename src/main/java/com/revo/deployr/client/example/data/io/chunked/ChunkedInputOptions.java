@@ -0,0 +1,46 @@
+/*
+ * ChunkedInputOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.chunked;
+
+/*
+ * ChunkedInputOptions
+ *
+ * Configuration for a ChunkedInputLoader. Follows the same
+ * convention as the client library params classes: all fields are
+ * public and optional, unset fields fall back to the defaults below.
+ */
+public class ChunkedInputOptions {
+
+    /*
+     * When true the stateful EncodedDataIn flows load the encoded
+     * data.frame in row chunks rather than as a single rinput.
+     */
+    public boolean enabled = false;
+
+    /*
+     * Rows per chunk. Client memory is bounded by the encoded size of
+     * one chunk, server memory by the complete data.frame.
+     */
+    public int rows = 50000;
+
+    public static ChunkedInputOptions fromSystemProperties() {
+
+        ChunkedInputOptions options = new ChunkedInputOptions();
+        options.enabled = Boolean.valueOf(System.getProperty(
+                            "chunked.enabled",
+                            String.valueOf(options.enabled)));
+        options.rows = Integer.getInteger("chunked.rows", options.rows);
+        return options;
+    }
+
+}
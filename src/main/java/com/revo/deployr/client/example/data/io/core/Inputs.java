@@ -0,0 +1,177 @@
+/*
+ * Inputs.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.core;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.dataset.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import com.revo.deployr.client.example.data.io.transport.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.log4j.Logger;
+
+/*
+ * Inputs
+ *
+ * Builders for the data inputs shared by the data I/O flows: the
+ * repository-managed analytics under /testuser/example-data-io, the
+ * Hipparcos star dataset URL and the dataset itself encoded as an
+ * RDataFrame.
+ */
+public final class Inputs {
+
+    private static Logger log = Logger.getLogger(Inputs.class);
+
+    /*
+     * Repository location of dataIO.R, hipStar.rData and hipStar.dat,
+     * see "R Analytics Example Dependencies" in README.md.
+     */
+    public static final String SCRIPT = "dataIO.R";
+    public static final String DIRECTORY = "example-data-io";
+    public static final String AUTHOR = "testuser";
+
+    /*
+     * Hipparcos star dataset URL endpoint.
+     */
+    public static final String HIP_DAT_URL =
+        "http://astrostatistics.psu.edu/datasets/HIP_star.dat";
+
+    /*
+     * The workspace objects generated by dataIO.R.
+     */
+    public static final List<String> HIP_ROUTPUTS =
+        Collections.unmodifiableList(
+            Arrays.asList("hip", "hipDim", "hipNames"));
+
+    private Inputs() {
+    }
+
+    /*
+     * repositoryFile
+     *
+     * Preload of a file from /testuser/example-data-io, usable as a
+     * preloadWorkspace or preloadDirectory on execution or project
+     * creation options.
+     */
+    public static ProjectPreloadOptions repositoryFile(String filename) {
+
+        ProjectPreloadOptions preload = new ProjectPreloadOptions();
+        preload.filename = filename;
+        preload.directory = DIRECTORY;
+        preload.author = AUTHOR;
+        return preload;
+    }
+
+    /*
+     * hipStarUrl
+     *
+     * R object literal "hipStarUrl". The dataIO.R script checks for
+     * its existence in the workspace and if present uses the URL path
+     * to load the Hipparcos star dataset from the DAT file at that
+     * location.
+     */
+    public static RData hipStarUrl() {
+        return RDataFactory.createString("hipStarUrl", HIP_DAT_URL);
+    }
+
+    /*
+     * hipStarData
+     *
+     * Sample application generated data: the Hipparcos star dataset
+     * as the DeployR-encoded data.frame "hip". In a real-world
+     * application this data may originate from any number of sources,
+     * for example:
+     *
+     * - Data read from a file
+     * - Data read from a database
+     * - Data read from an external Web service
+     * - Data read from direct user input
+     * - Data generated in real time by the application itself
+     *
+     * The dataset is fetched through DatasetCache.shared(), so repeat
+     * calls cost at most a conditional GET, and parsed straight into
+     * primitive column buffers with read.table(header=T, fill=T)
+     * semantics before encoding. As in the original examples a
+     * failure is logged and null returned, the flows then execute
+     * without the encoded input.
+     */
+    public static RData hipStarData() {
+
+        InputStream is = null;
+        try {
+            is = hipStarStream();
+            ColumnarTable table = WhitespaceTableReader.read(is);
+            return table.asDataFrame("hip");
+        } catch(Exception ex) {
+            log.warn("Simulate generated data failed, ex=" + ex);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /*
+     * hipStarStream
+     *
+     * The raw Hipparcos star dataset through DatasetCache.shared(),
+     * for loading in chunks with Session.loadDataFrame. The caller
+     * closes the stream.
+     */
+    public static InputStream hipStarStream() throws IOException {
+        return DatasetCache.shared().open(new URL(HIP_DAT_URL));
+    }
+
+    /*
+     * hipStar
+     *
+     * The Hipparcos star dataset with every location it is available
+     * from: the local analytics/hipStar.dat, the external URL and the
+     * repository-managed hipStar.rData and hipStar.dat. Pass to
+     * Session.addInput to have the cheapest transport chosen.
+     */
+    public static DatasetInput hipStar() {
+
+        DatasetInput input = new DatasetInput();
+        input.file = new File("analytics/hipStar.dat");
+        input.objectName = "hip";
+        input.filename = "hipStar.dat";
+        input.url = HIP_DAT_URL;
+        input.urlObject = "hipStarUrl";
+        input.repositoryWorkspace = repositoryFile("hipStar.rData");
+        input.repositoryDirectory = repositoryFile("hipStar.dat");
+        return input;
+    }
+
+    /*
+     * repositoryStorage
+     *
+     * Request to store the entire workspace following an execution
+     * as a binary rData file under a random name in
+     * /testuser/example-data-io.
+     */
+    public static ProjectStorageOptions repositoryStorage() {
+
+        ProjectStorageOptions storageOptions = new ProjectStorageOptions();
+        storageOptions.workspace =
+            Long.toHexString(Double.doubleToLongBits(Math.random())) +
+                                                            ".rData";
+        storageOptions.directory = DIRECTORY;
+        return storageOptions;
+    }
+
+}
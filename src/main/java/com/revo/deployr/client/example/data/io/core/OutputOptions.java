@@ -0,0 +1,56 @@
+/*
+ * OutputOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.core;
+
+/*
+ * OutputOptions
+ *
+ * Configuration for the file outputs retrieved by Outputs. Follows the
+ * same convention as the client library params classes: all fields
+ * are public and optional, unset fields fall back to the defaults
+ * below.
+ */
+public class OutputOptions {
+
+    /*
+     * Local directory receiving downloaded artifacts, plots and
+     * repository files. Null retrieves each file and discards the
+     * content, as the tutorials do, still concurrently.
+     */
+    public String directory;
+
+    /*
+     * Downloads in flight across all flows, and for one execution.
+     * See ParallelDownloader.
+     */
+    public int globalDownloadLimit = 16;
+    public int perExecutionDownloadLimit = 4;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from output.* system properties.
+     */
+    public static OutputOptions fromSystemProperties() {
+
+        OutputOptions options = new OutputOptions();
+        options.directory = System.getProperty("output.directory");
+        options.globalDownloadLimit = Integer.getInteger(
+            "output.globalDownloadLimit", options.globalDownloadLimit);
+        options.perExecutionDownloadLimit = Integer.getInteger(
+            "output.perExecutionDownloadLimit",
+                                    options.perExecutionDownloadLimit);
+        return options;
+    }
+
+}
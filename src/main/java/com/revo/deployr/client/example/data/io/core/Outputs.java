@@ -0,0 +1,521 @@
+/*
+ * Outputs.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.core;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.output.*;
+import com.revo.deployr.client.example.data.io.rdata.*;
+import com.revo.deployr.client.example.data.io.stream.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.*;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.log4j.Logger;
+
+/*
+ * Outputs
+ *
+ * Handlers for the outputs of an execution: the R console, the
+ * DeployR-encoded workspace objects, working directory artifacts,
+ * graphics device plots and repository-managed files.
+ *
+ * Each handler logs the outputs it retrieves. File outputs are
+ * downloaded concurrently through a shared ParallelDownloader,
+ * streamed to OutputOptions.directory when configured, otherwise
+ * retrieved and their content discarded. The ResultCache only serves executions
+ * run with artifactsoff, which generate no file outputs.
+ *
+ * Outputs generated by an execution can be used in any number of
+ * ways by client applications, including:
+ *
+ * 1. Use output data to perform further calculations.
+ * 2. Display output data to an end-user.
+ * 3. Write output data to a database.
+ * 4. Pass output data along to another Web service.
+ * 5. etc.
+ */
+public final class Outputs {
+
+    private static Logger log = Logger.getLogger(Outputs.class);
+
+    private static ParallelDownloader downloader;
+
+    private Outputs() {
+    }
+
+    public static String console(ExecutionResult result) {
+
+        String console = result.getConsole();
+        log.info("[  DATA OUTPUT   ] Retrieved R console " +
+            "output [ String ].");
+        return console;
+    }
+
+    /*
+     * workspaceObjects
+     *
+     * Logs the R object data encodings retrieved from the workspace
+     * following the execution, converting each to an RDataTable as
+     * the client library offers. Callers working with data values
+     * can instead decode an RDataFrame into primitive columns using
+     * dataFrame.
+     *
+     * See the R Object Data Decoding chapter in the Client Library
+     * Tutorial on the DeployR website for further details.
+     */
+    public static List<RData> workspaceObjects(ExecutionResult result)
+        throws RDataException {
+
+        List<RData> objects = result.getWorkspaceObjects();
+
+        for(RData rData : objects) {
+            if(rData instanceof RDataFrame) {
+                log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
+                    "object output " + rData.getName() + " [ RDataFrame ].");
+                /*
+                 * Optionally convert RDataFrame to RDataTable to
+                 * simplify working with data values within the object.
+                 */
+                RDataTable table = RDataFactory.createDataTable(rData);
+            } else
+            if(rData instanceof RNumericVector) {
+                log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
+                    "object output " + rData.getName() + " [ RNumericVector ].");
+                log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
+                    "object " + rData.getName() +
+                    " value=" + ((RNumericVector) rData).getValue());
+                /*
+                 * Optionally convert RNumericVector to RDataTable to
+                 * simplify working with data values within the object.
+                 */
+                RDataTable table = RDataFactory.createDataTable(rData);
+            } else
+            if(rData instanceof RStringVector) {
+                log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
+                    "object output " + rData.getName() + " [ RStringVector ].");
+                log.info("[  DATA OUTPUT   ] Retrieved DeployR-encoded R " +
+                    "object " + rData.getName() +
+                    " value=" + ((RStringVector) rData).getValue());
+                /*
+                 * Optionally convert RStringVector to RDataTable to
+                 * simplify working with data values within the object.
+                 */
+                RDataTable table = RDataFactory.createDataTable(rData);
+            } else {
+                log.info("Unexpected DeployR-encoded R object returned, " +
+                    "object name=" + rData.getName() + ", encoding=" +
+                                                    rData.getClass());
+            }
+        }
+        return objects;
+    }
+
+    /*
+     * dataFrame
+     *
+     * Decodes the named RDataFrame workspace object into primitive
+     * columns with WorkspaceDecoder, null when the execution returned
+     * no such data.frame.
+     */
+    public static ColumnarTable dataFrame(ExecutionResult result,
+                                          String name) {
+
+        for(RData rData : result.getWorkspaceObjects()) {
+            if(rData instanceof RDataFrame && name.equals(rData.getName())) {
+                ColumnarTable table =
+                    WorkspaceDecoder.decode((RDataFrame) rData);
+                log.info("[  DATA OUTPUT   ] Decoded DeployR-encoded R " +
+                    "object output " + name + ", rows=" +
+                    table.getRowCount() + ", columns=" +
+                    table.getColumnCount() + " [ ColumnarTable ].");
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * offHeapDataFrame
+     *
+     * Decodes the named RDataFrame workspace object into an
+     * OffHeapTable configured by OffHeapOptions.fromSystemProperties,
+     * null when the execution returned no such data.frame. The caller
+     * closes the table.
+     */
+    public static OffHeapTable offHeapDataFrame(ExecutionResult result,
+                                                String name)
+        throws IOException {
+
+        for(RData rData : result.getWorkspaceObjects()) {
+            if(rData instanceof RDataFrame && name.equals(rData.getName())) {
+                OffHeapTable table = OffHeapTable.decode((RDataFrame) rData,
+                                    OffHeapOptions.fromSystemProperties());
+                log.info("[  DATA OUTPUT   ] Decoded DeployR-encoded R " +
+                    "object output " + name + ", rows=" +
+                    table.getRowCount() + ", columns=" +
+                    table.getColumnCount() + ", bytes=" +
+                    table.getOffHeapBytes() + " [ OffHeapTable ].");
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * artifacts
+     *
+     * Retrieves the working directory files generated by the
+     * execution, limited to filenames when any are given.
+     */
+    public static void artifacts(ExecutionResult result,
+                                 String... filenames) {
+
+        ExecutionDetails details = fileOutputs(result);
+        if(details == null) {
+            return;
+        }
+
+        List<String> names = new ArrayList<String>();
+        if(filenames.length == 0) {
+            names.addAll(details.getArtifactNames());
+        } else {
+            for(String filename : filenames) {
+                if(details.getArtifact(filename) != null) {
+                    names.add(filename);
+                }
+            }
+        }
+
+        logArtifacts(names);
+
+        try {
+            downloader().downloadArtifacts(details, names);
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        } catch(Exception ex) {
+            log.warn("Working directory file download " + ex);
+        }
+    }
+
+    /*
+     * csvArtifact
+     *
+     * Streams the named CSV working directory file generated by the
+     * execution to sink in row chunks while it downloads, see
+     * CsvStreamConsumer. Returns the number of rows streamed, -1 when
+     * the execution generated no such file or its file outputs are
+     * unavailable.
+     */
+    public static long csvArtifact(ExecutionResult result, String filename,
+                                   ChunkSink sink)
+        throws RClientException, RSecurityException, IOException {
+
+        ExecutionDetails details = fileOutputs(result);
+        RProjectFile file = details != null ?
+                                details.getArtifact(filename) : null;
+        if(file == null) {
+            return -1L;
+        }
+        log.info("[  DATA OUTPUT   ] Retrieved working directory " +
+            "file output " + filename + " [ RProjectFile ].");
+        return new CsvStreamConsumer(StreamOptions.fromSystemProperties())
+                                                    .consume(file, sink);
+    }
+
+    /*
+     * rDataArtifact
+     *
+     * Retrieves the named working directory rData file generated by
+     * the execution, as artifacts does, and in addition decodes the
+     * named objects it holds, all supported objects when none are
+     * given, see RDataReader. With an output directory configured the
+     * file is written there and decoded from disk. Null when the
+     * execution generated no such file or its file outputs are
+     * unavailable.
+     */
+    public static RWorkspace rDataArtifact(ExecutionResult result,
+                                           String filename,
+                                           String... names)
+        throws RClientException, RSecurityException, IOException {
+
+        ExecutionDetails details = fileOutputs(result);
+        RProjectFile file = details != null ?
+                                details.getArtifact(filename) : null;
+        if(file == null) {
+            return null;
+        }
+        logArtifacts(Collections.singletonList(filename));
+
+        ParallelDownloader downloader = fileDownloader();
+        if(downloader != null) {
+            try {
+                DownloadStats stats = downloader.downloadArtifacts(details,
+                            Collections.singletonList(filename)).get(0);
+                return decoded(filename, read(stats.getFile(), names));
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted retrieving " +
+                                                                filename);
+            }
+        }
+
+        InputStream in = null;
+        try {
+            in = file.download();
+            return decoded(filename, RDataReader.read(in, names));
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /*
+     * results
+     *
+     * Retrieves the R graphics device plots generated by the
+     * execution.
+     */
+    public static void results(ExecutionResult result) {
+
+        ExecutionDetails details = fileOutputs(result);
+        if(details == null) {
+            return;
+        }
+
+        logResults(details);
+
+        try {
+            downloader().downloadResults(details);
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        } catch(Exception ex) {
+            log.warn("Graphics device plot download " + ex);
+        }
+    }
+
+    /*
+     * files
+     *
+     * Retrieves every working directory file, graphics device plot
+     * and repository-managed file generated by the execution, all
+     * downloaded concurrently.
+     */
+    public static void files(ExecutionResult result) {
+
+        ExecutionDetails details = fileOutputs(result);
+        if(details == null) {
+            return;
+        }
+
+        logArtifacts(details.getArtifactNames());
+        logResults(details);
+        logRepositoryFiles(details);
+
+        try {
+            downloader().downloadAll(details);
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        } catch(Exception ex) {
+            log.warn("Execution file output download " + ex);
+        }
+    }
+
+    /*
+     * repositoryFiles
+     *
+     * Retrieves the repository-managed files stored following the
+     * execution per ProjectStorageOptions, deleting each from the
+     * repository afterwards when delete is true.
+     */
+    public static void repositoryFiles(ExecutionResult result,
+                                       boolean delete) {
+
+        ExecutionDetails details = fileOutputs(result);
+        if(details == null) {
+            return;
+        }
+
+        logRepositoryFiles(details);
+
+        try {
+            downloader().downloadRepositoryFiles(details);
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        } catch(Exception ex) {
+            log.warn("Repository-managed file download " + ex);
+        }
+
+        if(delete) {
+            deleteRepositoryFiles(details);
+        }
+    }
+
+    /*
+     * repositoryWorkspaces
+     *
+     * Retrieves the repository-managed rData files stored following
+     * the execution per ProjectStorageOptions, as repositoryFiles
+     * does, and in addition decodes the objects each holds. With an
+     * output directory configured the files are written there and
+     * decoded from disk. Each file is deleted from the repository
+     * afterwards when delete is true.
+     */
+    public static List<RWorkspace> repositoryWorkspaces(
+                                            ExecutionResult result,
+                                            boolean delete) {
+
+        List<RWorkspace> workspaces = new ArrayList<RWorkspace>();
+        ExecutionDetails details = fileOutputs(result);
+        if(details == null) {
+            return workspaces;
+        }
+
+        logRepositoryFiles(details);
+
+        ParallelDownloader downloader = fileDownloader();
+        if(downloader != null) {
+            try {
+                for(DownloadStats stats :
+                        downloader.downloadRepositoryFiles(details)) {
+                    workspaces.add(decoded(stats.getFilename(),
+                                           read(stats.getFile())));
+                }
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+            } catch(Exception ex) {
+                log.warn("Repository-managed workspace decode " + ex);
+            }
+        } else {
+            for(RRepositoryFile repoFile : details.getRepositoryFiles()) {
+                InputStream fis = null;
+                try {
+                    fis = repoFile.download();
+                    workspaces.add(decoded(repoFile.about().filename,
+                                           RDataReader.read(fis)));
+                } catch(Exception ex) {
+                    log.warn("Repository-managed workspace decode " + ex);
+                } finally {
+                    IOUtils.closeQuietly(fis);
+                }
+            }
+        }
+
+        if(delete) {
+            deleteRepositoryFiles(details);
+        }
+        return workspaces;
+    }
+
+    private static void deleteRepositoryFiles(ExecutionDetails details) {
+        for(RRepositoryFile repoFile : details.getRepositoryFiles()) {
+            try {
+                repoFile.delete();
+            } catch(Exception dex) {
+                log.warn("Repository-managed file delete " + dex);
+            }
+        }
+    }
+
+    private static RWorkspace read(File file, String... names)
+        throws IOException {
+
+        InputStream in = new FileInputStream(file);
+        try {
+            return RDataReader.read(in, names);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void logArtifacts(Collection<String> names) {
+        for(String name : names) {
+            log.info("[  DATA OUTPUT   ] Retrieved working directory " +
+                "file output " + name + " [ RProjectFile ].");
+        }
+    }
+
+    private static void logResults(ExecutionDetails details) {
+        for(RProjectResult plot : details.getResults()) {
+            log.info("[  DATA OUTPUT   ] Retrieved graphics device " +
+                "plot output " + plot.about().filename +
+                " [ RProjectResult ].");
+        }
+    }
+
+    private static void logRepositoryFiles(ExecutionDetails details) {
+        for(RRepositoryFile repoFile : details.getRepositoryFiles()) {
+            log.info("[  DATA OUTPUT   ] Retrieved repository " +
+                "file output " + repoFile.about().filename +
+                " [ RRepositoryFile ].");
+        }
+    }
+
+    private static RWorkspace decoded(String filename,
+                                      RWorkspace workspace) {
+
+        for(String name : workspace.getNames()) {
+            Object object = workspace.get(name);
+            String shape = object instanceof ColumnarTable ?
+                ((ColumnarTable) object).getRowCount() + "x" +
+                    ((ColumnarTable) object).getColumnCount() + " " : "";
+            log.info("[  DATA OUTPUT   ] Decoded R object " + name +
+                " from " + filename + " [ " + shape +
+                object.getClass().getSimpleName() + " ].");
+        }
+        return workspace;
+    }
+
+    private static ExecutionDetails fileOutputs(ExecutionResult result) {
+
+        ExecutionDetails details = result.getDetails();
+        if(details == null) {
+            log.info("[  DATA OUTPUT   ] File outputs unavailable, " +
+                "execution served from result cache.");
+        }
+        return details;
+    }
+
+    /*
+     * Created on first use from OutputOptions.fromSystemProperties,
+     * with a discarding DownloadSink when no output directory is
+     * configured.
+     */
+    private static synchronized ParallelDownloader downloader() {
+
+        if(downloader == null) {
+            OutputOptions options = OutputOptions.fromSystemProperties();
+            DownloadSink sink = options.directory != null ?
+                new DownloadSink(new File(options.directory)) :
+                DownloadSink.discarding();
+            downloader = new ParallelDownloader(sink,
+                    options.globalDownloadLimit,
+                    options.perExecutionDownloadLimit);
+        }
+        return downloader;
+    }
+
+    /*
+     * The shared downloader when it writes files to the output
+     * directory, null when it discards them.
+     */
+    private static ParallelDownloader fileDownloader() {
+
+        ParallelDownloader downloader = downloader();
+        return downloader.getSink().getDirectory() != null ?
+                                                    downloader : null;
+    }
+
+}
@@ -0,0 +1,625 @@
+/*
+ * Session.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.core;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.auth.RAuthentication;
+import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.example.data.io.cache.*;
+import com.revo.deployr.client.example.data.io.chunked.*;
+import com.revo.deployr.client.example.data.io.metrics.*;
+import com.revo.deployr.client.example.data.io.output.*;
+import com.revo.deployr.client.example.data.io.policy.*;
+import com.revo.deployr.client.example.data.io.pool.*;
+import com.revo.deployr.client.example.data.io.rdata.*;
+import com.revo.deployr.client.example.data.io.scheduler.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import com.revo.deployr.client.example.data.io.transport.*;
+import com.revo.deployr.client.example.data.io.upload.*;
+import java.io.*;
+import java.util.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * Session
+ *
+ * The connection, optional authenticated RUser and optional stateful
+ * RProject used by a single data I/O flow, acquired in one place so
+ * pooling, the result cache, upload deduplication and lifecycle
+ * metrics apply to every flow alike.
+ *
+ * Discrete executions run on the RClient connection, stateful
+ * executions on the project created by createProject. Closing the
+ * session closes the project and releases the connection, or returns
+ * both to their pools when SessionOptions.pooled is set.
+ *
+ * Usage:
+ *
+ * try(Session session = Session.authenticated()) {
+ *     session.createProject();
+ *     ExecutionResult result = session.executeScript("dataIO.R",
+ *              "example-data-io", "testuser", null, options);
+ *     Outputs.workspaceObjects(result);
+ * }
+ */
+public class Session implements AutoCloseable {
+
+    private static Logger log = Logger.getLogger(Session.class);
+
+    private static RClientPool anonymousPool;
+    private static RClientPool authenticatedPool;
+    private static RProjectPool projectPool;
+
+    private final SessionOptions options;
+
+    private RClient rClient;
+    private RUser rUser;
+    private RProject rProject;
+    private PreloadSpec preloads;
+    private boolean uncacheable;
+    private TransportSelector.Selection pendingInput;
+    private long pendingInputMillis;
+
+    private RClientPool clientPool;
+    private PooledClient pooledClient;
+    private PooledProject pooledProject;
+
+    private Session(SessionOptions options) {
+        this.options = options;
+    }
+
+    /*
+     * anonymous
+     *
+     * Opens an anonymous session configured from system properties,
+     * see SessionOptions.fromSystemProperties.
+     */
+    public static Session anonymous()
+        throws RClientException, RSecurityException, InterruptedException {
+        return open(SessionOptions.fromSystemProperties(), false);
+    }
+
+    /*
+     * authenticated
+     *
+     * Opens a session configured from system properties and
+     * authenticated as the configured username.
+     */
+    public static Session authenticated()
+        throws RClientException, RSecurityException, InterruptedException {
+        return open(SessionOptions.fromSystemProperties(), true);
+    }
+
+    public static Session open(SessionOptions options, boolean authenticate)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        log.info("[ CONFIGURATION  ] Using endpoint=" + options.endpoint);
+
+        Session session = new Session(options);
+        boolean connected = false;
+        try {
+            if(options.pooled) {
+                session.borrow(authenticate);
+            } else {
+                session.connect(authenticate);
+            }
+            connected = true;
+            return session;
+        } finally {
+            if(!connected) {
+                session.close();
+            }
+        }
+    }
+
+    public SessionOptions getOptions() {
+        return options;
+    }
+
+    public RClient getClient() {
+        return rClient;
+    }
+
+    /*
+     * Authenticated user, null for an anonymous session.
+     */
+    public RUser getUser() {
+        return rUser;
+    }
+
+    /*
+     * Stateful project, null until createProject is called.
+     */
+    public RProject getProject() {
+        return rProject;
+    }
+
+    public boolean isAuthenticated() {
+        return rUser != null;
+    }
+
+    /*
+     * createProject
+     *
+     * Creates a temporary project (R session) owned by the session
+     * user, equivalent to rUser.createProject(creationOpts). Pooled
+     * sessions check out a pre-heated project instead when the
+     * creation options carry preloads only.
+     */
+    public RProject createProject()
+        throws RClientException, RSecurityException, InterruptedException {
+        return createProject(null);
+    }
+
+    public RProject createProject(ProjectCreationOptions creationOpts)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        if(rUser == null) {
+            throw new IllegalStateException("Stateful sessions require " +
+                                            "an authenticated user.");
+        }
+        if(rProject != null) {
+            throw new IllegalStateException("Session project already " +
+                                            "created.");
+        }
+        preloads = PreloadSpec.of(creationOpts);
+        uncacheable = creationOpts != null && creationOpts.rinputs != null;
+
+        if(options.pooled &&
+                (creationOpts == null || creationOpts.rinputs == null)) {
+            pooledProject = projectPool(options).checkout(preloads);
+            rProject = scheduled(pooledProject.getProject(), RProject.class);
+            log.info("[  GO STATEFUL   ] Checked out pre-heated " +
+                    "R session [ RProject ].");
+        } else {
+            rProject = scheduled(creationOpts != null ?
+                rUser.createProject(creationOpts) : rUser.createProject(),
+                RProject.class);
+            log.info("[  GO STATEFUL   ] Created stateful temporary " +
+                    "R session [ RProject ].");
+        }
+        return rProject;
+    }
+
+    /*
+     * executeScript
+     *
+     * Discrete execution of a repository-managed R script on the
+     * session connection, served by ResultCache.shared() when the
+     * result cache is enabled. Cached results are scoped to the
+     * session user.
+     */
+    public ExecutionResult executeScript(String filename, String directory,
+                                         String author, String version,
+                                         AnonymousProjectExecutionOptions opts)
+        throws RClientException, RSecurityException,
+               RDataException, RGridException {
+
+        long started = System.currentTimeMillis();
+        ExecutionResult result = ResultCache.shared().executeScript(rClient,
+                        username(), filename, directory, author, version, opts);
+        observeInput(result, script(filename, directory, author), started);
+        logExecution("Discrete", result, "RScriptExecution");
+        return result;
+    }
+
+    /*
+     * executeScript
+     *
+     * Stateful execution of a repository-managed R script on the
+     * session project. Result cache keys capture the preloads the
+     * project was created with but not rinputs set on creation or
+     * files added to the working directory, so executions on such
+     * projects always run on the server.
+     */
+    public ExecutionResult executeScript(String filename, String directory,
+                                         String author, String version,
+                                         ProjectExecutionOptions opts)
+        throws RClientException, RSecurityException {
+
+        if(rProject == null) {
+            throw new IllegalStateException("Stateful execution requires " +
+                                            "a session project.");
+        }
+        long started = System.currentTimeMillis();
+        ExecutionResult result = uncacheable ?
+            ExecutionResult.of(new ExecutionDetails(rProject.executeScript(
+                                filename, directory, author, version, opts))) :
+            ResultCache.shared().executeScript(rProject, username(),
+                    preloads, filename, directory, author, version, opts);
+        observeInput(result, script(filename, directory, author), started);
+        logExecution("Stateful", result, "RProjectExecution");
+        return result;
+    }
+
+    /*
+     * uploadFile
+     *
+     * Uploads file to the working directory of the session project,
+     * skipped by DedupUploader.shared() when the same content is
+     * already available on the server.
+     */
+    public RProjectFile uploadFile(File file, DirectoryUploadOptions upOpts)
+        throws RClientException, RSecurityException, IOException {
+
+        if(rProject == null) {
+            throw new IllegalStateException("Working directory upload " +
+                                            "requires a session project.");
+        }
+        uncacheable = true;
+        return DedupUploader.shared().uploadToProject(rUser, rProject,
+                                                      file, upOpts);
+    }
+
+    /*
+     * addInput
+     *
+     * Makes input available to the next execution using the
+     * transport TransportSelector.shared() estimates cheapest, setting
+     * rinputs or preloads on opts or uploading to the working
+     * directory. The transfer time of the input is fed back into the
+     * selector's rate estimates once the next execution completes,
+     * see TransportSelector.observeExecution.
+     */
+    public InputTransport addInput(DatasetInput input,
+                                   ProjectExecutionOptions opts)
+        throws RClientException, RSecurityException, IOException {
+
+        boolean stateful = rProject != null;
+        boolean resident = stateful && input.file != null &&
+            input.filename != null && input.file.isFile() &&
+            DedupUploader.shared().isRepositoryResident(
+                    rUser.about().username, input.file, input.filename);
+
+        TransportSelector.Selection selection =
+            TransportSelector.shared().select(input, stateful,
+                                              rUser != null, resident);
+
+        long started = System.currentTimeMillis();
+        switch(selection.getTransport()) {
+            case ENCODED:
+                InputStream is = new FileInputStream(input.file);
+                try {
+                    rinputs(opts).add(WhitespaceTableReader.read(is)
+                                        .asDataFrame(input.objectName));
+                } finally {
+                    is.close();
+                }
+                break;
+            case URL:
+                rinputs(opts).add(RDataFactory.createString(
+                                        input.urlObject, input.url));
+                break;
+            case WORKSPACE:
+                InputStream in = new FileInputStream(input.file);
+                try {
+                    preloadTable(input.objectName,
+                                 WhitespaceTableReader.read(in), opts);
+                } finally {
+                    in.close();
+                }
+                break;
+            case REPOSITORY:
+                if(input.repositoryWorkspace != null) {
+                    opts.preloadWorkspace = input.repositoryWorkspace;
+                } else {
+                    opts.preloadDirectory = input.repositoryDirectory;
+                }
+                if(opts instanceof AnonymousProjectExecutionOptions) {
+                    ((AnonymousProjectExecutionOptions) opts).blackbox = true;
+                }
+                break;
+            default:
+                DirectoryUploadOptions upOpts = new DirectoryUploadOptions();
+                upOpts.filename = input.filename;
+                upOpts.overwrite = true;
+                uploadFile(input.file, upOpts);
+        }
+        pendingInput = selection;
+        pendingInputMillis = System.currentTimeMillis() - started;
+
+        log.info("[   DATA INPUT   ] Selected " + selection.getTransport() +
+            " input transport for " + input + ", estimated " +
+            Math.round(selection.getEstimateMillis()) + "ms.");
+        return selection.getTransport();
+    }
+
+    /*
+     * preloadTable
+     *
+     * Writes table as the data.frame name to a binary .rData file
+     * with RDataWriter, stages it in the repository of the session
+     * user as name.rData through DedupUploader.shared(), skipped when
+     * the same content is staged already, and sets it as the
+     * preloadWorkspace on opts. R loads the workspace natively
+     * before the execution, no DeployR-encoded rinputs are built or
+     * decoded.
+     */
+    public RRepositoryFile preloadTable(String name, ColumnarTable table,
+                                       ProjectExecutionOptions opts)
+        throws RClientException, RSecurityException, IOException {
+
+        if(rUser == null) {
+            throw new IllegalStateException("Workspace preload requires " +
+                                            "an authenticated user.");
+        }
+        File file = File.createTempFile("dataio-", ".rData");
+        try {
+            RDataWriter.write(file, name, table);
+
+            String filename = name + ".rData";
+            RRepositoryFile repoFile = DedupUploader.shared()
+                            .stageInRepository(rUser, file, filename);
+
+            ProjectPreloadOptions preload = new ProjectPreloadOptions();
+            preload.filename = filename;
+            preload.author = rUser.about().username;
+            if(repoFile.about() != null) {
+                preload.directory = repoFile.about().directory;
+                preload.version = repoFile.about().version;
+            }
+            opts.preloadWorkspace = preload;
+
+            log.info("[   DATA INPUT   ] Binary workspace " + filename +
+                " (" + file.length() + " bytes) " +
+                "set on execution, [ ProjectExecutionOptions.preloadWorkspace ].");
+            return repoFile;
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*
+     * loadDataFrame
+     *
+     * Loads the whitespace-delimited table read from in, header row
+     * first, into the session project workspace as the data.frame
+     * name. Rows are sent in chunks by ChunkedInputLoader so client
+     * memory is bounded by one chunk. The stream is not closed.
+     */
+    public long loadDataFrame(String name, InputStream in)
+        throws RClientException, RSecurityException, IOException {
+
+        if(rProject == null) {
+            throw new IllegalStateException("Chunked data.frame load " +
+                                            "requires a session project.");
+        }
+        uncacheable = true;
+        ChunkedInputLoader loader =
+            new ChunkedInputLoader(ChunkedInputOptions.fromSystemProperties());
+        return loader.load(rProject, name,
+                           new WhitespaceTableReader(in, true));
+    }
+
+    /*
+     * close
+     *
+     * Closes the project and releases the connection, failures are
+     * ignored as there is nothing further a flow can do about them.
+     */
+    public void close() {
+
+        if(pooledProject != null) {
+            projectPool.checkin(pooledProject);
+        } else
+        if(rProject != null) {
+            try {
+                rProject.close();
+            } catch(Exception ex) {
+            }
+        }
+        pooledProject = null;
+        rProject = null;
+        preloads = null;
+        uncacheable = false;
+
+        if(pooledClient != null) {
+            clientPool.release(pooledClient);
+        } else
+        if(rClient != null) {
+            try {
+                rClient.release();
+            } catch(Exception ex) {
+            }
+        }
+        pooledClient = null;
+        rClient = null;
+        rUser = null;
+    }
+
+    private void connect(boolean authenticate)
+        throws RClientException, RSecurityException {
+
+        RClientProvider provider = options.clientProvider != null ?
+            options.clientProvider : RClientProvider.DEFAULT;
+        if(options.metrics != null) {
+            try(PhaseTimer timer = options.metrics.start(Phase.CONNECTION)) {
+                rClient = provider.createClient(options.endpoint);
+                timer.succeeded();
+            }
+            rClient = InstrumentedProxy.wrap(rClient, RClient.class,
+                                             options.metrics);
+        } else {
+            rClient = provider.createClient(options.endpoint);
+        }
+
+        log.info("[   CONNECTION   ] Established anonymous " +
+                "connection [ RClient ].");
+
+        if(authenticate) {
+            RAuthentication rAuth =
+                    new RBasicAuthentication(options.username,
+                                             options.password);
+            rUser = scheduled(rClient.login(rAuth), RUser.class);
+            log.info("[ AUTHENTICATION ] Upgraded to authenticated " +
+                    "connection [ RUser ].");
+        }
+
+        /*
+         * Scheduled once authenticated, as in borrow, so executions
+         * are admitted against the limit of the authenticated user.
+         */
+        rClient = scheduled(rClient, RClient.class);
+        if(!authenticate) {
+            rClient = discrete(rClient);
+        }
+    }
+
+    /*
+     * Wraps handle so its executions are admitted by
+     * options.scheduler, outermost so instrumented executions are timed
+     * from admission. Executions are attributed to the authenticated
+     * user once rUser is set, to ScheduledProxy.ANONYMOUS before.
+     */
+    private <T> T scheduled(T handle, Class<T> iface) {
+
+        if(options.scheduler == null) {
+            return handle;
+        }
+        return ScheduledProxy.wrap(handle, iface, options.scheduler,
+                options.endpoint,
+                options.username != null && rUser != null ?
+                    options.username : ScheduledProxy.ANONYMOUS);
+    }
+
+    /*
+     * Wraps the anonymous rClient so discrete executions are hedged,
+     * retried and bounded by options.policy. Authenticated clients are
+     * never wrapped, their executions may store to the repository.
+     * Applied outside scheduling so every hedge and retry is admitted
+     * as an execution of its own.
+     */
+    private RClient discrete(RClient rClient) {
+        return options.policy != null ?
+            PolicyProxy.wrap(rClient, options.policy) : rClient;
+    }
+
+    private void borrow(boolean authenticate)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        clientPool = clientPool(options, authenticate);
+        pooledClient = clientPool.borrow();
+        rUser = pooledClient.getUser();
+        rUser = scheduled(rUser, RUser.class);
+        rClient = scheduled(pooledClient.getClient(), RClient.class);
+        if(!authenticate) {
+            rClient = discrete(rClient);
+        }
+        log.info("[   CONNECTION   ] Borrowed pooled " +
+                (authenticate ? "authenticated" : "anonymous") +
+                " connection [ RClient ].");
+    }
+
+    private String username() {
+        return rUser != null ? rUser.about().username : null;
+    }
+
+    /*
+     * Executions served from the result cache moved no input and
+     * tell nothing of the script run time.
+     */
+    private void observeInput(ExecutionResult result, String script,
+                              long started) {
+        if(!result.isCached()) {
+            TransportSelector.shared().observeExecution(script,
+                pendingInput, pendingInputMillis,
+                System.currentTimeMillis() - started);
+        }
+        pendingInput = null;
+        pendingInputMillis = 0;
+    }
+
+    private static String script(String filename, String directory,
+                                 String author) {
+        return "/" + author + "/" + directory + "/" + filename;
+    }
+
+    private static List<RData> rinputs(ProjectExecutionOptions opts) {
+        List<RData> rinputs = new ArrayList<RData>();
+        if(opts.rinputs != null) {
+            rinputs.addAll(opts.rinputs);
+        }
+        opts.rinputs = rinputs;
+        return rinputs;
+    }
+
+    private static void logExecution(String kind, ExecutionResult result,
+                                     String handle) {
+        if(result.isCached()) {
+            log.info("[   EXECUTION    ] " + kind + " R script " +
+                    "execution served from result cache.");
+        } else {
+            log.info("[   EXECUTION    ] " + kind + " R script " +
+                    "execution completed [ " + handle + " ].");
+        }
+    }
+
+    /*
+     * Pools are created from the options of the first pooled session
+     * that needs them and closed on JVM shutdown.
+     */
+    private static synchronized RClientPool clientPool(
+                                        SessionOptions options,
+                                        boolean authenticate) {
+
+        if(authenticate && authenticatedPool == null) {
+            authenticatedPool = newClientPool(options, true);
+        } else
+        if(!authenticate && anonymousPool == null) {
+            anonymousPool = newClientPool(options, false);
+        }
+        return authenticate ? authenticatedPool : anonymousPool;
+    }
+
+    private static synchronized RProjectPool projectPool(
+                                        SessionOptions options)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        if(projectPool == null) {
+            final RProjectPool pool = new RProjectPool(
+                                    clientPool(options, true),
+                                    ProjectPoolOptions.fromSystemProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    pool.close();
+                }
+            });
+            projectPool = pool;
+        }
+        return projectPool;
+    }
+
+    private static RClientPool newClientPool(SessionOptions options,
+                                             boolean authenticate) {
+
+        ClientPoolOptions poolOptions = ClientPoolOptions.fromSystemProperties();
+        poolOptions.endpoint = options.endpoint;
+        poolOptions.username = authenticate ? options.username : null;
+        poolOptions.password = authenticate ? options.password : null;
+        poolOptions.clientProvider = options.clientProvider;
+        poolOptions.metrics = options.metrics;
+
+        final RClientPool pool = new RClientPool(poolOptions);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                pool.close();
+            }
+        });
+        return pool;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * SessionOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.core;
+
+import com.revo.deployr.client.example.data.io.fake.*;
+import com.revo.deployr.client.example.data.io.metrics.*;
+import com.revo.deployr.client.example.data.io.policy.*;
+import com.revo.deployr.client.example.data.io.pool.*;
+import com.revo.deployr.client.example.data.io.scheduler.*;
+
+/*
+ * SessionOptions
+ *
+ * Configuration for a Session. Follows the same convention as the
+ * client library params classes: all fields are public and optional,
+ * unset fields fall back to the defaults below.
+ */
+public class SessionOptions {
+
+    /*
+     * DeployR server endpoint, for example:
+     * http://localhost:8050/deployr
+     */
+    public String endpoint;
+
+    /*
+     * Credentials used by authenticated sessions.
+     */
+    public String username;
+    public String password;
+
+    /*
+     * When true connections are borrowed from a process-wide
+     * RClientPool, and projects created with preloads only are checked
+     * out of a process-wide RProjectPool, instead of being established
+     * and released by every session.
+     */
+    public boolean pooled = false;
+
+    /*
+     * Source of new RClient connections, defaults to
+     * RClientProvider.DEFAULT which uses RClientFactory.
+     */
+    public RClientProvider clientProvider;
+
+    /*
+     * When set, connection and login are timed and RClient handles
+     * are instrumented to record execution lifecycle phases.
+     */
+    public PhaseMetrics metrics;
+
+    /*
+     * When set, script and code executions on the session handles
+     * are admitted by the scheduler, bounding in-flight executions per
+     * server and per user.
+     */
+    public ExecutionScheduler scheduler;
+
+    /*
+     * When set, discrete executions on an anonymous session RClient
+     * are hedged, retried and bounded by a deadline per the policy.
+     */
+    public ExecutionPolicy policy;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from the system properties used by the example
+     * applications (endpoint, username, password), session.pooled,
+     * metrics.enabled, scheduler.enabled and policy.enabled.
+     * Endpoints with the fake: scheme select FakeDeployR.shared().
+     */
+    public static SessionOptions fromSystemProperties() {
+
+        SessionOptions options = new SessionOptions();
+        options.endpoint = System.getProperty("endpoint");
+        options.username = System.getProperty("username");
+        options.password = System.getProperty("password");
+        options.pooled = Boolean.parseBoolean(
+            System.getProperty("session.pooled",
+                                String.valueOf(options.pooled)));
+        if(FakeDeployR.isFakeEndpoint(options.endpoint)) {
+            options.clientProvider = FakeDeployR.shared();
+        }
+        if(MetricsOptions.fromSystemProperties().enabled) {
+            options.metrics = PhaseMetrics.shared();
+        }
+        if(SchedulerOptions.fromSystemProperties().enabled) {
+            options.scheduler = ExecutionScheduler.shared();
+        }
+        if(ExecutionPolicyOptions.fromSystemProperties().enabled) {
+            options.policy = ExecutionPolicy.shared();
+        }
+        return options;
+    }
+
+}
@@ -0,0 +1,447 @@
+/*
+ * DatasetCache.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.dataset;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/*
+ * DatasetCache
+ *
+ * HTTP-aware local cache for external dataset URLs such as the
+ * Hipparcos star dataset. The first open downloads the dataset to
+ * disk along with its ETag and Last-Modified validators, later opens
+ * revalidate with a conditional GET and, on 304 Not Modified, read
+ * the local copy through a read-only memory mapping.
+ *
+ * Responses carrying Cache-Control max-age or Expires are served
+ * without revalidation until they go stale, no-cache and no-store
+ * responses are always revalidated. URLs other than http and https
+ * are read directly.
+ *
+ * Usage:
+ *
+ * InputStream is = DatasetCache.shared().open(
+ *      new URL("http://astrostatistics.psu.edu/datasets/HIP_star.dat"));
+ */
+public class DatasetCache {
+
+    private static Logger log = Logger.getLogger(DatasetCache.class);
+
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+
+    private static DatasetCache shared;
+
+    private final DatasetCacheOptions options;
+    private final File directory;
+    private final ConcurrentHashMap<String, Object> locks =
+                                    new ConcurrentHashMap<String, Object>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+
+    public DatasetCache(DatasetCacheOptions options) {
+        this.options = options;
+        this.directory = new File(options.directory);
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide cache configured from system
+     * properties, see DatasetCacheOptions.fromSystemProperties.
+     */
+    public static synchronized DatasetCache shared() {
+        if(shared == null) {
+            shared = new DatasetCache(DatasetCacheOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    public DatasetCacheOptions getOptions() {
+        return options;
+    }
+
+    /*
+     * open
+     *
+     * Returns the dataset content as a stream over a read-only
+     * mapping of the cached copy. Closing the stream is optional, the
+     * mapping is released once the stream is unreachable.
+     */
+    public InputStream open(URL url) throws IOException {
+
+        if(!cacheable(url)) {
+            return url.openStream();
+        }
+        return new ByteBufferInputStream(map(url));
+    }
+
+    /*
+     * map
+     *
+     * Returns a read-only mapping of the cached copy of the dataset,
+     * fetching or revalidating it first as needed.
+     */
+    public ByteBuffer map(URL url) throws IOException {
+
+        if(!cacheable(url)) {
+            InputStream is = url.openStream();
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                copy(is, bytes);
+                return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+            } finally {
+                is.close();
+            }
+        }
+
+        File file = fetch(url);
+        FileChannel channel = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ);
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               channel.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /*
+     * fetch
+     *
+     * Ensures a current copy of the dataset is on disk and returns
+     * the cached file. Fails with IOException when the dataset can
+     * neither be fetched nor, see serveStaleOnError, served stale.
+     */
+    public File fetch(URL url) throws IOException {
+
+        if(!cacheable(url)) {
+            throw new IllegalArgumentException("Dataset URL not cacheable, " +
+                                                                    url);
+        }
+
+        String key = keyFor(url);
+        Object lock = locks.get(key);
+        if(lock == null) {
+            Object candidate = new Object();
+            lock = locks.putIfAbsent(key, candidate);
+            if(lock == null) {
+                lock = candidate;
+            }
+        }
+
+        synchronized(lock) {
+            directory.mkdirs();
+            File data = new File(directory, key + DATA_SUFFIX);
+            File meta = new File(directory, key + META_SUFFIX);
+            Validators cached = readValidators(url, data, meta);
+            long now = System.currentTimeMillis();
+
+            if(cached != null && cached.expiresAt > now) {
+                hits.incrementAndGet();
+                log.debug("Dataset served from cache, url=" + url);
+                return data;
+            }
+
+            try {
+                return revalidate(url, cached, data, meta);
+            } catch(IOException ioex) {
+                if(cached != null && options.serveStaleOnError) {
+                    log.warn("Dataset revalidation failed, serving cached " +
+                                    "copy, url=" + url + " ex=" + ioex);
+                    return data;
+                }
+                throw ioex;
+            }
+        }
+    }
+
+    /*
+     * invalidate
+     *
+     * Drops the cached copy of url, the next open downloads it again.
+     */
+    public void invalidate(URL url) {
+
+        String key = keyFor(url);
+        new File(directory, key + META_SUFFIX).delete();
+        new File(directory, key + DATA_SUFFIX).delete();
+    }
+
+    /*
+     * Opens served from disk without contacting the dataset host.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /*
+     * Conditional GETs answered with 304 Not Modified.
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getDownloads() {
+        return downloads.get();
+    }
+
+    public long getDownloadedBytes() {
+        return downloadedBytes.get();
+    }
+
+    private boolean cacheable(URL url) {
+        String protocol = url.getProtocol();
+        return options.enabled &&
+            ("http".equals(protocol) || "https".equals(protocol));
+    }
+
+    private File revalidate(URL url, Validators cached, File data,
+                            File meta) throws IOException {
+
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(options.connectTimeoutMillis);
+        conn.setReadTimeout(options.readTimeoutMillis);
+        conn.setUseCaches(false);
+        if(cached != null) {
+            if(cached.etag != null) {
+                conn.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if(cached.lastModified != null) {
+                conn.setRequestProperty("If-Modified-Since",
+                                        cached.lastModified);
+            }
+        }
+
+        try {
+            int status = conn.getResponseCode();
+            long now = System.currentTimeMillis();
+
+            if(status == HttpURLConnection.HTTP_NOT_MODIFIED &&
+                                                        cached != null) {
+                /*
+                 * Validators may be refreshed on a 304, keep the
+                 * cached ones for any the response omits.
+                 */
+                Validators current = new Validators(
+                    firstNonNull(conn.getHeaderField("ETag"), cached.etag),
+                    firstNonNull(conn.getHeaderField("Last-Modified"),
+                                 cached.lastModified),
+                    expiresAt(conn, now), cached.length);
+                writeValidators(url, current, meta);
+                revalidations.incrementAndGet();
+                log.debug("Dataset not modified, url=" + url);
+                return data;
+            }
+
+            if(status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Dataset fetch returned HTTP " +
+                                                status + ", url=" + url);
+            }
+
+            /*
+             * The validators are dropped before the body is replaced
+             * so an interrupted update never pairs new content with
+             * old validators.
+             */
+            File part = new File(data.getPath() + ".part");
+            long length;
+            InputStream is = conn.getInputStream();
+            try {
+                OutputStream os = new BufferedOutputStream(
+                                        new FileOutputStream(part));
+                try {
+                    length = copy(is, os);
+                } finally {
+                    os.close();
+                }
+                meta.delete();
+                Files.move(part.toPath(), data.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                is.close();
+                part.delete();
+            }
+
+            Validators current = new Validators(conn.getHeaderField("ETag"),
+                                    conn.getHeaderField("Last-Modified"),
+                                    expiresAt(conn, now), length);
+            writeValidators(url, current, meta);
+            downloads.incrementAndGet();
+            downloadedBytes.addAndGet(length);
+            log.debug("Dataset downloaded, url=" + url + " bytes=" + length);
+            return data;
+
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /*
+     * Freshness per Cache-Control max-age, then Expires, then
+     * maxAgeMillis.
+     */
+    private long expiresAt(HttpURLConnection conn, long now) {
+
+        String cacheControl = conn.getHeaderField("Cache-Control");
+        if(cacheControl != null) {
+            for(String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase(Locale.ROOT);
+                if(directive.equals("no-cache") ||
+                        directive.equals("no-store")) {
+                    return now;
+                } else
+                if(directive.startsWith("max-age=")) {
+                    try {
+                        return now + 1000L * Long.parseLong(
+                            directive.substring("max-age=".length()));
+                    } catch(NumberFormatException nfex) {
+                        return now;
+                    }
+                }
+            }
+        }
+        long expires = conn.getExpiration();
+        if(expires > 0) {
+            return expires;
+        }
+        return now + options.maxAgeMillis;
+    }
+
+    private Validators readValidators(URL url, File data, File meta) {
+
+        if(!data.isFile() || !meta.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try {
+            InputStream is = new FileInputStream(meta);
+            try {
+                props.load(is);
+            } finally {
+                is.close();
+            }
+            if(!url.toString().equals(props.getProperty("url"))) {
+                return null;
+            }
+            long length = Long.parseLong(props.getProperty("length"));
+            if(length != data.length()) {
+                return null;
+            }
+            return new Validators(props.getProperty("etag"),
+                            props.getProperty("lastModified"),
+                            Long.parseLong(props.getProperty("expiresAt")),
+                            length);
+        } catch(Exception ex) {
+            log.warn("Dataset cache entry " + meta + " unreadable, ex=" + ex);
+            return null;
+        }
+    }
+
+    private void writeValidators(URL url, Validators validators, File meta) {
+
+        Properties props = new Properties();
+        props.setProperty("url", url.toString());
+        if(validators.etag != null) {
+            props.setProperty("etag", validators.etag);
+        }
+        if(validators.lastModified != null) {
+            props.setProperty("lastModified", validators.lastModified);
+        }
+        props.setProperty("expiresAt", String.valueOf(validators.expiresAt));
+        props.setProperty("length", String.valueOf(validators.length));
+
+        File part = new File(meta.getPath() + ".part");
+        try {
+            OutputStream os = new FileOutputStream(part);
+            try {
+                props.store(os, null);
+            } finally {
+                os.close();
+            }
+            Files.move(part.toPath(), meta.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException ioex) {
+            part.delete();
+            log.warn("Dataset cache entry " + meta + " not written, " +
+                                                    "ex=" + ioex);
+        }
+    }
+
+    private static String keyFor(URL url) {
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException nsaex) {
+            throw new IllegalStateException(nsaex);
+        }
+        byte[] bytes = md.digest(url.toString()
+                                    .getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte x : bytes) {
+            sb.append(Character.forDigit((x >> 4) & 0xF, 16))
+              .append(Character.forDigit(x & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static long copy(InputStream is, OutputStream os)
+                                                    throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while((n = is.read(buffer)) != -1) {
+            os.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    private static String firstNonNull(String a, String b) {
+        return a != null ? a : b;
+    }
+
+    private static final class Validators {
+
+        final String etag;
+        final String lastModified;
+        final long expiresAt;
+        final long length;
+
+        Validators(String etag, String lastModified, long expiresAt,
+                   long length) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.length = length;
+        }
+    }
+
+}
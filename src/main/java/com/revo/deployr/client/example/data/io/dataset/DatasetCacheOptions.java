@@ -0,0 +1,78 @@
+/*
+ * DatasetCacheOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.dataset;
+
+import java.io.File;
+
+/*
+ * DatasetCacheOptions
+ *
+ * Configuration for a DatasetCache. Follows the same convention as
+ * the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class DatasetCacheOptions {
+
+    /*
+     * When false every open fetches the dataset over the network.
+     */
+    public boolean enabled = true;
+
+    /*
+     * Directory holding cached dataset bodies and their validators.
+     */
+    public String directory = System.getProperty("user.home") +
+        File.separator + ".deployr" + File.separator + "datasets";
+
+    /*
+     * Time a cached copy is served without revalidation when the
+     * server response carries no Cache-Control max-age or Expires.
+     * Zero revalidates on every open with a conditional GET.
+     */
+    public long maxAgeMillis = 0;
+
+    public int connectTimeoutMillis = 10 * 1000;
+    public int readTimeoutMillis = 60 * 1000;
+
+    /*
+     * When true a cached copy is served if revalidation fails, for
+     * example while the dataset host is unreachable.
+     */
+    public boolean serveStaleOnError = true;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from dataset.* system properties.
+     */
+    public static DatasetCacheOptions fromSystemProperties() {
+
+        DatasetCacheOptions options = new DatasetCacheOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("dataset.enabled",
+                                String.valueOf(options.enabled)));
+        options.directory = System.getProperty("dataset.directory",
+                                        options.directory);
+        options.maxAgeMillis = Long.getLong("dataset.maxAgeMillis",
+                                        options.maxAgeMillis);
+        options.connectTimeoutMillis = Integer.getInteger(
+            "dataset.connectTimeoutMillis", options.connectTimeoutMillis);
+        options.readTimeoutMillis = Integer.getInteger(
+            "dataset.readTimeoutMillis", options.readTimeoutMillis);
+        options.serveStaleOnError = Boolean.parseBoolean(
+            System.getProperty("dataset.serveStaleOnError",
+                                String.valueOf(options.serveStaleOnError)));
+        return options;
+    }
+
+}
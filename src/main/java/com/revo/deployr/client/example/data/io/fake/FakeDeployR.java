@@ -0,0 +1,732 @@
+/*
+ * FakeDeployR.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.fake;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.about.*;
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.pool.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * FakeDeployR
+ *
+ * In-process stand-in for a DeployR server, used to measure and
+ * regression-test the throughput, latency and memory of the code in
+ * this project without a live server or R sessions.
+ *
+ * The stand-in is a dynamic proxy implementation of the client
+ * library interfaces, plugged in through RClientProvider. It replaces
+ * the client library itself, not the server: no HTTP request is made
+ * and no DeployR JSON is encoded or decoded, so the client library's
+ * transport and (de)serialization overhead is excluded from every
+ * measurement taken against it. Measure those against a live server.
+ *
+ * The interfaces implemented are those used by the data I/O flows:
+ * RClient login, logout, executeScript, executeCode and release;
+ * RUser createProject, listProjects, uploadFile and fetchFile;
+ * RProject executeScript, executeCode, uploadFile, loadFile,
+ * listFiles, ping and close; download and delete on RProjectFile,
+ * RProjectResult and RRepositoryFile. Executions mirror analytics/dataIO.R: the "hip",
+ * "hipDim" and "hipNames" routputs are built from hipStar.dat and
+ * every execution produces hip.rData and hip.csv artifacts, an
+ * unnamedplot001.png result and any repository files requested by
+ * ProjectStorageOptions. Downloads stream synthetic payloads of the
+ * configured sizes.
+ *
+ * Latency, payload sizes and injected error rate are configured by
+ * FakeDeployROptions. Call counts per operation are recorded for
+ * assertions in load and regression tests.
+ *
+ * Usage:
+ *
+ * FakeDeployR fake = new FakeDeployR(new FakeDeployROptions());
+ * RClientPool pool = new RClientPool(fake.clientPoolOptions());
+ */
+public class FakeDeployR implements RClientProvider {
+
+    private static Logger log = Logger.getLogger(FakeDeployR.class);
+
+    /*
+     * Endpoints with this scheme, for example -Dendpoint=fake://deployr,
+     * select the stand-in server in place of a live DeployR server.
+     */
+    public static final String ENDPOINT_SCHEME = "fake:";
+    public static final String ENDPOINT = "fake://localhost/deployr";
+
+    private static final String USERNAME = "testuser";
+
+    private static FakeDeployR shared;
+
+    private final FakeDeployROptions options;
+    private final ConcurrentHashMap<String, AtomicLong> calls =
+        new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> repository =
+        new ConcurrentHashMap<String, Long>();
+    private volatile ColumnarTable hip;
+
+    public FakeDeployR(FakeDeployROptions options) {
+        this.options = options;
+    }
+
+    public static boolean isFakeEndpoint(String endpoint) {
+        return endpoint != null && endpoint.startsWith(ENDPOINT_SCHEME);
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide stand-in configured from fake.*
+     * system properties, see FakeDeployROptions.fromSystemProperties.
+     */
+    public static synchronized FakeDeployR shared() {
+        if(shared == null) {
+            shared = new FakeDeployR(FakeDeployROptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    public FakeDeployROptions getOptions() {
+        return options;
+    }
+
+    public RClient createClient(String endpoint) throws RClientException {
+        simulate("createClient", 0);
+        return proxy(RClient.class, new ClientHandler());
+    }
+
+    /*
+     * clientPoolOptions
+     *
+     * Returns pool options read from system properties with this
+     * stand-in as the client provider, authenticated as testuser
+     * unless a username is configured.
+     */
+    public ClientPoolOptions clientPoolOptions() {
+
+        ClientPoolOptions poolOptions = ClientPoolOptions.fromSystemProperties();
+        if(!isFakeEndpoint(poolOptions.endpoint)) {
+            poolOptions.endpoint = ENDPOINT;
+        }
+        if(poolOptions.username == null) {
+            poolOptions.username = USERNAME;
+        }
+        poolOptions.clientProvider = this;
+        return poolOptions;
+    }
+
+    public long getCallCount(String call) {
+        AtomicLong count = calls.get(call);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> snapshot = new TreeMap<String, Long>();
+        for(Map.Entry<String, AtomicLong> entry : calls.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    public void resetCallCounts() {
+        calls.clear();
+    }
+
+    /*
+     * simulate
+     *
+     * Records the call, waits out its configured latency and then
+     * fails it with the configured probability.
+     */
+    private void simulate(String call, long latencyMillis)
+        throws RClientException {
+
+        AtomicLong count = calls.get(call);
+        if(count == null) {
+            AtomicLong created = new AtomicLong();
+            count = calls.putIfAbsent(call, created);
+            if(count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = latencyMillis;
+        if(latency > 0 && options.latencyJitter > 0) {
+            latency += (long) (latency * options.latencyJitter *
+                                                    random.nextDouble());
+        }
+        if(latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new RClientException("FakeDeployR call " + call +
+                                                    " interrupted.");
+            }
+        }
+
+        if(options.errorRate > 0 && random.nextDouble() < options.errorRate) {
+            throw new RClientException("FakeDeployR injected failure " +
+                                                    "on " + call + ".");
+        }
+        if(options.transportErrorRate > 0 &&
+                random.nextDouble() < options.transportErrorRate) {
+            RClientException rex = new RClientException("FakeDeployR " +
+                "injected transport failure on " + call + ".");
+            rex.initCause(new IOException("Connection reset"));
+            throw rex;
+        }
+    }
+
+    /*
+     * Content of a downloaded file: hipWorkspaceFile for .rData files
+     * when it exists, a synthetic payload of size bytes otherwise.
+     */
+    private InputStream payload(String filename, long size)
+        throws IOException {
+
+        File workspace = new File(options.hipWorkspaceFile);
+        if(filename.endsWith(".rData") && workspace.isFile()) {
+            return new FileInputStream(workspace);
+        }
+        return new PayloadInputStream(size);
+    }
+
+    private ColumnarTable hipTable() {
+
+        if(hip == null) {
+            synchronized(this) {
+                if(hip == null) {
+                    InputStream is = null;
+                    try {
+                        is = new FileInputStream(options.hipDataFile);
+                        hip = WhitespaceTableReader.read(is);
+                    } catch(IOException ioex) {
+                        log.warn("FakeDeployR could not read " +
+                            options.hipDataFile + ", ex=" + ioex);
+                        hip = new ColumnarTable(new String[0],
+                                                new Object[0], 0);
+                    } finally {
+                        if(is != null) {
+                            try { is.close(); } catch(IOException cex) { }
+                        }
+                    }
+                }
+            }
+        }
+        return hip;
+    }
+
+    private <T> T execution(Class<T> type, ProjectExecutionOptions opts) {
+
+        List<RData> objects = new ArrayList<RData>();
+        if(opts != null && opts.routputs != null) {
+            ColumnarTable table = hipTable();
+            for(String name : opts.routputs) {
+                if("hip".equals(name)) {
+                    objects.add(table.asDataFrame("hip"));
+                } else
+                if("hipDim".equals(name)) {
+                    objects.add(RDataFactory.createNumericVector("hipDim",
+                        Arrays.asList((double) table.getRowCount(),
+                                      (double) table.getColumnCount())));
+                } else
+                if("hipNames".equals(name)) {
+                    objects.add(RDataFactory.createStringVector("hipNames",
+                        Arrays.asList(table.getColumnNames())));
+                }
+            }
+        }
+
+        List<RProjectFile> artifacts = new ArrayList<RProjectFile>();
+        artifacts.add(projectFile("hip.rData", options.binaryArtifactBytes));
+        artifacts.add(projectFile("hip.csv", options.dataArtifactBytes));
+
+        List<RProjectResult> results = new ArrayList<RProjectResult>();
+        results.add(result("unnamedplot001.png", options.plotBytes));
+
+        List<RRepositoryFile> repoFiles = new ArrayList<RRepositoryFile>();
+        if(opts != null && opts.storageOptions != null) {
+            ProjectStorageOptions storage = opts.storageOptions;
+            if(storage.workspace != null) {
+                repoFiles.add(repositoryFile(storage.workspace,
+                        storage.directory, options.repositoryFileBytes));
+            }
+            if(storage.objects != null) {
+                for(String object : storage.objects.split(",")) {
+                    repoFiles.add(repositoryFile(object.trim() + ".rData",
+                        storage.directory, options.repositoryFileBytes));
+                }
+            }
+        }
+
+        final RProjectExecutionDetails details =
+            newDetails(RProjectExecutionDetails.class,
+                "id", "EXEC-" + sequence.incrementAndGet(),
+                "console", console(opts),
+                "workspaceObjects", objects,
+                "artifacts", artifacts,
+                "results", results,
+                "repositoryFiles", repoFiles);
+
+        return proxy(type, new FakeHandler(type.getSimpleName()) {
+            Object handle(String name, Object[] args) throws Exception {
+                if("about".equals(name)) {
+                    return details;
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private static String console(ProjectExecutionOptions opts) {
+
+        if(opts != null && opts.rinputs != null) {
+            for(RData rData : opts.rinputs) {
+                if("hipStarUrl".equals(rData.getName())) {
+                    return "[1] \"Hip Star data.frame read from URL.\"";
+                }
+            }
+        }
+        if(opts != null && opts.preloadDirectory != null &&
+                "hipStar.dat".equals(opts.preloadDirectory.filename)) {
+            return "[1] \"Hip Star data.frame read from file, hipStar.dat.\"";
+        }
+        return "[1] \"Hip Star data.frame preloaded from hipStar.rData.\"";
+    }
+
+    private RProjectFile projectFile(final String filename, final long size) {
+
+        final RProjectFileDetails details =
+            newDetails(RProjectFileDetails.class,
+                "filename", filename, "size", size, "type", typeOf(filename));
+
+        return proxy(RProjectFile.class, new FakeHandler("RProjectFile") {
+            Object handle(String name, Object[] args) throws Exception {
+                if("about".equals(name)) {
+                    return details;
+                } else
+                if("download".equals(name)) {
+                    simulate("download", options.downloadLatencyMillis);
+                    return payload(filename, size);
+                } else
+                if("delete".equals(name)) {
+                    simulate("delete", 0);
+                    return null;
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private RProjectResult result(final String filename, final long size) {
+
+        final RProjectResultDetails details =
+            newDetails(RProjectResultDetails.class,
+                "filename", filename, "size", size, "type", typeOf(filename));
+
+        return proxy(RProjectResult.class, new FakeHandler("RProjectResult") {
+            Object handle(String name, Object[] args) throws Exception {
+                if("about".equals(name)) {
+                    return details;
+                } else
+                if("download".equals(name)) {
+                    simulate("download", options.downloadLatencyMillis);
+                    return payload(filename, size);
+                } else
+                if("delete".equals(name)) {
+                    simulate("delete", 0);
+                    return null;
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private RRepositoryFile repositoryFile(final String filename,
+                                           String directory,
+                                           final long size) {
+
+        final RRepositoryFileDetails details =
+            newDetails(RRepositoryFileDetails.class,
+                "filename", filename, "directory", directory,
+                "author", USERNAME, "size", size, "type", typeOf(filename));
+
+        return proxy(RRepositoryFile.class, new FakeHandler("RRepositoryFile") {
+            Object handle(String name, Object[] args) throws Exception {
+                if("about".equals(name)) {
+                    return details;
+                } else
+                if("download".equals(name)) {
+                    simulate("download", options.downloadLatencyMillis);
+                    return payload(filename, size);
+                } else
+                if("delete".equals(name)) {
+                    simulate("delete", 0);
+                    return null;
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private class ClientHandler extends FakeHandler {
+
+        ClientHandler() {
+            super("RClient");
+        }
+
+        Object handle(String name, Object[] args) throws Exception {
+            if("login".equals(name)) {
+                simulate("login", options.loginLatencyMillis);
+                return proxy(RUser.class, new UserHandler());
+            } else
+            if("logout".equals(name)) {
+                simulate("logout", options.closeLatencyMillis);
+                return null;
+            } else
+            if("executeScript".equals(name) || "executeCode".equals(name)) {
+                simulate(name, options.executeLatencyMillis);
+                return execution(RScriptExecution.class,
+                    (ProjectExecutionOptions) args[args.length - 1]);
+            } else
+            if("release".equals(name)) {
+                simulate("release", 0);
+                return null;
+            }
+            return unsupported(name);
+        }
+    }
+
+    private class UserHandler extends FakeHandler {
+
+        private final List<RProject> projects =
+            new CopyOnWriteArrayList<RProject>();
+
+        UserHandler() {
+            super("RUser");
+        }
+
+        Object handle(String name, Object[] args) throws Exception {
+            if("about".equals(name)) {
+                return newDetails(RUserDetails.class,
+                    "username", USERNAME, "displayname", USERNAME);
+            } else
+            if("createProject".equals(name)) {
+                simulate("createProject", options.createProjectLatencyMillis);
+                ProjectHandler handler = new ProjectHandler("PROJECT-" +
+                                sequence.incrementAndGet(), projects);
+                RProject rProject = proxy(RProject.class, handler);
+                handler.self = rProject;
+                projects.add(rProject);
+                return rProject;
+            } else
+            if("listProjects".equals(name)) {
+                simulate("listProjects", 0);
+                return new ArrayList<RProject>(projects);
+            } else
+            if("uploadFile".equals(name)) {
+                simulate("repositoryUpload", options.uploadLatencyMillis);
+                RepoUploadOptions upOpts = (RepoUploadOptions) args[1];
+                long size = consume((InputStream) args[0]);
+                repository.put(upOpts.directory + "/" + upOpts.filename,
+                               size);
+                return repositoryFile(upOpts.filename,
+                                      upOpts.directory, size);
+            } else
+            if("fetchFile".equals(name)) {
+                simulate("fetchFile", 0);
+                Long size = repository.get(args[2] + "/" + args[0]);
+                return repositoryFile((String) args[0], (String) args[2],
+                    size != null ? size : options.repositoryFileBytes);
+            }
+            return unsupported(name);
+        }
+    }
+
+    private class ProjectHandler extends FakeHandler {
+
+        private final String id;
+        private final List<RProject> owner;
+        private final List<RProjectFile> files =
+            new CopyOnWriteArrayList<RProjectFile>();
+        private volatile boolean live = true;
+        private volatile RProject self;
+
+        ProjectHandler(String id, List<RProject> owner) {
+            super("RProject");
+            this.id = id;
+            this.owner = owner;
+        }
+
+        Object handle(String name, Object[] args) throws Exception {
+            if("about".equals(name)) {
+                return newDetails(RProjectDetails.class,
+                    "id", id, "islive", live);
+            } else
+            if("ping".equals(name)) {
+                simulate("ping", 0);
+                return live;
+            } else
+            if("close".equals(name)) {
+                simulate("close", options.closeLatencyMillis);
+                live = false;
+                owner.remove(self);
+                return null;
+            }
+
+            if(!live) {
+                throw new RClientException("FakeDeployR project " + id +
+                                                    " has been closed.");
+            }
+
+            if("executeScript".equals(name) || "executeCode".equals(name)) {
+                simulate(name, options.executeLatencyMillis);
+                ProjectExecutionOptions opts = null;
+                if(args.length > 0 &&
+                        args[args.length - 1] instanceof ProjectExecutionOptions) {
+                    opts = (ProjectExecutionOptions) args[args.length - 1];
+                }
+                return execution(RProjectExecution.class, opts);
+            } else
+            if("uploadFile".equals(name)) {
+                simulate("uploadFile", options.uploadLatencyMillis);
+                DirectoryUploadOptions upOpts = (DirectoryUploadOptions) args[1];
+                long size = consume((InputStream) args[0]);
+                return addFile(projectFile(upOpts.filename, size));
+            } else
+            if("loadFile".equals(name)) {
+                simulate("loadFile", 0);
+                RRepositoryFileDetails repoDetails =
+                                    ((RRepositoryFile) args[0]).about();
+                return addFile(projectFile(repoDetails.filename,
+                                           repoDetails.size));
+            } else
+            if("listFiles".equals(name)) {
+                simulate("listFiles", 0);
+                return new ArrayList<RProjectFile>(files);
+            }
+            return unsupported(name);
+        }
+
+        private RProjectFile addFile(RProjectFile wdFile) {
+            String filename = wdFile.about().filename;
+            for(RProjectFile existing : files) {
+                if(filename.equals(existing.about().filename)) {
+                    files.remove(existing);
+                }
+            }
+            files.add(wdFile);
+            return wdFile;
+        }
+    }
+
+    /*
+     * FakeHandler
+     *
+     * Dispatches interface calls by method name, answering the
+     * java.lang.Object methods with identity semantics.
+     */
+    private abstract static class FakeHandler implements InvocationHandler {
+
+        private final String type;
+
+        FakeHandler(String type) {
+            this.type = type;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+
+            if(method.getDeclaringClass() == Object.class) {
+                if("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else
+                if("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return "Fake" + type + "@" +
+                    Integer.toHexString(System.identityHashCode(proxy));
+            }
+            return handle(method.getName(),
+                          args != null ? args : new Object[0]);
+        }
+
+        abstract Object handle(String name, Object[] args) throws Exception;
+
+        Object unsupported(String name) {
+            throw new UnsupportedOperationException("FakeDeployR does " +
+                                "not implement " + type + "." + name);
+        }
+    }
+
+    /*
+     * Synthetic download payload of a fixed size, generated on the
+     * fly so large files cost no memory in the stand-in.
+     */
+    private static class PayloadInputStream extends InputStream {
+
+        private static final byte[] BLOCK = new byte[8192];
+        static {
+            for(int i = 0; i < BLOCK.length; i++) {
+                BLOCK[i] = (byte) ('a' + (i % 26));
+            }
+        }
+
+        private long remaining;
+
+        PayloadInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if(remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return BLOCK[(int) (remaining % BLOCK.length)];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, remaining), BLOCK.length);
+            System.arraycopy(BLOCK, 0, b, off, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeDeployR.class.getClassLoader(),
+                                          new Class<?>[] { type }, handler);
+    }
+
+    private static long consume(InputStream is) throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[8192];
+        try {
+            int n;
+            while((n = is.read(buffer)) != -1) {
+                size += n;
+            }
+        } finally {
+            is.close();
+        }
+        return size;
+    }
+
+    private static String typeOf(String filename) {
+        if(filename.endsWith(".png")) {
+            return "image/png";
+        } else
+        if(filename.endsWith(".csv")) {
+            return "text/csv";
+        }
+        return "application/octet-stream";
+    }
+
+    /*
+     * newDetails
+     *
+     * Creates a client library "about" details object and populates
+     * its public fields by name. The details classes are not intended
+     * to be created by client code, so the constructor with the fewest
+     * parameters is invoked with default values and fields that do
+     * not exist, or whose type differs, are skipped.
+     */
+    static <T> T newDetails(Class<T> type, Object... fields) {
+
+        try {
+            Constructor<?> ctor = null;
+            for(Constructor<?> candidate : type.getDeclaredConstructors()) {
+                if(ctor == null || candidate.getParameterTypes().length <
+                                        ctor.getParameterTypes().length) {
+                    ctor = candidate;
+                }
+            }
+            Class<?>[] params = ctor.getParameterTypes();
+            Object[] args = new Object[params.length];
+            for(int i = 0; i < params.length; i++) {
+                args[i] = defaultValue(params[i]);
+            }
+            ctor.setAccessible(true);
+            T instance = type.cast(ctor.newInstance(args));
+
+            for(int i = 0; i + 1 < fields.length; i += 2) {
+                try {
+                    Field field = type.getField((String) fields[i]);
+                    field.setAccessible(true);
+                    field.set(instance, fields[i + 1]);
+                } catch(NoSuchFieldException nsfex) {
+                } catch(IllegalArgumentException iaex) {
+                }
+            }
+            return instance;
+
+        } catch(Exception ex) {
+            throw new IllegalStateException("FakeDeployR could not create " +
+                                        type.getSimpleName(), ex);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if(!type.isPrimitive()) {
+            return null;
+        } else
+        if(type == boolean.class) {
+            return false;
+        } else
+        if(type == char.class) {
+            return '\0';
+        } else
+        if(type == byte.class) {
+            return (byte) 0;
+        } else
+        if(type == short.class) {
+            return (short) 0;
+        } else
+        if(type == int.class) {
+            return 0;
+        } else
+        if(type == long.class) {
+            return 0L;
+        } else
+        if(type == float.class) {
+            return 0f;
+        }
+        return 0d;
+    }
+
+}
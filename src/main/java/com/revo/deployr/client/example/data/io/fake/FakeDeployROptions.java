@@ -0,0 +1,113 @@
+/*
+ * FakeDeployROptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.fake;
+
+/*
+ * FakeDeployROptions
+ *
+ * Behaviour of a FakeDeployR stand-in server. Latencies are applied
+ * on the calling thread before each simulated call returns, with
+ * uniform random jitter of up to latencyJitter times the latency.
+ */
+public class FakeDeployROptions {
+
+    public long loginLatencyMillis = 20;
+    public long createProjectLatencyMillis = 200;
+    public long executeLatencyMillis = 100;
+    public long uploadLatencyMillis = 10;
+    public long downloadLatencyMillis = 10;
+    public long closeLatencyMillis = 5;
+
+    public double latencyJitter = 0.25;
+
+    /*
+     * Sizes of the synthetic working directory artifacts, graphics
+     * device plot and repository files returned by executions.
+     */
+    public long binaryArtifactBytes = 90 * 1024L;
+    public long dataArtifactBytes = 300 * 1024L;
+    public long plotBytes = 20 * 1024L;
+    public long repositoryFileBytes = 90 * 1024L;
+
+    /*
+     * Local table returned as the "hip" workspace object when
+     * requested in routputs.
+     */
+    public String hipDataFile = "analytics/hipStar.dat";
+
+    /*
+     * Local workspace served as the content of every .rData file
+     * downloaded, when the file exists.
+     */
+    public String hipWorkspaceFile = "analytics/hipStar.rData";
+
+    /*
+     * Probability in [0, 1] that any simulated call fails with an
+     * RClientException instead of completing.
+     */
+    public double errorRate = 0.0;
+
+    /*
+     * Probability in [0, 1] that any simulated call fails as on a
+     * dropped connection, an RClientException caused by an
+     * IOException.
+     */
+    public double transportErrorRate = 0.0;
+
+    public static FakeDeployROptions fromSystemProperties() {
+
+        FakeDeployROptions options = new FakeDeployROptions();
+        options.loginLatencyMillis = Long.getLong("fake.loginLatencyMillis",
+                                        options.loginLatencyMillis);
+        options.createProjectLatencyMillis =
+            Long.getLong("fake.createProjectLatencyMillis",
+                                        options.createProjectLatencyMillis);
+        options.executeLatencyMillis =
+            Long.getLong("fake.executeLatencyMillis",
+                                        options.executeLatencyMillis);
+        options.uploadLatencyMillis =
+            Long.getLong("fake.uploadLatencyMillis",
+                                        options.uploadLatencyMillis);
+        options.downloadLatencyMillis =
+            Long.getLong("fake.downloadLatencyMillis",
+                                        options.downloadLatencyMillis);
+        options.closeLatencyMillis = Long.getLong("fake.closeLatencyMillis",
+                                        options.closeLatencyMillis);
+        options.latencyJitter =
+            Double.parseDouble(System.getProperty("fake.latencyJitter",
+                                String.valueOf(options.latencyJitter)));
+        options.binaryArtifactBytes =
+            Long.getLong("fake.binaryArtifactBytes",
+                                        options.binaryArtifactBytes);
+        options.dataArtifactBytes = Long.getLong("fake.dataArtifactBytes",
+                                        options.dataArtifactBytes);
+        options.plotBytes = Long.getLong("fake.plotBytes",
+                                        options.plotBytes);
+        options.repositoryFileBytes =
+            Long.getLong("fake.repositoryFileBytes",
+                                        options.repositoryFileBytes);
+        options.hipDataFile = System.getProperty("fake.hipDataFile",
+                                        options.hipDataFile);
+        options.hipWorkspaceFile =
+            System.getProperty("fake.hipWorkspaceFile",
+                                        options.hipWorkspaceFile);
+        options.errorRate =
+            Double.parseDouble(System.getProperty("fake.errorRate",
+                                String.valueOf(options.errorRate)));
+        options.transportErrorRate =
+            Double.parseDouble(System.getProperty("fake.transportErrorRate",
+                                String.valueOf(options.transportErrorRate)));
+        return options;
+    }
+
+}
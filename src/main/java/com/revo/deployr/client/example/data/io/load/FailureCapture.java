@@ -0,0 +1,82 @@
+/*
+ * FailureCapture.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+import org.apache.log4j.*;
+import org.apache.log4j.spi.LoggingEvent;
+
+/*
+ * FailureCapture
+ *
+ * The example applications report failures by logging a warning
+ * rather than throwing from main. This appender counts WARN and
+ * higher events logged on a thread between begin() and end() so a
+ * scenario run can be classified as failed even when main returns
+ * normally.
+ */
+class FailureCapture extends AppenderSkeleton {
+
+    private static final FailureCapture INSTANCE = new FailureCapture();
+
+    private final ThreadLocal<String[]> firstWarning =
+                                        new ThreadLocal<String[]>();
+
+    private FailureCapture() {
+        setName("load-failure-capture");
+        setThreshold(Level.WARN);
+    }
+
+    /*
+     * install
+     *
+     * Attaches the shared instance to the root logger, once.
+     */
+    static synchronized FailureCapture install() {
+        Logger root = Logger.getRootLogger();
+        if(root.getAppender(INSTANCE.getName()) == null) {
+            root.addAppender(INSTANCE);
+        }
+        return INSTANCE;
+    }
+
+    void begin() {
+        firstWarning.set(new String[1]);
+    }
+
+    /*
+     * end
+     *
+     * Returns the first warning logged on this thread since begin(),
+     * or null when there was none.
+     */
+    String end() {
+        String[] captured = firstWarning.get();
+        firstWarning.remove();
+        return captured != null ? captured[0] : null;
+    }
+
+    protected void append(LoggingEvent event) {
+        String[] captured = firstWarning.get();
+        if(captured != null && captured[0] == null) {
+            captured[0] = String.valueOf(event.getMessage());
+        }
+    }
+
+    public boolean requiresLayout() {
+        return false;
+    }
+
+    public void close() {
+    }
+
+}
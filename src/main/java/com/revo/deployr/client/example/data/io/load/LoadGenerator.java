@@ -0,0 +1,384 @@
+/*
+ * LoadGenerator.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+import com.revo.deployr.client.example.data.io.metrics.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.HdrHistogram.Histogram;
+
+import org.apache.log4j.Logger;
+
+/*
+ * LoadGenerator
+ *
+ * Replays the di-config.json scenario matrix concurrently against the
+ * DeployR server named by the endpoint, username and password system
+ * properties, then reports per-scenario throughput and latency
+ * percentiles.
+ *
+ * Two load models are supported:
+ *
+ * 1. Closed loop (load.rate=0): load.concurrency workers each start a
+ *    new scenario as soon as their previous one completes.
+ * 2. Open loop (load.rate > 0): scenarios are started on a fixed
+ *    schedule of load.rate per second, up to load.concurrency at once.
+ *    Latency is measured from the scheduled start, so time spent
+ *    queued behind a saturated grid is reported rather than hidden.
+ *    At most load.maxQueued scenarios wait for a worker, arrivals
+ *    beyond that are counted as dropped, so overload shows in the
+ *    report instead of exhausting memory.
+ *
+ * Usage: gradlew load -Pendpoint=... -Dload.rate=5 -Dload.mix=preload=2
+ *
+ * Execution lifecycle phase metrics are exported while the load runs
+ * when -Dmetrics.file or -Dmetrics.port is set, see MetricsOptions.
+ */
+public class LoadGenerator {
+
+    private static Logger log = Logger.getLogger(LoadGenerator.class);
+
+    private final ScenarioMatrix matrix;
+    private final LoadOptions options;
+    private final Map<LoadScenario, ScenarioStats> stats;
+    private final FailureCapture failures;
+    private volatile long measuredStartNanos;
+    private volatile long measuredEndNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong intervalDropped = new AtomicLong();
+
+    public LoadGenerator(ScenarioMatrix matrix, LoadOptions options) {
+
+        if(options.concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be >= 1.");
+        }
+        this.matrix = matrix;
+        this.options = options;
+        this.stats = new LinkedHashMap<LoadScenario, ScenarioStats>();
+        for(LoadScenario scenario : matrix.getScenarios()) {
+            stats.put(scenario, new ScenarioStats(scenario));
+        }
+        this.failures = FailureCapture.install();
+    }
+
+    public static void main(String args[]) throws Exception {
+
+        LoadOptions options = LoadOptions.fromSystemProperties();
+        ScenarioMatrix matrix = ScenarioMatrix.load(options);
+
+        log.info("[ CONFIGURATION  ] Using endpoint=" +
+                                    System.getProperty("endpoint"));
+        for(LoadScenario scenario : matrix.getScenarios()) {
+            log.info("[ CONFIGURATION  ] Scenario " + scenario);
+        }
+
+        MetricsExporter exporter =
+            new MetricsExporter(PhaseMetrics.shared(),
+                                MetricsOptions.fromSystemProperties());
+        exporter.start();
+
+        LoadGenerator generator = new LoadGenerator(matrix, options);
+        try {
+            generator.run();
+        } finally {
+            exporter.close();
+        }
+
+        String report = generator.report();
+        log.info("[  LOAD REPORT   ]\n" + report);
+        if(options.reportFile != null) {
+            Writer out = new OutputStreamWriter(
+                new FileOutputStream(options.reportFile),
+                                    StandardCharsets.UTF_8);
+            try {
+                out.write(report);
+            } finally {
+                out.close();
+            }
+        }
+
+        /*
+         * Example applications may leave non-daemon client library
+         * threads behind.
+         */
+        System.exit(0);
+    }
+
+    /*
+     * run
+     *
+     * Generates load for warmupSeconds plus durationSeconds, then
+     * waits for in-flight scenarios to complete.
+     */
+    public void run() throws InterruptedException {
+
+        long start = System.nanoTime();
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = start + warmupNanos +
+                    TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        ScheduledExecutorService reporter =
+            Executors.newSingleThreadScheduledExecutor(
+                                        threadFactory("load-reporter"));
+        if(warmupNanos > 0) {
+            reporter.schedule(new Runnable() {
+                public void run() {
+                    drainAll(false);
+                    log.info("[ LOAD GENERATOR ] Warm up complete, " +
+                                                "measuring.");
+                }
+            }, warmupNanos, TimeUnit.NANOSECONDS);
+        }
+        if(options.reportIntervalSeconds > 0) {
+            long period = TimeUnit.SECONDS.toNanos(
+                                    options.reportIntervalSeconds);
+            reporter.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    reportInterval();
+                }
+            }, warmupNanos + period, period, TimeUnit.NANOSECONDS);
+        }
+
+        measuredStartNanos = start + warmupNanos;
+        log.info("[ LOAD GENERATOR ] Starting " +
+            (options.rate > 0 ? "open loop at " + options.rate + "/s" :
+                                "closed loop") +
+            ", concurrency=" + options.concurrency +
+            ", warmup=" + options.warmupSeconds + "s" +
+            ", duration=" + options.durationSeconds + "s.");
+
+        try {
+            if(options.rate > 0) {
+                runOpenLoop(start, end);
+            } else {
+                runClosedLoop(end);
+            }
+        } finally {
+            reporter.shutdownNow();
+            reporter.awaitTermination(10, TimeUnit.SECONDS);
+            measuredEndNanos = Math.max(System.nanoTime(),
+                                        measuredStartNanos + 1);
+            drainAll(System.nanoTime() >= measuredStartNanos);
+        }
+    }
+
+    private void runClosedLoop(final long end) throws InterruptedException {
+
+        List<Thread> workers = new ArrayList<Thread>();
+        for(int i = 0; i < options.concurrency; i++) {
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    while(System.nanoTime() < end &&
+                            !Thread.currentThread().isInterrupted()) {
+                        execute(matrix.next(), System.nanoTime());
+                    }
+                }
+            }, "load-worker-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for(Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runOpenLoop(long start, long end)
+                                    throws InterruptedException {
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(
+            options.concurrency, options.concurrency, 0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(options.maxQueued, 1)),
+            threadFactory("load-worker"));
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) /
+                                     options.rate);
+        try {
+            for(long n = 0; ; n++) {
+                final long intended = start + n * intervalNanos;
+                if(intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if(wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                final LoadScenario scenario = matrix.next();
+                try {
+                    workers.execute(new Runnable() {
+                        public void run() {
+                            execute(scenario, intended);
+                        }
+                    });
+                } catch(RejectedExecutionException rex) {
+                    drop(intended, 1);
+                }
+            }
+        } finally {
+            /*
+             * Give queued scenarios as long again as the measured run
+             * to complete, anything still waiting after that is
+             * counted as dropped.
+             */
+            workers.shutdown();
+            if(!workers.awaitTermination(
+                    Math.max(options.durationSeconds, 1), TimeUnit.SECONDS)) {
+                drop(end, workers.shutdownNow().size());
+                workers.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /*
+     * execute
+     *
+     * Runs one scenario on the calling thread and records its latency
+     * from startNanos. A scenario fails when main throws or when it
+     * logs a warning, the examples' convention for runtime errors.
+     */
+    private void execute(LoadScenario scenario, long startNanos) {
+
+        ScenarioStats s = stats.get(scenario);
+        String failure = null;
+        failures.begin();
+        PhaseMetrics.setScenario(scenario.getName());
+        try {
+            scenario.run();
+        } catch(Throwable t) {
+            failure = t.toString();
+        } finally {
+            PhaseMetrics.setScenario(null);
+            String warning = failures.end();
+            if(failure == null) {
+                failure = warning;
+            }
+        }
+        long latency = System.nanoTime() - startNanos;
+        if(failure == null) {
+            s.recordSuccess(latency);
+        } else {
+            s.recordFailure(latency, failure);
+        }
+    }
+
+    /*
+     * Arrivals scheduled during warm up are not counted.
+     */
+    private void drop(long intendedNanos, long count) {
+        if(intendedNanos >= measuredStartNanos) {
+            dropped.addAndGet(count);
+            intervalDropped.addAndGet(count);
+        }
+    }
+
+    private void drainAll(boolean keep) {
+        for(ScenarioStats s : stats.values()) {
+            s.drain(keep);
+        }
+    }
+
+    private void reportInterval() {
+
+        drainAll(true);
+        long count = 0;
+        long failed = 0;
+        for(ScenarioStats s : stats.values()) {
+            count += s.getIntervalCount();
+            failed += s.getIntervalFailures();
+        }
+        log.info("[ LOAD GENERATOR ] Interval: " + count + " scenarios (" +
+            String.format("%.2f", count /
+                                    (double) options.reportIntervalSeconds) +
+            "/s), " + failed + " failed, " + intervalDropped.getAndSet(0) +
+            " dropped.");
+    }
+
+    /*
+     * report
+     *
+     * Per-scenario summary of the measured run, latencies in
+     * milliseconds.
+     */
+    public String report() {
+
+        double seconds = (measuredEndNanos - measuredStartNanos) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        String header = "%-48s %8s %6s %9s %9s %9s %9s %9s %9s%n";
+        String row = "%-48s %8d %6d %9.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n";
+        sb.append(String.format(header, "scenario", "ok", "failed",
+                    "ops/s", "p50", "p90", "p99", "p99.9", "max"));
+
+        Histogram all = null;
+        long allFailed = 0;
+        for(ScenarioStats s : stats.values()) {
+            Histogram h = s.getLatencies();
+            appendRow(sb, row, s.getScenario().getName(), h,
+                                    s.getFailed(), seconds);
+            if(all == null) {
+                all = h.copy();
+            } else {
+                all.add(h);
+            }
+            allFailed += s.getFailed();
+        }
+        if(all != null) {
+            appendRow(sb, row, "TOTAL", all, allFailed, seconds);
+        }
+
+        sb.append(String.format("%nMeasured %.1fs", seconds));
+        if(dropped.get() > 0) {
+            sb.append(", ").append(dropped.get())
+              .append(" scheduled scenarios dropped");
+        }
+        sb.append(String.format("%n"));
+        for(ScenarioStats s : stats.values()) {
+            if(s.getLastFailure() != null) {
+                sb.append(String.format("Last failure %s: %s%n",
+                    s.getScenario().getName(), s.getLastFailure()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String format,
+                                  String name, Histogram h,
+                                  long failed, double seconds) {
+        long ok = h.getTotalCount();
+        sb.append(String.format(format, name, ok, failed,
+            (ok + failed) / seconds,
+            millis(h, 50.0), millis(h, 90.0), millis(h, 99.0),
+            millis(h, 99.9), ok > 0 ? h.getMaxValue() / 1000.0 : 0.0));
+    }
+
+    private static double millis(Histogram h, double percentile) {
+        return h.getTotalCount() > 0 ?
+            h.getValueAtPercentile(percentile) / 1000.0 : 0.0;
+    }
+
+    private static ThreadFactory threadFactory(final String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + "-" +
+                                        counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+}
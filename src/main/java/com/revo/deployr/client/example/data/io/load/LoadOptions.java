@@ -0,0 +1,109 @@
+/*
+ * LoadOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+/*
+ * LoadOptions
+ *
+ * Configuration for a LoadGenerator run. Follows the same convention
+ * as the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class LoadOptions {
+
+    /*
+     * Scenario matrix, the app-run menu of di-config.json.
+     */
+    public String configFile = "di-config.json";
+
+    /*
+     * Regular expression matched against each scenario's fully
+     * qualified class name, for example "auth\\.stateful\\..*".
+     * Null selects every scenario in the matrix.
+     */
+    public String include;
+
+    /*
+     * Relative scenario weights as a comma separated list of
+     * pattern=weight pairs, for example "preload=3,anon=1". Each
+     * scenario takes the weight of the first pattern found in its
+     * class name, or 1 when none match.
+     */
+    public String mix;
+
+    /*
+     * Maximum number of scenarios in flight at once.
+     */
+    public int concurrency = 4;
+
+    /*
+     * Target scenario start rate per second. When 0 the generator
+     * runs closed loop, each of the concurrency workers starting a
+     * new scenario as soon as its previous one completes.
+     */
+    public double rate = 0;
+
+    /*
+     * Open loop only: scheduled scenarios allowed to wait for a
+     * worker, later arrivals are dropped and counted.
+     */
+    public int maxQueued = 1000;
+
+    /*
+     * Length of the measured run, following the warm up period
+     * whose results are discarded.
+     */
+    public long durationSeconds = 60;
+    public long warmupSeconds = 5;
+
+    /*
+     * Period between interval progress reports, 0 disables them.
+     */
+    public long reportIntervalSeconds = 10;
+
+    /*
+     * Optional file receiving the final report as well as the log.
+     */
+    public String reportFile;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from load.* system properties.
+     */
+    public static LoadOptions fromSystemProperties() {
+
+        LoadOptions options = new LoadOptions();
+        options.configFile = System.getProperty("load.configFile",
+                                        options.configFile);
+        options.include = System.getProperty("load.include");
+        options.mix = System.getProperty("load.mix");
+        options.concurrency = Integer.getInteger("load.concurrency",
+                                        options.concurrency);
+        options.rate =
+            Double.parseDouble(System.getProperty("load.rate",
+                                String.valueOf(options.rate)));
+        options.maxQueued = Integer.getInteger("load.maxQueued",
+                                        options.maxQueued);
+        options.durationSeconds = Long.getLong("load.durationSeconds",
+                                        options.durationSeconds);
+        options.warmupSeconds = Long.getLong("load.warmupSeconds",
+                                        options.warmupSeconds);
+        options.reportIntervalSeconds =
+            Long.getLong("load.reportIntervalSeconds",
+                                        options.reportIntervalSeconds);
+        options.reportFile = System.getProperty("load.reportFile");
+        return options;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * LoadScenario.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+import java.lang.reflect.*;
+
+/*
+ * LoadScenario
+ *
+ * One entry of the di-config.json scenario matrix, an example
+ * application run in-process through its main method.
+ */
+public class LoadScenario {
+
+    private final String topic;
+    private final String item;
+    private final String className;
+    private final int weight;
+    private volatile Method main;
+
+    public LoadScenario(String topic, String item,
+                        String className, int weight) {
+        this.topic = topic;
+        this.item = item;
+        this.className = className;
+        this.weight = weight;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /*
+     * getName
+     *
+     * Short unique name, the class name relative to the
+     * example data io package, for example
+     * auth.stateful.preload.RepoFileInRepoFileOut.
+     */
+    public String getName() {
+        String prefix = "com.revo.deployr.client.example.data.io.";
+        return className.startsWith(prefix) ?
+                    className.substring(prefix.length()) : className;
+    }
+
+    /*
+     * run
+     *
+     * Runs the scenario on the calling thread. Exceptions thrown by
+     * the example are rethrown unwrapped.
+     */
+    public void run() throws Exception {
+
+        try {
+            resolve().invoke(null, (Object) new String[0]);
+        } catch(InvocationTargetException itex) {
+            Throwable cause = itex.getCause();
+            if(cause instanceof Exception) {
+                throw (Exception) cause;
+            } else
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw itex;
+        }
+    }
+
+    private Method resolve() throws ClassNotFoundException,
+                                    NoSuchMethodException {
+        Method m = main;
+        if(m == null) {
+            m = Class.forName(className).getMethod("main", String[].class);
+            main = m;
+        }
+        return m;
+    }
+
+    public String toString() {
+        return getName() + " [ weight=" + weight + " ]";
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ * ScenarioMatrix.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ScenarioMatrix
+ *
+ * The weighted set of scenarios listed under app-run.tutorial.topics
+ * in di-config.json, filtered and weighted per LoadOptions.
+ */
+public class ScenarioMatrix {
+
+    private static Logger log = Logger.getLogger(ScenarioMatrix.class);
+
+    private final List<LoadScenario> scenarios;
+    private final int[] cumulativeWeights;
+
+    public ScenarioMatrix(List<LoadScenario> scenarios) {
+
+        if(scenarios.isEmpty()) {
+            throw new IllegalArgumentException("No scenarios selected.");
+        }
+        this.scenarios =
+            Collections.unmodifiableList(new ArrayList<LoadScenario>(scenarios));
+        this.cumulativeWeights = new int[scenarios.size()];
+        int total = 0;
+        for(int i = 0; i < scenarios.size(); i++) {
+            total += scenarios.get(i).getWeight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public List<LoadScenario> getScenarios() {
+        return scenarios;
+    }
+
+    /*
+     * next
+     *
+     * Picks a scenario at random in proportion to its weight.
+     */
+    public LoadScenario next() {
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        int i = Arrays.binarySearch(cumulativeWeights, pick + 1);
+        if(i < 0) {
+            i = -i - 1;
+        }
+        return scenarios.get(i);
+    }
+
+    /*
+     * load
+     *
+     * Reads the scenario menu from options.configFile. Scenarios not
+     * matching options.include, or given weight 0 by options.mix, are
+     * left out. Scenarios whose class is not on the classpath are
+     * skipped with a warning.
+     */
+    public static ScenarioMatrix load(LoadOptions options)
+                                        throws IOException {
+
+        String json = new String(
+                Files.readAllBytes(Paths.get(options.configFile)),
+                                        StandardCharsets.UTF_8);
+        Object config = new JsonReader(json).read();
+
+        Pattern include = options.include != null ?
+                            Pattern.compile(options.include) : null;
+        Map<Pattern, Integer> mix = parseMix(options.mix);
+
+        List<LoadScenario> scenarios = new ArrayList<LoadScenario>();
+        Set<String> seen = new HashSet<String>();
+
+        for(Object topic : list(path(config, "app-run", "tutorial", "topics"))) {
+            String topicName = (String) path(topic, "topic");
+            for(Object entry : list(path(topic, "menu"))) {
+                String item = (String) path(entry, "item");
+                String className = (String) path(entry, "args");
+                if(className == null || !seen.add(className)) {
+                    continue;
+                }
+                if(include != null && !include.matcher(className).find()) {
+                    continue;
+                }
+                int weight = weightOf(className, mix);
+                if(weight <= 0) {
+                    continue;
+                }
+                try {
+                    Class.forName(className);
+                } catch(ClassNotFoundException cnfex) {
+                    log.warn("[ CONFIGURATION  ] Scenario class " +
+                                    className + " not found, skipped.");
+                    continue;
+                }
+                scenarios.add(new LoadScenario(topicName, item,
+                                               className, weight));
+            }
+        }
+
+        return new ScenarioMatrix(scenarios);
+    }
+
+    private static Map<Pattern, Integer> parseMix(String mix) {
+
+        Map<Pattern, Integer> weights = new LinkedHashMap<Pattern, Integer>();
+        if(mix == null || mix.trim().isEmpty()) {
+            return weights;
+        }
+        for(String pair : mix.split(",")) {
+            int eq = pair.lastIndexOf('=');
+            if(eq <= 0) {
+                throw new IllegalArgumentException(
+                    "Malformed load.mix entry \"" + pair.trim() +
+                                        "\", expected pattern=weight.");
+            }
+            weights.put(Pattern.compile(pair.substring(0, eq).trim()),
+                        Integer.parseInt(pair.substring(eq + 1).trim()));
+        }
+        return weights;
+    }
+
+    private static int weightOf(String className, Map<Pattern, Integer> mix) {
+        for(Map.Entry<Pattern, Integer> e : mix.entrySet()) {
+            if(e.getKey().matcher(className).find()) {
+                return e.getValue();
+            }
+        }
+        return 1;
+    }
+
+    private static Object path(Object node, String... keys) {
+        for(String key : keys) {
+            if(!(node instanceof Map)) {
+                return null;
+            }
+            node = ((Map<?, ?>) node).get(key);
+        }
+        return node;
+    }
+
+    private static List<?> list(Object node) {
+        return node instanceof List ? (List<?>) node :
+                                      Collections.emptyList();
+    }
+
+    /*
+     * JsonReader
+     *
+     * Minimal JSON reader producing Map, List, String, Double,
+     * Boolean and null values, sufficient for di-config.json.
+     */
+    static class JsonReader {
+
+        private final String s;
+        private int pos;
+
+        JsonReader(String s) {
+            this.s = s;
+        }
+
+        Object read() throws IOException {
+            Object value = value();
+            skipWhitespace();
+            if(pos != s.length()) {
+                throw error("Trailing content");
+            }
+            return value;
+        }
+
+        private Object value() throws IOException {
+            skipWhitespace();
+            if(pos >= s.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = s.charAt(pos);
+            if(c == '{') {
+                return object();
+            } else
+            if(c == '[') {
+                return array();
+            } else
+            if(c == '"') {
+                return string();
+            } else
+            if(s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else
+            if(s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else
+            if(s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            return number();
+        }
+
+        private Map<String, Object> object() throws IOException {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            pos++;
+            skipWhitespace();
+            if(peek() == '}') {
+                pos++;
+                return map;
+            }
+            while(true) {
+                skipWhitespace();
+                if(peek() != '"') {
+                    throw error("Expected object key");
+                }
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if(peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() throws IOException {
+            List<Object> list = new ArrayList<Object>();
+            pos++;
+            skipWhitespace();
+            if(peek() == ']') {
+                pos++;
+                return list;
+            }
+            while(true) {
+                list.add(value());
+                skipWhitespace();
+                if(peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while(pos < s.length()) {
+                char c = s.charAt(pos++);
+                if(c == '"') {
+                    return sb.toString();
+                } else
+                if(c == '\\') {
+                    if(pos >= s.length()) {
+                        break;
+                    }
+                    char e = s.charAt(pos++);
+                    switch(e) {
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'u':
+                            if(pos + 4 > s.length()) {
+                                throw error("Truncated unicode escape");
+                            }
+                            sb.append((char) Integer.parseInt(
+                                        s.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: sb.append(e);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Double number() throws IOException {
+            int start = pos;
+            while(pos < s.length() &&
+                    "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if(start == pos) {
+                throw error("Unexpected character '" + s.charAt(pos) + "'");
+            }
+            try {
+                return Double.valueOf(s.substring(start, pos));
+            } catch(NumberFormatException nfex) {
+                throw error("Malformed number");
+            }
+        }
+
+        private void skipWhitespace() {
+            while(pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() throws IOException {
+            if(pos >= s.length()) {
+                throw error("Unexpected end of input");
+            }
+            return s.charAt(pos);
+        }
+
+        private void expect(char c) throws IOException {
+            if(peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at offset " + pos + ".");
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * ScenarioStats.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.load;
+
+import org.HdrHistogram.*;
+
+/*
+ * ScenarioStats
+ *
+ * Latency recordings for one scenario. Worker threads record into
+ * lock-free HdrHistogram Recorders, the reporting thread drains them
+ * into interval histograms and accumulates the measured totals.
+ *
+ * Latencies are recorded in microseconds.
+ */
+public class ScenarioStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LoadScenario scenario;
+    private final Recorder succeeded = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder failed = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram succeededTotal =
+                                    new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram failedTotal = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram succeededInterval;
+    private Histogram failedInterval;
+    private volatile String lastFailure;
+
+    public ScenarioStats(LoadScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public LoadScenario getScenario() {
+        return scenario;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        succeeded.recordValue(toMicros(latencyNanos));
+    }
+
+    public void recordFailure(long latencyNanos, String reason) {
+        failed.recordValue(toMicros(latencyNanos));
+        lastFailure = reason;
+    }
+
+    /*
+     * drain
+     *
+     * Moves recordings made since the previous drain into the
+     * interval histograms, adding them to the totals when keep is
+     * true and discarding them otherwise, as for warm up.
+     */
+    synchronized void drain(boolean keep) {
+        succeededInterval = succeeded.getIntervalHistogram(succeededInterval);
+        failedInterval = failed.getIntervalHistogram(failedInterval);
+        if(keep) {
+            succeededTotal.add(succeededInterval);
+            failedTotal.add(failedInterval);
+        }
+    }
+
+    synchronized long getIntervalCount() {
+        return count(succeededInterval) + count(failedInterval);
+    }
+
+    synchronized long getIntervalFailures() {
+        return count(failedInterval);
+    }
+
+    /*
+     * Measured totals, latency histogram covers successful
+     * scenario runs only.
+     */
+    public synchronized Histogram getLatencies() {
+        return succeededTotal.copy();
+    }
+
+    public synchronized long getSucceeded() {
+        return succeededTotal.getTotalCount();
+    }
+
+    public synchronized long getFailed() {
+        return failedTotal.getTotalCount();
+    }
+
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    private static long count(Histogram h) {
+        return h != null ? h.getTotalCount() : 0;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(1, nanos / 1000);
+    }
+
+}
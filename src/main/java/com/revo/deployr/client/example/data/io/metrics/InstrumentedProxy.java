@@ -0,0 +1,157 @@
+/*
+ * InstrumentedProxy.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/*
+ * InstrumentedProxy
+ *
+ * Wraps client library handles (RClient, RUser, RProject and the
+ * handles they return) so calls belonging to an execution lifecycle
+ * phase are timed into PhaseMetrics:
+ *
+ * - login                                      AUTHENTICATION
+ * - createProject                              GO STATEFUL
+ * - uploadFile, transferFile, writeFile,
+ *   loadFile and the workspace object inputs   DATA INPUT
+ * - executeScript, executeCode, executeExternal EXECUTION
+ * - execution about, getObject, getObjects     DATA OUTPUT
+ *
+ * CONNECTION is timed by whoever creates the RClient. File downloads
+ * are timed by DownloadSink, which also counts the bytes.
+ */
+public final class InstrumentedProxy {
+
+    private static final String CLIENT_PACKAGE = "com.revo.deployr.client";
+
+    private static final Set<String> EXECUTION_METHODS =
+        new HashSet<String>(Arrays.asList(
+            "executeScript", "executeCode", "executeExternal"));
+
+    private static final Set<String> INPUT_METHODS =
+        new HashSet<String>(Arrays.asList(
+            "uploadFile", "transferFile", "writeFile", "loadFile",
+            "pushObject", "uploadObject", "transferObject", "loadObject"));
+
+    private static final Set<String> OUTPUT_METHODS =
+        new HashSet<String>(Arrays.asList("getObject", "getObjects"));
+
+    private InstrumentedProxy() {
+    }
+
+    /*
+     * wrap
+     *
+     * Returns target wrapped as iface, or target itself when it is
+     * null or already instrumented.
+     */
+    public static <T> T wrap(T target, Class<T> iface, PhaseMetrics metrics) {
+
+        if(target == null || isInstrumented(target)) {
+            return target;
+        }
+        return iface.cast(Proxy.newProxyInstance(
+                    iface.getClassLoader(), new Class<?>[] { iface },
+                    new Handler(target, iface, metrics)));
+    }
+
+    public static boolean isInstrumented(Object o) {
+        return Proxy.isProxyClass(o.getClass()) &&
+               Proxy.getInvocationHandler(o) instanceof Handler;
+    }
+
+    static Phase phaseOf(Class<?> iface, String method) {
+
+        if("login".equals(method)) {
+            return Phase.AUTHENTICATION;
+        } else
+        if("createProject".equals(method)) {
+            return Phase.GO_STATEFUL;
+        } else
+        if(EXECUTION_METHODS.contains(method)) {
+            return Phase.EXECUTION;
+        } else
+        if(INPUT_METHODS.contains(method)) {
+            return Phase.DATA_INPUT;
+        } else
+        if(OUTPUT_METHODS.contains(method) ||
+                (iface.getSimpleName().endsWith("Execution") &&
+                                        "about".equals(method))) {
+            return Phase.DATA_OUTPUT;
+        }
+        return null;
+    }
+
+    private static final class Handler implements InvocationHandler {
+
+        private final Object target;
+        private final Class<?> iface;
+        private final PhaseMetrics metrics;
+
+        Handler(Object target, Class<?> iface, PhaseMetrics metrics) {
+            this.target = target;
+            this.iface = iface;
+            this.metrics = metrics;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+                                                    throws Throwable {
+
+            String name = method.getName();
+            if(method.getDeclaringClass() == Object.class) {
+                if("equals".equals(name)) {
+                    Object other = args[0];
+                    if(other != null && isInstrumented(other)) {
+                        other = ((Handler)
+                            Proxy.getInvocationHandler(other)).target;
+                    }
+                    return target.equals(other);
+                }
+                return method.invoke(target, args);
+            }
+
+            Phase phase = phaseOf(iface, name);
+            Object result;
+            if(phase == null) {
+                result = call(method, args);
+            } else {
+                try(PhaseTimer timer = metrics.start(phase)) {
+                    result = call(method, args);
+                    timer.succeeded();
+                }
+            }
+            return instrumentResult(method.getReturnType(), result);
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch(InvocationTargetException itex) {
+                throw itex.getCause();
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object instrumentResult(Class<?> type, Object result) {
+            if(result != null && type.isInterface() &&
+                    type.getPackage() != null &&
+                    CLIENT_PACKAGE.equals(type.getPackage().getName())) {
+                return wrap(result, (Class) type, metrics);
+            }
+            return result;
+        }
+    }
+
+}
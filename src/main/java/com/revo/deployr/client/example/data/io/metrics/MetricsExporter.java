@@ -0,0 +1,145 @@
+/*
+ * MetricsExporter.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * MetricsExporter
+ *
+ * Publishes PhaseMetrics in the Prometheus text exposition format
+ * to a local file, rewritten periodically, and/or an in-process
+ * HTTP endpoint, per MetricsOptions.
+ */
+public class MetricsExporter implements Closeable {
+
+    private static Logger log = Logger.getLogger(MetricsExporter.class);
+
+    private static final String CONTENT_TYPE =
+                                "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PhaseMetrics metrics;
+    private final MetricsOptions options;
+    private ScheduledExecutorService fileWriter;
+    private HttpServer server;
+
+    public MetricsExporter(PhaseMetrics metrics, MetricsOptions options) {
+        this.metrics = metrics;
+        this.options = options;
+    }
+
+    /*
+     * start
+     *
+     * Starts the file writer and HTTP endpoint enabled in options.
+     */
+    public synchronized void start() throws IOException {
+
+        if(options.file != null && fileWriter == null) {
+            fileWriter = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "metrics-file-writer");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            fileWriter.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        writeFile();
+                    } catch(IOException ioex) {
+                        log.warn("Metrics file export failed, ex=" + ioex);
+                    }
+                }
+            }, options.fileIntervalSeconds, options.fileIntervalSeconds,
+               TimeUnit.SECONDS);
+            log.info("[ CONFIGURATION  ] Exporting phase metrics to " +
+                                                        options.file);
+        }
+
+        if(options.port > 0 && server == null) {
+            server = HttpServer.create(
+                new InetSocketAddress("localhost", options.port), 0);
+            server.createContext("/metrics", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    byte[] body = metrics.toPrometheus()
+                                    .getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders()
+                            .set("Content-Type", CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream os = exchange.getResponseBody();
+                    try {
+                        os.write(body);
+                    } finally {
+                        os.close();
+                    }
+                }
+            });
+            server.setExecutor(null);
+            server.start();
+            log.info("[ CONFIGURATION  ] Serving phase metrics on " +
+                "http://localhost:" + options.port + "/metrics");
+        }
+    }
+
+    /*
+     * writeFile
+     *
+     * Writes the current metrics to options.file, replacing the
+     * previous content atomically so scrapers never see a partial
+     * file.
+     */
+    public void writeFile() throws IOException {
+
+        if(options.file == null) {
+            return;
+        }
+        Path target = Paths.get(options.file).toAbsolutePath();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Writer out = Files.newBufferedWriter(part, StandardCharsets.UTF_8);
+        try {
+            metrics.writePrometheus(out);
+        } finally {
+            out.close();
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING,
+                                 StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * close
+     *
+     * Stops the exporters, writing the file one final time.
+     */
+    public synchronized void close() throws IOException {
+
+        if(fileWriter != null) {
+            fileWriter.shutdownNow();
+            fileWriter = null;
+            writeFile();
+        }
+        if(server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * MetricsOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+/*
+ * MetricsOptions
+ *
+ * Configuration for a MetricsExporter. Follows the same convention
+ * as the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class MetricsOptions {
+
+    /*
+     * When false client handles are not instrumented and no
+     * phase metrics are recorded.
+     */
+    public boolean enabled = true;
+
+    /*
+     * File rewritten with the Prometheus text exposition every
+     * fileIntervalSeconds, suitable for the node_exporter textfile
+     * collector. Null disables file export.
+     */
+    public String file;
+    public long fileIntervalSeconds = 15;
+
+    /*
+     * Local port serving the Prometheus text exposition at
+     * http://localhost:port/metrics. 0 disables the endpoint.
+     */
+    public int port = 0;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from metrics.* system properties.
+     */
+    public static MetricsOptions fromSystemProperties() {
+
+        MetricsOptions options = new MetricsOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("metrics.enabled",
+                                String.valueOf(options.enabled)));
+        options.file = System.getProperty("metrics.file");
+        options.fileIntervalSeconds =
+            Long.getLong("metrics.fileIntervalSeconds",
+                                        options.fileIntervalSeconds);
+        options.port = Integer.getInteger("metrics.port", options.port);
+        return options;
+    }
+
+}
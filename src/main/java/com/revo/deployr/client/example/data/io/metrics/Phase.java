@@ -0,0 +1,54 @@
+/*
+ * Phase.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+/*
+ * Phase
+ *
+ * Execution lifecycle phases, matching the tags the example
+ * applications log as each phase completes.
+ */
+public enum Phase {
+
+    CONNECTION("CONNECTION"),
+    AUTHENTICATION("AUTHENTICATION"),
+    GO_STATEFUL("GO STATEFUL"),
+    DATA_INPUT("DATA INPUT"),
+    EXECUTION("EXECUTION"),
+    DATA_OUTPUT("DATA OUTPUT");
+
+    private final String tag;
+
+    Phase(String tag) {
+        this.tag = tag;
+    }
+
+    /*
+     * getTag
+     *
+     * Log tag text, for example "GO STATEFUL".
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /*
+     * getLabel
+     *
+     * Metric label value, for example "go_stateful".
+     */
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * PhaseMetrics.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * PhaseMetrics
+ *
+ * Duration histograms and byte counters for each execution lifecycle
+ * Phase, labelled by scenario and outcome, exportable in the
+ * Prometheus text exposition format:
+ *
+ * deployr_client_phase_duration_seconds{scenario,phase,outcome}
+ * deployr_client_phase_bytes_total{scenario,phase,outcome}
+ *
+ * The scenario label is taken from the calling thread, see
+ * setScenario, and is empty when none is set.
+ */
+public class PhaseMetrics {
+
+    /*
+     * Histogram bucket upper bounds in seconds, spanning a local
+     * login through to a long running R script execution.
+     */
+    private static final double[] BUCKETS = {
+        0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+        1, 2.5, 5, 10, 30, 60, 120
+    };
+
+    private static final String DURATION =
+                            "deployr_client_phase_duration_seconds";
+    private static final String BYTES = "deployr_client_phase_bytes_total";
+
+    private static final ThreadLocal<String> scenario =
+                                            new ThreadLocal<String>();
+
+    private static PhaseMetrics shared;
+
+    private final ConcurrentMap<Key, Series> series =
+                            new ConcurrentHashMap<Key, Series>();
+
+    /*
+     * shared
+     *
+     * Returns the process-wide metrics instance.
+     */
+    public static synchronized PhaseMetrics shared() {
+        if(shared == null) {
+            shared = new PhaseMetrics();
+        }
+        return shared;
+    }
+
+    /*
+     * setScenario
+     *
+     * Labels phases subsequently timed on the calling thread with
+     * name, null clears the label.
+     */
+    public static void setScenario(String name) {
+        if(name == null) {
+            scenario.remove();
+        } else {
+            scenario.set(name);
+        }
+    }
+
+    public static String getScenario() {
+        return scenario.get();
+    }
+
+    public PhaseTimer start(Phase phase) {
+        return new PhaseTimer(this, phase, scenario.get());
+    }
+
+    void record(String scenarioName, Phase phase, boolean succeeded,
+                long nanos, long bytes) {
+
+        Key key = new Key(scenarioName != null ? scenarioName : "",
+                          phase, succeeded);
+        Series s = series.get(key);
+        if(s == null) {
+            Series created = new Series();
+            s = series.putIfAbsent(key, created);
+            if(s == null) {
+                s = created;
+            }
+        }
+        s.observe(nanos, bytes);
+    }
+
+    /*
+     * getCount
+     *
+     * Total recorded occurrences of phase across scenarios and
+     * outcomes.
+     */
+    public long getCount(Phase phase) {
+        long count = 0;
+        for(Map.Entry<Key, Series> e : series.entrySet()) {
+            if(e.getKey().phase == phase) {
+                count += e.getValue().count.sum();
+            }
+        }
+        return count;
+    }
+
+    public void reset() {
+        series.clear();
+    }
+
+    /*
+     * writePrometheus
+     *
+     * Writes all series in the Prometheus text exposition format,
+     * version 0.0.4.
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+
+        SortedMap<Key, Series> sorted = new TreeMap<Key, Series>(series);
+
+        out.append("# HELP ").append(DURATION)
+           .append(" Duration of DeployR client execution lifecycle phases.\n");
+        out.append("# TYPE ").append(DURATION).append(" histogram\n");
+        for(Map.Entry<Key, Series> e : sorted.entrySet()) {
+            String labels = e.getKey().labels();
+            Series s = e.getValue();
+            long cumulative = 0;
+            for(int i = 0; i < BUCKETS.length; i++) {
+                cumulative += s.buckets[i].sum();
+                out.append(DURATION).append("_bucket{").append(labels)
+                   .append(",le=\"").append(format(BUCKETS[i]))
+                   .append("\"} ").append(String.valueOf(cumulative))
+                   .append('\n');
+            }
+            long count = s.count.sum();
+            out.append(DURATION).append("_bucket{").append(labels)
+               .append(",le=\"+Inf\"} ").append(String.valueOf(count))
+               .append('\n');
+            out.append(DURATION).append("_sum{").append(labels).append("} ")
+               .append(String.valueOf(s.nanos.sum() / 1e9)).append('\n');
+            out.append(DURATION).append("_count{").append(labels).append("} ")
+               .append(String.valueOf(count)).append('\n');
+        }
+
+        out.append("# HELP ").append(BYTES)
+           .append(" Bytes transferred during DeployR client execution lifecycle phases.\n");
+        out.append("# TYPE ").append(BYTES).append(" counter\n");
+        for(Map.Entry<Key, Series> e : sorted.entrySet()) {
+            out.append(BYTES).append('{').append(e.getKey().labels())
+               .append("} ").append(String.valueOf(e.getValue().bytes.sum()))
+               .append('\n');
+        }
+    }
+
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writePrometheus(sb);
+        } catch(IOException ioex) {
+            throw new IllegalStateException(ioex);
+        }
+        return sb.toString();
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) ?
+            String.valueOf((long) bound) + ".0" : String.valueOf(bound);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n");
+    }
+
+    private static final class Key implements Comparable<Key> {
+
+        final String scenario;
+        final Phase phase;
+        final boolean succeeded;
+
+        Key(String scenario, Phase phase, boolean succeeded) {
+            this.scenario = scenario;
+            this.phase = phase;
+            this.succeeded = succeeded;
+        }
+
+        String labels() {
+            return "scenario=\"" + escape(scenario) +
+                   "\",phase=\"" + phase.getLabel() +
+                   "\",outcome=\"" + (succeeded ? "success" : "failure") +
+                   "\"";
+        }
+
+        public int compareTo(Key other) {
+            int c = scenario.compareTo(other.scenario);
+            if(c == 0) {
+                c = phase.compareTo(other.phase);
+            }
+            if(c == 0) {
+                c = Boolean.compare(other.succeeded, succeeded);
+            }
+            return c;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return succeeded == other.succeeded &&
+                   phase == other.phase &&
+                   scenario.equals(other.scenario);
+        }
+
+        public int hashCode() {
+            return (scenario.hashCode() * 31 + phase.hashCode()) * 2 +
+                   (succeeded ? 1 : 0);
+        }
+    }
+
+    private static final class Series {
+
+        final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Series() {
+            for(int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(long elapsedNanos, long transferred) {
+            double seconds = elapsedNanos / 1e9;
+            for(int i = 0; i < BUCKETS.length; i++) {
+                if(seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            nanos.add(elapsedNanos);
+            if(transferred > 0) {
+                bytes.add(transferred);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * PhaseTimer.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.metrics;
+
+/*
+ * PhaseTimer
+ *
+ * Times one occurrence of a Phase. A timer closed without a prior
+ * call to succeeded() is recorded as a failure, so the usual pattern
+ * records exceptions without a catch block:
+ *
+ * try(PhaseTimer timer = metrics.start(Phase.EXECUTION)) {
+ *     exec = rProject.executeScript(...);
+ *     timer.succeeded();
+ * }
+ */
+public class PhaseTimer implements AutoCloseable {
+
+    private final PhaseMetrics metrics;
+    private final Phase phase;
+    private final String scenario;
+    private final long started;
+    private long bytes;
+    private boolean succeeded;
+    private boolean closed;
+
+    PhaseTimer(PhaseMetrics metrics, Phase phase, String scenario) {
+        this.metrics = metrics;
+        this.phase = phase;
+        this.scenario = scenario;
+        this.started = System.nanoTime();
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /*
+     * addBytes
+     *
+     * Adds to the bytes transferred during this phase.
+     */
+    public void addBytes(long count) {
+        bytes += count;
+    }
+
+    public void succeeded() {
+        succeeded = true;
+    }
+
+    public void close() {
+        if(!closed) {
+            closed = true;
+            metrics.record(scenario, phase, succeeded,
+                           System.nanoTime() - started, bytes);
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * DownloadSink.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.output;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.example.data.io.metrics.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.log4j.Logger;
+
+/*
+ * DownloadSink
+ *
+ * Streams working directory artifacts (RProjectFile), graphics
+ * device plots (RProjectResult) and repository-managed files
+ * (RRepositoryFile) straight to files in a local directory.
+ *
+ * Data moves from the download InputStream to a FileChannel through
+ * a small pool of fixed-size direct ByteBuffers, so heap usage is
+ * independent of file size. Each file is written to a uniquely named
+ * ".part" file and moved into place once complete, so a partially
+ * downloaded file is never mistaken for a finished one and
+ * concurrent downloads of the same filename never write to the same
+ * file. Outputs of an execution are placed in a subdirectory named
+ * after the execution, concurrent executions generating the same
+ * filenames do not replace each other's files.
+ *
+ * A discarding sink, see discarding, reads each download to the end
+ * through the same buffers and writes nothing.
+ *
+ * Usage:
+ *
+ * DownloadSink sink = new DownloadSink(new File("downloads"));
+ * DownloadStats stats = sink.download(details.getId(), wdFile);
+ */
+public class DownloadSink {
+
+    private static Logger log = Logger.getLogger(DownloadSink.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_BUFFER_COUNT = 16;
+
+    private final File directory;
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalFiles = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private volatile PhaseMetrics metrics = PhaseMetrics.shared();
+
+    public DownloadSink(File directory) {
+        this(directory, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /*
+     * discarding
+     *
+     * Returns a sink that retrieves each download in full and
+     * discards the content, for callers that need the outputs
+     * transferred but not kept. Stats carry no file.
+     */
+    public static DownloadSink discarding() {
+        return new DownloadSink(null, DEFAULT_BUFFER_SIZE,
+                                DEFAULT_BUFFER_COUNT);
+    }
+
+    /*
+     * bufferCount direct buffers of bufferSize bytes are allocated
+     * up front and shared by concurrent downloads. When all are in
+     * use, additional downloads fall back to a temporary heap buffer.
+     */
+    public DownloadSink(File directory, int bufferSize, int bufferCount) {
+
+        if(directory != null &&
+                !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("DownloadSink directory " +
+                                    "could not be created, " + directory);
+        }
+        this.directory = directory;
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<ByteBuffer>(bufferCount);
+        for(int i = 0; i < bufferCount; i++) {
+            buffers.offer(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    /*
+     * Null for a discarding sink.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /*
+     * setMetrics
+     *
+     * Downloads are recorded as DATA OUTPUT phases into
+     * PhaseMetrics.shared() unless another instance is set here.
+     */
+    public void setMetrics(PhaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public DownloadStats download(String execution, RProjectFile wdFile)
+        throws RClientException, RSecurityException, IOException {
+        try(PhaseTimer timer = metrics.start(Phase.DATA_OUTPUT)) {
+            String filename = wdFile.about().filename;
+            return completed(timer,
+                        write(execution, filename, wdFile.download()));
+        }
+    }
+
+    public DownloadStats download(String execution, RProjectResult result)
+        throws RClientException, RSecurityException, IOException {
+        try(PhaseTimer timer = metrics.start(Phase.DATA_OUTPUT)) {
+            String filename = result.about().filename;
+            return completed(timer,
+                        write(execution, filename, result.download()));
+        }
+    }
+
+    public DownloadStats download(String execution, RRepositoryFile repoFile)
+        throws RClientException, RSecurityException, IOException {
+        try(PhaseTimer timer = metrics.start(Phase.DATA_OUTPUT)) {
+            String filename = repoFile.about().filename;
+            return completed(timer,
+                        write(execution, filename, repoFile.download()));
+        }
+    }
+
+    private static DownloadStats completed(PhaseTimer timer,
+                                           DownloadStats stats) {
+        timer.addBytes(stats.getBytes());
+        timer.succeeded();
+        return stats;
+    }
+
+    /*
+     * write
+     *
+     * Streams is to filename within the execution subdirectory of
+     * the sink directory, the sink directory itself when execution is
+     * null, replacing any existing file. The stream is always closed.
+     */
+    public DownloadStats write(String execution, String filename,
+                               InputStream is)
+        throws IOException {
+
+        if(directory == null) {
+            return discard(filename, is);
+        }
+
+        // Never allow a server supplied name to escape the directory.
+        File parent = directory;
+        if(execution != null) {
+            parent = new File(directory, new File(execution).getName());
+            parent.mkdirs();
+            if(!parent.isDirectory()) {
+                IOUtils.closeQuietly(is);
+                throw new IOException("DownloadSink execution directory " +
+                                      "could not be created, " + parent);
+            }
+        }
+        String safeName = new File(filename).getName();
+        File target = new File(parent, safeName);
+        File part;
+        try {
+            part = File.createTempFile(safeName.length() < 2 ?
+                            safeName + "__" : safeName + ".", ".part", parent);
+        } catch(IOException ioex) {
+            IOUtils.closeQuietly(is);
+            throw ioex;
+        }
+
+        long started = System.nanoTime();
+        long bytes = 0;
+
+        ByteBuffer buffer = buffers.poll();
+        boolean pooled = buffer != null;
+        if(!pooled) {
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+
+        ReadableByteChannel in = Channels.newChannel(is);
+        FileChannel out = null;
+        boolean complete = false;
+        try {
+            out = FileChannel.open(part.toPath(), StandardOpenOption.WRITE);
+            buffer.clear();
+            while(in.read(buffer) != -1) {
+                buffer.flip();
+                while(buffer.hasRemaining()) {
+                    bytes += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(false);
+            complete = true;
+        } finally {
+            IOUtils.closeQuietly(out);
+            IOUtils.closeQuietly(in);
+            if(pooled) {
+                buffers.offer(buffer);
+            }
+            if(!complete) {
+                part.delete();
+            }
+        }
+
+        move(part, target);
+
+        return recorded(new DownloadStats(safeName, target, bytes,
+                                          System.nanoTime() - started));
+    }
+
+    /*
+     * Moves a complete part file into place, atomically where the file
+     * system supports it. The part file is deleted if it cannot be
+     * moved.
+     */
+    private static void move(File part, File target) throws IOException {
+
+        try {
+            Files.move(part.toPath(), target.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException aex) {
+            try {
+                Files.move(part.toPath(), target.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch(IOException ioex) {
+                part.delete();
+                ioex.addSuppressed(aex);
+                throw ioex;
+            }
+        }
+    }
+
+    private DownloadStats discard(String filename, InputStream is)
+        throws IOException {
+
+        long started = System.nanoTime();
+        long bytes = 0;
+
+        ByteBuffer buffer = buffers.poll();
+        boolean pooled = buffer != null;
+        if(!pooled) {
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+
+        ReadableByteChannel in = Channels.newChannel(is);
+        try {
+            int read;
+            buffer.clear();
+            while((read = in.read(buffer)) != -1) {
+                bytes += read;
+                buffer.clear();
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+            if(pooled) {
+                buffers.offer(buffer);
+            }
+        }
+        return recorded(new DownloadStats(new File(filename).getName(),
+                                    null, bytes, System.nanoTime() - started));
+    }
+
+    private DownloadStats recorded(DownloadStats stats) {
+
+        totalBytes.addAndGet(stats.getBytes());
+        totalFiles.incrementAndGet();
+        totalNanos.addAndGet(stats.getElapsedNanos());
+        log.debug("[  DATA OUTPUT   ] Downloaded " + stats);
+        return stats;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public long getTotalFiles() {
+        return totalFiles.get();
+    }
+
+    public long getTotalMillis() {
+        return totalNanos.get() / 1000000L;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * DownloadStats.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.output;
+
+import java.io.File;
+
+/*
+ * DownloadStats
+ *
+ * Size and timing of a single file streamed to disk by a
+ * DownloadSink.
+ */
+public class DownloadStats {
+
+    private final String filename;
+    private final File file;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    DownloadStats(String filename, File file, long bytes, long elapsedNanos) {
+        this.filename = filename;
+        this.file = file;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    /*
+     * Local file the download was written to, null when the sink
+     * discarded it.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    /*
+     * Average throughput in megabytes (2^20 bytes) per second.
+     */
+    public double getMegabytesPerSecond() {
+        if(elapsedNanos == 0) {
+            return 0;
+        }
+        return (bytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return filename + " bytes=" + bytes + ", elapsed=" +
+            getElapsedMillis() + "ms, throughput=" +
+            String.format("%.2f", getMegabytesPerSecond()) + "MB/s";
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * ExecutionDetails.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.output;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.about.*;
+import com.revo.deployr.client.data.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/*
+ * ExecutionDetails
+ *
+ * Memoizing view over the details of an RProjectExecution or
+ * RScriptExecution. The execution details, and the details of each
+ * artifact, result and repository file output, are fetched once on
+ * first access and served from memory thereafter. Call refresh to
+ * discard the cached copy and fetch again.
+ *
+ * Usage:
+ *
+ * ExecutionDetails details = new ExecutionDetails(exec);
+ * String console = details.getConsole();
+ * List<RData> objects = details.getWorkspaceObjects();
+ * RProjectFile hipCsv = details.getArtifact("hip.csv");
+ */
+public class ExecutionDetails {
+
+    private final Callable<RProjectExecutionDetails> source;
+
+    private RProjectExecutionDetails details;
+    private Map<String, RData> objectsByName;
+    private Map<String, RProjectFile> artifactsByName;
+    private Map<String, RProjectResult> resultsByName;
+    private Map<String, RRepositoryFile> repositoryFilesByName;
+
+    public ExecutionDetails(final RProjectExecution exec) {
+        this.source = () -> exec.about();
+    }
+
+    public ExecutionDetails(final RScriptExecution exec) {
+        this.source = () -> exec.about();
+    }
+
+    /*
+     * Returns the underlying details object, fetching it on
+     * first use.
+     */
+    public synchronized RProjectExecutionDetails about() {
+
+        if(details == null) {
+            try {
+                details = source.call();
+            } catch(Exception ex) {
+                throw new IllegalStateException("Execution details " +
+                                            "could not be retrieved.", ex);
+            }
+        }
+        return details;
+    }
+
+    /*
+     * refresh
+     *
+     * Discards all cached details, the next accessor call fetches
+     * them again.
+     */
+    public synchronized void refresh() {
+        details = null;
+        objectsByName = null;
+        artifactsByName = null;
+        resultsByName = null;
+        repositoryFilesByName = null;
+    }
+
+    public String getId() {
+        return about().id;
+    }
+
+    public String getConsole() {
+        return about().console;
+    }
+
+    public List<RData> getWorkspaceObjects() {
+        return nonNull(about().workspaceObjects);
+    }
+
+    public List<RProjectFile> getArtifacts() {
+        return nonNull(about().artifacts);
+    }
+
+    public List<RProjectResult> getResults() {
+        return nonNull(about().results);
+    }
+
+    public List<RRepositoryFile> getRepositoryFiles() {
+        return nonNull(about().repositoryFiles);
+    }
+
+    /*
+     * Returns the named workspace object or null if it was not
+     * among the execution routputs.
+     */
+    public synchronized RData getWorkspaceObject(String name) {
+
+        if(objectsByName == null) {
+            Map<String, RData> map = new LinkedHashMap<String, RData>();
+            for(RData rData : getWorkspaceObjects()) {
+                map.put(rData.getName(), rData);
+            }
+            objectsByName = map;
+        }
+        return objectsByName.get(name);
+    }
+
+    /*
+     * Returns the named working directory artifact or null if no
+     * such file was generated by the execution.
+     */
+    public synchronized RProjectFile getArtifact(String filename) {
+
+        if(artifactsByName == null) {
+            Map<String, RProjectFile> map =
+                new LinkedHashMap<String, RProjectFile>();
+            for(RProjectFile wdFile : getArtifacts()) {
+                map.put(wdFile.about().filename, wdFile);
+            }
+            artifactsByName = map;
+        }
+        return artifactsByName.get(filename);
+    }
+
+    public synchronized Set<String> getArtifactNames() {
+        getArtifact(null);
+        return Collections.unmodifiableSet(artifactsByName.keySet());
+    }
+
+    /*
+     * Returns the named graphics device result or null if no such
+     * plot was generated by the execution.
+     */
+    public synchronized RProjectResult getResult(String filename) {
+
+        if(resultsByName == null) {
+            Map<String, RProjectResult> map =
+                new LinkedHashMap<String, RProjectResult>();
+            for(RProjectResult result : getResults()) {
+                map.put(result.about().filename, result);
+            }
+            resultsByName = map;
+        }
+        return resultsByName.get(filename);
+    }
+
+    public synchronized Set<String> getResultNames() {
+        getResult(null);
+        return Collections.unmodifiableSet(resultsByName.keySet());
+    }
+
+    /*
+     * Returns the named repository-managed file or null if no such
+     * file was stored following the execution.
+     */
+    public synchronized RRepositoryFile getRepositoryFile(String filename) {
+
+        if(repositoryFilesByName == null) {
+            Map<String, RRepositoryFile> map =
+                new LinkedHashMap<String, RRepositoryFile>();
+            for(RRepositoryFile repoFile : getRepositoryFiles()) {
+                map.put(repoFile.about().filename, repoFile);
+            }
+            repositoryFilesByName = map;
+        }
+        return repositoryFilesByName.get(filename);
+    }
+
+    public synchronized Set<String> getRepositoryFileNames() {
+        getRepositoryFile(null);
+        return Collections.unmodifiableSet(repositoryFilesByName.keySet());
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : Collections.<T>emptyList();
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * ParallelDownloader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.output;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.example.data.io.async.AsyncExecutor;
+import com.revo.deployr.client.example.data.io.metrics.PhaseMetrics;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ParallelDownloader
+ *
+ * Downloads all artifacts, graphics device plots and repository files
+ * generated by an execution concurrently into a DownloadSink, so an
+ * execution with many outputs completes in roughly the time of its
+ * largest file rather than the sum of all files.
+ *
+ * Concurrency is bounded twice: perExecutionLimit caps the downloads
+ * in flight for a single downloadAll call and globalLimit caps the
+ * downloads in flight across all calls sharing this downloader. The
+ * calling thread acquires both permits before each download is
+ * dispatched, so a saturated downloader applies backpressure to its
+ * callers rather than queueing unbounded work.
+ *
+ * Usage:
+ *
+ * ParallelDownloader downloader = new ParallelDownloader(sink, 16, 4);
+ * List<DownloadStats> stats =
+ *     downloader.downloadAll(new ExecutionDetails(exec));
+ */
+public class ParallelDownloader {
+
+    private static Logger log = Logger.getLogger(ParallelDownloader.class);
+
+    private final DownloadSink sink;
+    private final ExecutorService executor;
+    private final Semaphore globalPermits;
+    private final int perExecutionLimit;
+
+    /*
+     * Dispatches downloads on a virtual thread executor where
+     * supported, see AsyncExecutor.newVirtualThreadExecutor.
+     */
+    public ParallelDownloader(DownloadSink sink,
+                              int globalLimit,
+                              int perExecutionLimit) {
+        this(sink, AsyncExecutor.newVirtualThreadExecutor(),
+             globalLimit, perExecutionLimit);
+    }
+
+    public ParallelDownloader(DownloadSink sink,
+                              ExecutorService executor,
+                              int globalLimit,
+                              int perExecutionLimit) {
+
+        if(globalLimit < 1 || perExecutionLimit < 1) {
+            throw new IllegalArgumentException("ParallelDownloader " +
+                                        "limits must be at least 1.");
+        }
+        this.sink = sink;
+        this.executor = executor;
+        this.globalPermits = new Semaphore(globalLimit, true);
+        this.perExecutionLimit = perExecutionLimit;
+    }
+
+    public DownloadSink getSink() {
+        return sink;
+    }
+
+    /*
+     * downloadAll
+     *
+     * Downloads every output of the execution and returns once all
+     * downloads have completed, with stats in the order artifacts,
+     * results, repository files. If any download fails the remaining
+     * downloads still run to completion before the first failure is
+     * thrown, with later failures attached as suppressed exceptions.
+     */
+    public List<DownloadStats> downloadAll(ExecutionDetails details)
+        throws IOException, InterruptedException {
+
+        final String execution = details.getId();
+        List<Callable<DownloadStats>> tasks =
+            new ArrayList<Callable<DownloadStats>>();
+        for(final RProjectFile wdFile : details.getArtifacts()) {
+            tasks.add(() -> sink.download(execution, wdFile));
+        }
+        for(final RProjectResult result : details.getResults()) {
+            tasks.add(() -> sink.download(execution, result));
+        }
+        for(final RRepositoryFile repoFile : details.getRepositoryFiles()) {
+            tasks.add(() -> sink.download(execution, repoFile));
+        }
+        return run(tasks);
+    }
+
+    /*
+     * downloadArtifacts
+     *
+     * Downloads the subset of working directory artifacts whose
+     * filenames are listed, skipping names not generated by the
+     * execution.
+     */
+    public List<DownloadStats> downloadArtifacts(ExecutionDetails details,
+                                                 Collection<String> filenames)
+        throws IOException, InterruptedException {
+
+        final String execution = details.getId();
+        List<Callable<DownloadStats>> tasks =
+            new ArrayList<Callable<DownloadStats>>();
+        for(String filename : filenames) {
+            final RProjectFile wdFile = details.getArtifact(filename);
+            if(wdFile != null) {
+                tasks.add(() -> sink.download(execution, wdFile));
+            }
+        }
+        return run(tasks);
+    }
+
+    /*
+     * downloadResults
+     *
+     * Downloads every graphics device plot generated by the execution.
+     */
+    public List<DownloadStats> downloadResults(ExecutionDetails details)
+        throws IOException, InterruptedException {
+
+        final String execution = details.getId();
+        List<Callable<DownloadStats>> tasks =
+            new ArrayList<Callable<DownloadStats>>();
+        for(final RProjectResult result : details.getResults()) {
+            tasks.add(() -> sink.download(execution, result));
+        }
+        return run(tasks);
+    }
+
+    /*
+     * downloadRepositoryFiles
+     *
+     * Downloads every repository-managed file stored following the
+     * execution.
+     */
+    public List<DownloadStats> downloadRepositoryFiles(
+                                            ExecutionDetails details)
+        throws IOException, InterruptedException {
+
+        final String execution = details.getId();
+        List<Callable<DownloadStats>> tasks =
+            new ArrayList<Callable<DownloadStats>>();
+        for(final RRepositoryFile repoFile : details.getRepositoryFiles()) {
+            tasks.add(() -> sink.download(execution, repoFile));
+        }
+        return run(tasks);
+    }
+
+    private List<DownloadStats> run(List<Callable<DownloadStats>> tasks)
+        throws IOException, InterruptedException {
+
+        final Semaphore executionPermits =
+            new Semaphore(Math.min(perExecutionLimit,
+                                   Math.max(1, tasks.size())));
+        List<Future<DownloadStats>> futures =
+            new ArrayList<Future<DownloadStats>>(tasks.size());
+
+        // Downloads are attributed to the caller's scenario.
+        final String scenario = PhaseMetrics.getScenario();
+        long started = System.currentTimeMillis();
+        try {
+            for(final Callable<DownloadStats> task : tasks) {
+                executionPermits.acquire();
+                try {
+                    globalPermits.acquire();
+                } catch(InterruptedException iex) {
+                    executionPermits.release();
+                    throw iex;
+                }
+                try {
+                    futures.add(executor.submit(() -> {
+                        PhaseMetrics.setScenario(scenario);
+                        try {
+                            return task.call();
+                        } finally {
+                            PhaseMetrics.setScenario(null);
+                            globalPermits.release();
+                            executionPermits.release();
+                        }
+                    }));
+                } catch(RejectedExecutionException rex) {
+                    globalPermits.release();
+                    executionPermits.release();
+                    throw rex;
+                }
+            }
+        } catch(InterruptedException | RejectedExecutionException ex) {
+            for(Future<DownloadStats> future : futures) {
+                future.cancel(true);
+            }
+            throw ex;
+        }
+
+        List<DownloadStats> stats =
+            new ArrayList<DownloadStats>(futures.size());
+        IOException failure = null;
+        for(Future<DownloadStats> future : futures) {
+            try {
+                stats.add(future.get());
+            } catch(ExecutionException eex) {
+                Throwable cause = eex.getCause();
+                IOException ioex = cause instanceof IOException ?
+                    (IOException) cause :
+                    new IOException("Execution output download failed.",
+                                                                cause);
+                if(failure == null) {
+                    failure = ioex;
+                } else {
+                    failure.addSuppressed(ioex);
+                }
+            }
+        }
+
+        if(failure != null) {
+            throw failure;
+        }
+
+        log.debug("[  DATA OUTPUT   ] Downloaded " + stats.size() +
+            " execution outputs in " +
+            (System.currentTimeMillis() - started) + "ms.");
+        return stats;
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * ExecutionDeadlineException.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+import com.revo.deployr.client.RClientException;
+
+/*
+ * ExecutionDeadlineException
+ *
+ * Raised when a discrete execution, including its hedges and
+ * retries, does not complete within
+ * ExecutionPolicyOptions.deadlineMillis.
+ */
+public class ExecutionDeadlineException extends RClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionDeadlineException(String message) {
+        super(message);
+    }
+
+}
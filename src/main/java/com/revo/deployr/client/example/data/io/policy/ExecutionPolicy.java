@@ -0,0 +1,338 @@
+/*
+ * ExecutionPolicy.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.example.data.io.scheduler.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ExecutionPolicy
+ *
+ * Runs idempotent discrete executions so that one slow or failing R
+ * node does not set their tail latency:
+ *
+ * 1. Hedging: once an attempt has run longer than the configured
+ *    percentile of recent latencies for the same script a second copy
+ *    is issued, the first result returned wins and the other attempt
+ *    is cancelled. Hedges are limited to maxHedgeFraction of
+ *    executions.
+ * 2. Retries: an attempt failing on the transport (an
+ *    RClientException caused by an IOException) or on the grid
+ *    (RGridException), with no other attempt still running, is
+ *    retried up to maxRetries times after a jittered exponential
+ *    backoff. Any other failure, including an R execution error, is
+ *    raised immediately: the script would fail the same way again.
+ * 3. Deadline: the execution as a whole, across attempts and
+ *    backoffs, raises ExecutionDeadlineException after
+ *    deadlineMillis.
+ *
+ * Attempts run on daemon threads of the policy, carrying the
+ * ExecutionScheduler caller of the thread that started the execution.
+ * Only executions without side effects beyond their own outputs may
+ * be hedged or retried, see PolicyProxy.
+ *
+ * Usage:
+ *
+ * RScriptExecution exec = ExecutionPolicy.shared().execute("dataIO.R",
+ *     () -> rClient.executeScript("dataIO.R", ...));
+ */
+public class ExecutionPolicy {
+
+    private static Logger log = Logger.getLogger(ExecutionPolicy.class);
+
+    private static ExecutionPolicy shared;
+
+    private final ExecutionPolicyOptions options;
+    private final ConcurrentMap<String, LatencyWindow> windows =
+        new ConcurrentHashMap<String, LatencyWindow>();
+    private final ExecutorService attempts;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deadlinesExceeded = new AtomicLong();
+
+    public ExecutionPolicy(ExecutionPolicyOptions options) {
+        this.options = options;
+        final AtomicInteger counter = new AtomicInteger();
+        this.attempts = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "execution-policy-" +
+                                        counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide policy configured from system
+     * properties, see ExecutionPolicyOptions.fromSystemProperties.
+     */
+    public static synchronized ExecutionPolicy shared() {
+        if(shared == null) {
+            shared = new ExecutionPolicy(
+                        ExecutionPolicyOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    public ExecutionPolicyOptions getOptions() {
+        return options;
+    }
+
+    /*
+     * execute
+     *
+     * Runs execution under the policy. Latencies are tracked per key,
+     * which should identify the script or code executed. Raises the
+     * failure of the last attempt when retries are exhausted.
+     */
+    public <T> T execute(String key, Callable<T> execution)
+        throws Exception {
+
+        if(!options.enabled) {
+            return execution.call();
+        }
+        executions.incrementAndGet();
+
+        LatencyWindow window = window(key);
+        long deadline = options.deadlineMillis > 0 ?
+            System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(options.deadlineMillis) :
+            Long.MAX_VALUE;
+        String caller = ExecutionScheduler.getCaller();
+
+        CompletionService<T> completion =
+            new ExecutorCompletionService<T>(attempts);
+        List<Future<T>> started = new ArrayList<Future<T>>();
+        Future<T> hedge = null;
+        boolean hedged = false;
+        int pending = 0;
+        int retry = 0;
+
+        try {
+            started.add(completion.submit(
+                attempt(execution, window, caller)));
+            pending++;
+            long attemptStart = System.nanoTime();
+
+            while(true) {
+                long now = System.nanoTime();
+                if(now >= deadline) {
+                    deadlinesExceeded.incrementAndGet();
+                    throw new ExecutionDeadlineException("Execution " +
+                        key + " exceeded deadline of " +
+                        options.deadlineMillis + " ms after " +
+                        started.size() + " attempts.");
+                }
+
+                long wait = deadline - now;
+                long hedgeDelay = !hedged && pending == 1 ?
+                                    hedgeDelay(window) : -1L;
+                if(hedgeDelay >= 0) {
+                    wait = Math.min(wait,
+                            Math.max(0L, attemptStart + hedgeDelay - now));
+                }
+
+                Future<T> done = completion.poll(wait, TimeUnit.NANOSECONDS);
+                if(done == null) {
+                    if(hedgeDelay >= 0 &&
+                            System.nanoTime() - attemptStart >= hedgeDelay) {
+                        hedged = true;
+                        if(admitHedge()) {
+                            hedge = completion.submit(
+                                attempt(execution, window, caller));
+                            started.add(hedge);
+                            pending++;
+                            log.debug("[ HEDGED REQUEST ] Issued hedge for " +
+                                key + " after " +
+                                TimeUnit.NANOSECONDS.toMillis(hedgeDelay) +
+                                " ms.");
+                        }
+                    }
+                    continue;
+                }
+
+                pending--;
+                try {
+                    T result = done.get();
+                    if(done == hedge) {
+                        hedgeWins.incrementAndGet();
+                    }
+                    return result;
+                } catch(ExecutionException eex) {
+                    Throwable cause = eex.getCause();
+                    if(pending > 0) {
+                        continue;
+                    }
+                    if(!retryable(cause) || retry >= options.maxRetries) {
+                        throw rethrow(cause);
+                    }
+                    long backoff = backoff(retry++);
+                    if(System.nanoTime() +
+                            TimeUnit.MILLISECONDS.toNanos(backoff) >= deadline) {
+                        throw rethrow(cause);
+                    }
+                    retries.incrementAndGet();
+                    log.debug("[ RETRY BACKOFF  ] Retrying " + key +
+                        " in " + backoff + " ms after " + cause);
+                    Thread.sleep(backoff);
+
+                    started.add(completion.submit(
+                        attempt(execution, window, caller)));
+                    pending++;
+                    hedge = null;
+                    hedged = false;
+                    attemptStart = System.nanoTime();
+                }
+            }
+        } finally {
+            for(Future<T> future : started) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getDeadlineExceededCount() {
+        return deadlinesExceeded.get();
+    }
+
+    /*
+     * getLatency
+     *
+     * Recent latency in milliseconds at percentile for key, -1 when
+     * none has been observed.
+     */
+    public double getLatency(String key, double percentile) {
+        LatencyWindow window = windows.get(key);
+        long nanos = window != null ? window.percentile(percentile) : -1L;
+        return nanos < 0 ? -1.0 : nanos / 1000000.0;
+    }
+
+    private LatencyWindow window(String key) {
+        LatencyWindow window = windows.get(key);
+        if(window == null) {
+            LatencyWindow created = new LatencyWindow(options.windowSize);
+            window = windows.putIfAbsent(key, created);
+            if(window == null) {
+                window = created;
+            }
+        }
+        return window;
+    }
+
+    /*
+     * Delay in nanoseconds after which an attempt is hedged, -1 when
+     * hedging is disabled or too few latencies have been observed.
+     */
+    private long hedgeDelay(LatencyWindow window) {
+
+        if(!options.hedge || window.getCount() < options.minSamples) {
+            return -1L;
+        }
+        return Math.max(window.percentile(options.hedgePercentile),
+                TimeUnit.MILLISECONDS.toNanos(options.minHedgeDelayMillis));
+    }
+
+    private boolean admitHedge() {
+
+        while(true) {
+            long issued = hedges.get();
+            if(issued + 1 > options.maxHedgeFraction * executions.get()) {
+                return false;
+            }
+            if(hedges.compareAndSet(issued, issued + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private long backoff(int retry) {
+
+        long ceiling = Math.min(options.maxBackoffMillis,
+                        options.backoffMillis << Math.min(retry, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /*
+     * Only transport and grid failures are retried. R execution
+     * errors, scheduler rejections and deadlines are reported as an
+     * RClientException too, but carry no IOException cause.
+     */
+    private static boolean retryable(Throwable cause) {
+        if(cause instanceof RGridException) {
+            return true;
+        } else
+        if(cause instanceof RClientException) {
+            for(Throwable t = cause.getCause(); t != null;
+                                                t = t.getCause()) {
+                if(t instanceof IOException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Exception rethrow(Throwable cause) {
+        if(cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        throw (Error) cause;
+    }
+
+    private static <T> Callable<T> attempt(final Callable<T> execution,
+                                           final LatencyWindow window,
+                                           final String caller) {
+        return new Callable<T>() {
+            public T call() throws Exception {
+                ExecutionScheduler.setCaller(caller);
+                try {
+                    long started = System.nanoTime();
+                    T result = execution.call();
+                    window.record(System.nanoTime() - started);
+                    return result;
+                } finally {
+                    ExecutionScheduler.setCaller(null);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * ExecutionPolicyOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+/*
+ * ExecutionPolicyOptions
+ *
+ * Configuration for an ExecutionPolicy. Follows the same convention
+ * as the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class ExecutionPolicyOptions {
+
+    /*
+     * When false, the default, discrete executions are issued once,
+     * with no hedge, retry or deadline. Hedging issues duplicate
+     * executions against the server, so it is opt-in.
+     */
+    public boolean enabled = false;
+
+    /*
+     * When true a second copy of a discrete execution is issued once
+     * the first has been running longer than hedgePercentile of the
+     * recent latencies of the same script, and the first result
+     * returned is used.
+     */
+    public boolean hedge = true;
+    public double hedgePercentile = 95.0;
+
+    /*
+     * Lower bound on the hedge delay, so fast scripts are not
+     * duplicated on scheduling noise.
+     */
+    public long minHedgeDelayMillis = 50L;
+
+    /*
+     * Latencies observed per script before hedging starts, and the
+     * number of most recent latencies the percentile is taken over.
+     */
+    public int minSamples = 20;
+    public int windowSize = 500;
+
+    /*
+     * Maximum hedged copies as a fraction of executions, bounding the
+     * extra load hedging places on the server.
+     */
+    public double maxHedgeFraction = 0.1;
+
+    /*
+     * Retries after a failed execution, separated by exponential
+     * backoff starting at backoffMillis and capped at
+     * maxBackoffMillis, each delay drawn uniformly from zero to the
+     * backoff (full jitter).
+     */
+    public int maxRetries = 2;
+    public long backoffMillis = 200L;
+    public long maxBackoffMillis = 5000L;
+
+    /*
+     * Deadline for a discrete execution across all attempts, zero
+     * for none.
+     */
+    public long deadlineMillis = 120000L;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from policy.* system properties.
+     */
+    public static ExecutionPolicyOptions fromSystemProperties() {
+
+        ExecutionPolicyOptions options = new ExecutionPolicyOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("policy.enabled",
+                                String.valueOf(options.enabled)));
+        options.hedge = Boolean.parseBoolean(
+            System.getProperty("policy.hedge",
+                                String.valueOf(options.hedge)));
+        options.hedgePercentile = Double.parseDouble(
+            System.getProperty("policy.hedgePercentile",
+                                String.valueOf(options.hedgePercentile)));
+        options.minHedgeDelayMillis = Long.getLong(
+            "policy.minHedgeDelayMillis", options.minHedgeDelayMillis);
+        options.minSamples = Integer.getInteger(
+            "policy.minSamples", options.minSamples);
+        options.windowSize = Integer.getInteger(
+            "policy.windowSize", options.windowSize);
+        options.maxHedgeFraction = Double.parseDouble(
+            System.getProperty("policy.maxHedgeFraction",
+                                String.valueOf(options.maxHedgeFraction)));
+        options.maxRetries = Integer.getInteger(
+            "policy.maxRetries", options.maxRetries);
+        options.backoffMillis = Long.getLong(
+            "policy.backoffMillis", options.backoffMillis);
+        options.maxBackoffMillis = Long.getLong(
+            "policy.maxBackoffMillis", options.maxBackoffMillis);
+        options.deadlineMillis = Long.getLong(
+            "policy.deadlineMillis", options.deadlineMillis);
+        return options;
+    }
+
+}
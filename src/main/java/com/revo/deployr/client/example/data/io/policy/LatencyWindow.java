@@ -0,0 +1,64 @@
+/*
+ * LatencyWindow.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+import java.util.*;
+
+/*
+ * LatencyWindow
+ *
+ * The most recent execution latencies of one script, oldest
+ * overwritten first, so percentiles follow the current behaviour of
+ * the server rather than its history.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyWindow(int size) {
+        samples = new long[Math.max(1, size)];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /*
+     * percentile
+     *
+     * Latency in nanoseconds at percentile (0-100) of the window,
+     * -1 when the window is empty.
+     */
+    public long percentile(double percentile) {
+
+        long[] sorted;
+        synchronized(this) {
+            if(count == 0) {
+                return -1L;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * PolicyProxy.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.params.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * PolicyProxy
+ *
+ * Wraps an anonymous RClient so its discrete executions
+ * (executeScript, executeCode and executeExternal) run under an
+ * ExecutionPolicy. Only idempotent executions are hedged or retried:
+ * an execution with storageOptions leaves a repository file behind
+ * per attempt, and once the client is logged in an execution may
+ * write to the user's repository, so both pass straight through.
+ * Stateful executions on an RProject are never wrapped, a second
+ * copy would run against the same workspace.
+ *
+ * Latencies are tracked per method and string arguments, for example
+ * per script filename, directory and author.
+ */
+public final class PolicyProxy {
+
+    private static final Set<String> EXECUTION_METHODS =
+        new HashSet<String>(Arrays.asList(
+            "executeScript", "executeCode", "executeExternal"));
+
+    private PolicyProxy() {
+    }
+
+    /*
+     * wrap
+     *
+     * Returns rClient wrapped to run discrete executions under
+     * policy, or rClient itself when it is null or already wrapped.
+     */
+    public static RClient wrap(RClient rClient, ExecutionPolicy policy) {
+
+        if(rClient == null || isWrapped(rClient)) {
+            return rClient;
+        }
+        return (RClient) Proxy.newProxyInstance(
+                    RClient.class.getClassLoader(),
+                    new Class<?>[] { RClient.class },
+                    new Handler(rClient, policy));
+    }
+
+    public static boolean isWrapped(Object o) {
+        return Proxy.isProxyClass(o.getClass()) &&
+               Proxy.getInvocationHandler(o) instanceof Handler;
+    }
+
+    private static final class Handler implements InvocationHandler {
+
+        private final RClient target;
+        private final ExecutionPolicy policy;
+        private volatile boolean authenticated;
+
+        Handler(RClient target, ExecutionPolicy policy) {
+            this.target = target;
+            this.policy = policy;
+        }
+
+        public Object invoke(Object proxy, final Method method,
+                             final Object[] args) throws Throwable {
+
+            if(method.getDeclaringClass() == Object.class) {
+                if("equals".equals(method.getName())) {
+                    Object other = args[0];
+                    if(other != null && isWrapped(other)) {
+                        other = ((Handler)
+                            Proxy.getInvocationHandler(other)).target;
+                    }
+                    return target.equals(other);
+                }
+                return method.invoke(target, args);
+            }
+
+            if(!EXECUTION_METHODS.contains(method.getName())) {
+                Object result = call(method, args);
+                if("login".equals(method.getName())) {
+                    authenticated = true;
+                } else
+                if("logout".equals(method.getName())) {
+                    authenticated = false;
+                }
+                return result;
+            }
+
+            if(!idempotent(args)) {
+                return call(method, args);
+            }
+
+            try {
+                return policy.execute(key(method, args),
+                    new Callable<Object>() {
+                        public Object call() throws Exception {
+                            try {
+                                return Handler.this.call(method, args);
+                            } catch(Exception ex) {
+                                throw ex;
+                            } catch(Throwable t) {
+                                throw (Error) t;
+                            }
+                        }
+                    });
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new RClientException("Execution interrupted, " +
+                                           "method=" + method.getName());
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch(InvocationTargetException itex) {
+                throw itex.getCause();
+            }
+        }
+
+        /*
+         * Executions on an anonymous client that store nothing in
+         * the repository can run any number of times to the same
+         * effect.
+         */
+        private boolean idempotent(Object[] args) {
+
+            if(authenticated) {
+                return false;
+            }
+            if(args != null) {
+                for(Object arg : args) {
+                    if(arg instanceof ProjectExecutionOptions &&
+                        ((ProjectExecutionOptions) arg).storageOptions != null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static String key(Method method, Object[] args) {
+
+            StringBuilder key = new StringBuilder(method.getName());
+            if(args != null) {
+                for(Object arg : args) {
+                    if(arg instanceof String) {
+                        key.append('|').append(arg);
+                    }
+                }
+            }
+            return key.toString();
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * ClientPoolOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.example.data.io.metrics.*;
+
+/*
+ * ClientPoolOptions
+ *
+ * Configuration for an RClientPool. Follows the same convention
+ * as the client library params classes: all fields are public
+ * and optional, unset fields fall back to the defaults below.
+ */
+public class ClientPoolOptions {
+
+    /*
+     * DeployR server endpoint, for example:
+     * http://localhost:8050/deployr
+     */
+    public String endpoint;
+
+    /*
+     * Credentials used to upgrade each pooled RClient to an
+     * authenticated RUser connection. When username is null
+     * pooled connections remain anonymous.
+     */
+    public String username;
+    public String password;
+
+    /*
+     * Source of new RClient connections, defaults to
+     * RClientProvider.DEFAULT which uses RClientFactory.
+     */
+    public RClientProvider clientProvider;
+
+    /*
+     * When set, connection and login are timed and pooled RClient
+     * handles are instrumented to record execution lifecycle phases.
+     */
+    public PhaseMetrics metrics;
+
+    /*
+     * Maximum number of RClient connections, idle plus
+     * borrowed, maintained by the pool.
+     */
+    public int maxSize = 8;
+
+    /*
+     * Maximum time a borrow call blocks waiting for a connection
+     * when maxSize connections are already borrowed.
+     */
+    public long maxWaitMillis = 30000L;
+
+    /*
+     * Idle connections unused for longer than this period are
+     * released by the background evictor.
+     */
+    public long idleTimeoutMillis = 5 * 60 * 1000L;
+
+    /*
+     * Idle connections unused for longer than this period are
+     * health checked before being handed out by borrow.
+     */
+    public long validationIntervalMillis = 30000L;
+
+    /*
+     * Period between background eviction runs.
+     */
+    public long evictionIntervalMillis = 60000L;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from the same system properties used by the
+     * example applications (endpoint, username, password) with
+     * pool sizing overrides read from pool.* properties.
+     */
+    public static ClientPoolOptions fromSystemProperties() {
+
+        ClientPoolOptions options = new ClientPoolOptions();
+        options.endpoint = System.getProperty("endpoint");
+        options.username = System.getProperty("username");
+        options.password = System.getProperty("password");
+        options.maxSize = Integer.getInteger("pool.maxSize",
+                                        options.maxSize);
+        options.maxWaitMillis = Long.getLong("pool.maxWaitMillis",
+                                        options.maxWaitMillis);
+        options.idleTimeoutMillis = Long.getLong("pool.idleTimeoutMillis",
+                                        options.idleTimeoutMillis);
+        options.validationIntervalMillis =
+            Long.getLong("pool.validationIntervalMillis",
+                                        options.validationIntervalMillis);
+        options.evictionIntervalMillis =
+            Long.getLong("pool.evictionIntervalMillis",
+                                        options.evictionIntervalMillis);
+        if(MetricsOptions.fromSystemProperties().enabled) {
+            options.metrics = PhaseMetrics.shared();
+        }
+        return options;
+    }
+
+}
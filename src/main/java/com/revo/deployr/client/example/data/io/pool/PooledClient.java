@@ -0,0 +1,80 @@
+/*
+ * PooledClient.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.*;
+
+/*
+ * PooledClient
+ *
+ * An RClient connection, and when authenticated the associated
+ * RUser, on loan from an RClientPool. Return the handle using
+ * RClientPool.release, or RClientPool.invalidate if a call on
+ * the connection failed in a way that leaves it unusable.
+ */
+public class PooledClient {
+
+    private final RClient rClient;
+    private volatile RUser rUser;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+    private volatile long lastValidatedAt;
+
+    PooledClient(RClient rClient, RUser rUser) {
+        this.rClient = rClient;
+        this.rUser = rUser;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+        this.lastValidatedAt = createdAt;
+    }
+
+    public RClient getClient() {
+        return rClient;
+    }
+
+    /*
+     * Returns null when the pool manages anonymous connections.
+     */
+    public RUser getUser() {
+        return rUser;
+    }
+
+    public boolean isAuthenticated() {
+        return rUser != null;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    void setUser(RUser rUser) {
+        this.rUser = rUser;
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    long getLastValidatedAt() {
+        return lastValidatedAt;
+    }
+
+    void validated() {
+        lastValidatedAt = System.currentTimeMillis();
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * PooledProject.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.*;
+
+/*
+ * PooledProject
+ *
+ * A pre-heated RProject (R session) checked out of an RProjectPool.
+ * Return the handle using RProjectPool.checkin, or
+ * RProjectPool.invalidate if the R session is no longer usable.
+ */
+public class PooledProject {
+
+    private final RProject rProject;
+    private final PreloadSpec spec;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+
+    PooledProject(RProject rProject, PreloadSpec spec) {
+        this.rProject = rProject;
+        this.spec = spec;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    public RProject getProject() {
+        return rProject;
+    }
+
+    public PreloadSpec getSpec() {
+        return spec;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+}
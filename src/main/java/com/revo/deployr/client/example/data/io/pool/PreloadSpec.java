@@ -0,0 +1,117 @@
+/*
+ * PreloadSpec.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.params.*;
+
+/*
+ * PreloadSpec
+ *
+ * Identifies the repository-managed files preloaded into a project
+ * on creation. Projects created from equal specs are interchangeable
+ * and so share a sub-pool within an RProjectPool.
+ */
+public final class PreloadSpec {
+
+    /*
+     * A project created with no preload, equivalent to
+     * rUser.createProject().
+     */
+    public static final PreloadSpec NONE = new PreloadSpec(null, null);
+
+    private final ProjectPreloadOptions preloadWorkspace;
+    private final ProjectPreloadOptions preloadDirectory;
+    private final String key;
+
+    public PreloadSpec(ProjectPreloadOptions preloadWorkspace,
+                       ProjectPreloadOptions preloadDirectory) {
+        this.preloadWorkspace = preloadWorkspace;
+        this.preloadDirectory = preloadDirectory;
+        this.key = "workspace=" + describe(preloadWorkspace) +
+                   ",directory=" + describe(preloadDirectory);
+    }
+
+    /*
+     * Convenience for the common single workspace preload, for
+     * example workspace("hipStar.rData", "example-data-io", "testuser").
+     */
+    public static PreloadSpec workspace(String filename,
+                                        String directory,
+                                        String author) {
+        return new PreloadSpec(preload(filename, directory, author), null);
+    }
+
+    public static PreloadSpec directory(String filename,
+                                        String directory,
+                                        String author) {
+        return new PreloadSpec(null, preload(filename, directory, author));
+    }
+
+    public static PreloadSpec of(ProjectCreationOptions creationOpts) {
+        if(creationOpts == null) {
+            return NONE;
+        }
+        return new PreloadSpec(creationOpts.preloadWorkspace,
+                               creationOpts.preloadDirectory);
+    }
+
+    /*
+     * Returns the ProjectCreationOptions used to create a project
+     * matching this spec.
+     */
+    public ProjectCreationOptions toCreationOptions() {
+        ProjectCreationOptions creationOpts = new ProjectCreationOptions();
+        creationOpts.preloadWorkspace = preloadWorkspace;
+        creationOpts.preloadDirectory = preloadDirectory;
+        return creationOpts;
+    }
+
+    public boolean isEmpty() {
+        return preloadWorkspace == null && preloadDirectory == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PreloadSpec && key.equals(((PreloadSpec) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    private static ProjectPreloadOptions preload(String filename,
+                                                 String directory,
+                                                 String author) {
+        ProjectPreloadOptions preload = new ProjectPreloadOptions();
+        preload.filename = filename;
+        preload.directory = directory;
+        preload.author = author;
+        return preload;
+    }
+
+    private static String describe(ProjectPreloadOptions preload) {
+        if(preload == null) {
+            return "none";
+        }
+        return "/" + preload.author + "/" + preload.directory + "/" +
+            preload.filename +
+            (preload.version != null ? "@" + preload.version : "");
+    }
+
+}
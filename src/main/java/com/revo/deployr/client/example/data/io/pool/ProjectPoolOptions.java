@@ -0,0 +1,88 @@
+/*
+ * ProjectPoolOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+/*
+ * ProjectPoolOptions
+ *
+ * Configuration for an RProjectPool. Sizing applies independently
+ * to each PreloadSpec served by the pool.
+ */
+public class ProjectPoolOptions {
+
+    /*
+     * Number of idle, pre-heated projects the background
+     * replenisher maintains for each PreloadSpec.
+     */
+    public int minIdle = 1;
+
+    /*
+     * Maximum number of projects, idle plus checked out,
+     * maintained for each PreloadSpec.
+     */
+    public int maxSize = 4;
+
+    /*
+     * Maximum time a checkout call blocks waiting for a project
+     * when maxSize projects are already checked out.
+     */
+    public long maxWaitMillis = 60000L;
+
+    /*
+     * When enabled, projects returned by checkin have their
+     * workspace restored to the snapshot taken immediately after
+     * creation before being handed out again.
+     */
+    public boolean resetOnCheckin = true;
+
+    /*
+     * Idle projects unused for longer than this period are pinged
+     * before being handed out by checkout.
+     */
+    public long validationIntervalMillis = 60000L;
+
+    /*
+     * Period between background replenishment runs.
+     */
+    public long replenishIntervalMillis = 5000L;
+
+    /*
+     * Number of background threads creating and resetting projects.
+     */
+    public int replenishThreads = 2;
+
+    public static ProjectPoolOptions fromSystemProperties() {
+
+        ProjectPoolOptions options = new ProjectPoolOptions();
+        options.minIdle = Integer.getInteger("projectPool.minIdle",
+                                        options.minIdle);
+        options.maxSize = Integer.getInteger("projectPool.maxSize",
+                                        options.maxSize);
+        options.maxWaitMillis = Long.getLong("projectPool.maxWaitMillis",
+                                        options.maxWaitMillis);
+        options.resetOnCheckin =
+            Boolean.valueOf(System.getProperty("projectPool.resetOnCheckin",
+                            String.valueOf(options.resetOnCheckin)));
+        options.validationIntervalMillis =
+            Long.getLong("projectPool.validationIntervalMillis",
+                                        options.validationIntervalMillis);
+        options.replenishIntervalMillis =
+            Long.getLong("projectPool.replenishIntervalMillis",
+                                        options.replenishIntervalMillis);
+        options.replenishThreads =
+            Integer.getInteger("projectPool.replenishThreads",
+                                        options.replenishThreads);
+        return options;
+    }
+
+}
@@ -0,0 +1,359 @@
+/*
+ * RClientPool.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.auth.RAuthentication;
+import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.example.data.io.metrics.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * RClientPool
+ *
+ * A bounded pool of RClient connections that have already been
+ * established and, when credentials are configured, upgraded to
+ * authenticated RUser connections.
+ *
+ * Borrowing an idle connection avoids the connect and basic
+ * authentication round trips otherwise paid on every execution.
+ * Idle connections are health checked before reuse, transparently
+ * re-authenticated when their HTTP session has expired and released
+ * by a background evictor once unused for idleTimeoutMillis.
+ *
+ * Usage:
+ *
+ * PooledClient pc = pool.borrow();
+ * try {
+ *     RUser rUser = pc.getUser();
+ *     ...
+ * } finally {
+ *     pool.release(pc);
+ * }
+ */
+public class RClientPool {
+
+    private static Logger log = Logger.getLogger(RClientPool.class);
+
+    private static RClientPool shared;
+
+    private final ClientPoolOptions options;
+    private final LinkedBlockingDeque<PooledClient> idle =
+        new LinkedBlockingDeque<PooledClient>();
+    private final Set<PooledClient> borrowed =
+        Collections.newSetFromMap(
+            new ConcurrentHashMap<PooledClient, Boolean>());
+    private final AtomicInteger open = new AtomicInteger();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public RClientPool(ClientPoolOptions options) {
+
+        if(options == null || options.endpoint == null) {
+            throw new IllegalArgumentException("RClientPool endpoint " +
+                                                    "must be specified.");
+        }
+        if(options.maxSize < 1) {
+            throw new IllegalArgumentException("RClientPool maxSize " +
+                                                    "must be at least 1.");
+        }
+
+        this.options = options;
+        this.permits = new Semaphore(options.maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "RClientPool-evictor");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        this.evictor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    evictIdle();
+                }
+            }, options.evictionIntervalMillis,
+               options.evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide pool configured from system
+     * properties, see ClientPoolOptions.fromSystemProperties.
+     * The pool is closed automatically on JVM shutdown.
+     */
+    public static synchronized RClientPool shared() {
+
+        if(shared == null) {
+            final RClientPool pool =
+                new RClientPool(ClientPoolOptions.fromSystemProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    pool.close();
+                }
+            });
+            shared = pool;
+        }
+        return shared;
+    }
+
+    public ClientPoolOptions getOptions() {
+        return options;
+    }
+
+    /*
+     * borrow
+     *
+     * Returns an established connection, reusing an idle connection
+     * when available. Blocks for at most maxWaitMillis when maxSize
+     * connections are already on loan.
+     */
+    public PooledClient borrow()
+        throws RClientException, RSecurityException, InterruptedException {
+
+        if(closed) {
+            throw new IllegalStateException("RClientPool is closed.");
+        }
+
+        if(!permits.tryAcquire(options.maxWaitMillis,
+                                        TimeUnit.MILLISECONDS)) {
+            throw new RClientException("RClientPool exhausted, no " +
+                "connection available after " + options.maxWaitMillis +
+                "ms, maxSize=" + options.maxSize);
+        }
+
+        PooledClient pc = null;
+        try {
+
+            while((pc = idle.pollFirst()) != null) {
+                if(needsValidation(pc) && !validate(pc)) {
+                    destroy(pc);
+                    continue;
+                }
+                break;
+            }
+
+            if(pc == null) {
+                pc = create();
+            }
+
+            pc.touch();
+            borrowed.add(pc);
+            return pc;
+
+        } finally {
+            if(pc == null) {
+                permits.release();
+            }
+        }
+    }
+
+    /*
+     * release
+     *
+     * Returns a borrowed connection to the pool for reuse.
+     */
+    public void release(PooledClient pc) {
+
+        if(pc == null || !borrowed.remove(pc)) {
+            return;
+        }
+
+        pc.touch();
+        if(closed || open.get() > options.maxSize) {
+            destroy(pc);
+        } else {
+            // LIFO reuse keeps the most recently used sessions warm.
+            idle.offerFirst(pc);
+        }
+        permits.release();
+    }
+
+    /*
+     * invalidate
+     *
+     * Discards a borrowed connection that is no longer usable, for
+     * example following a connection failure. The next borrow call
+     * establishes a replacement.
+     */
+    public void invalidate(PooledClient pc) {
+
+        if(pc == null || !borrowed.remove(pc)) {
+            return;
+        }
+
+        destroy(pc);
+        permits.release();
+    }
+
+    /*
+     * reauthenticate
+     *
+     * Re-authenticates a borrowed connection in place, intended for
+     * callers that received an RSecurityException indicating their
+     * HTTP session on the server has expired.
+     */
+    public void reauthenticate(PooledClient pc)
+        throws RClientException, RSecurityException {
+
+        if(options.username == null) {
+            return;
+        }
+        pc.setUser(pc.getClient().login(buildAuthentication()));
+        pc.validated();
+        log.info("[ AUTHENTICATION ] Re-authenticated pooled " +
+                    "connection [ RUser ].");
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    public int getOpenCount() {
+        return open.get();
+    }
+
+    /*
+     * close
+     *
+     * Releases all idle connections. Connections still on loan
+     * are released as they are returned to the pool.
+     */
+    public void close() {
+
+        closed = true;
+        evictor.shutdownNow();
+        PooledClient pc;
+        while((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    private PooledClient create()
+        throws RClientException, RSecurityException {
+
+        RClientProvider provider = options.clientProvider != null ?
+            options.clientProvider : RClientProvider.DEFAULT;
+        RClient rClient;
+        if(options.metrics != null) {
+            try(PhaseTimer timer = options.metrics.start(Phase.CONNECTION)) {
+                rClient = provider.createClient(options.endpoint);
+                timer.succeeded();
+            }
+            rClient = InstrumentedProxy.wrap(rClient, RClient.class,
+                                             options.metrics);
+        } else {
+            rClient = provider.createClient(options.endpoint);
+        }
+        open.incrementAndGet();
+
+        try {
+            RUser rUser = null;
+            if(options.username != null) {
+                rUser = rClient.login(buildAuthentication());
+            }
+            log.debug("[   CONNECTION   ] Established pooled connection, " +
+                    "authenticated=" + (rUser != null) +
+                    ", open=" + open.get());
+            return new PooledClient(rClient, rUser);
+        } catch(RClientException cex) {
+            open.decrementAndGet();
+            rClient.release();
+            throw cex;
+        } catch(RSecurityException sex) {
+            open.decrementAndGet();
+            rClient.release();
+            throw sex;
+        }
+    }
+
+    private boolean needsValidation(PooledClient pc) {
+        return System.currentTimeMillis() - pc.getLastValidatedAt() >
+                                        options.validationIntervalMillis;
+    }
+
+    /*
+     * validate
+     *
+     * Anonymous connections carry no server-side session state so
+     * only authenticated connections are checked. A security failure
+     * is treated as session expiry and answered with a fresh login
+     * on the same RClient connection.
+     */
+    private boolean validate(PooledClient pc) {
+
+        if(!pc.isAuthenticated()) {
+            pc.validated();
+            return true;
+        }
+
+        try {
+            pc.getUser().listProjects();
+            pc.validated();
+            return true;
+        } catch(RSecurityException sex) {
+            try {
+                reauthenticate(pc);
+                return true;
+            } catch(Exception ex) {
+                log.warn("Pooled connection re-authentication failed, " +
+                                                            "ex=" + ex);
+                return false;
+            }
+        } catch(Exception ex) {
+            log.warn("Pooled connection health check failed, ex=" + ex);
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+
+        long now = System.currentTimeMillis();
+        for(PooledClient pc : idle) {
+            if(now - pc.getLastUsedAt() > options.idleTimeoutMillis &&
+                                                    idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+    }
+
+    private void destroy(PooledClient pc) {
+
+        open.decrementAndGet();
+        try {
+            if(pc.isAuthenticated()) {
+                pc.getClient().logout(pc.getUser());
+            }
+        } catch(Exception ex) {
+        }
+        try {
+            pc.getClient().release();
+        } catch(Exception ex) {
+        }
+    }
+
+    private RAuthentication buildAuthentication() {
+        return new RBasicAuthentication(options.username, options.password);
+    }
+
+}
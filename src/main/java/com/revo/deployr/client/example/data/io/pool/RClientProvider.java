@@ -0,0 +1,36 @@
+/*
+ * RClientProvider.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.factory.*;
+
+/*
+ * RClientProvider
+ *
+ * Source of new RClient connections for an RClientPool. The default
+ * provider delegates to RClientFactory, alternatives such as an
+ * in-process stand-in server can be set on ClientPoolOptions.
+ */
+public interface RClientProvider {
+
+    RClientProvider DEFAULT = new RClientProvider() {
+        public RClient createClient(String endpoint)
+            throws RClientException {
+            return RClientFactory.createClient(endpoint);
+        }
+    };
+
+    RClient createClient(String endpoint) throws RClientException;
+
+}
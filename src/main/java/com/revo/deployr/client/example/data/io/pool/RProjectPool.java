@@ -0,0 +1,539 @@
+/*
+ * RProjectPool.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.pool;
+
+import com.revo.deployr.client.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * RProjectPool
+ *
+ * A pool of pre-created temporary projects (R sessions), keyed by
+ * PreloadSpec, so stateful executions no longer pay for R session
+ * creation and workspace preload on the request path.
+ *
+ * All pooled projects are owned by a single authenticated connection
+ * held for the lifetime of the pool, logged in again, or replaced,
+ * when its HTTP session on the server expires. A background
+ * replenisher keeps
+ * minIdle pre-heated projects available for every spec that has been
+ * requested, bounded by maxSize per spec.
+ *
+ * When resetOnCheckin is enabled, the workspace and working directory
+ * files of each new project are saved to a snapshot in its working
+ * directory immediately after creation. Returned projects are restored
+ * from that snapshot before reuse, workspace objects are replaced and
+ * working directory files not in the snapshot are deleted, so neither
+ * leak from one checkout to the next.
+ *
+ * Usage:
+ *
+ * PooledProject pp = projectPool.checkout(
+ *     PreloadSpec.workspace("hipStar.rData", "example-data-io", "testuser"));
+ * try {
+ *     RProjectExecution exec = pp.getProject().executeScript(...);
+ * } finally {
+ *     projectPool.checkin(pp);
+ * }
+ */
+public class RProjectPool {
+
+    private static Logger log = Logger.getLogger(RProjectPool.class);
+
+    private static final String SNAPSHOT_FILE = ".pool.snapshot.rData";
+    private static final String SNAPSHOT_DIRECTORY = ".pool.snapshot";
+
+    private static final String SNAPSHOT_CODE =
+        "local({ " +
+            "files <- list.files(all.files = TRUE, no.. = TRUE); " +
+            "save.image(file = '" + SNAPSHOT_FILE + "'); " +
+            "dir.create('" + SNAPSHOT_DIRECTORY + "'); " +
+            "file.copy(files, '" + SNAPSHOT_DIRECTORY + "', " +
+                                            "recursive = TRUE) })";
+
+    private static final String RESET_CODE =
+        "rm(list = ls(all.names = TRUE)); " +
+        "unlink(setdiff(list.files(all.files = TRUE, no.. = TRUE), " +
+            "c('" + SNAPSHOT_FILE + "', '" + SNAPSHOT_DIRECTORY + "')), " +
+            "recursive = TRUE); " +
+        "file.copy(list.files('" + SNAPSHOT_DIRECTORY + "', " +
+            "all.files = TRUE, no.. = TRUE, full.names = TRUE), '.', " +
+            "recursive = TRUE); " +
+        "load('" + SNAPSHOT_FILE + "')";
+
+    private final RClientPool clientPool;
+    private volatile PooledClient owner;
+    private final ProjectPoolOptions options;
+    private final ConcurrentHashMap<PreloadSpec, SubPool> subPools =
+        new ConcurrentHashMap<PreloadSpec, SubPool>();
+    private final ScheduledExecutorService replenisher;
+    private volatile boolean closed;
+
+    /*
+     * Borrows the owning authenticated connection from clientPool for
+     * the lifetime of this pool.
+     */
+    public RProjectPool(RClientPool clientPool, ProjectPoolOptions options)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        if(options.maxSize < 1 || options.minIdle > options.maxSize) {
+            throw new IllegalArgumentException("RProjectPool requires " +
+                "1 <= maxSize and minIdle <= maxSize.");
+        }
+
+        this.clientPool = clientPool;
+        this.options = options;
+        this.owner = clientPool.borrow();
+
+        if(!owner.isAuthenticated()) {
+            clientPool.release(owner);
+            throw new IllegalArgumentException("RProjectPool requires " +
+                "an authenticated RClientPool.");
+        }
+
+        this.replenisher = Executors.newScheduledThreadPool(
+            Math.max(1, options.replenishThreads),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "RProjectPool-replenisher-" +
+                                                count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        this.replenisher.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    replenishAll();
+                }
+            }, options.replenishIntervalMillis,
+               options.replenishIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * warmUp
+     *
+     * Registers spec with the pool and synchronously creates projects
+     * until minIdle projects are idle. Call at application start-up
+     * so the first checkout is already served from the pool.
+     */
+    public void warmUp(PreloadSpec spec)
+        throws RClientException, RSecurityException {
+
+        SubPool sub = subPool(spec);
+        while(sub.idle.size() < options.minIdle && sub.reserve()) {
+            sub.idle.offerLast(create(sub));
+        }
+    }
+
+    /*
+     * checkout
+     *
+     * Returns an idle pre-heated project for spec, creating one on
+     * the calling thread only when none is idle. Blocks for at most
+     * maxWaitMillis in total when maxSize projects are already checked
+     * out or being reset.
+     */
+    public PooledProject checkout(PreloadSpec spec)
+        throws RClientException, RSecurityException, InterruptedException {
+
+        if(closed) {
+            throw new IllegalStateException("RProjectPool is closed.");
+        }
+
+        SubPool sub = subPool(spec);
+        long deadline = System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(options.maxWaitMillis);
+        if(!sub.permits.tryAcquire(options.maxWaitMillis,
+                                        TimeUnit.MILLISECONDS)) {
+            throw new RClientException("RProjectPool exhausted for " +
+                spec + ", no project available after " +
+                options.maxWaitMillis + "ms, maxSize=" + options.maxSize);
+        }
+
+        PooledProject pp = null;
+        try {
+
+            while(pp == null) {
+                pp = sub.idle.pollFirst();
+                if(pp == null) {
+                    if(sub.reserve()) {
+                        pp = create(sub);
+                        break;
+                    }
+                    /*
+                     * All projects are checked out or being reset,
+                     * wait for one to become idle for what remains of
+                     * maxWaitMillis.
+                     */
+                    pp = sub.idle.pollFirst(deadline - System.nanoTime(),
+                                            TimeUnit.NANOSECONDS);
+                    if(pp == null) {
+                        throw new RClientException("RProjectPool timed " +
+                            "out waiting for a project reset for " + spec);
+                    }
+                }
+                if(needsValidation(pp) && !ping(pp)) {
+                    destroy(sub, pp);
+                    pp = null;
+                }
+            }
+
+            pp.touch();
+            sub.checkedOut.add(pp);
+            return pp;
+
+        } finally {
+            if(pp == null) {
+                sub.permits.release();
+            }
+            scheduleReplenish(sub);
+        }
+    }
+
+    /*
+     * checkin
+     *
+     * Returns a checked out project to the pool. When resetOnCheckin
+     * is enabled the workspace is restored in the background and the
+     * project becomes available again once the reset completes.
+     */
+    public void checkin(final PooledProject pp) {
+
+        final SubPool sub = subPools.get(pp.getSpec());
+        if(sub == null || !sub.checkedOut.remove(pp)) {
+            return;
+        }
+        sub.permits.release();
+        pp.touch();
+
+        if(closed) {
+            destroy(sub, pp);
+            return;
+        }
+
+        if(!options.resetOnCheckin) {
+            sub.idle.offerFirst(pp);
+            return;
+        }
+
+        /*
+         * Whichever of the reset and close removes pp from resetting
+         * owns it, so a project is never both returned and destroyed.
+         */
+        sub.resetting.add(pp);
+        try {
+            replenisher.execute(new Runnable() {
+                public void run() {
+                    reset(sub, pp);
+                }
+            });
+        } catch(RejectedExecutionException rex) {
+            // Pool closed concurrently.
+            if(sub.resetting.remove(pp)) {
+                destroy(sub, pp);
+            }
+        }
+    }
+
+    private void reset(SubPool sub, PooledProject pp) {
+
+        boolean reset = false;
+        if(!closed) {
+            try {
+                pp.getProject().executeCode(RESET_CODE);
+                pp.touch();
+                reset = true;
+            } catch(Exception ex) {
+                log.warn("Pooled project workspace reset failed, " +
+                                    "discarding project, ex=" + ex);
+            }
+        }
+        if(!sub.resetting.remove(pp)) {
+            return;
+        }
+        if(reset && !closed) {
+            sub.idle.offerFirst(pp);
+            if(!closed || !sub.idle.remove(pp)) {
+                return;
+            }
+        }
+        destroy(sub, pp);
+    }
+
+    /*
+     * invalidate
+     *
+     * Discards a checked out project whose R session is no longer
+     * usable. The replenisher creates a replacement.
+     */
+    public void invalidate(PooledProject pp) {
+
+        SubPool sub = subPools.get(pp.getSpec());
+        if(sub == null || !sub.checkedOut.remove(pp)) {
+            return;
+        }
+        sub.permits.release();
+        destroy(sub, pp);
+        scheduleReplenish(sub);
+    }
+
+    public int getIdleCount(PreloadSpec spec) {
+        SubPool sub = subPools.get(spec);
+        return sub != null ? sub.idle.size() : 0;
+    }
+
+    public int getOpenCount(PreloadSpec spec) {
+        SubPool sub = subPools.get(spec);
+        return sub != null ? sub.open.get() : 0;
+    }
+
+    /*
+     * close
+     *
+     * Closes all idle projects and returns the owning connection to
+     * the RClientPool. Waits up to maxWaitMillis for workspace resets
+     * and replenishment in flight, closing the projects they return.
+     * Projects still checked out are closed as they are checked in.
+     */
+    public void close() {
+
+        closed = true;
+        replenisher.shutdown();
+        try {
+            if(!replenisher.awaitTermination(options.maxWaitMillis,
+                                             TimeUnit.MILLISECONDS)) {
+                replenisher.shutdownNow();
+            }
+        } catch(InterruptedException iex) {
+            replenisher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for(SubPool sub : subPools.values()) {
+            for(PooledProject pp : sub.resetting) {
+                if(sub.resetting.remove(pp)) {
+                    destroy(sub, pp);
+                }
+            }
+            PooledProject pp;
+            while((pp = sub.idle.pollFirst()) != null) {
+                destroy(sub, pp);
+            }
+        }
+        clientPool.release(owner);
+    }
+
+    private SubPool subPool(PreloadSpec spec) {
+
+        SubPool sub = subPools.get(spec);
+        if(sub == null) {
+            SubPool created = new SubPool(spec, options.maxSize);
+            sub = subPools.putIfAbsent(spec, created);
+            if(sub == null) {
+                sub = created;
+            }
+        }
+        return sub;
+    }
+
+    /*
+     * create
+     *
+     * Caller must have reserved capacity on sub.
+     */
+    private PooledProject create(SubPool sub)
+        throws RClientException, RSecurityException {
+
+        long started = System.currentTimeMillis();
+        RProject rProject = null;
+        try {
+            RUser rUser = owner.getUser();
+            try {
+                rProject = createProject(rUser, sub.spec);
+            } catch(RSecurityException sex) {
+                renewOwner(rUser);
+                rProject = createProject(owner.getUser(), sub.spec);
+            }
+            if(options.resetOnCheckin) {
+                rProject.executeCode(SNAPSHOT_CODE);
+            }
+            log.debug("[  GO STATEFUL   ] Pre-heated pooled R session " +
+                "[ RProject ] for " + sub.spec + " in " +
+                (System.currentTimeMillis() - started) + "ms.");
+            return new PooledProject(rProject, sub.spec);
+        } catch(RClientException cex) {
+            discard(sub, rProject);
+            throw cex;
+        } catch(RSecurityException sex) {
+            discard(sub, rProject);
+            throw sex;
+        } catch(RuntimeException rex) {
+            discard(sub, rProject);
+            throw rex;
+        }
+    }
+
+    private static RProject createProject(RUser rUser, PreloadSpec spec)
+        throws RClientException, RSecurityException {
+
+        return spec.isEmpty() ? rUser.createProject() :
+                                rUser.createProject(spec.toCreationOptions());
+    }
+
+    /*
+     * renewOwner
+     *
+     * Re-establishes the owning connection after a security failure
+     * for expiredUser, treated as expiry of its HTTP session on the
+     * server as RClientPool does: a fresh login on the same
+     * connection, or when that fails a replacement connection from
+     * the RClientPool. Projects of the expired session fail their
+     * next validation and are replaced.
+     */
+    private synchronized void renewOwner(RUser expiredUser)
+        throws RClientException, RSecurityException {
+
+        PooledClient current = owner;
+        if(current.getUser() != expiredUser) {
+            // Already renewed by another thread.
+            return;
+        }
+        try {
+            clientPool.reauthenticate(current);
+            return;
+        } catch(RClientException cex) {
+            log.warn("Pool owner re-authentication failed, replacing " +
+                                            "connection, ex=" + cex);
+        }
+        clientPool.invalidate(current);
+        try {
+            PooledClient replacement = clientPool.borrow();
+            if(!replacement.isAuthenticated()) {
+                clientPool.release(replacement);
+                throw new RSecurityException("RProjectPool owner " +
+                                    "replacement is not authenticated.");
+            }
+            owner = replacement;
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new RClientException("Interrupted replacing the " +
+                                       "RProjectPool owner connection.");
+        }
+    }
+
+    private boolean needsValidation(PooledProject pp) {
+        return System.currentTimeMillis() - pp.getLastUsedAt() >
+                                        options.validationIntervalMillis;
+    }
+
+    private boolean ping(PooledProject pp) {
+        try {
+            return pp.getProject().ping();
+        } catch(Exception ex) {
+            return false;
+        }
+    }
+
+    private void scheduleReplenish(final SubPool sub) {
+
+        if(closed || sub.idle.size() >= options.minIdle) {
+            return;
+        }
+        try {
+            replenisher.execute(new Runnable() {
+                public void run() {
+                    replenish(sub);
+                }
+            });
+        } catch(RejectedExecutionException rex) {
+        }
+    }
+
+    private void replenishAll() {
+        for(SubPool sub : subPools.values()) {
+            replenish(sub);
+        }
+    }
+
+    private void replenish(SubPool sub) {
+
+        while(!closed && sub.idle.size() < options.minIdle &&
+                                                    sub.reserve()) {
+            try {
+                sub.idle.offerLast(create(sub));
+            } catch(Exception ex) {
+                log.warn("Pooled project replenish failed for " +
+                                        sub.spec + ", ex=" + ex);
+                return;
+            }
+        }
+    }
+
+    private void destroy(SubPool sub, PooledProject pp) {
+        discard(sub, pp.getProject());
+    }
+
+    private void discard(SubPool sub, RProject rProject) {
+
+        sub.open.decrementAndGet();
+        if(rProject != null) {
+            try {
+                rProject.close();
+            } catch(Exception ex) {
+            }
+        }
+    }
+
+    /*
+     * Per-spec bookkeeping. Permits bound checked out projects while
+     * open bounds idle, resetting and checked out projects.
+     */
+    private static class SubPool {
+
+        final PreloadSpec spec;
+        final int maxSize;
+        final Semaphore permits;
+        final LinkedBlockingDeque<PooledProject> idle =
+            new LinkedBlockingDeque<PooledProject>();
+        final Set<PooledProject> checkedOut =
+            Collections.newSetFromMap(
+                new ConcurrentHashMap<PooledProject, Boolean>());
+        final Set<PooledProject> resetting =
+            Collections.newSetFromMap(
+                new ConcurrentHashMap<PooledProject, Boolean>());
+        final AtomicInteger open = new AtomicInteger();
+
+        SubPool(PreloadSpec spec, int maxSize) {
+            this.spec = spec;
+            this.maxSize = maxSize;
+            this.permits = new Semaphore(maxSize, true);
+        }
+
+        boolean reserve() {
+            while(true) {
+                int current = open.get();
+                if(current >= maxSize) {
+                    return false;
+                }
+                if(open.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+}
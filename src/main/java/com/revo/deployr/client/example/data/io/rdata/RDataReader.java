@@ -0,0 +1,780 @@
+/*
+ * RDataReader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.rdata;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.math.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.log4j.Logger;
+
+/*
+ * RDataReader
+ *
+ * Pure Java, streaming decoder for the files R writes with save()
+ * (.rData workspaces) and saveRDS() (.rds), in the default XDR binary
+ * serialization format, versions 2 and 3, uncompressed or gzip
+ * compressed. Objects are decoded straight from the download stream
+ * into the columnar structures described in RWorkspace, no copy of
+ * the file is held in memory.
+ *
+ * Only the objects asked for are materialized, the others are
+ * parsed past without allocating their values, and reading stops as
+ * soon as every requested object has been found.
+ *
+ * Not supported: the ASCII and native binary formats, bzip2 and xz
+ * compression and the persistent references of custom hooks. Row
+ * names of data.frames are not retained.
+ *
+ * Usage:
+ *
+ * RWorkspace workspace = RDataReader.read(wdFile.download(), "hip");
+ * ColumnarTable hip = workspace.getDataFrame("hip");
+ */
+public class RDataReader {
+
+    private static Logger log = Logger.getLogger(RDataReader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /*
+     * SEXP types, see serialize.c and Rinternals.h in the R sources.
+     */
+    private static final int SYMSXP = 1;
+    private static final int LISTSXP = 2;
+    private static final int CLOSXP = 3;
+    private static final int ENVSXP = 4;
+    private static final int PROMSXP = 5;
+    private static final int LANGSXP = 6;
+    private static final int SPECIALSXP = 7;
+    private static final int BUILTINSXP = 8;
+    private static final int CHARSXP = 9;
+    private static final int LGLSXP = 10;
+    private static final int INTSXP = 13;
+    private static final int REALSXP = 14;
+    private static final int CPLXSXP = 15;
+    private static final int STRSXP = 16;
+    private static final int DOTSXP = 17;
+    private static final int VECSXP = 19;
+    private static final int EXPRSXP = 20;
+    private static final int BCODESXP = 21;
+    private static final int EXTPTRSXP = 22;
+    private static final int WEAKREFSXP = 23;
+    private static final int RAWSXP = 24;
+    private static final int S4SXP = 25;
+
+    private static final int ALTREP_SXP = 238;
+    private static final int ATTRLISTSXP = 239;
+    private static final int ATTRLANGSXP = 240;
+    private static final int BASEENV_SXP = 241;
+    private static final int EMPTYENV_SXP = 242;
+    private static final int BCREPREF = 243;
+    private static final int BCREPDEF = 244;
+    private static final int PERSISTSXP = 247;
+    private static final int PACKAGESXP = 248;
+    private static final int NAMESPACESXP = 249;
+    private static final int BASENAMESPACE_SXP = 250;
+    private static final int MISSINGARG_SXP = 251;
+    private static final int UNBOUNDVALUE_SXP = 252;
+    private static final int GLOBALENV_SXP = 253;
+    private static final int NILVALUE_SXP = 254;
+    private static final int REFSXP = 255;
+
+    private static final int HAS_ATTR = 1 << 9;
+    private static final int HAS_TAG = 1 << 10;
+
+    private static final int BYTES_MASK = 1 << 1;
+    private static final int LATIN1_MASK = 1 << 2;
+
+    private final DataInputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final List<Object> refs = new ArrayList<Object>();
+    private Charset nativeCharset = StandardCharsets.UTF_8;
+
+    private RDataReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /*
+     * read
+     *
+     * Decodes the workspace saved to in, limited to the named objects
+     * when any are given. The stream is read no further than needed
+     * and is not closed.
+     */
+    public static RWorkspace read(InputStream in, String... names)
+        throws IOException {
+
+        RDataReader reader = new RDataReader(decompress(in));
+        byte[] magic = new byte[5];
+        reader.in.readFully(magic);
+        String format = new String(magic, StandardCharsets.US_ASCII);
+        if(!format.equals("RDX2\n") && !format.equals("RDX3\n")) {
+            throw new IOException(format.startsWith("RD") ?
+                "Only XDR R workspace files are supported, found " +
+                    format.trim() + "." :
+                "Not an R workspace file.");
+        }
+        reader.readHeader();
+        return new RWorkspace(reader.readWorkspace(names.length > 0 ?
+            new HashSet<String>(Arrays.asList(names)) : null));
+    }
+
+    /*
+     * readRds
+     *
+     * Decodes the single object written by saveRDS to in, null when
+     * its type is not one RWorkspace holds. The stream is not closed.
+     */
+    public static Object readRds(InputStream in) throws IOException {
+
+        RDataReader reader = new RDataReader(decompress(in));
+        reader.readHeader();
+        return convert(reader.readItem(true));
+    }
+
+    private static InputStream decompress(InputStream in)
+        throws IOException {
+
+        BufferedInputStream buffered =
+            new BufferedInputStream(in, BUFFER_SIZE);
+        byte[] magic = new byte[5];
+        buffered.mark(magic.length);
+        int n = IOUtils.read(buffered, magic);
+        buffered.reset();
+
+        if(n >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return new BufferedInputStream(
+                new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+        } else
+        if(n >= 3 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h') {
+            throw new IOException("bzip2 compressed R files are not " +
+                "supported, save with compress=\"gzip\".");
+        } else
+        if(n == 5 && (magic[0] & 0xff) == 0xfd && magic[1] == '7' &&
+                magic[2] == 'z' && magic[3] == 'X' && magic[4] == 'Z') {
+            throw new IOException("xz compressed R files are not " +
+                "supported, save with compress=\"gzip\".");
+        }
+        return buffered;
+    }
+
+    /*
+     * readHeader
+     *
+     * Serialization header: format, version, writer and minimal reader
+     * R versions and, from version 3, the native encoding of strings
+     * not flagged otherwise.
+     */
+    private void readHeader() throws IOException {
+
+        int format = in.readUnsignedByte();
+        if(format != 'X' || in.readUnsignedByte() != '\n') {
+            throw new IOException("Only the XDR R serialization format " +
+                "is supported, found '" + (char) format + "'.");
+        }
+        int version = in.readInt();
+        in.readInt();
+        in.readInt();
+        if(version == 3) {
+            int length = in.readInt();
+            byte[] encoding = new byte[length];
+            in.readFully(encoding);
+            try {
+                nativeCharset = Charset.forName(
+                    new String(encoding, StandardCharsets.US_ASCII));
+            } catch(IllegalArgumentException iaex) {
+                nativeCharset = StandardCharsets.UTF_8;
+            }
+        } else
+        if(version != 2) {
+            throw new IOException("Unsupported R serialization version " +
+                                  version + ".");
+        }
+    }
+
+    /*
+     * readWorkspace
+     *
+     * A workspace is a pairlist tagged with the object names.
+     */
+    private Map<String, Object> readWorkspace(Set<String> wanted)
+        throws IOException {
+
+        Map<String, Object> objects = new LinkedHashMap<String, Object>();
+        int found = 0;
+        int flags = in.readInt();
+        while((flags & 0xff) == LISTSXP) {
+            if((flags & HAS_ATTR) != 0) {
+                readItem(false);
+            }
+            String name = (flags & HAS_TAG) != 0 ?
+                            nameOf(readItem(true)) : null;
+            boolean keep = name != null &&
+                            (wanted == null || wanted.contains(name));
+            Object value = readItem(keep);
+            if(keep) {
+                found++;
+                Object object = convert(value);
+                if(object != null) {
+                    objects.put(name, object);
+                } else {
+                    log.debug("RDataReader skipped R object " + name +
+                              " of unsupported type.");
+                }
+                if(wanted != null && found == wanted.size()) {
+                    return objects;
+                }
+            }
+            flags = in.readInt();
+        }
+        if((flags & 0xff) != NILVALUE_SXP) {
+            throw new IOException("Malformed R workspace file, " +
+                                  "unexpected type " + (flags & 0xff) + ".");
+        }
+        return objects;
+    }
+
+    private Object readItem(boolean keep) throws IOException {
+        return readItem(in.readInt(), keep);
+    }
+
+    /*
+     * readItem
+     *
+     * Reads one serialized object. Values are only allocated when
+     * keep is true, symbols are always read as later references may
+     * point back to them.
+     */
+    private Object readItem(int flags, boolean keep) throws IOException {
+
+        int type = flags & 0xff;
+        switch(type) {
+            case NILVALUE_SXP:
+            case EMPTYENV_SXP:
+            case BASEENV_SXP:
+            case GLOBALENV_SXP:
+            case UNBOUNDVALUE_SXP:
+            case MISSINGARG_SXP:
+            case BASENAMESPACE_SXP:
+                return null;
+            case REFSXP:
+                int index = flags >> 8;
+                return refs.get((index != 0 ? index : in.readInt()) - 1);
+            case PERSISTSXP:
+            case PACKAGESXP:
+            case NAMESPACESXP:
+                readStrings();
+                refs.add(null);
+                return null;
+            case SYMSXP:
+                Symbol symbol = new Symbol((String) readItem(true));
+                refs.add(symbol);
+                return symbol;
+            case ENVSXP:
+                refs.add(null);
+                in.readInt();
+                readItem(false);
+                readItem(false);
+                readItem(false);
+                readItem(false);
+                return null;
+            case LISTSXP:
+            case LANGSXP:
+            case CLOSXP:
+            case PROMSXP:
+            case DOTSXP:
+                return readPairlist(flags, keep);
+            case ALTREP_SXP:
+                return readAltrep(keep);
+            default:
+                Object data = readData(flags, keep);
+                Object attributes = (flags & HAS_ATTR) != 0 ?
+                                        readItem(keep && data != null) : null;
+                if(type == CHARSXP || data == null) {
+                    return data;
+                }
+                return new Value(data, attributes);
+        }
+    }
+
+    /*
+     * readPairlist
+     *
+     * Pairlists are read iteratively, other node types recursively
+     * and only ever skipped.
+     */
+    private Object readPairlist(int flags, boolean keep) throws IOException {
+
+        int type = flags & 0xff;
+        Pairlist list = keep && type == LISTSXP ? new Pairlist() : null;
+        while(true) {
+            if((flags & HAS_ATTR) != 0) {
+                readItem(false);
+            }
+            Object tag = (flags & HAS_TAG) != 0 ? readItem(true) : null;
+            Object car = readItem(list != null);
+            if(list != null) {
+                list.add(nameOf(tag), car);
+            }
+            flags = in.readInt();
+            if(type != LISTSXP || (flags & 0xff) != LISTSXP) {
+                readItem(flags, false);
+                return list;
+            }
+        }
+    }
+
+    /*
+     * readData
+     *
+     * The content of a vector or other non-pairlist object, null
+     * when skipped or of a type RWorkspace does not hold.
+     */
+    private Object readData(int flags, boolean keep) throws IOException {
+
+        int type = flags & 0xff;
+        int length;
+        switch(type) {
+            case CHARSXP:
+                length = in.readInt();
+                if(length == -1) {
+                    return null;
+                }
+                if(!keep) {
+                    IOUtils.skipFully(in, length);
+                    return null;
+                }
+                byte[] bytes = length <= buffer.length ?
+                                    buffer : new byte[length];
+                in.readFully(bytes, 0, length);
+                return new String(bytes, 0, length, charsetOf(flags));
+            case LGLSXP:
+            case INTSXP:
+                length = readLength();
+                if(!keep) {
+                    IOUtils.skipFully(in, 4L * length);
+                    return null;
+                }
+                return readInts(length);
+            case REALSXP:
+                length = readLength();
+                if(!keep) {
+                    IOUtils.skipFully(in, 8L * length);
+                    return null;
+                }
+                return readDoubles(length);
+            case CPLXSXP:
+                IOUtils.skipFully(in, 16L * readLength());
+                return null;
+            case RAWSXP:
+                IOUtils.skipFully(in, readLength());
+                return null;
+            case STRSXP:
+                length = readLength();
+                String[] strings = keep ? new String[length] : null;
+                for(int i = 0; i < length; i++) {
+                    Object value = readItem(keep);
+                    if(keep) {
+                        strings[i] = (String) value;
+                    }
+                }
+                return strings;
+            case VECSXP:
+            case EXPRSXP:
+                length = readLength();
+                List<Object> elements = keep ?
+                    new ArrayList<Object>(length) : null;
+                for(int i = 0; i < length; i++) {
+                    Object value = readItem(keep);
+                    if(keep) {
+                        elements.add(value);
+                    }
+                }
+                return type == VECSXP ? elements : null;
+            case SPECIALSXP:
+            case BUILTINSXP:
+                IOUtils.skipFully(in, in.readInt());
+                return null;
+            case EXTPTRSXP:
+                refs.add(null);
+                readItem(false);
+                readItem(false);
+                return null;
+            case WEAKREFSXP:
+                refs.add(null);
+                return null;
+            case BCODESXP:
+                in.readInt();
+                skipBytecode();
+                return null;
+            case S4SXP:
+                return null;
+            default:
+                throw new IOException("Unsupported R object type " +
+                                      type + ".");
+        }
+    }
+
+    /*
+     * readAltrep
+     *
+     * Compact and wrapped vectors R 3.5 and later may write in
+     * version 3 files, expanded to ordinary vectors.
+     */
+    private Object readAltrep(boolean keep) throws IOException {
+
+        Pairlist info = (Pairlist) readItem(true);
+        Object state = readItem(keep);
+        Object attributes = readItem(keep);
+        if(!keep) {
+            return null;
+        }
+
+        String altrep = nameOf(info.values.get(0));
+        Object data;
+        if("compact_intseq".equals(altrep)) {
+            double[] seq = (double[]) ((Value) state).data;
+            int[] ints = new int[(int) seq[0]];
+            for(int i = 0; i < ints.length; i++) {
+                ints[i] = (int) (seq[1] + i * seq[2]);
+            }
+            data = ints;
+        } else
+        if("compact_realseq".equals(altrep)) {
+            double[] seq = (double[]) ((Value) state).data;
+            double[] doubles = new double[(int) seq[0]];
+            for(int i = 0; i < doubles.length; i++) {
+                doubles[i] = seq[1] + i * seq[2];
+            }
+            data = doubles;
+        } else
+        if("deferred_string".equals(altrep)) {
+            data = asStrings(((Value) ((Pairlist) state).values.get(0)).data);
+        } else
+        if(altrep != null && altrep.startsWith("wrap_")) {
+            data = ((Value) ((List<?>) ((Value) state).data).get(0)).data;
+        } else {
+            throw new IOException("Unsupported R ALTREP class " +
+                                  altrep + ".");
+        }
+        return new Value(data, attributes);
+    }
+
+    /*
+     * skipBytecode
+     *
+     * Byte-compiled function bodies, skipped as RWorkspace holds no
+     * functions.
+     */
+    private void skipBytecode() throws IOException {
+
+        readItem(false);
+        int constants = in.readInt();
+        for(int i = 0; i < constants; i++) {
+            int type = in.readInt();
+            switch(type) {
+                case BCODESXP:
+                    skipBytecode();
+                    break;
+                case LANGSXP:
+                case LISTSXP:
+                case BCREPDEF:
+                case BCREPREF:
+                case ATTRLANGSXP:
+                case ATTRLISTSXP:
+                    skipBytecodeLanguage(type);
+                    break;
+                default:
+                    readItem(false);
+            }
+        }
+    }
+
+    private void skipBytecodeLanguage(int type) throws IOException {
+
+        switch(type) {
+            case BCREPREF:
+                in.readInt();
+                return;
+            case BCREPDEF:
+            case LANGSXP:
+            case LISTSXP:
+            case ATTRLANGSXP:
+            case ATTRLISTSXP:
+                if(type == BCREPDEF) {
+                    in.readInt();
+                    type = in.readInt();
+                }
+                if(type == ATTRLANGSXP || type == ATTRLISTSXP) {
+                    readItem(false);
+                }
+                readItem(false);
+                skipBytecodeLanguage(in.readInt());
+                skipBytecodeLanguage(in.readInt());
+                return;
+            default:
+                readItem(false);
+        }
+    }
+
+    private void readStrings() throws IOException {
+        if(in.readInt() != 0) {
+            throw new IOException("Named persistent strings are not " +
+                                  "supported.");
+        }
+        int length = in.readInt();
+        for(int i = 0; i < length; i++) {
+            readItem(false);
+        }
+    }
+
+    private int readLength() throws IOException {
+
+        int length = in.readInt();
+        if(length != -1) {
+            return length;
+        }
+        long upper = in.readInt();
+        long lower = in.readInt() & 0xffffffffL;
+        long longLength = (upper << 32) + lower;
+        if(longLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("R vector of length " + longLength +
+                                  " exceeds the Java array limit.");
+        }
+        return (int) longLength;
+    }
+
+    /*
+     * Bulk big-endian (XDR) conversion through the byte buffer
+     * rather than one readInt or readDouble call per element.
+     */
+    private int[] readInts(int length) throws IOException {
+
+        int[] values = new int[length];
+        for(int offset = 0; offset < length; ) {
+            int count = Math.min(length - offset, buffer.length / 4);
+            in.readFully(buffer, 0, count * 4);
+            ByteBuffer.wrap(buffer, 0, count * 4).asIntBuffer()
+                                            .get(values, offset, count);
+            offset += count;
+        }
+        return values;
+    }
+
+    private double[] readDoubles(int length) throws IOException {
+
+        double[] values = new double[length];
+        for(int offset = 0; offset < length; ) {
+            int count = Math.min(length - offset, buffer.length / 8);
+            in.readFully(buffer, 0, count * 8);
+            ByteBuffer.wrap(buffer, 0, count * 8).asDoubleBuffer()
+                                            .get(values, offset, count);
+            offset += count;
+        }
+        return values;
+    }
+
+    private Charset charsetOf(int flags) {
+
+        int levels = flags >> 12;
+        if((levels & (LATIN1_MASK | BYTES_MASK)) != 0) {
+            return StandardCharsets.ISO_8859_1;
+        }
+        return levels != 0 ? StandardCharsets.UTF_8 : nativeCharset;
+    }
+
+    private static String nameOf(Object symbol) {
+        return symbol instanceof Symbol ? ((Symbol) symbol).name : null;
+    }
+
+    /*
+     * convert
+     *
+     * Maps a decoded value to the structures RWorkspace documents,
+     * null for any other type.
+     */
+    private static Object convert(Object object) {
+
+        if(!(object instanceof Value)) {
+            return null;
+        }
+        Value value = (Value) object;
+        if(value.data instanceof List) {
+            if(value.inherits("data.frame")) {
+                return dataFrame(value);
+            }
+            List<Object> elements = new ArrayList<Object>();
+            for(Object element : (List<?>) value.data) {
+                elements.add(convert(element));
+            }
+            return elements;
+        }
+        if(value.data instanceof int[] && value.inherits("factor")) {
+            int[] codes = ((int[]) value.data).clone();
+            for(int i = 0; i < codes.length; i++) {
+                if(codes[i] != ColumnType.NA_INTEGER) {
+                    codes[i]--;
+                }
+            }
+            Object levels = value.attribute("levels");
+            return new DictionaryColumn(codes, levels instanceof String[] ?
+                                        (String[]) levels : new String[0]);
+        }
+        return value.data;
+    }
+
+    private static ColumnarTable dataFrame(Value value) {
+
+        List<?> columns = (List<?>) value.data;
+        Object names = value.attribute("names");
+        List<String> kept = new ArrayList<String>();
+        List<Object> data = new ArrayList<Object>();
+        for(int i = 0; i < columns.size(); i++) {
+            String name = names instanceof String[] ?
+                ((String[]) names)[i] : "V" + (i + 1);
+            Object column = convert(columns.get(i));
+            if(column instanceof int[] || column instanceof double[] ||
+                    column instanceof String[] ||
+                    column instanceof DictionaryColumn) {
+                kept.add(name);
+                data.add(column);
+            } else {
+                log.warn("RDataReader dropped data.frame column " + name +
+                         " of unsupported type.");
+            }
+        }
+
+        int rows;
+        Object rowNames = value.attribute("row.names");
+        if(rowNames instanceof int[] && ((int[]) rowNames).length == 2 &&
+                ((int[]) rowNames)[0] == ColumnType.NA_INTEGER) {
+            rows = Math.abs(((int[]) rowNames)[1]);
+        } else
+        if(rowNames instanceof int[]) {
+            rows = ((int[]) rowNames).length;
+        } else
+        if(rowNames instanceof String[]) {
+            rows = ((String[]) rowNames).length;
+        } else {
+            rows = columns.isEmpty() ? 0 : lengthOf(columns.get(0));
+        }
+        return new ColumnarTable(kept.toArray(new String[kept.size()]),
+                                 data.toArray(), rows);
+    }
+
+    private static int lengthOf(Object object) {
+        Object data = object instanceof Value ? ((Value) object).data : null;
+        if(data instanceof int[]) {
+            return ((int[]) data).length;
+        } else
+        if(data instanceof double[]) {
+            return ((double[]) data).length;
+        } else
+        if(data instanceof String[]) {
+            return ((String[]) data).length;
+        }
+        return 0;
+    }
+
+    /*
+     * asStrings
+     *
+     * as.character of a deferred string vector. Doubles are formatted
+     * with R's 15 significant digits.
+     */
+    private static String[] asStrings(Object data) {
+
+        if(data instanceof int[]) {
+            int[] ints = (int[]) data;
+            String[] strings = new String[ints.length];
+            for(int i = 0; i < ints.length; i++) {
+                strings[i] = ints[i] == ColumnType.NA_INTEGER ?
+                                        null : Integer.toString(ints[i]);
+            }
+            return strings;
+        }
+        double[] doubles = (double[]) data;
+        String[] strings = new String[doubles.length];
+        for(int i = 0; i < doubles.length; i++) {
+            double d = doubles[i];
+            strings[i] = Double.isNaN(d) ? null :
+                Double.isInfinite(d) ? (d > 0 ? "Inf" : "-Inf") :
+                new BigDecimal(d).round(new MathContext(15))
+                                 .stripTrailingZeros().toPlainString();
+        }
+        return strings;
+    }
+
+    private static final class Symbol {
+
+        private final String name;
+
+        Symbol(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Pairlist {
+
+        private final List<String> tags = new ArrayList<String>();
+        private final List<Object> values = new ArrayList<Object>();
+
+        void add(String tag, Object value) {
+            tags.add(tag);
+            values.add(value);
+        }
+
+        Object get(String tag) {
+            int i = tags.indexOf(tag);
+            return i < 0 ? null : values.get(i);
+        }
+    }
+
+    /*
+     * Value
+     *
+     * A vector with its attributes, data is an int[], double[],
+     * String[] or List of Values.
+     */
+    private static final class Value {
+
+        private final Object data;
+        private final Pairlist attributes;
+
+        Value(Object data, Object attributes) {
+            this.data = data;
+            this.attributes = attributes instanceof Pairlist ?
+                                    (Pairlist) attributes : null;
+        }
+
+        Object attribute(String name) {
+            Object attribute = attributes != null ?
+                                    attributes.get(name) : null;
+            return attribute instanceof Value ?
+                                    ((Value) attribute).data : null;
+        }
+
+        boolean inherits(String cls) {
+            Object classes = attribute("class");
+            return classes instanceof String[] &&
+                    Arrays.asList((String[]) classes).contains(cls);
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * RDataWriter.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.rdata;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * RDataWriter
+ *
+ * Streaming writer for R workspace (.rData) files in the gzip
+ * compressed XDR format save() writes by default, version 2, so the
+ * files load natively with load() or as a DeployR preloadWorkspace.
+ * Objects are serialized straight from their primitive columns to
+ * the compressed stream as they are written, no encoded copy is built
+ * in memory.
+ *
+ * The structures RWorkspace describes are supported: ColumnarTable
+ * as a data.frame with automatic row names, DictionaryColumn as a
+ * factor, int[] as integer, double[] as double and String[] as
+ * character vectors. NaN is written as NA, the only missing value
+ * ColumnarTable distinguishes.
+ *
+ * For large numeric frames the file is several times smaller than
+ * the DeployR-encoded RDataFrame of the same data, and R reads it
+ * without parsing JSON.
+ *
+ * Usage:
+ *
+ * RDataWriter writer = new RDataWriter(new FileOutputStream(file));
+ * try {
+ *     writer.write("hip", table);
+ * } finally {
+ *     writer.close();
+ * }
+ */
+public class RDataWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int SYMSXP = 1;
+    private static final int LISTSXP = 2;
+    private static final int CHARSXP = 9;
+    private static final int INTSXP = 13;
+    private static final int REALSXP = 14;
+    private static final int STRSXP = 16;
+    private static final int VECSXP = 19;
+    private static final int NILVALUE_SXP = 254;
+    private static final int REFSXP = 255;
+
+    private static final int IS_OBJECT = 1 << 8;
+    private static final int HAS_ATTR = 1 << 9;
+    private static final int HAS_TAG = 1 << 10;
+
+    private static final int UTF8_MASK = 1 << 3;
+    private static final int ASCII_MASK = 1 << 6;
+
+    private static final int MAX_PACKED_INDEX = Integer.MAX_VALUE >> 8;
+
+    /*
+     * R's NA_real_, a NaN with 1954 in its low word.
+     */
+    private static final long NA_REAL = 0x7ff00000000007a2L;
+
+    /*
+     * Serialization header: writer R 3.1.2, readable from R 2.3.0.
+     */
+    private static final int WRITER_VERSION = (3 << 16) | (1 << 8) | 2;
+    private static final int MIN_READER_VERSION = (2 << 16) | (3 << 8);
+
+    private final DataOutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<String, Integer> symbols =
+        new HashMap<String, Integer>();
+    private boolean closed;
+
+    /*
+     * The stream is closed by close.
+     */
+    public RDataWriter(OutputStream out) throws IOException {
+
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                        new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE));
+        this.out.writeBytes("RDX2\nX\n");
+        this.out.writeInt(2);
+        this.out.writeInt(WRITER_VERSION);
+        this.out.writeInt(MIN_READER_VERSION);
+    }
+
+    /*
+     * write
+     *
+     * Convenience to save a single object to file.
+     */
+    public static void write(File file, String name, Object object)
+        throws IOException {
+
+        RDataWriter writer = new RDataWriter(new FileOutputStream(file));
+        try {
+            writer.write(name, object);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /*
+     * write
+     *
+     * Appends object to the workspace as the R object name.
+     */
+    public RDataWriter write(String name, Object object) throws IOException {
+
+        if(closed) {
+            throw new IOException("RDataWriter closed.");
+        }
+        out.writeInt(LISTSXP | HAS_TAG);
+        writeSymbol(name);
+        writeObject(object);
+        return this;
+    }
+
+    public void close() throws IOException {
+
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.writeInt(NILVALUE_SXP);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeObject(Object object) throws IOException {
+
+        if(object instanceof ColumnarTable) {
+            writeDataFrame((ColumnarTable) object);
+        } else
+        if(object instanceof DictionaryColumn) {
+            DictionaryColumn factor = (DictionaryColumn) object;
+            writeFactor(factor, factor.getCodes().length);
+        } else
+        if(object instanceof int[]) {
+            out.writeInt(INTSXP);
+            writeInts((int[]) object, ((int[]) object).length, 0);
+        } else
+        if(object instanceof double[]) {
+            writeDoubles((double[]) object, ((double[]) object).length);
+        } else
+        if(object instanceof String[]) {
+            writeStrings((String[]) object, ((String[]) object).length);
+        } else {
+            throw new IllegalArgumentException("RDataWriter does not " +
+                "support " + (object == null ? "null" :
+                                object.getClass().getSimpleName()) + ".");
+        }
+    }
+
+    /*
+     * writeDataFrame
+     *
+     * A list of columns with names, class and compact row names
+     * c(NA, -rows) attributes, in the order save() writes them.
+     */
+    private void writeDataFrame(ColumnarTable table) throws IOException {
+
+        int rows = table.getRowCount();
+        int columns = table.getColumnCount();
+        out.writeInt(VECSXP | IS_OBJECT | HAS_ATTR);
+        out.writeInt(columns);
+        for(int col = 0; col < columns; col++) {
+            switch(table.getColumnType(col)) {
+                case INTEGER:
+                    out.writeInt(INTSXP);
+                    writeInts(table.getIntColumn(col), rows, 0);
+                    break;
+                case DOUBLE:
+                    writeDoubles(table.getDoubleColumn(col), rows);
+                    break;
+                case FACTOR:
+                    writeFactor(table.getDictionaryColumn(col), rows);
+                    break;
+                default:
+                    writeStrings(table.getStringColumn(col), rows);
+            }
+        }
+
+        writeAttribute("names");
+        writeStrings(table.getColumnNames(), columns);
+        writeAttribute("class");
+        writeStrings(new String[] { "data.frame" }, 1);
+        writeAttribute("row.names");
+        out.writeInt(INTSXP);
+        out.writeInt(2);
+        out.writeInt(ColumnType.NA_INTEGER);
+        out.writeInt(-rows);
+        out.writeInt(NILVALUE_SXP);
+    }
+
+    /*
+     * writeFactor
+     *
+     * R factor codes are 1-based, DictionaryColumn codes 0-based.
+     */
+    private void writeFactor(DictionaryColumn factor, int rows)
+        throws IOException {
+
+        out.writeInt(INTSXP | IS_OBJECT | HAS_ATTR);
+        writeInts(factor.getCodes(), rows, 1);
+        writeAttribute("levels");
+        writeStrings(factor.getLevels(), factor.getLevelCount());
+        writeAttribute("class");
+        writeStrings(new String[] { "factor" }, 1);
+        out.writeInt(NILVALUE_SXP);
+    }
+
+    private void writeAttribute(String name) throws IOException {
+        out.writeInt(LISTSXP | HAS_TAG);
+        writeSymbol(name);
+    }
+
+    /*
+     * writeSymbol
+     *
+     * The first use of a symbol is written in full, later uses as a
+     * reference to it.
+     */
+    private void writeSymbol(String name) throws IOException {
+
+        Integer index = symbols.get(name);
+        if(index == null) {
+            out.writeInt(SYMSXP);
+            writeString(name);
+            symbols.put(name, symbols.size() + 1);
+        } else
+        if(index <= MAX_PACKED_INDEX) {
+            out.writeInt((index << 8) | REFSXP);
+        } else {
+            out.writeInt(REFSXP);
+            out.writeInt(index);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+
+        if(value == null) {
+            out.writeInt(CHARSXP);
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int encoding = bytes.length == value.length() ? ASCII_MASK
+                                                      : UTF8_MASK;
+        out.writeInt(CHARSXP | (encoding << 12));
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeStrings(String[] values, int length)
+        throws IOException {
+
+        out.writeInt(STRSXP);
+        out.writeInt(length);
+        for(int i = 0; i < length; i++) {
+            writeString(values[i]);
+        }
+    }
+
+    /*
+     * Bulk big-endian (XDR) conversion through the byte buffer
+     * rather than one writeInt or writeDouble call per element. The
+     * length is written first, offset is added to every non-NA value.
+     */
+    private void writeInts(int[] values, int length, int offset)
+        throws IOException {
+
+        out.writeInt(length);
+        IntBuffer ints = buffer.asIntBuffer();
+        for(int i = 0; i < length; ) {
+            int count = Math.min(length - i, ints.capacity());
+            ints.clear();
+            if(offset == 0) {
+                ints.put(values, i, count);
+            } else {
+                for(int k = i; k < i + count; k++) {
+                    ints.put(values[k] == ColumnType.NA_INTEGER ?
+                                values[k] : values[k] + offset);
+                }
+            }
+            out.write(buffer.array(), 0, count * 4);
+            i += count;
+        }
+    }
+
+    private void writeDoubles(double[] values, int length)
+        throws IOException {
+
+        out.writeInt(REALSXP);
+        out.writeInt(length);
+        LongBuffer longs = buffer.asLongBuffer();
+        for(int i = 0; i < length; ) {
+            int count = Math.min(length - i, longs.capacity());
+            longs.clear();
+            for(int k = i; k < i + count; k++) {
+                double value = values[k];
+                longs.put(Double.isNaN(value) ? NA_REAL :
+                                Double.doubleToRawLongBits(value));
+            }
+            out.write(buffer.array(), 0, count * 8);
+            i += count;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * RWorkspace.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.rdata;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.util.*;
+
+/*
+ * RWorkspace
+ *
+ * The R objects decoded from a workspace (.rData) file by
+ * RDataReader, by name in the order they were saved. Objects are held
+ * as the same columnar Java structures WorkspaceDecoder produces for
+ * DeployR-encoded objects:
+ *
+ * - data.frame            ColumnarTable
+ * - factor                DictionaryColumn
+ * - integer, logical      int[], NA as ColumnType.NA_INTEGER
+ * - double                double[], NA as NaN
+ * - character             String[], NA as null
+ * - list                  List<Object> of the above
+ *
+ * Objects of any other type, for example functions or environments,
+ * are skipped and do not appear.
+ */
+public class RWorkspace {
+
+    private final Map<String, Object> objects;
+
+    public RWorkspace(Map<String, Object> objects) {
+        this.objects = Collections.unmodifiableMap(
+                            new LinkedHashMap<String, Object>(objects));
+    }
+
+    public Set<String> getNames() {
+        return objects.keySet();
+    }
+
+    public boolean contains(String name) {
+        return objects.containsKey(name);
+    }
+
+    public Object get(String name) {
+        return objects.get(name);
+    }
+
+    /*
+     * getDataFrame
+     *
+     * The named data.frame, null when the workspace holds no
+     * data.frame of that name.
+     */
+    public ColumnarTable getDataFrame(String name) {
+        return as(name, ColumnarTable.class);
+    }
+
+    public DictionaryColumn getFactor(String name) {
+        return as(name, DictionaryColumn.class);
+    }
+
+    public int[] getInts(String name) {
+        return as(name, int[].class);
+    }
+
+    public double[] getDoubles(String name) {
+        return as(name, double[].class);
+    }
+
+    public String[] getStrings(String name) {
+        return as(name, String[].class);
+    }
+
+    private <T> T as(String name, Class<T> type) {
+        Object object = objects.get(name);
+        return type.isInstance(object) ? type.cast(object) : null;
+    }
+
+}
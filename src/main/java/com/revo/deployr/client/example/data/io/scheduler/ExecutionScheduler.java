@@ -0,0 +1,380 @@
+/*
+ * ExecutionScheduler.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.scheduler;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * ExecutionScheduler
+ *
+ * Client-side admission control for executions, so a burst of calls
+ * queues on the client instead of piling R sessions onto the DeployR
+ * grid.
+ *
+ * An execution is admitted while fewer than maxInFlightPerServer
+ * executions run against its server and fewer than
+ * maxInFlightPerUser run for its user there. Otherwise it waits in a
+ * bounded queue. Waiting executions are admitted round-robin across
+ * callers, so one caller's burst cannot starve the others. The caller
+ * defaults to the user and can be set per thread with setCaller.
+ *
+ * Saturation is signalled to callers in three ways: acquire blocks
+ * (backpressure), tryAcquire returns null, and acquire throws
+ * SchedulerRejectedException once the queue is full or the wait
+ * exceeds maxQueueWaitMillis.
+ *
+ * Usage:
+ *
+ * try(ExecutionScheduler.Permit permit =
+ *         ExecutionScheduler.shared().acquire(endpoint, "testuser")) {
+ *     rProject.executeScript(...);
+ * }
+ *
+ * ScheduledProxy applies this to every execution made through wrapped
+ * client library handles.
+ */
+public class ExecutionScheduler {
+
+    private static Logger log = Logger.getLogger(ExecutionScheduler.class);
+
+    private static final ThreadLocal<String> caller =
+                                            new ThreadLocal<String>();
+
+    private static ExecutionScheduler shared;
+
+    private final SchedulerOptions options;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> serverInFlight =
+                                            new HashMap<String, Integer>();
+    private final Map<String, Integer> userInFlight =
+                                            new HashMap<String, Integer>();
+    private final Map<String, Integer> serverQueued =
+                                            new HashMap<String, Integer>();
+    private final LinkedHashMap<String, ArrayDeque<Ticket>> callers =
+                            new LinkedHashMap<String, ArrayDeque<Ticket>>();
+    private int queued;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ExecutionScheduler(SchedulerOptions options) {
+
+        if(options.maxInFlightPerServer < 1 ||
+                options.maxInFlightPerUser < 1 ||
+                options.queueCapacity < 0) {
+            throw new IllegalArgumentException("ExecutionScheduler " +
+                "requires 1 <= maxInFlightPerServer, " +
+                "1 <= maxInFlightPerUser and 0 <= queueCapacity.");
+        }
+        this.options = options;
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide scheduler configured from system
+     * properties, see SchedulerOptions.fromSystemProperties.
+     */
+    public static synchronized ExecutionScheduler shared() {
+        if(shared == null) {
+            shared = new ExecutionScheduler(
+                        SchedulerOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    /*
+     * Identifies the caller whose executions are queued fairly
+     * against other callers' for the current thread, null restores
+     * the default of the user.
+     */
+    public static void setCaller(String name) {
+        if(name == null) {
+            caller.remove();
+        } else {
+            caller.set(name);
+        }
+    }
+
+    public static String getCaller() {
+        return caller.get();
+    }
+
+    /*
+     * acquire
+     *
+     * Admits an execution against server on behalf of user, waiting
+     * up to maxQueueWaitMillis. The permit must be closed once the
+     * execution completes.
+     */
+    public Permit acquire(String server, String user)
+        throws SchedulerRejectedException, InterruptedException {
+
+        server = server != null ? server : "";
+        String callerName = caller.get() != null ? caller.get() : user;
+
+        lock.lock();
+        try {
+            if(count(serverQueued, server) == 0 &&
+                                        hasCapacity(server, user)) {
+                return admit(server, user);
+            }
+            if(queued >= options.queueCapacity) {
+                throw reject("queue full, " + queued + " executions " +
+                                        "waiting", server, user);
+            }
+
+            Ticket ticket = new Ticket(server, user, callerName,
+                                       lock.newCondition());
+            enqueue(ticket);
+            dispatch();
+            long nanos = TimeUnit.MILLISECONDS.toNanos(
+                                        options.maxQueueWaitMillis);
+            try {
+                while(!ticket.granted) {
+                    if(nanos <= 0) {
+                        dequeue(ticket);
+                        throw reject("no capacity after " +
+                            options.maxQueueWaitMillis + "ms", server, user);
+                    }
+                    nanos = ticket.admitted.awaitNanos(nanos);
+                }
+            } catch(InterruptedException iex) {
+                if(ticket.granted) {
+                    release(server, user);
+                } else {
+                    dequeue(ticket);
+                }
+                throw iex;
+            }
+            return new Permit(server, user);
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * tryAcquire
+     *
+     * Admits an execution only if it can run immediately, null when
+     * server or user is saturated or executions are already waiting.
+     */
+    public Permit tryAcquire(String server, String user) {
+
+        server = server != null ? server : "";
+        lock.lock();
+        try {
+            if(count(serverQueued, server) == 0 &&
+                                        hasCapacity(server, user)) {
+                return admit(server, user);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight(String server) {
+        lock.lock();
+        try {
+            return count(serverInFlight, server != null ? server : "");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private Permit admit(String server, String user) {
+        increment(serverInFlight, server, 1);
+        increment(userInFlight, userKey(server, user), 1);
+        admitted.incrementAndGet();
+        return new Permit(server, user);
+    }
+
+    private void release(String server, String user) {
+
+        lock.lock();
+        try {
+            increment(serverInFlight, server, -1);
+            increment(userInFlight, userKey(server, user), -1);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * dispatch
+     *
+     * Grants waiting tickets while capacity allows, taking one
+     * ticket from each caller in turn. A served caller moves to the
+     * back of the rotation.
+     */
+    private void dispatch() {
+
+        boolean progress = true;
+        while(progress && queued > 0) {
+            progress = false;
+            for(Map.Entry<String, ArrayDeque<Ticket>> entry :
+                                                    callers.entrySet()) {
+                Ticket ticket = null;
+                for(Ticket waiting : entry.getValue()) {
+                    if(hasCapacity(waiting.server, waiting.user)) {
+                        ticket = waiting;
+                        break;
+                    }
+                }
+                if(ticket != null) {
+                    dequeue(ticket);
+                    ArrayDeque<Ticket> remaining = callers.remove(
+                                                    ticket.caller);
+                    if(remaining != null) {
+                        callers.put(ticket.caller, remaining);
+                    }
+                    admit(ticket.server, ticket.user);
+                    ticket.granted = true;
+                    ticket.admitted.signal();
+                    progress = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void enqueue(Ticket ticket) {
+        ArrayDeque<Ticket> tickets = callers.get(ticket.caller);
+        if(tickets == null) {
+            tickets = new ArrayDeque<Ticket>();
+            callers.put(ticket.caller, tickets);
+        }
+        tickets.addLast(ticket);
+        increment(serverQueued, ticket.server, 1);
+        queued++;
+    }
+
+    private void dequeue(Ticket ticket) {
+        ArrayDeque<Ticket> tickets = callers.get(ticket.caller);
+        if(tickets != null && tickets.remove(ticket)) {
+            if(tickets.isEmpty()) {
+                callers.remove(ticket.caller);
+            }
+            increment(serverQueued, ticket.server, -1);
+            queued--;
+        }
+    }
+
+    private boolean hasCapacity(String server, String user) {
+        Integer limit = options.serverLimits.get(server);
+        return count(serverInFlight, server) <
+                    (limit != null ? limit : options.maxInFlightPerServer) &&
+               count(userInFlight, userKey(server, user)) <
+                    options.maxInFlightPerUser;
+    }
+
+    private SchedulerRejectedException reject(String reason, String server,
+                                              String user) {
+        rejected.incrementAndGet();
+        log.warn("Execution rejected by scheduler, " + reason +
+                            ", server=" + server + ", user=" + user);
+        return new SchedulerRejectedException("Execution rejected by " +
+            "scheduler, " + reason + ", server=" + server +
+            ", user=" + user);
+    }
+
+    private static String userKey(String server, String user) {
+        return server + "|" + user;
+    }
+
+    private static int count(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        return count != null ? count : 0;
+    }
+
+    private static void increment(Map<String, Integer> counts, String key,
+                                  int delta) {
+        int count = count(counts, key) + delta;
+        if(count == 0) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count);
+        }
+    }
+
+    private static final class Ticket {
+
+        final String server;
+        final String user;
+        final String caller;
+        final Condition admitted;
+        boolean granted;
+
+        Ticket(String server, String user, String caller,
+               Condition admitted) {
+            this.server = server;
+            this.user = user;
+            this.caller = caller;
+            this.admitted = admitted;
+        }
+    }
+
+    /*
+     * Permit
+     *
+     * An admitted execution. Closing the permit, once, frees its
+     * capacity for the next waiting execution.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String server;
+        private final String user;
+        private boolean closed;
+
+        private Permit(String server, String user) {
+            this.server = server;
+            this.user = user;
+        }
+
+        public void close() {
+            synchronized(this) {
+                if(closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(server, user);
+        }
+    }
+
+}
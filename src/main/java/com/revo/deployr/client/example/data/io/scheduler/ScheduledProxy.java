@@ -0,0 +1,152 @@
+/*
+ * ScheduledProxy.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.scheduler;
+
+import com.revo.deployr.client.RUser;
+import java.lang.reflect.*;
+import java.util.*;
+
+/*
+ * ScheduledProxy
+ *
+ * Wraps client library handles (RClient, RUser, RProject and the
+ * handles they return) so executeScript, executeCode and
+ * executeExternal calls are admitted by an ExecutionScheduler before
+ * they reach the server. Handles returned by login are attributed to
+ * the authenticated user, all others to the user of the handle that
+ * returned them, "anonymous" for an RClient.
+ */
+public final class ScheduledProxy {
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final String CLIENT_PACKAGE = "com.revo.deployr.client";
+
+    private static final Set<String> EXECUTION_METHODS =
+        new HashSet<String>(Arrays.asList(
+            "executeScript", "executeCode", "executeExternal"));
+
+    private ScheduledProxy() {
+    }
+
+    /*
+     * wrap
+     *
+     * Returns target wrapped as iface, or target itself when it is
+     * null or already scheduled. Executions are admitted against
+     * server on behalf of user.
+     */
+    public static <T> T wrap(T target, Class<T> iface,
+                             ExecutionScheduler scheduler,
+                             String server, String user) {
+
+        if(target == null || isScheduled(target)) {
+            return target;
+        }
+        return iface.cast(Proxy.newProxyInstance(
+                    iface.getClassLoader(), new Class<?>[] { iface },
+                    new Handler(target, scheduler, server,
+                                user != null ? user : ANONYMOUS)));
+    }
+
+    public static boolean isScheduled(Object o) {
+        return Proxy.isProxyClass(o.getClass()) &&
+               Proxy.getInvocationHandler(o) instanceof Handler;
+    }
+
+    private static final class Handler implements InvocationHandler {
+
+        private final Object target;
+        private final ExecutionScheduler scheduler;
+        private final String server;
+        private final String user;
+
+        Handler(Object target, ExecutionScheduler scheduler,
+                String server, String user) {
+            this.target = target;
+            this.scheduler = scheduler;
+            this.server = server;
+            this.user = user;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+                                                    throws Throwable {
+
+            String name = method.getName();
+            if(method.getDeclaringClass() == Object.class) {
+                if("equals".equals(name)) {
+                    Object other = args[0];
+                    if(other != null && isScheduled(other)) {
+                        other = ((Handler)
+                            Proxy.getInvocationHandler(other)).target;
+                    }
+                    return target.equals(other);
+                }
+                return method.invoke(target, args);
+            }
+
+            Object result;
+            if(EXECUTION_METHODS.contains(name)) {
+                ExecutionScheduler.Permit permit = acquire();
+                try {
+                    result = call(method, args);
+                } finally {
+                    permit.close();
+                }
+            } else {
+                result = call(method, args);
+            }
+            return scheduleResult(method.getReturnType(), result);
+        }
+
+        /*
+         * Client library interfaces do not declare InterruptedException,
+         * an interrupted wait surfaces as a rejection with the
+         * interrupt status restored.
+         */
+        private ExecutionScheduler.Permit acquire()
+            throws SchedulerRejectedException {
+            try {
+                return scheduler.acquire(server, user);
+            } catch(InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new SchedulerRejectedException("Execution " +
+                    "interrupted waiting for admission, server=" +
+                    server + ", user=" + user);
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch(InvocationTargetException itex) {
+                throw itex.getCause();
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object scheduleResult(Class<?> type, Object result) {
+            if(result != null && type.isInterface() &&
+                    type.getPackage() != null &&
+                    CLIENT_PACKAGE.equals(type.getPackage().getName())) {
+                String owner = user;
+                if(result instanceof RUser) {
+                    owner = ((RUser) result).about().username;
+                }
+                return wrap(result, (Class) type, scheduler, server, owner);
+            }
+            return result;
+        }
+    }
+
+}
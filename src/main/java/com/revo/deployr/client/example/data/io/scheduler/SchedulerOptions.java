@@ -0,0 +1,90 @@
+/*
+ * SchedulerOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.scheduler;
+
+import java.util.*;
+
+/*
+ * SchedulerOptions
+ *
+ * Configuration for an ExecutionScheduler. Follows the same
+ * convention as the client library params classes: all fields are
+ * public and optional, unset fields fall back to the defaults below.
+ */
+public class SchedulerOptions {
+
+    /*
+     * When false sessions issue executions without admission control.
+     */
+    public boolean enabled = true;
+
+    /*
+     * Maximum executions in flight against one DeployR server, unless
+     * overridden for that endpoint in serverLimits.
+     */
+    public int maxInFlightPerServer = 16;
+    public Map<String, Integer> serverLimits = new HashMap<String, Integer>();
+
+    /*
+     * Maximum executions in flight for one user on one server.
+     * Anonymous executions share the user "anonymous".
+     */
+    public int maxInFlightPerUser = 8;
+
+    /*
+     * Maximum executions waiting for admission across all servers.
+     * Executions beyond this are rejected immediately.
+     */
+    public int queueCapacity = 256;
+
+    /*
+     * Maximum time an execution waits for admission before it is
+     * rejected.
+     */
+    public long maxQueueWaitMillis = 60000L;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from scheduler.* system properties. Per server
+     * limits are given as scheduler.serverLimits=endpoint=limit;...
+     */
+    public static SchedulerOptions fromSystemProperties() {
+
+        SchedulerOptions options = new SchedulerOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("scheduler.enabled",
+                                String.valueOf(options.enabled)));
+        options.maxInFlightPerServer = Integer.getInteger(
+            "scheduler.maxInFlightPerServer", options.maxInFlightPerServer);
+        options.maxInFlightPerUser = Integer.getInteger(
+            "scheduler.maxInFlightPerUser", options.maxInFlightPerUser);
+        options.queueCapacity = Integer.getInteger(
+            "scheduler.queueCapacity", options.queueCapacity);
+        options.maxQueueWaitMillis = Long.getLong(
+            "scheduler.maxQueueWaitMillis", options.maxQueueWaitMillis);
+
+        String limits = System.getProperty("scheduler.serverLimits");
+        if(limits != null) {
+            for(String limit : limits.split(";")) {
+                int eq = limit.lastIndexOf('=');
+                if(eq > 0) {
+                    options.serverLimits.put(limit.substring(0, eq).trim(),
+                        Integer.valueOf(limit.substring(eq + 1).trim()));
+                }
+            }
+        }
+        return options;
+    }
+
+}
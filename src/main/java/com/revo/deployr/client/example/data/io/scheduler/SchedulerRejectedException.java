@@ -0,0 +1,33 @@
+/*
+ * SchedulerRejectedException.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.scheduler;
+
+import com.revo.deployr.client.RClientException;
+
+/*
+ * SchedulerRejectedException
+ *
+ * Raised in place of an execution the ExecutionScheduler did not
+ * admit, because the admission queue was full or the execution
+ * waited longer than maxQueueWaitMillis. The execution never
+ * reached the server and may be retried once load subsides.
+ */
+public class SchedulerRejectedException extends RClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SchedulerRejectedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * ChunkSink.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.IOException;
+
+/*
+ * ChunkSink
+ *
+ * Receives the row chunks of a table as CsvStreamConsumer parses
+ * them from a download still in progress. Chunks share the column
+ * names but each types its columns from its own rows, so a column
+ * may be INTEGER in one chunk and DOUBLE in the next, see
+ * TextTableReader.readChunk. A chunk must not be used after accept
+ * returns unless the sink keeps it deliberately, as QueueSink does.
+ *
+ * See SummarySink, CsvFileSink and QueueSink.
+ */
+public interface ChunkSink {
+
+    void accept(ColumnarTable chunk) throws IOException;
+
+    /*
+     * end
+     *
+     * Called once after the last chunk, failure is null when the
+     * whole table was read and otherwise the exception that ended
+     * the stream early.
+     */
+    void end(Exception failure) throws IOException;
+
+}
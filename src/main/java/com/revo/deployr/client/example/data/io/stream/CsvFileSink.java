@@ -0,0 +1,142 @@
+/*
+ * CsvFileSink.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/*
+ * CsvFileSink
+ *
+ * Writes a streamed table to a local CSV file chunk by chunk, in
+ * the format read.csv reads back: quoted header and string values,
+ * NA for missing values. Optionally only the named columns are
+ * written, for example to keep a projection of a large artifact.
+ *
+ * The table is written to a ".part" file and moved into place once
+ * the stream ends successfully, so a partial file is never mistaken
+ * for a finished one.
+ */
+public class CsvFileSink implements ChunkSink {
+
+    private final File file;
+    private final File part;
+    private final String[] columns;
+    private Writer writer;
+    private int[] indexes;
+
+    public CsvFileSink(File file, String... columns) {
+        this.file = file;
+        this.part = new File(file.getPath() + ".part");
+        this.columns = columns.length > 0 ? columns : null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void accept(ColumnarTable chunk) throws IOException {
+
+        if(writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(part), StandardCharsets.UTF_8),
+                64 * 1024);
+            indexes = indexes(chunk);
+            for(int i = 0; i < indexes.length; i++) {
+                if(i > 0) {
+                    writer.write(',');
+                }
+                quote(chunk.getColumnName(indexes[i]));
+            }
+            writer.write('\n');
+        }
+
+        int rows = chunk.getRowCount();
+        for(int row = 0; row < rows; row++) {
+            for(int i = 0; i < indexes.length; i++) {
+                if(i > 0) {
+                    writer.write(',');
+                }
+                write(chunk, indexes[i], row);
+            }
+            writer.write('\n');
+        }
+    }
+
+    public void end(Exception failure) throws IOException {
+
+        if(writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } finally {
+            writer = null;
+            if(failure != null) {
+                Files.deleteIfExists(part.toPath());
+            }
+        }
+        if(failure == null) {
+            Files.move(part.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private int[] indexes(ColumnarTable chunk) throws IOException {
+
+        if(columns == null) {
+            int[] all = new int[chunk.getColumnCount()];
+            for(int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] selected = new int[columns.length];
+        for(int i = 0; i < columns.length; i++) {
+            selected[i] = chunk.getColumnIndex(columns[i]);
+            if(selected[i] < 0) {
+                throw new IOException("Column " + columns[i] +
+                                      " not found in streamed table.");
+            }
+        }
+        return selected;
+    }
+
+    private void write(ColumnarTable chunk, int col, int row)
+        throws IOException {
+
+        if(chunk.isNA(col, row)) {
+            writer.write("NA");
+            return;
+        }
+        switch(chunk.getColumnType(col)) {
+            case INTEGER:
+                writer.write(Integer.toString(chunk.getIntColumn(col)[row]));
+                break;
+            case DOUBLE:
+                writer.write(Double.toString(chunk.getDouble(col, row)));
+                break;
+            default:
+                quote(chunk.getString(col, row));
+        }
+    }
+
+    private void quote(String value) throws IOException {
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * CsvStreamConsumer.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+import org.apache.log4j.Logger;
+
+/*
+ * CsvStreamConsumer
+ *
+ * Parses CSV working directory artifacts, such as the hip.csv file
+ * written by dataIO.R, directly from RProjectFile.download() into
+ * typed column chunks pushed to a ChunkSink. Rows are processed as
+ * the download arrives rather than after it completes, and memory
+ * stays bounded by StreamOptions.chunkRows whatever the file size.
+ *
+ * Usage:
+ *
+ * SummarySink summary = new SummarySink();
+ * long rows = new CsvStreamConsumer(StreamOptions.fromSystemProperties())
+ *                                      .consume(hipCsv, summary);
+ */
+public class CsvStreamConsumer {
+
+    private static Logger log = Logger.getLogger(CsvStreamConsumer.class);
+
+    private final StreamOptions options;
+
+    public CsvStreamConsumer(StreamOptions options) {
+        this.options = options;
+    }
+
+    /*
+     * consume
+     *
+     * Downloads file and streams its rows to sink, returning the
+     * number of rows read. The sink is ended in every case.
+     */
+    public long consume(RProjectFile file, ChunkSink sink)
+        throws RClientException, RSecurityException, IOException {
+
+        String filename = file.about().filename;
+        InputStream in = file.download();
+        try {
+            return consume(filename, in, sink);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /*
+     * consume
+     *
+     * Streams the CSV table read from in to sink, returning the
+     * number of rows read. The stream is consumed but not closed.
+     */
+    public long consume(String name, InputStream in, ChunkSink sink)
+        throws IOException {
+
+        long started = System.nanoTime();
+        CountingInputStream counting = new CountingInputStream(in);
+        CsvTableReader reader = new CsvTableReader(counting, true);
+        long rows = 0;
+        int chunks = 0;
+        try {
+            ColumnarTable chunk;
+            while((chunk = reader.readChunk(options.chunkRows)) != null) {
+                sink.accept(chunk);
+                rows += chunk.getRowCount();
+                chunks++;
+            }
+        } catch(IOException | RuntimeException ex) {
+            sink.end(ex);
+            throw ex;
+        }
+        sink.end(null);
+
+        log.info("[  DATA OUTPUT   ] Streamed " + rows + " rows in " +
+            chunks + " chunks from " + name + ", " +
+            counting.getByteCount() + " bytes in " +
+            (System.nanoTime() - started) / 1000000L + " ms.");
+        return rows;
+    }
+
+}
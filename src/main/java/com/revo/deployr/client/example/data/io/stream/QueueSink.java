@@ -0,0 +1,83 @@
+/*
+ * QueueSink.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.concurrent.*;
+
+/*
+ * QueueSink
+ *
+ * Hands streamed chunks to a consumer on another thread through a
+ * bounded queue. When the consumer falls behind accept blocks, which
+ * in turn stops the download being read, so at most capacity chunks
+ * are buffered however large the file.
+ *
+ * Usage:
+ *
+ * QueueSink queue = new QueueSink(4);
+ * ... consume the file on another thread with queue as the sink ...
+ * ColumnarTable chunk;
+ * while((chunk = queue.take()) != null) {
+ *     ... process chunk ...
+ * }
+ */
+public class QueueSink implements ChunkSink {
+
+    private static final ColumnarTable END =
+        new ColumnarTable(new String[0], new Object[0], 0);
+
+    private final BlockingQueue<ColumnarTable> queue;
+    private volatile Exception failure;
+
+    public QueueSink(int capacity) {
+        this.queue = new ArrayBlockingQueue<ColumnarTable>(capacity);
+    }
+
+    public void accept(ColumnarTable chunk) throws IOException {
+        try {
+            queue.put(chunk);
+        } catch(InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Chunk queue put " +
+                                             "interrupted.");
+        }
+    }
+
+    public void end(Exception failure) throws IOException {
+        this.failure = failure;
+        accept(END);
+    }
+
+    /*
+     * take
+     *
+     * Returns the next chunk, blocking until one arrives, or null
+     * once the stream has ended. Raises the failure that ended the
+     * stream early, after the chunks read before it.
+     */
+    public ColumnarTable take() throws IOException, InterruptedException {
+
+        ColumnarTable chunk = queue.take();
+        if(chunk != END) {
+            return chunk;
+        }
+        queue.put(END);
+        if(failure != null) {
+            throw new IOException("Chunk stream failed.", failure);
+        }
+        return null;
+    }
+
+}
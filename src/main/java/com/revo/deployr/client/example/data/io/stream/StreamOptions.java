@@ -0,0 +1,44 @@
+/*
+ * StreamOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+/*
+ * StreamOptions
+ *
+ * Configuration for CsvStreamConsumer. Follows the same convention as
+ * the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class StreamOptions {
+
+    /*
+     * Rows parsed into each chunk passed to a ChunkSink. Memory held
+     * by the consumer is bounded by one chunk whatever the size of the
+     * file.
+     */
+    public int chunkRows = 10000;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from stream.* system properties.
+     */
+    public static StreamOptions fromSystemProperties() {
+
+        StreamOptions options = new StreamOptions();
+        options.chunkRows = Integer.getInteger("stream.chunkRows",
+                                                options.chunkRows);
+        return options;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * SummarySink.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.stream;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.util.*;
+
+/*
+ * SummarySink
+ *
+ * Aggregates each column of a streamed table as it arrives: row and
+ * NA counts for every column, plus minimum, maximum and mean for
+ * numeric ones. Memory is one running summary per column.
+ */
+public class SummarySink implements ChunkSink {
+
+    private final Map<String, ColumnSummary> summaries =
+        new LinkedHashMap<String, ColumnSummary>();
+    private Exception failure;
+    private boolean ended;
+
+    public synchronized void accept(ColumnarTable chunk) {
+
+        for(int col = 0; col < chunk.getColumnCount(); col++) {
+            String name = chunk.getColumnName(col);
+            ColumnSummary summary = summaries.get(name);
+            if(summary == null) {
+                summary = new ColumnSummary(name);
+                summaries.put(name, summary);
+            }
+            summary.add(chunk, col);
+        }
+    }
+
+    public synchronized void end(Exception failure) {
+        this.failure = failure;
+        this.ended = true;
+    }
+
+    /*
+     * isComplete
+     *
+     * True once the whole table has been aggregated.
+     */
+    public synchronized boolean isComplete() {
+        return ended && failure == null;
+    }
+
+    public synchronized List<ColumnSummary> getSummaries() {
+        return new ArrayList<ColumnSummary>(summaries.values());
+    }
+
+    public synchronized ColumnSummary getSummary(String name) {
+        return summaries.get(name);
+    }
+
+    /*
+     * ColumnSummary
+     *
+     * Running summary of one column. A column is numeric when every
+     * chunk typed it INTEGER or DOUBLE.
+     */
+    public static class ColumnSummary {
+
+        private final String name;
+        private boolean numeric = true;
+        private long count;
+        private long na;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+
+        ColumnSummary(String name) {
+            this.name = name;
+        }
+
+        void add(ColumnarTable chunk, int col) {
+
+            ColumnType type = chunk.getColumnType(col);
+            boolean numericChunk = type == ColumnType.INTEGER ||
+                                    type == ColumnType.DOUBLE;
+            int rows = chunk.getRowCount();
+            for(int row = 0; row < rows; row++) {
+                if(chunk.isNA(col, row)) {
+                    na++;
+                } else
+                if(numericChunk) {
+                    double value = chunk.getDouble(col, row);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    sum += value;
+                }
+            }
+            count += rows;
+            numeric &= numericChunk;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isNumeric() {
+            return numeric;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getNACount() {
+            return na;
+        }
+
+        /*
+         * Minimum, maximum and mean of the non-NA values, NaN for
+         * non-numeric columns and columns holding only NA.
+         */
+        public double getMin() {
+            return numeric && count > na ? min : Double.NaN;
+        }
+
+        public double getMax() {
+            return numeric && count > na ? max : Double.NaN;
+        }
+
+        public double getMean() {
+            return numeric && count > na ? sum / (count - na) : Double.NaN;
+        }
+
+        public String toString() {
+            return name + " count=" + count + ", na=" + na +
+                (numeric ? ", min=" + getMin() + ", max=" + getMax() +
+                            ", mean=" + getMean() : "");
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * ColumnType.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+/*
+ * ColumnType
+ *
+ * Storage type of a ColumnarTable column, mirroring the R vector
+ * types produced by read.table. Missing values (NA) are encoded as
+ * Integer.MIN_VALUE (R's NA_integer_), NaN and null respectively.
+ * FACTOR columns are dictionary-encoded strings, see
+ * DictionaryColumn, with NA encoded as an Integer.MIN_VALUE code.
+ */
+public enum ColumnType {
+
+    INTEGER,
+    DOUBLE,
+    STRING,
+    FACTOR;
+
+    public static final int NA_INTEGER = Integer.MIN_VALUE;
+
+}
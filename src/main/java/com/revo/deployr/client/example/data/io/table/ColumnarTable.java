@@ -0,0 +1,273 @@
+/*
+ * ColumnarTable.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import com.revo.deployr.client.data.*;
+import com.revo.deployr.client.factory.*;
+import java.util.*;
+
+/*
+ * ColumnarTable
+ *
+ * An immutable table whose columns are held in primitive arrays,
+ * int[] for INTEGER, double[] for DOUBLE, String[] for STRING and
+ * DictionaryColumn for FACTOR columns, avoiding one boxed object per
+ * cell.
+ *
+ * Column arrays may be longer than getRowCount(), only the first
+ * getRowCount() elements are defined.
+ */
+public class ColumnarTable {
+
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Object[] columns;
+    private final int rows;
+
+    public ColumnarTable(String[] names, Object[] columns, int rows) {
+
+        if(names.length != columns.length) {
+            throw new IllegalArgumentException("ColumnarTable names and " +
+                                        "columns must be the same length.");
+        }
+
+        this.names = names;
+        this.columns = columns;
+        this.rows = rows;
+        this.types = new ColumnType[columns.length];
+        for(int i = 0; i < columns.length; i++) {
+            types[i] = typeOf(columns[i]);
+        }
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int col) {
+        return names[col];
+    }
+
+    public String[] getColumnNames() {
+        return names.clone();
+    }
+
+    public int getColumnIndex(String name) {
+        for(int i = 0; i < names.length; i++) {
+            if(names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public ColumnType getColumnType(int col) {
+        return types[col];
+    }
+
+    public int[] getIntColumn(int col) {
+        return (int[]) columns[col];
+    }
+
+    public double[] getDoubleColumn(int col) {
+        return (double[]) columns[col];
+    }
+
+    public String[] getStringColumn(int col) {
+        return (String[]) columns[col];
+    }
+
+    public DictionaryColumn getDictionaryColumn(int col) {
+        return (DictionaryColumn) columns[col];
+    }
+
+    /*
+     * getDouble
+     *
+     * Reads a numeric cell from an INTEGER or DOUBLE column,
+     * returning NaN for NA.
+     */
+    public double getDouble(int col, int row) {
+        if(types[col] == ColumnType.INTEGER) {
+            int value = ((int[]) columns[col])[row];
+            return value == ColumnType.NA_INTEGER ? Double.NaN : value;
+        }
+        return ((double[]) columns[col])[row];
+    }
+
+    /*
+     * getString
+     *
+     * Reads a cell from a STRING or FACTOR column, returning null
+     * for NA.
+     */
+    public String getString(int col, int row) {
+        if(types[col] == ColumnType.FACTOR) {
+            return ((DictionaryColumn) columns[col]).get(row);
+        }
+        return ((String[]) columns[col])[row];
+    }
+
+    public boolean isNA(int col, int row) {
+        switch(types[col]) {
+            case INTEGER:
+                return ((int[]) columns[col])[row] == ColumnType.NA_INTEGER;
+            case DOUBLE:
+                return Double.isNaN(((double[]) columns[col])[row]);
+            case FACTOR:
+                return ((DictionaryColumn) columns[col]).getCodes()[row]
+                                                == ColumnType.NA_INTEGER;
+            default:
+                return ((String[]) columns[col])[row] == null;
+        }
+    }
+
+    /*
+     * asDataFrame
+     *
+     * Encodes the table as an RDataFrame suitable for use as an
+     * execution rinput. Column values are exposed to the encoder
+     * through read-only list views over the primitive arrays so no
+     * boxed copy of the table is retained.
+     */
+    public RDataFrame asDataFrame(String name) {
+
+        List<RData> vectors = new ArrayList<RData>(columns.length);
+        for(int i = 0; i < columns.length; i++) {
+            vectors.add(asVector(i));
+        }
+        return RDataFactory.createDataFrame(name, vectors);
+    }
+
+    /*
+     * asVector
+     *
+     * Encodes a single column as an RNumericVector, RStringVector or
+     * RFactor named after the column.
+     */
+    public RData asVector(int col) {
+
+        switch(types[col]) {
+            case INTEGER:
+                return RDataFactory.createNumericVector(names[col],
+                        new IntColumnList((int[]) columns[col], rows));
+            case DOUBLE:
+                return RDataFactory.createNumericVector(names[col],
+                        new DoubleColumnList((double[]) columns[col], rows));
+            case FACTOR:
+                return RDataFactory.createFactor(names[col],
+                        new FactorColumnList((DictionaryColumn) columns[col],
+                                             rows), false);
+            default:
+                return RDataFactory.createStringVector(names[col],
+                        Arrays.asList((String[]) columns[col]).subList(0, rows));
+        }
+    }
+
+    private static ColumnType typeOf(Object column) {
+        if(column instanceof int[]) {
+            return ColumnType.INTEGER;
+        } else
+        if(column instanceof double[]) {
+            return ColumnType.DOUBLE;
+        } else
+        if(column instanceof String[]) {
+            return ColumnType.STRING;
+        } else
+        if(column instanceof DictionaryColumn) {
+            return ColumnType.FACTOR;
+        }
+        throw new IllegalArgumentException("Unsupported column storage " +
+            (column == null ? "null" : column.getClass().getSimpleName()));
+    }
+
+    /*
+     * Boxes on access only, NA is surfaced as null which the
+     * RDataFactory encodes as an R NA.
+     */
+    private static class DoubleColumnList extends AbstractList<Double>
+                                          implements RandomAccess {
+
+        private final double[] values;
+        private final int size;
+
+        DoubleColumnList(double[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        public Double get(int index) {
+            if(index >= size) {
+                throw new IndexOutOfBoundsException("index=" + index);
+            }
+            double value = values[index];
+            return Double.isNaN(value) ? null : value;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    private static class IntColumnList extends AbstractList<Double>
+                                       implements RandomAccess {
+
+        private final int[] values;
+        private final int size;
+
+        IntColumnList(int[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        public Double get(int index) {
+            if(index >= size) {
+                throw new IndexOutOfBoundsException("index=" + index);
+            }
+            int value = values[index];
+            return value == ColumnType.NA_INTEGER ? null : (double) value;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    private static class FactorColumnList extends AbstractList<String>
+                                          implements RandomAccess {
+
+        private final DictionaryColumn column;
+        private final int size;
+
+        FactorColumnList(DictionaryColumn column, int size) {
+            this.column = column;
+            this.size = size;
+        }
+
+        public String get(int index) {
+            if(index >= size) {
+                throw new IndexOutOfBoundsException("index=" + index);
+            }
+            return column.get(index);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * CsvTableReader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import java.io.*;
+
+/*
+ * CsvTableReader
+ *
+ * Streaming reader for comma-separated tables such as the hip.csv
+ * artifact written by dataIO.R, following the semantics of the R
+ * calls:
+ *
+ * write.csv(hip, file = "hip.csv")
+ * read.csv(file)
+ *
+ * - fields are separated by commas, lines end in LF or CRLF
+ * - double quoted fields may contain commas, line breaks and
+ *   doubled quotes ("") standing for one quote
+ * - an empty unquoted field or "NA" denotes a missing value
+ * - blank lines are skipped, there is no comment character
+ *
+ * The row names column write.csv adds under an empty header is
+ * read as column "X". Typing and chunking are shared with the other
+ * readers, see TextTableReader.
+ */
+public class CsvTableReader extends TextTableReader {
+
+    private boolean fieldExpected;
+
+    public CsvTableReader(InputStream in, boolean header) {
+        super(in, header);
+    }
+
+    /*
+     * read
+     *
+     * Convenience for a table with a header row. The stream is
+     * consumed but not closed.
+     */
+    public static ColumnarTable read(InputStream in) throws IOException {
+        return new CsvTableReader(in, true).read();
+    }
+
+    /*
+     * next
+     *
+     * A separator always introduces a further field, so "1," holds
+     * two fields, the second NA.
+     */
+    int next() throws IOException {
+
+        int c = peek();
+        if(c == '\r') {
+            position++;
+            c = peek();
+        }
+        if(!fieldExpected) {
+            if(c == -1) {
+                return EOF;
+            }
+            if(c == '\n') {
+                position++;
+                return EOL;
+            }
+        }
+
+        tokenLength = 0;
+        tokenQuoted = c == '"';
+        if(tokenQuoted) {
+            position++;
+            while((c = readByte()) != -1) {
+                if(c == '"') {
+                    if(peek() != '"') {
+                        break;
+                    }
+                    position++;
+                }
+                append(c);
+            }
+            while((c = peek()) != -1 && c != ',' && c != '\n' && c != '\r') {
+                position++;
+            }
+        } else {
+            while((c = peek()) != -1 && c != ',' && c != '\n' && c != '\r') {
+                append(c);
+                position++;
+            }
+        }
+
+        fieldExpected = c == ',';
+        if(fieldExpected) {
+            position++;
+        }
+        return TOKEN;
+    }
+
+}
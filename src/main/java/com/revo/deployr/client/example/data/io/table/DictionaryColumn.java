@@ -0,0 +1,58 @@
+/*
+ * DictionaryColumn.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+/*
+ * DictionaryColumn
+ *
+ * Storage for a FACTOR column: one int code per row indexing into a
+ * dictionary of distinct values, the layout R uses for factors.
+ * Repeated values share a single String instance and the per-row
+ * cost is four bytes. NA is encoded as ColumnType.NA_INTEGER.
+ *
+ * Codes may be longer than the row count of the owning table, only
+ * the first getRowCount() elements are defined.
+ */
+public final class DictionaryColumn {
+
+    private final int[] codes;
+    private final String[] levels;
+
+    public DictionaryColumn(int[] codes, String[] levels) {
+        this.codes = codes;
+        this.levels = levels;
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public String[] getLevels() {
+        return levels;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /*
+     * get
+     *
+     * Value at row, null for NA.
+     */
+    public String get(int row) {
+        int code = codes[row];
+        return code == ColumnType.NA_INTEGER ? null : levels[code];
+    }
+
+}
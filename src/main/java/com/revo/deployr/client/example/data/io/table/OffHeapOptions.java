@@ -0,0 +1,55 @@
+/*
+ * OffHeapOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+/*
+ * OffHeapOptions
+ *
+ * Configuration for an OffHeapTable. Follows the same convention as
+ * the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class OffHeapOptions {
+
+    /*
+     * When true the example flows decode the workspace data.frame
+     * they retrieve into an OffHeapTable rather than a
+     * ColumnarTable, see Outputs.offHeapDataFrame.
+     */
+    public boolean enabled = false;
+
+    /*
+     * Directory for the temporary files backing memory-mapped
+     * tables. When null columns are held in direct ByteBuffers,
+     * bounded by -XX:MaxDirectMemorySize, rather than mapped files
+     * paged by the operating system.
+     */
+    public String directory;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from offHeap.* system properties.
+     */
+    public static OffHeapOptions fromSystemProperties() {
+
+        OffHeapOptions options = new OffHeapOptions();
+        options.enabled = Boolean.parseBoolean(
+            System.getProperty("offHeap.enabled",
+                                String.valueOf(options.enabled)));
+        options.directory = System.getProperty("offHeap.directory",
+                                               options.directory);
+        return options;
+    }
+
+}
@@ -0,0 +1,414 @@
+/*
+ * OffHeapTable.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import com.revo.deployr.client.data.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ * OffHeapTable
+ *
+ * A read-only columnar table whose cell data lives outside the Java
+ * heap, in direct ByteBuffers or in a memory-mapped temporary file
+ * when OffHeapOptions.directory is set. Many large result frames can
+ * be held at once without adding to heap occupancy or GC pause times.
+ *
+ * Column storage, in native byte order:
+ *
+ * - INTEGER: one int per row, NA as ColumnType.NA_INTEGER
+ * - DOUBLE: one double per row, NA as NaN
+ * - FACTOR: one int code per row, the levels stay on heap
+ * - STRING: rows + 1 int offsets into a UTF-8 data region, row i
+ *   spans offsets[i] to offsets[i + 1] & 0x7fffffff and is NA when
+ *   offsets[i + 1] is negative
+ *
+ * Columns are built one at a time, so decoding an RDataFrame holds at
+ * most a single column on heap. Accessors are safe for concurrent
+ * readers. Each column region is limited to 2GB.
+ *
+ * close() deletes the backing file. The memory itself is returned
+ * once the table is no longer reachable, as with any direct or
+ * mapped buffer.
+ */
+public class OffHeapTable implements Closeable {
+
+    private final String[] names;
+    private final ColumnType[] types;
+    private final ByteBuffer[] data;
+    private final IntBuffer[] ints;
+    private final DoubleBuffer[] doubles;
+    private final String[][] levels;
+    private final int rows;
+    private final long bytes;
+    private final File file;
+
+    private OffHeapTable(Builder builder) {
+        this.names = builder.names;
+        this.types = builder.types;
+        this.data = builder.data;
+        this.ints = builder.ints;
+        this.doubles = builder.doubles;
+        this.levels = builder.levels;
+        this.rows = builder.rows;
+        this.bytes = builder.bytes;
+        this.file = builder.file;
+    }
+
+    /*
+     * decode
+     *
+     * Decodes an RDataFrame workspace object column by column with
+     * WorkspaceDecoder, moving each column off heap before the next
+     * is decoded.
+     */
+    public static OffHeapTable decode(RDataFrame frame, OffHeapOptions options)
+        throws IOException {
+
+        List<RData> vectors = frame.getValue();
+        Builder builder = new Builder(vectors.size(), options);
+        try {
+            for(int i = 0; i < vectors.size(); i++) {
+                RData vector = vectors.get(i);
+                Object column = WorkspaceDecoder.column(vector);
+                builder.add(i, vector.getName(), column,
+                            WorkspaceDecoder.lengthOf(column));
+            }
+            return new OffHeapTable(builder.finish());
+        } catch(IOException | RuntimeException ex) {
+            builder.discard();
+            throw ex;
+        }
+    }
+
+    /*
+     * copyOf
+     *
+     * Moves an existing heap ColumnarTable off heap.
+     */
+    public static OffHeapTable copyOf(ColumnarTable table,
+                                      OffHeapOptions options)
+        throws IOException {
+
+        Builder builder = new Builder(table.getColumnCount(), options);
+        try {
+            for(int i = 0; i < table.getColumnCount(); i++) {
+                Object column;
+                switch(table.getColumnType(i)) {
+                    case INTEGER:
+                        column = table.getIntColumn(i);
+                        break;
+                    case DOUBLE:
+                        column = table.getDoubleColumn(i);
+                        break;
+                    case FACTOR:
+                        column = table.getDictionaryColumn(i);
+                        break;
+                    default:
+                        column = table.getStringColumn(i);
+                }
+                builder.add(i, table.getColumnName(i), column,
+                            table.getRowCount());
+            }
+            return new OffHeapTable(builder.finish());
+        } catch(IOException | RuntimeException ex) {
+            builder.discard();
+            throw ex;
+        }
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(int col) {
+        return names[col];
+    }
+
+    public String[] getColumnNames() {
+        return names.clone();
+    }
+
+    public int getColumnIndex(String name) {
+        for(int i = 0; i < names.length; i++) {
+            if(names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public ColumnType getColumnType(int col) {
+        return types[col];
+    }
+
+    /*
+     * Total bytes held off heap by the table.
+     */
+    public long getOffHeapBytes() {
+        return bytes;
+    }
+
+    /*
+     * getInt
+     *
+     * Reads an INTEGER cell, or the code of a FACTOR cell.
+     */
+    public int getInt(int col, int row) {
+        checkRow(row);
+        return ints[col].get(row);
+    }
+
+    /*
+     * getDouble
+     *
+     * Reads a numeric cell from an INTEGER or DOUBLE column,
+     * returning NaN for NA.
+     */
+    public double getDouble(int col, int row) {
+        checkRow(row);
+        if(types[col] == ColumnType.INTEGER) {
+            int value = ints[col].get(row);
+            return value == ColumnType.NA_INTEGER ? Double.NaN : value;
+        }
+        return doubles[col].get(row);
+    }
+
+    /*
+     * getString
+     *
+     * Reads a cell from a STRING or FACTOR column, returning null
+     * for NA.
+     */
+    public String getString(int col, int row) {
+        checkRow(row);
+        if(types[col] == ColumnType.FACTOR) {
+            int code = ints[col].get(row);
+            return code == ColumnType.NA_INTEGER ? null : levels[col][code];
+        }
+        int end = ints[col].get(row + 1);
+        if(end < 0) {
+            return null;
+        }
+        int start = ints[col].get(row) & Integer.MAX_VALUE;
+        byte[] utf8 = new byte[end - start];
+        ByteBuffer view = data[col].duplicate();
+        view.position(start);
+        view.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    public boolean isNA(int col, int row) {
+        checkRow(row);
+        switch(types[col]) {
+            case INTEGER:
+            case FACTOR:
+                return ints[col].get(row) == ColumnType.NA_INTEGER;
+            case DOUBLE:
+                return Double.isNaN(doubles[col].get(row));
+            default:
+                return ints[col].get(row + 1) < 0;
+        }
+    }
+
+    /*
+     * getLevels
+     *
+     * Dictionary of a FACTOR column.
+     */
+    public String[] getLevels(int col) {
+        return levels[col].clone();
+    }
+
+    /*
+     * Read-only views for bulk scans of INTEGER or FACTOR and DOUBLE
+     * columns respectively. Each call returns a view with its own
+     * position and limit.
+     */
+    public IntBuffer getIntColumn(int col) {
+        return ints[col].asReadOnlyBuffer();
+    }
+
+    public DoubleBuffer getDoubleColumn(int col) {
+        return doubles[col].asReadOnlyBuffer();
+    }
+
+    /*
+     * close
+     *
+     * Deletes the backing file of a memory-mapped table, mapped pages
+     * remain readable until the table is unreachable.
+     */
+    public void close() {
+        if(file != null) {
+            file.delete();
+        }
+    }
+
+    private void checkRow(int row) {
+        if(row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row=" + row);
+        }
+    }
+
+    /*
+     * Allocates and fills column regions, growing the backing file
+     * when memory-mapped.
+     */
+    private static class Builder {
+
+        final String[] names;
+        final ColumnType[] types;
+        final ByteBuffer[] data;
+        final IntBuffer[] ints;
+        final DoubleBuffer[] doubles;
+        final String[][] levels;
+        int rows = -1;
+        long bytes;
+        File file;
+        FileChannel channel;
+
+        Builder(int columns, OffHeapOptions options) throws IOException {
+            names = new String[columns];
+            types = new ColumnType[columns];
+            data = new ByteBuffer[columns];
+            ints = new IntBuffer[columns];
+            doubles = new DoubleBuffer[columns];
+            levels = new String[columns][];
+            if(options != null && options.directory != null) {
+                File directory = new File(options.directory);
+                directory.mkdirs();
+                file = File.createTempFile("offheap-", ".cols", directory);
+                file.deleteOnExit();
+                channel = FileChannel.open(file.toPath(),
+                                           StandardOpenOption.READ,
+                                           StandardOpenOption.WRITE);
+            }
+        }
+
+        void add(int col, String name, Object column, int length)
+            throws IOException {
+
+            if(rows != -1 && length != rows) {
+                throw new IllegalArgumentException("OffHeapTable column " +
+                    name + " has " + length + " rows, expected " + rows + ".");
+            }
+            rows = length;
+            names[col] = name;
+
+            if(column instanceof int[]) {
+                types[col] = ColumnType.INTEGER;
+                ints[col] = allocate(4L * length).asIntBuffer();
+                ints[col].put((int[]) column, 0, length).rewind();
+            } else
+            if(column instanceof double[]) {
+                types[col] = ColumnType.DOUBLE;
+                doubles[col] = allocate(8L * length).asDoubleBuffer();
+                doubles[col].put((double[]) column, 0, length).rewind();
+            } else
+            if(column instanceof DictionaryColumn) {
+                DictionaryColumn dictionary = (DictionaryColumn) column;
+                types[col] = ColumnType.FACTOR;
+                levels[col] = dictionary.getLevels();
+                ints[col] = allocate(4L * length).asIntBuffer();
+                ints[col].put(dictionary.getCodes(), 0, length).rewind();
+            } else {
+                types[col] = ColumnType.STRING;
+                addStrings(col, (String[]) column, length);
+            }
+        }
+
+        void addStrings(int col, String[] values, int length)
+            throws IOException {
+
+            long size = 0;
+            byte[][] encoded = new byte[length][];
+            for(int i = 0; i < length; i++) {
+                if(values[i] != null) {
+                    encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+                    size += encoded[i].length;
+                }
+            }
+
+            IntBuffer offsets = allocate(4L * (length + 1)).asIntBuffer();
+            ByteBuffer utf8 = allocate(size);
+            int offset = 0;
+            offsets.put(0);
+            for(int i = 0; i < length; i++) {
+                if(encoded[i] == null) {
+                    offsets.put(offset | Integer.MIN_VALUE);
+                } else {
+                    utf8.put(encoded[i]);
+                    offset += encoded[i].length;
+                    offsets.put(offset);
+                }
+                encoded[i] = null;
+            }
+            offsets.rewind();
+            utf8.rewind();
+            ints[col] = offsets;
+            data[col] = utf8;
+        }
+
+        ByteBuffer allocate(long size) throws IOException {
+
+            if(size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("OffHeapTable column " +
+                    "region of " + size + " bytes exceeds 2GB.");
+            }
+            ByteBuffer buffer;
+            if(channel != null) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                                     bytes, size);
+            } else {
+                buffer = ByteBuffer.allocateDirect((int) size);
+            }
+            bytes += size;
+            return buffer.order(ByteOrder.nativeOrder());
+        }
+
+        /*
+         * Mappings stay valid once the channel is closed.
+         */
+        Builder finish() throws IOException {
+            if(channel != null) {
+                channel.close();
+            }
+            if(rows == -1) {
+                rows = 0;
+            }
+            return this;
+        }
+
+        void discard() {
+            if(channel != null) {
+                try {
+                    channel.close();
+                } catch(IOException ex) {
+                }
+            }
+            if(file != null) {
+                file.delete();
+            }
+        }
+    }
+
+}
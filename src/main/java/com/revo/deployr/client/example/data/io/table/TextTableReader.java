@@ -0,0 +1,576 @@
+/*
+ * TextTableReader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * TextTableReader
+ *
+ * Base for the streaming readers of delimited text tables. Fields
+ * delivered by the format specific next are typed straight into
+ * primitive column buffers:
+ *
+ * - short rows are padded with NA, as read.table(fill=T) does
+ * - "NA" denotes a missing value in any column
+ * - each column is typed as integer, double or string, promoted
+ *   as needed while rows are read
+ * - header names are made syntactically valid as R's check.names
+ *   does, for example B-V becomes B.V
+ *
+ * No per-line String, regex split or boxed value is created for
+ * numeric fields. readChunk bounds memory to a block of rows at a
+ * time for inputs too large to hold as one table.
+ */
+public abstract class TextTableReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_ROWS = 1024;
+
+    static final int TOKEN = 0;
+    static final int EOL = 1;
+    static final int EOF = 2;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+        1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final boolean header;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    int position;
+    private int limit;
+
+    byte[] token = new byte[64];
+    int tokenLength;
+    boolean tokenQuoted;
+
+    private int parsedInt;
+    private double parsedDouble;
+
+    private String[] names;
+    private int width;
+    private List<String> pendingRow;
+    private boolean eof;
+    private long rowsRead;
+
+    protected TextTableReader(InputStream in, boolean header) {
+        this.in = in;
+        this.header = header;
+    }
+
+    public ColumnarTable read() throws IOException {
+
+        ColumnarTable table = readChunk(Integer.MAX_VALUE);
+        if(table != null) {
+            return table;
+        }
+        Object[] empty = new Object[width];
+        for(int i = 0; i < width; i++) {
+            empty[i] = new int[0];
+        }
+        return new ColumnarTable(names, empty, 0);
+    }
+
+    /*
+     * readChunk
+     *
+     * Reads the next block of at most maxRows rows, null once the
+     * input is exhausted. Successive chunks share the column names
+     * but each chunk types its columns from its own rows, so a
+     * column may be INTEGER in one chunk and DOUBLE in the next.
+     */
+    public ColumnarTable readChunk(int maxRows) throws IOException {
+
+        if(names == null) {
+            readFirstRow();
+        }
+        if(width == 0) {
+            return null;
+        }
+
+        Column[] columns = new Column[width];
+        for(int i = 0; i < width; i++) {
+            columns[i] = new Column();
+        }
+
+        int rows = 0;
+        if(pendingRow != null) {
+            for(int i = 0; i < width; i++) {
+                setToken(pendingRow.get(i));
+                columns[i].add(this, 0);
+            }
+            pendingRow = null;
+            rows++;
+        }
+
+        while(rows < maxRows && !eof) {
+            int field = 0;
+            int state;
+            while((state = next()) == TOKEN) {
+                if(field == width) {
+                    throw new IOException("Line " +
+                        (rowsRead + rows + (header ? 2 : 1)) +
+                        " has more than " + width + " fields.");
+                }
+                columns[field++].add(this, rows);
+            }
+            eof = state == EOF;
+            if(field == 0) {
+                continue;
+            }
+            while(field < width) {
+                columns[field++].addNA(rows);
+            }
+            rows++;
+        }
+
+        if(rows == 0) {
+            return null;
+        }
+        rowsRead += rows;
+
+        Object[] data = new Object[width];
+        for(int i = 0; i < width; i++) {
+            data[i] = columns[i].values();
+        }
+        return new ColumnarTable(names, data, rows);
+    }
+
+    /*
+     * readFirstRow
+     *
+     * Reads the header, or the first data row held back for the
+     * first chunk when the table has no header.
+     */
+    private void readFirstRow() throws IOException {
+
+        List<String> firstRow = new ArrayList<String>();
+        int state;
+        do {
+            firstRow.clear();
+            while((state = next()) == TOKEN) {
+                firstRow.add(tokenString());
+            }
+        } while(firstRow.isEmpty() && state != EOF);
+
+        eof = state == EOF;
+        width = firstRow.size();
+        names = new String[width];
+        for(int i = 0; i < width; i++) {
+            names[i] = header ? validName(firstRow.get(i)) : "V" + (i + 1);
+        }
+        if(!header && width > 0) {
+            pendingRow = firstRow;
+        }
+    }
+
+    /*
+     * next
+     *
+     * Advances to the next field, end of line or end of input,
+     * returning TOKEN, EOL or EOF. Field bytes are left in
+     * token[0..tokenLength), tokenQuoted set when the field was quoted.
+     * An unquoted empty field reads as NA.
+     */
+    abstract int next() throws IOException;
+
+    int readByte() throws IOException {
+        if(position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    int peek() throws IOException {
+        if(position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if(n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    void append(int c) {
+        if(tokenLength == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[tokenLength++] = (byte) c;
+    }
+
+    private void setToken(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        token = bytes.length > token.length ? bytes : token;
+        System.arraycopy(bytes, 0, token, 0, bytes.length);
+        tokenLength = bytes.length;
+        tokenQuoted = false;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+    }
+
+    private boolean isNA() {
+        return !tokenQuoted && (tokenLength == 0 || (tokenLength == 2 &&
+                                    token[0] == 'N' && token[1] == 'A'));
+    }
+
+    /*
+     * parseInt
+     *
+     * Parses the current token as an R integer, leaving the value
+     * in parsedInt. Fails for values outside the int range and for
+     * Integer.MIN_VALUE which R reserves for NA_integer_.
+     */
+    private boolean parseInt() {
+
+        int i = 0;
+        boolean negative = false;
+        if(token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+        if(i == tokenLength || tokenLength - i > 10) {
+            return false;
+        }
+
+        long value = 0;
+        for(; i < tokenLength; i++) {
+            int d = token[i] - '0';
+            if(d < 0 || d > 9) {
+                return false;
+            }
+            value = value * 10 + d;
+        }
+        if(negative) {
+            value = -value;
+        }
+        if(value <= Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return false;
+        }
+        parsedInt = (int) value;
+        return true;
+    }
+
+    /*
+     * parseDouble
+     *
+     * Parses the current token as an R double, leaving the value in
+     * parsedDouble. Decimal values with at most 18 significant digits
+     * and a decimal exponent within +/-22 are converted exactly from
+     * a long mantissa and a power of ten, everything else falls back
+     * to Double.parseDouble.
+     */
+    private boolean parseDouble() {
+
+        int i = 0;
+        boolean negative = false;
+        if(token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean truncated = false;
+
+        for(; i < tokenLength && isDigit(token[i]); i++) {
+            int d = token[i] - '0';
+            digits = true;
+            if(significant < 18) {
+                mantissa = mantissa * 10 + d;
+                if(mantissa != 0) {
+                    significant++;
+                }
+            } else {
+                exponent++;
+                truncated |= d != 0;
+            }
+        }
+
+        if(i < tokenLength && token[i] == '.') {
+            for(i++; i < tokenLength && isDigit(token[i]); i++) {
+                int d = token[i] - '0';
+                digits = true;
+                if(significant < 18) {
+                    mantissa = mantissa * 10 + d;
+                    if(mantissa != 0) {
+                        significant++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= d != 0;
+                }
+            }
+        }
+
+        if(!digits) {
+            return parseSpecial();
+        }
+
+        if(i < tokenLength && (token[i] == 'e' || token[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if(i < tokenLength && (token[i] == '-' || token[i] == '+')) {
+                negativeExponent = token[i] == '-';
+                i++;
+            }
+            int e = 0;
+            boolean exponentDigits = false;
+            for(; i < tokenLength && isDigit(token[i]); i++) {
+                exponentDigits = true;
+                if(e < 10000) {
+                    e = e * 10 + (token[i] - '0');
+                }
+            }
+            if(!exponentDigits) {
+                return false;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if(i != tokenLength) {
+            return false;
+        }
+
+        if(!truncated && mantissa < (1L << 53) &&
+                                exponent >= -22 && exponent <= 22) {
+            double value = mantissa;
+            value = exponent < 0 ? value / POW10[-exponent]
+                                 : value * POW10[exponent];
+            parsedDouble = negative ? -value : value;
+            return true;
+        }
+
+        try {
+            parsedDouble = Double.parseDouble(tokenString());
+            return true;
+        } catch(NumberFormatException nfex) {
+            return false;
+        }
+    }
+
+    private boolean parseSpecial() {
+        String text = tokenString();
+        if(text.equals("Inf") || text.equals("+Inf")) {
+            parsedDouble = Double.POSITIVE_INFINITY;
+        } else
+        if(text.equals("-Inf")) {
+            parsedDouble = Double.NEGATIVE_INFINITY;
+        } else
+        if(text.equals("NaN")) {
+            parsedDouble = Double.NaN;
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /*
+     * validName
+     *
+     * Equivalent of R's make.names as applied by read.table when
+     * check.names=TRUE.
+     */
+    static String validName(String name) {
+
+        StringBuilder sb = new StringBuilder(name.length() + 1);
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) || c == '.' || c == '_'
+                                                            ? c : '.');
+        }
+        if(sb.length() == 0) {
+            return "X";
+        }
+        char first = sb.charAt(0);
+        if(Character.isDigit(first) || first == '_' ||
+            (first == '.' && sb.length() > 1 &&
+                                Character.isDigit(sb.charAt(1)))) {
+            sb.insert(0, 'X');
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Column
+     *
+     * Growable column buffer. Starts as INTEGER and is promoted to
+     * DOUBLE or STRING the first time a value does not fit.
+     *
+     * Until the column is STRING the field bytes are also kept, in
+     * one byte array with the end offset of each row, so a promotion
+     * to STRING keeps the original text as read.table does, for
+     * example "007" and "1.50" rather than "7" and "1.5".
+     */
+    private static class Column {
+
+        private ColumnType type = ColumnType.INTEGER;
+        private int[] ints = new int[INITIAL_ROWS];
+        private double[] doubles;
+        private String[] strings;
+
+        // End offset of each row in raw, bitwise complemented for NA.
+        private byte[] raw = new byte[INITIAL_ROWS * 8];
+        private int rawLength;
+        private int[] rawEnds = new int[INITIAL_ROWS];
+
+        void add(TextTableReader reader, int row) {
+
+            if(reader.isNA()) {
+                addNA(row);
+                return;
+            }
+
+            if(!reader.tokenQuoted) {
+                if(type == ColumnType.INTEGER && reader.parseInt()) {
+                    ensure(row);
+                    ints[row] = reader.parsedInt;
+                    keepRaw(reader, row);
+                    return;
+                }
+                if(type != ColumnType.STRING && reader.parseDouble()) {
+                    if(type == ColumnType.INTEGER) {
+                        toDouble(row);
+                    }
+                    ensure(row);
+                    doubles[row] = reader.parsedDouble;
+                    keepRaw(reader, row);
+                    return;
+                }
+            }
+
+            addText(reader.tokenString(), row);
+        }
+
+        void addText(String text, int row) {
+            if(type != ColumnType.STRING) {
+                toString(row);
+            }
+            ensure(row);
+            strings[row] = text;
+        }
+
+        void addNA(int row) {
+            ensure(row);
+            if(rawEnds != null) {
+                rawEnds[row] = ~rawLength;
+            }
+            switch(type) {
+                case INTEGER:
+                    ints[row] = ColumnType.NA_INTEGER;
+                    break;
+                case DOUBLE:
+                    doubles[row] = Double.NaN;
+                    break;
+                default:
+                    strings[row] = null;
+            }
+        }
+
+        Object values() {
+            switch(type) {
+                case INTEGER:
+                    return ints;
+                case DOUBLE:
+                    return doubles;
+                default:
+                    return strings;
+            }
+        }
+
+        private void keepRaw(TextTableReader reader, int row) {
+            int length = reader.tokenLength;
+            if(rawLength + length > raw.length) {
+                raw = Arrays.copyOf(raw,
+                            Math.max(raw.length * 2, rawLength + length));
+            }
+            System.arraycopy(reader.token, 0, raw, rawLength, length);
+            rawLength += length;
+            rawEnds[row] = rawLength;
+        }
+
+        private void ensure(int row) {
+            if(rawEnds != null && row == rawEnds.length) {
+                rawEnds = Arrays.copyOf(rawEnds, row * 2);
+            }
+            switch(type) {
+                case INTEGER:
+                    if(row == ints.length) {
+                        ints = Arrays.copyOf(ints, row * 2);
+                    }
+                    break;
+                case DOUBLE:
+                    if(row == doubles.length) {
+                        doubles = Arrays.copyOf(doubles, row * 2);
+                    }
+                    break;
+                default:
+                    if(row == strings.length) {
+                        strings = Arrays.copyOf(strings, row * 2);
+                    }
+            }
+        }
+
+        private void toDouble(int rows) {
+            doubles = new double[ints.length];
+            for(int i = 0; i < rows; i++) {
+                doubles[i] = ints[i] == ColumnType.NA_INTEGER ?
+                                            Double.NaN : ints[i];
+            }
+            ints = null;
+            type = ColumnType.DOUBLE;
+        }
+
+        private void toString(int rows) {
+            int capacity = type == ColumnType.INTEGER ? ints.length
+                                                      : doubles.length;
+            strings = new String[capacity];
+            int start = 0;
+            for(int i = 0; i < rows; i++) {
+                int end = rawEnds[i];
+                if(end < 0) {
+                    end = ~end;
+                } else {
+                    strings[i] = new String(raw, start, end - start,
+                                            StandardCharsets.UTF_8);
+                }
+                start = end;
+            }
+            ints = null;
+            doubles = null;
+            raw = null;
+            rawEnds = null;
+            type = ColumnType.STRING;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * WhitespaceTableReader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import java.io.*;
+
+/*
+ * WhitespaceTableReader
+ *
+ * Streaming reader for whitespace-delimited tables such as
+ * analytics/hipStar.dat, following the semantics of the R call
+ * used by dataIO.R:
+ *
+ * read.table(file, header=T, fill=T)
+ *
+ * - fields are separated by any run of spaces or tabs
+ * - short rows are padded with NA (fill=T)
+ * - blank lines are skipped, '#' starts a comment
+ * - "NA" denotes a missing value in any column
+ * - single or double quoted fields may contain whitespace
+ * - each column is typed as integer, double or string, promoted
+ *   as needed while rows are read
+ * - header names are made syntactically valid as R's check.names
+ *   does, for example B-V becomes B.V
+ *
+ * Typing and chunking are shared with the other readers, see
+ * TextTableReader.
+ */
+public class WhitespaceTableReader extends TextTableReader {
+
+    public WhitespaceTableReader(InputStream in, boolean header) {
+        super(in, header);
+    }
+
+    /*
+     * read
+     *
+     * Convenience for a table with a header row. The stream is
+     * consumed but not closed.
+     */
+    public static ColumnarTable read(InputStream in) throws IOException {
+        return new WhitespaceTableReader(in, true).read();
+    }
+
+    /*
+     * next
+     *
+     * Advances to the next field, end of line or end of input.
+     * Field bytes are left in token[0..tokenLength).
+     */
+    int next() throws IOException {
+
+        int c;
+        do {
+            c = readByte();
+        } while(c == ' ' || c == '\t' || c == '\r');
+
+        if(c == -1) {
+            return EOF;
+        }
+        if(c == '\n') {
+            return EOL;
+        }
+        if(c == '#') {
+            while((c = readByte()) != -1 && c != '\n') { }
+            return c == -1 ? EOF : EOL;
+        }
+
+        tokenLength = 0;
+        tokenQuoted = (c == '"' || c == '\'');
+        if(tokenQuoted) {
+            int quote = c;
+            while((c = readByte()) != -1 && c != quote) {
+                append(c);
+            }
+        } else {
+            do {
+                append(c);
+                c = peek();
+                if(c == -1 || c == ' ' || c == '\t' || c == '\r' ||
+                                        c == '\n' || c == '#') {
+                    break;
+                }
+                position++;
+            } while(true);
+        }
+        return TOKEN;
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * WorkspaceDecoder.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import com.revo.deployr.client.data.*;
+import java.util.*;
+
+/*
+ * WorkspaceDecoder
+ *
+ * Decodes DeployR-encoded workspace objects straight into primitive
+ * column storage, in place of walking the boxed value lists or
+ * converting through RDataFactory.createDataTable:
+ *
+ * - RNumericVector to double[], or int[] when every value is integral
+ * - RStringVector to a DictionaryColumn of distinct values
+ * - RFactor to a DictionaryColumn over its levels
+ * - RBooleanVector to int[] holding 1, 0 or NA
+ *
+ * Each value is read exactly once from the client library list and
+ * no intermediate list or boxed value is created. NA values decode
+ * as described on ColumnType.
+ */
+public final class WorkspaceDecoder {
+
+    private WorkspaceDecoder() {
+    }
+
+    /*
+     * decode
+     *
+     * Decodes an RDataFrame into a ColumnarTable, one column per
+     * data.frame vector in order.
+     */
+    public static ColumnarTable decode(RDataFrame frame) {
+
+        List<RData> vectors = frame.getValue();
+        String[] names = new String[vectors.size()];
+        Object[] columns = new Object[vectors.size()];
+        int rows = -1;
+
+        for(int i = 0; i < columns.length; i++) {
+            RData vector = vectors.get(i);
+            names[i] = vector.getName();
+            columns[i] = column(vector);
+            int length = lengthOf(columns[i]);
+            if(rows != -1 && length != rows) {
+                throw new IllegalArgumentException("RDataFrame " +
+                    frame.getName() + " column " + names[i] + " has " +
+                    length + " rows, expected " + rows + ".");
+            }
+            rows = length;
+        }
+        return new ColumnarTable(names, columns, Math.max(rows, 0));
+    }
+
+    /*
+     * doubles
+     *
+     * Decodes an RNumericVector into a double[], NA as NaN.
+     */
+    public static double[] doubles(RNumericVector vector) {
+
+        List<Double> values = vector.getValue();
+        double[] doubles = new double[values.size()];
+        int i = 0;
+        for(Double value : values) {
+            doubles[i++] = value == null ? Double.NaN : value;
+        }
+        return doubles;
+    }
+
+    /*
+     * ints
+     *
+     * Decodes an RNumericVector of integral values into an int[], NA
+     * as ColumnType.NA_INTEGER.
+     */
+    public static int[] ints(RNumericVector vector) {
+
+        List<Double> values = vector.getValue();
+        int[] ints = new int[values.size()];
+        int i = 0;
+        for(Double value : values) {
+            if(value == null) {
+                ints[i++] = ColumnType.NA_INTEGER;
+            } else
+            if(isInt(value)) {
+                ints[i++] = (int) value.doubleValue();
+            } else {
+                throw new IllegalArgumentException("RNumericVector " +
+                    vector.getName() + " value " + value +
+                    " at index " + i + " is not an integer.");
+            }
+        }
+        return ints;
+    }
+
+    /*
+     * strings
+     *
+     * Dictionary-encodes an RStringVector, levels in order of first
+     * occurrence.
+     */
+    public static DictionaryColumn strings(RStringVector vector) {
+
+        List<String> values = vector.getValue();
+        Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        List<String> levels = new ArrayList<String>();
+        int[] codes = new int[values.size()];
+        int i = 0;
+        for(String value : values) {
+            if(value == null) {
+                codes[i++] = ColumnType.NA_INTEGER;
+                continue;
+            }
+            Integer code = dictionary.get(value);
+            if(code == null) {
+                code = levels.size();
+                dictionary.put(value, code);
+                levels.add(value);
+            }
+            codes[i++] = code;
+        }
+        return new DictionaryColumn(codes,
+                                    levels.toArray(new String[levels.size()]));
+    }
+
+    /*
+     * factor
+     *
+     * Dictionary-encodes an RFactor over its declared levels, values
+     * outside the levels decode as NA as they do in R.
+     */
+    public static DictionaryColumn factor(RFactor factor) {
+
+        List<String> levels = factor.getLevels();
+        Map<String, Integer> dictionary =
+            new HashMap<String, Integer>(levels.size() * 2);
+        for(int l = 0; l < levels.size(); l++) {
+            dictionary.put(levels.get(l), l);
+        }
+
+        List<String> values = factor.getValue();
+        int[] codes = new int[values.size()];
+        int i = 0;
+        for(String value : values) {
+            Integer code = value == null ? null : dictionary.get(value);
+            codes[i++] = code == null ? ColumnType.NA_INTEGER : code;
+        }
+        return new DictionaryColumn(codes,
+                                    levels.toArray(new String[levels.size()]));
+    }
+
+    /*
+     * logicals
+     *
+     * Decodes an RBooleanVector into an int[] as R stores logicals,
+     * 1 for TRUE, 0 for FALSE and ColumnType.NA_INTEGER for NA.
+     */
+    public static int[] logicals(RBooleanVector vector) {
+
+        List<Boolean> values = vector.getValue();
+        int[] ints = new int[values.size()];
+        int i = 0;
+        for(Boolean value : values) {
+            ints[i++] = value == null ? ColumnType.NA_INTEGER :
+                                        (value ? 1 : 0);
+        }
+        return ints;
+    }
+
+    /*
+     * Single pass into a double[] while tracking whether every value
+     * is integral, narrowed to an int[] afterwards when it is.
+     */
+    private static Object numeric(RNumericVector vector) {
+
+        List<Double> values = vector.getValue();
+        double[] doubles = new double[values.size()];
+        boolean integral = true;
+        int i = 0;
+        for(Double value : values) {
+            if(value == null) {
+                doubles[i++] = Double.NaN;
+            } else {
+                double d = value;
+                integral &= isInt(d);
+                doubles[i++] = d;
+            }
+        }
+        if(!integral) {
+            return doubles;
+        }
+
+        int[] ints = new int[doubles.length];
+        for(i = 0; i < doubles.length; i++) {
+            ints[i] = Double.isNaN(doubles[i]) ?
+                        ColumnType.NA_INTEGER : (int) doubles[i];
+        }
+        return ints;
+    }
+
+    static Object column(RData vector) {
+
+        if(vector instanceof RFactor) {
+            return factor((RFactor) vector);
+        } else
+        if(vector instanceof RNumericVector) {
+            return numeric((RNumericVector) vector);
+        } else
+        if(vector instanceof RStringVector) {
+            return strings((RStringVector) vector);
+        } else
+        if(vector instanceof RBooleanVector) {
+            return logicals((RBooleanVector) vector);
+        }
+        throw new IllegalArgumentException("Unsupported RDataFrame column " +
+            vector.getName() + " encoding=" + vector.getClass());
+    }
+
+    static int lengthOf(Object column) {
+        if(column instanceof int[]) {
+            return ((int[]) column).length;
+        } else
+        if(column instanceof double[]) {
+            return ((double[]) column).length;
+        }
+        return ((DictionaryColumn) column).getCodes().length;
+    }
+
+    /*
+     * Integral and representable as an int other than NA_integer_.
+     */
+    private static boolean isInt(double value) {
+        return value == Math.rint(value) &&
+               value > Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+}
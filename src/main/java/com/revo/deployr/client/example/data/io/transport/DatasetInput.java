@@ -0,0 +1,58 @@
+/*
+ * DatasetInput.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.transport;
+
+import com.revo.deployr.client.params.*;
+import java.io.File;
+
+/*
+ * DatasetInput
+ *
+ * One logical dataset and every location it is available from. Each
+ * location that is set makes the corresponding InputTransport
+ * eligible, TransportSelector picks among them. Follows the same
+ * convention as the client library params classes: all fields are
+ * public and optional.
+ */
+public class DatasetInput {
+
+    /*
+     * Local copy of the dataset as a whitespace-delimited table with
+     * a header row. Enables ENCODED and WORKSPACE, as the workspace
+     * object objectName, and UPLOAD, as the working directory file
+     * filename.
+     */
+    public File file;
+    public String objectName;
+    public String filename;
+
+    /*
+     * External location of the same content. Enables URL, as the R
+     * object literal urlObject.
+     */
+    public String url;
+    public String urlObject;
+
+    /*
+     * Repository-managed copies. Enables REPOSITORY, preferring the
+     * binary workspace copy when both are set.
+     */
+    public ProjectPreloadOptions repositoryWorkspace;
+    public ProjectPreloadOptions repositoryDirectory;
+
+    public String toString() {
+        return "DatasetInput[" + (objectName != null ? objectName : filename) +
+                                                                    "]";
+    }
+
+}
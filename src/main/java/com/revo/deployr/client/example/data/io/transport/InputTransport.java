@@ -0,0 +1,39 @@
+/*
+ * InputTransport.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.transport;
+
+/*
+ * InputTransport
+ *
+ * The ways the data I/O flows get the same dataset into R, one per
+ * example pattern:
+ *
+ * ENCODED     DeployR-encoded rinputs on the execution request
+ * REPOSITORY  preloadWorkspace or preloadDirectory of a
+ *             repository-managed file, copied server-side
+ * UPLOAD      uploadFile to the project working directory
+ * URL         an R object literal holding a URL the R script reads
+ *             the dataset from
+ * WORKSPACE   the table written client-side as a binary .rData file
+ *             by RDataWriter, stored in the repository and preloaded
+ *             as the workspace
+ */
+public enum InputTransport {
+
+    ENCODED,
+    REPOSITORY,
+    UPLOAD,
+    URL,
+    WORKSPACE;
+
+}
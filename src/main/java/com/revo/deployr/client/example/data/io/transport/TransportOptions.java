@@ -0,0 +1,114 @@
+/*
+ * TransportOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.transport;
+
+/*
+ * TransportOptions
+ *
+ * Configuration for a TransportSelector. Rates and overheads seed
+ * the cost model until measurements replace them. Follows the same
+ * convention as the client library params classes: all fields are
+ * public and optional, unset fields fall back to the defaults below.
+ */
+public class TransportOptions {
+
+    /*
+     * When set, always use this transport if it is eligible.
+     */
+    public InputTransport force;
+
+    /*
+     * Initial client to server rate, in bytes per millisecond, for
+     * ENCODED and UPLOAD.
+     */
+    public double uploadBytesPerMilli = 1000;
+
+    /*
+     * Initial rate at which the R session fetches URL inputs.
+     */
+    public double urlBytesPerMilli = 2000;
+
+    /*
+     * Encoded JSON size relative to the size of the text table.
+     */
+    public double encodedExpansion = 2.0;
+
+    /*
+     * Compressed .rData size relative to the size of the text table.
+     */
+    public double workspaceExpansion = 0.45;
+
+    /*
+     * Encoded inputs larger than this are never selected, the whole
+     * request body is built in client memory.
+     */
+    public long maxEncodedBytes = 64L * 1024 * 1024;
+
+    /*
+     * Fixed cost of each transport, in milliseconds, beyond moving
+     * bytes: an extra round trip for UPLOAD, connection setup for
+     * URL, a server-side copy for REPOSITORY. WORKSPACE pays the
+     * UPLOAD and REPOSITORY overheads.
+     */
+    public long encodedOverheadMillis = 0;
+    public long uploadOverheadMillis = 50;
+    public long urlOverheadMillis = 250;
+    public long repositoryOverheadMillis = 20;
+
+    /*
+     * Weight of each new measurement in the running rate estimate.
+     */
+    public double smoothing = 0.3;
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from transport.* system properties.
+     */
+    public static TransportOptions fromSystemProperties() {
+
+        TransportOptions options = new TransportOptions();
+        String force = System.getProperty("transport.force");
+        if(force != null) {
+            options.force = InputTransport.valueOf(force.toUpperCase());
+        }
+        options.uploadBytesPerMilli = Double.parseDouble(
+            System.getProperty("transport.uploadBytesPerMilli",
+                            String.valueOf(options.uploadBytesPerMilli)));
+        options.urlBytesPerMilli = Double.parseDouble(
+            System.getProperty("transport.urlBytesPerMilli",
+                            String.valueOf(options.urlBytesPerMilli)));
+        options.encodedExpansion = Double.parseDouble(
+            System.getProperty("transport.encodedExpansion",
+                            String.valueOf(options.encodedExpansion)));
+        options.workspaceExpansion = Double.parseDouble(
+            System.getProperty("transport.workspaceExpansion",
+                            String.valueOf(options.workspaceExpansion)));
+        options.maxEncodedBytes = Long.getLong("transport.maxEncodedBytes",
+                                        options.maxEncodedBytes);
+        options.encodedOverheadMillis = Long.getLong(
+            "transport.encodedOverheadMillis", options.encodedOverheadMillis);
+        options.uploadOverheadMillis = Long.getLong(
+            "transport.uploadOverheadMillis", options.uploadOverheadMillis);
+        options.urlOverheadMillis = Long.getLong(
+            "transport.urlOverheadMillis", options.urlOverheadMillis);
+        options.repositoryOverheadMillis = Long.getLong(
+            "transport.repositoryOverheadMillis",
+            options.repositoryOverheadMillis);
+        options.smoothing = Double.parseDouble(
+            System.getProperty("transport.smoothing",
+                            String.valueOf(options.smoothing)));
+        return options;
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * TransportSelector.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.transport;
+
+import java.util.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * TransportSelector
+ *
+ * Picks the cheapest eligible InputTransport for a DatasetInput using a
+ * simple cost model, overhead + bytes / rate per transport:
+ *
+ * ENCODED     text size * encodedExpansion sent by the client
+ * UPLOAD      file size sent by the client, or no bytes when
+ *             DedupUploader knows the content is in the repository
+ * URL         file size fetched by the R session
+ * WORKSPACE   file size * workspaceExpansion sent by the client
+ * REPOSITORY  no bytes, a server-side copy
+ *
+ * Rates start from TransportOptions and are replaced by a running
+ * average of observed transfers, so the choice follows the network
+ * the client actually runs on. Only transfer time is observed:
+ * UPLOAD and WORKSPACE inputs move before the execution, ENCODED
+ * and URL inputs move with it and are timed as the execution time
+ * in excess of a per-script baseline, see observeExecution.
+ *
+ * Usage:
+ *
+ * Selection selection = TransportSelector.shared()
+ *                  .select(input, stateful, authenticated, resident);
+ * ... apply selection.getTransport(), execute ...
+ * TransportSelector.shared().observeExecution(script, selection,
+ *                                      inputMillis, executionMillis);
+ */
+public class TransportSelector {
+
+    private static Logger log = Logger.getLogger(TransportSelector.class);
+
+    private static TransportSelector shared;
+
+    private final TransportOptions options;
+    private final Map<InputTransport, Double> rates =
+        new EnumMap<InputTransport, Double>(InputTransport.class);
+    private final Map<String, Double> baselines =
+        new HashMap<String, Double>();
+
+    public TransportSelector(TransportOptions options) {
+        this.options = options;
+        rates.put(InputTransport.ENCODED, options.uploadBytesPerMilli);
+        rates.put(InputTransport.UPLOAD, options.uploadBytesPerMilli);
+        rates.put(InputTransport.URL, options.urlBytesPerMilli);
+        rates.put(InputTransport.WORKSPACE, options.uploadBytesPerMilli);
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide selector configured from system
+     * properties, see TransportOptions.fromSystemProperties.
+     */
+    public static synchronized TransportSelector shared() {
+        if(shared == null) {
+            shared = new TransportSelector(
+                        TransportOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    /*
+     * select
+     *
+     * Returns the cheapest transport for input. UPLOAD is eligible
+     * on stateful executions only, WORKSPACE for authenticated users
+     * only, resident reports whether the content of input.file is
+     * already in the repository.
+     */
+    public Selection select(DatasetInput input, boolean stateful,
+                            boolean authenticated, boolean resident) {
+
+        long fileBytes = input.file != null && input.file.isFile() ?
+                                                input.file.length() : -1;
+        List<Selection> eligible = new ArrayList<Selection>();
+
+        if(input.repositoryWorkspace != null ||
+                                input.repositoryDirectory != null) {
+            eligible.add(estimate(InputTransport.REPOSITORY, 0));
+        }
+        if(fileBytes >= 0 && input.objectName != null) {
+            long bytes = (long) (fileBytes * options.encodedExpansion);
+            if(bytes <= options.maxEncodedBytes) {
+                eligible.add(estimate(InputTransport.ENCODED, bytes));
+            }
+        }
+        if(stateful && fileBytes >= 0 && input.filename != null) {
+            eligible.add(estimate(InputTransport.UPLOAD,
+                                  resident ? 0 : fileBytes));
+        }
+        if(authenticated && fileBytes >= 0 && input.objectName != null) {
+            eligible.add(estimate(InputTransport.WORKSPACE,
+                        (long) (fileBytes * options.workspaceExpansion)));
+        }
+        if(input.url != null && input.urlObject != null) {
+            eligible.add(estimate(InputTransport.URL,
+                                  Math.max(fileBytes, 0)));
+        }
+
+        if(eligible.isEmpty()) {
+            throw new IllegalArgumentException("No input transport " +
+                "eligible for " + input + (stateful ? "." :
+                " on a discrete execution."));
+        }
+
+        Selection best = null;
+        for(Selection candidate : eligible) {
+            if(candidate.transport == options.force) {
+                return candidate;
+            }
+            if(best == null ||
+                    candidate.estimateMillis < best.estimateMillis) {
+                best = candidate;
+            }
+        }
+        log.debug("Input transport candidates for " + input + ": " +
+                                                            eligible);
+        return best;
+    }
+
+    /*
+     * observe
+     *
+     * Folds the time taken to transfer the input of selection into
+     * the rate estimate of the selected transport.
+     */
+    public void observe(Selection selection, long elapsedMillis) {
+
+        if(selection.bytes <= 0) {
+            return;
+        }
+        long transferMillis = Math.max(1,
+                    elapsedMillis - overhead(selection.transport));
+        double sample = (double) selection.bytes / transferMillis;
+        synchronized(rates) {
+            double current = rates.get(selection.transport);
+            rates.put(selection.transport, current +
+                            options.smoothing * (sample - current));
+        }
+    }
+
+    /*
+     * observeExecution
+     *
+     * Folds an execution of script into the estimates, selection is
+     * the input it carried, null for none, and inputMillis the time
+     * taken to apply it before the execution.
+     *
+     * Executions moving no input bytes during the call, that is all
+     * but ENCODED and URL, update the baseline run time of script
+     * and observe inputMillis as the transfer time of their input.
+     * For ENCODED and URL the transfer time is inputMillis plus the
+     * execution time in excess of the baseline. They are not observed
+     * until script has a baseline, the script run time would
+     * otherwise be mistaken for transfer time.
+     */
+    public void observeExecution(String script, Selection selection,
+                                 long inputMillis, long executionMillis) {
+
+        boolean inFlight = selection != null &&
+                    (selection.transport == InputTransport.ENCODED ||
+                     selection.transport == InputTransport.URL);
+        if(!inFlight) {
+            synchronized(baselines) {
+                Double current = baselines.get(script);
+                baselines.put(script, current == null ?
+                    (double) executionMillis : current +
+                        options.smoothing * (executionMillis - current));
+            }
+            if(selection != null) {
+                observe(selection, inputMillis);
+            }
+            return;
+        }
+
+        double baseline = getBaseline(script);
+        if(baseline < 0) {
+            log.debug("No baseline run time for " + script +
+                      ", " + selection + " not observed.");
+            return;
+        }
+        observe(selection, inputMillis +
+                    Math.max(0L, executionMillis - Math.round(baseline)));
+    }
+
+    /*
+     * Baseline run time of script in milliseconds, -1 when no
+     * execution without in-flight input has been observed.
+     */
+    public double getBaseline(String script) {
+        synchronized(baselines) {
+            Double baseline = baselines.get(script);
+            return baseline != null ? baseline : -1.0;
+        }
+    }
+
+    /*
+     * Current rate estimate in bytes per millisecond, not defined
+     * for REPOSITORY.
+     */
+    public double getRate(InputTransport transport) {
+        synchronized(rates) {
+            Double rate = rates.get(transport);
+            return rate != null ? rate : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private Selection estimate(InputTransport transport, long bytes) {
+        double millis = overhead(transport);
+        if(bytes > 0) {
+            millis += bytes / getRate(transport);
+        }
+        return new Selection(transport, bytes, millis);
+    }
+
+    private long overhead(InputTransport transport) {
+        switch(transport) {
+            case ENCODED:
+                return options.encodedOverheadMillis;
+            case UPLOAD:
+                return options.uploadOverheadMillis;
+            case URL:
+                return options.urlOverheadMillis;
+            case WORKSPACE:
+                return options.uploadOverheadMillis +
+                            options.repositoryOverheadMillis;
+            default:
+                return options.repositoryOverheadMillis;
+        }
+    }
+
+    /*
+     * Selection
+     *
+     * The chosen transport with the bytes it moves and its estimated
+     * cost.
+     */
+    public static final class Selection {
+
+        private final InputTransport transport;
+        private final long bytes;
+        private final double estimateMillis;
+
+        Selection(InputTransport transport, long bytes,
+                  double estimateMillis) {
+            this.transport = transport;
+            this.bytes = bytes;
+            this.estimateMillis = estimateMillis;
+        }
+
+        public InputTransport getTransport() {
+            return transport;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getEstimateMillis() {
+            return estimateMillis;
+        }
+
+        public String toString() {
+            return transport + "(" + bytes + " bytes, " +
+                        Math.round(estimateMillis) + "ms)";
+        }
+    }
+
+}
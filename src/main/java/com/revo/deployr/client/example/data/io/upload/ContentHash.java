@@ -0,0 +1,105 @@
+/*
+ * ContentHash.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.upload;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.*;
+import java.util.concurrent.*;
+
+/*
+ * ContentHash
+ *
+ * SHA-256 digests of local files. Digests are remembered against the
+ * file's path, size and modification time so an unchanged input is
+ * read from disk once per process.
+ */
+public final class ContentHash {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ConcurrentMap<String, Entry> digests =
+                                new ConcurrentHashMap<String, Entry>();
+
+    private ContentHash() {
+    }
+
+    /*
+     * of
+     *
+     * Returns the lower case hex SHA-256 digest of file.
+     */
+    public static String of(File file) throws IOException {
+
+        String path = file.getCanonicalPath();
+        long size = file.length();
+        long modified = file.lastModified();
+
+        Entry entry = digests.get(path);
+        if(entry != null && entry.size == size &&
+                                entry.modified == modified) {
+            return entry.digest;
+        }
+
+        String digest = digest(file);
+        digests.put(path, new Entry(size, modified, digest));
+        return digest;
+    }
+
+    private static String digest(File file) throws IOException {
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException nsaex) {
+            throw new IllegalStateException(nsaex);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        FileChannel channel = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ);
+        try {
+            while(channel.read(buffer) != -1) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            channel.close();
+        }
+
+        byte[] bytes = md.digest();
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+
+        final long size;
+        final long modified;
+        final String digest;
+
+        Entry(long size, long modified, String digest) {
+            this.size = size;
+            this.modified = modified;
+            this.digest = digest;
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+/*
+ * DedupUploader.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.upload;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.params.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.log4j.Logger;
+
+/*
+ * DedupUploader
+ *
+ * Content-addressed uploads of local data files. Each file is
+ * identified by its SHA-256 digest and the uploader remembers where
+ * that content already lives:
+ *
+ * 1. In a project working directory, for the lifetime of the
+ *    project. Pooled projects keep their working directory between
+ *    checkouts, so a repeat upload is skipped entirely.
+ * 2. In the DeployR repository, recorded in a persistent UploadIndex.
+ *    The upload is replaced by a server-side RProject.loadFile of
+ *    the repository file, no file content leaves the client.
+ *
+ * With UploadOptions.stageInRepository content is placed in the
+ * repository the first time it is seen, so every later run and every
+ * other project takes path 2.
+ *
+ * Usage:
+ *
+ * RProjectFile wdFile = DedupUploader.shared()
+ *                  .uploadToProject(rUser, rProject, file, upOpts);
+ */
+public class DedupUploader {
+
+    private static Logger log = Logger.getLogger(DedupUploader.class);
+
+    /*
+     * Maximum number of project working directories tracked.
+     */
+    private static final int MAX_PROJECTS = 1024;
+
+    private static DedupUploader shared;
+
+    private final UploadOptions options;
+    private final UploadIndex index;
+    private final Map<String, Map<String, String>> workingDirectories;
+
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong skippedBytes = new AtomicLong();
+
+    public DedupUploader(UploadOptions options) {
+        this.options = options;
+        this.index = new UploadIndex(options.indexFile);
+        this.workingDirectories = Collections.synchronizedMap(
+            new LinkedHashMap<String, Map<String, String>>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Map<String, String>> eldest) {
+                    return size() > MAX_PROJECTS;
+                }
+            });
+    }
+
+    /*
+     * shared
+     *
+     * Returns the process-wide uploader configured from system
+     * properties, see UploadOptions.fromSystemProperties.
+     */
+    public static synchronized DedupUploader shared() {
+        if(shared == null) {
+            shared = new DedupUploader(UploadOptions.fromSystemProperties());
+        }
+        return shared;
+    }
+
+    /*
+     * uploadToProject
+     *
+     * Makes the content of file available in the working directory
+     * of rProject as upOpts.filename, uploading it only when it is
+     * neither already present there nor known to the repository.
+     */
+    public RProjectFile uploadToProject(RUser rUser, RProject rProject,
+                                        File file,
+                                        DirectoryUploadOptions upOpts)
+        throws RClientException, RSecurityException, IOException {
+
+        String digest = ContentHash.of(file);
+        long size = file.length();
+        String filename = upOpts.filename != null ?
+                                upOpts.filename : file.getName();
+        String projectId = rProject.about().id;
+
+        /*
+         * 1. Same content already in this working directory.
+         */
+        if(digest.equals(workingDirectory(projectId).get(filename))) {
+            RProjectFile existing = findProjectFile(rProject, filename, size);
+            if(existing != null) {
+                skippedBytes.addAndGet(size);
+                log.debug("[   DATA INPUT   ] Skipped upload of " + filename +
+                    ", content already in working directory of " + projectId);
+                return existing;
+            }
+            workingDirectory(projectId).remove(filename);
+        }
+
+        /*
+         * 2. Same content in the repository under the same filename,
+         * loaded server-side.
+         */
+        RRepositoryFile repoFile = null;
+        if(upOpts.overwrite || findProjectFile(rProject, filename, -1) == null) {
+            repoFile = findRepositoryFile(rUser, digest, filename, size);
+            if(repoFile == null && options.stageInRepository) {
+                repoFile = stageInRepository(rUser, file, filename);
+            } else
+            if(repoFile != null) {
+                skippedBytes.addAndGet(size);
+            }
+        }
+        if(repoFile != null) {
+            RProjectFile wdFile = rProject.loadFile(repoFile);
+            workingDirectory(projectId).put(filename, digest);
+            log.debug("[   DATA INPUT   ] Loaded " + filename + " into " +
+                "working directory of " + projectId + " from repository.");
+            return wdFile;
+        }
+
+        /*
+         * 3. Unknown content, upload.
+         */
+        InputStream is = new FileInputStream(file);
+        try {
+            RProjectFile wdFile = rProject.uploadFile(is, upOpts);
+            uploadedBytes.addAndGet(size);
+            workingDirectory(projectId).put(filename, digest);
+            return wdFile;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /*
+     * stageInRepository
+     *
+     * Stores the content of file as filename in the staging
+     * directory of the repository, as a new version tagged with its
+     * digest, unless the index records it there already.
+     */
+    public RRepositoryFile stageInRepository(RUser rUser, File file,
+                                             String filename)
+        throws RClientException, RSecurityException, IOException {
+
+        RepoUploadOptions repoOpts = new RepoUploadOptions();
+        repoOpts.filename = filename;
+        repoOpts.directory = options.stagingDirectory;
+        repoOpts.descr = "sha256:" + ContentHash.of(file);
+        repoOpts.newversion = true;
+        return uploadToRepository(rUser, file, repoOpts);
+    }
+
+    /*
+     * uploadToRepository
+     *
+     * Stores the content of file in the repository per repoOpts,
+     * returning the existing repository file instead when the index
+     * records the same content at the same filename and directory.
+     */
+    public RRepositoryFile uploadToRepository(RUser rUser, File file,
+                                              RepoUploadOptions repoOpts)
+        throws RClientException, RSecurityException, IOException {
+
+        String digest = ContentHash.of(file);
+        long size = file.length();
+        String filename = repoOpts.filename != null ?
+                                repoOpts.filename : file.getName();
+        String author = rUser.about().username;
+
+        UploadIndex.Location known = index.get(options.endpoint,
+                                               author, digest);
+        if(known != null && filename.equals(known.filename) &&
+                equal(repoOpts.directory, known.directory)) {
+            RRepositoryFile existing = fetch(rUser, author, digest,
+                                             known, size);
+            if(existing != null) {
+                skippedBytes.addAndGet(size);
+                log.debug("[   DATA INPUT   ] Skipped repository upload, " +
+                    "content already stored at " + known);
+                return existing;
+            }
+        }
+
+        RRepositoryFile repoFile;
+        InputStream is = new FileInputStream(file);
+        try {
+            repoFile = rUser.uploadFile(is, repoOpts);
+            uploadedBytes.addAndGet(size);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+
+        String directory = repoOpts.directory;
+        String version = null;
+        if(repoFile.about() != null) {
+            if(repoFile.about().directory != null) {
+                directory = repoFile.about().directory;
+            }
+            version = repoFile.about().version;
+        }
+        index.put(options.endpoint, author, digest,
+                  new UploadIndex.Location(filename, directory,
+                                           author, version, size));
+        return repoFile;
+    }
+
+    /*
+     * isRepositoryResident
+     *
+     * True when the index records the content of file in the
+     * repository of author under filename, so uploadToProject would
+     * load it server-side rather than send it. Consults the local
+     * index only, the repository copy is verified on use.
+     */
+    public boolean isRepositoryResident(String author, File file,
+                                        String filename)
+        throws IOException {
+
+        UploadIndex.Location known = index.get(options.endpoint, author,
+                                               ContentHash.of(file));
+        return known != null && filename.equals(known.filename);
+    }
+
+    /*
+     * Bytes shipped to the server, and bytes whose upload was
+     * skipped or replaced by a server-side reference.
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes.get();
+    }
+
+    private Map<String, String> workingDirectory(String projectId) {
+        synchronized(workingDirectories) {
+            Map<String, String> files = workingDirectories.get(projectId);
+            if(files == null) {
+                files = Collections.synchronizedMap(
+                                        new HashMap<String, String>());
+                workingDirectories.put(projectId, files);
+            }
+            return files;
+        }
+    }
+
+    private RRepositoryFile findRepositoryFile(RUser rUser, String digest,
+                                               String filename, long size)
+        throws RClientException, RSecurityException {
+
+        String author = rUser.about().username;
+        UploadIndex.Location known = index.get(options.endpoint,
+                                               author, digest);
+        if(known == null || !filename.equals(known.filename)) {
+            return null;
+        }
+        return fetch(rUser, author, digest, known, size);
+    }
+
+    /*
+     * fetch
+     *
+     * Returns the repository file at location, or null after
+     * dropping the index entry when it no longer matches.
+     */
+    private RRepositoryFile fetch(RUser rUser, String author,
+                                  String digest,
+                                  UploadIndex.Location location, long size) {
+
+        try {
+            RRepositoryFile repoFile = rUser.fetchFile(location.filename,
+                    location.author, location.directory, location.version);
+            if(repoFile != null && (!options.verify ||
+                    repoFile.about() == null ||
+                    repoFile.about().size == size)) {
+                return repoFile;
+            }
+        } catch(RClientException cex) {
+            log.debug("Indexed repository file " + location +
+                                    " unavailable, ex=" + cex);
+        } catch(RSecurityException sex) {
+            log.debug("Indexed repository file " + location +
+                                    " not accessible, ex=" + sex);
+        }
+        index.remove(options.endpoint, author, digest);
+        return null;
+    }
+
+    /*
+     * findProjectFile
+     *
+     * Returns the working directory file named filename, of size
+     * bytes unless size is negative, or null.
+     */
+    private RProjectFile findProjectFile(RProject rProject,
+                                         String filename, long size)
+        throws RClientException, RSecurityException {
+
+        for(RProjectFile wdFile : rProject.listFiles()) {
+            if(wdFile.about() != null &&
+                    filename.equals(wdFile.about().filename) &&
+                    (size < 0 || !options.verify ||
+                            wdFile.about().size == size)) {
+                return wdFile;
+            }
+        }
+        return null;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * UploadIndex.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.upload;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.apache.log4j.Logger;
+
+/*
+ * UploadIndex
+ *
+ * Maps content hashes to the DeployR repository files known to hold
+ * that content, optionally persisted as a properties file so the
+ * mapping survives between runs. Each entry is keyed by
+ * endpoint, author and SHA-256 digest.
+ */
+class UploadIndex {
+
+    private static Logger log = Logger.getLogger(UploadIndex.class);
+
+    private final File file;
+    private final Properties entries = new Properties();
+
+    UploadIndex(String path) {
+
+        this.file = path != null ? new File(path) : null;
+        if(file != null && file.isFile()) {
+            Reader in = null;
+            try {
+                in = Files.newBufferedReader(file.toPath(),
+                                             StandardCharsets.UTF_8);
+                entries.load(in);
+            } catch(IOException ioex) {
+                log.warn("Upload index " + file + " unreadable, " +
+                                        "starting empty, ex=" + ioex);
+                entries.clear();
+            } finally {
+                if(in != null) {
+                    try { in.close(); } catch(IOException cex) { }
+                }
+            }
+        }
+    }
+
+    synchronized Location get(String endpoint, String author,
+                              String digest) {
+        String value = entries.getProperty(key(endpoint, author, digest));
+        return value != null ? Location.parse(value) : null;
+    }
+
+    synchronized void put(String endpoint, String author,
+                          String digest, Location location) {
+        entries.setProperty(key(endpoint, author, digest),
+                            location.format());
+        save();
+    }
+
+    synchronized void remove(String endpoint, String author,
+                             String digest) {
+        if(entries.remove(key(endpoint, author, digest)) != null) {
+            save();
+        }
+    }
+
+    private static String key(String endpoint, String author,
+                              String digest) {
+        return (endpoint != null ? endpoint : "") + "|" + author +
+                                                    "|" + digest;
+    }
+
+    /*
+     * save
+     *
+     * Rewrites the index atomically. Failures only cost future
+     * dedup hits so they are logged, never thrown.
+     */
+    private void save() {
+
+        if(file == null) {
+            return;
+        }
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if(dir != null) {
+                dir.mkdirs();
+            }
+            File part = new File(file.getPath() + ".part");
+            Writer out = Files.newBufferedWriter(part.toPath(),
+                                                 StandardCharsets.UTF_8);
+            try {
+                entries.store(out, "DeployR repository upload index");
+            } finally {
+                out.close();
+            }
+            Files.move(part.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException ioex) {
+            log.warn("Upload index " + file + " not saved, ex=" + ioex);
+        }
+    }
+
+    /*
+     * Location
+     *
+     * A repository file: filename, directory, author, version and
+     * size in bytes.
+     */
+    static final class Location {
+
+        final String filename;
+        final String directory;
+        final String author;
+        final String version;
+        final long size;
+
+        Location(String filename, String directory, String author,
+                 String version, long size) {
+            this.filename = filename;
+            this.directory = directory;
+            this.author = author;
+            this.version = version;
+            this.size = size;
+        }
+
+        String format() {
+            return size + "\t" + nonNull(directory) + "\t" + filename +
+                   "\t" + nonNull(author) + "\t" + nonNull(version);
+        }
+
+        static Location parse(String value) {
+            String[] f = value.split("\t", -1);
+            if(f.length != 5) {
+                return null;
+            }
+            try {
+                return new Location(f[2], nullIfEmpty(f[1]),
+                                    nullIfEmpty(f[3]), nullIfEmpty(f[4]),
+                                    Long.parseLong(f[0]));
+            } catch(NumberFormatException nfex) {
+                return null;
+            }
+        }
+
+        private static String nonNull(String s) {
+            return s != null ? s : "";
+        }
+
+        private static String nullIfEmpty(String s) {
+            return s.isEmpty() ? null : s;
+        }
+
+        public String toString() {
+            return "/" + author + "/" + directory + "/" + filename +
+                    (version != null ? "@" + version : "");
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * UploadOptions.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.upload;
+
+/*
+ * UploadOptions
+ *
+ * Configuration for a DedupUploader. Follows the same convention
+ * as the client library params classes: all fields are public and
+ * optional, unset fields fall back to the defaults below.
+ */
+public class UploadOptions {
+
+    /*
+     * DeployR server endpoint, scopes the index entries so one index
+     * can serve several servers.
+     */
+    public String endpoint;
+
+    /*
+     * Optional local index recording the content hash of files known
+     * to be stored in the DeployR repository, so repeat runs can
+     * reference rather than re-upload them, for example
+     * ~/.deployr/upload-index.properties. Null keeps the index in
+     * memory.
+     */
+    public String indexFile;
+
+    /*
+     * When true a remembered copy is checked on the server, by name
+     * and size, before it is used in place of an upload.
+     */
+    public boolean verify = true;
+
+    /*
+     * When true, content not yet in the repository is uploaded to
+     * stagingDirectory in the repository once, then loaded into each
+     * project working directory server-side. Without staging only
+     * content already in the repository, or already in a pooled
+     * project's working directory, avoids an upload. Staging is
+     * opt-in, staged versions are never deleted from the repository.
+     */
+    public boolean stageInRepository = false;
+    public String stagingDirectory = "upload-cache";
+
+    /*
+     * fromSystemProperties
+     *
+     * Builds options from upload.* system properties.
+     */
+    public static UploadOptions fromSystemProperties() {
+
+        UploadOptions options = new UploadOptions();
+        options.endpoint = System.getProperty("endpoint");
+        options.indexFile = System.getProperty("upload.indexFile",
+                                        options.indexFile);
+        if(options.indexFile != null && options.indexFile.isEmpty()) {
+            options.indexFile = null;
+        }
+        options.verify = Boolean.parseBoolean(
+            System.getProperty("upload.verify",
+                                String.valueOf(options.verify)));
+        options.stageInRepository = Boolean.parseBoolean(
+            System.getProperty("upload.stageInRepository",
+                                String.valueOf(options.stageInRepository)));
+        options.stagingDirectory = System.getProperty(
+            "upload.stagingDirectory", options.stagingDirectory);
+        return options;
+    }
+
+}
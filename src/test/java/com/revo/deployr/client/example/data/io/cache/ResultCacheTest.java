@@ -0,0 +1,187 @@
+/*
+ * ResultCacheTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.cache;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.fake.*;
+import com.revo.deployr.client.example.data.io.pool.PreloadSpec;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/*
+ * ResultCacheTest
+ *
+ * Counts the executions FakeDeployR receives through a ResultCache:
+ * repeats of a cacheable execution are served without a server call,
+ * while executions of other users, on projects with other preloads
+ * or with outputs a hit would lose always run.
+ */
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeDeployR fake;
+    private RClient rClient;
+    private ResultCacheOptions cacheOptions;
+
+    @Before
+    public void setUp() throws Exception {
+
+        FakeDeployROptions fakeOptions = new FakeDeployROptions();
+        fakeOptions.loginLatencyMillis = 0;
+        fakeOptions.createProjectLatencyMillis = 0;
+        fakeOptions.executeLatencyMillis = 0;
+        fake = new FakeDeployR(fakeOptions);
+        rClient = fake.createClient(FakeDeployR.ENDPOINT);
+
+        cacheOptions = new ResultCacheOptions();
+        cacheOptions.enabled = true;
+        cacheOptions.endpoint = FakeDeployR.ENDPOINT;
+    }
+
+    @Test
+    public void servesRepeatedExecution() throws Exception {
+
+        ResultCache cache = new ResultCache(cacheOptions);
+
+        ExecutionResult first = execute(cache, "testuser", options());
+        ExecutionResult second = execute(cache, "testuser", options());
+
+        assertFalse(first.isCached());
+        assertTrue(second.isCached());
+        assertEquals(first.getWorkspaceObjects().size(),
+                     second.getWorkspaceObjects().size());
+        assertEquals(1, fake.getCallCount("executeScript"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void scopesResultsByUser() throws Exception {
+
+        ResultCache cache = new ResultCache(cacheOptions);
+
+        execute(cache, "testuser", options());
+        execute(cache, "otheruser", options());
+        execute(cache, null, options());
+
+        assertEquals(3, fake.getCallCount("executeScript"));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void scopesPersistedResultsByUser() throws Exception {
+
+        cacheOptions.directory = folder.getRoot().getPath();
+        execute(new ResultCache(cacheOptions), "testuser", options());
+
+        ResultCache later = new ResultCache(cacheOptions);
+        assertFalse(execute(later, "otheruser", options()).isCached());
+        assertTrue(execute(later, "testuser", options()).isCached());
+        assertEquals(2, fake.getCallCount("executeScript"));
+    }
+
+    @Test
+    public void keysProjectExecutionsOnPreloads() throws Exception {
+
+        ResultCache cache = new ResultCache(cacheOptions);
+        RUser rUser = rClient.login(
+                        new RBasicAuthentication("testuser", "secret"));
+        RProject rProject = rUser.createProject();
+        PreloadSpec hipStar = PreloadSpec.workspace("hipStar.rData",
+                                        "example-data-io", "testuser");
+
+        executeOnProject(cache, rProject, PreloadSpec.NONE);
+        executeOnProject(cache, rProject, hipStar);
+        assertTrue(executeOnProject(cache, rProject, hipStar).isCached());
+
+        assertEquals(2, fake.getCallCount("executeScript"));
+    }
+
+    @Test
+    public void runsExecutionsGeneratingFiles() throws Exception {
+
+        ResultCache cache = new ResultCache(cacheOptions);
+        AnonymousProjectExecutionOptions opts = options();
+        opts.artifactsoff = false;
+
+        execute(cache, "testuser", opts);
+        execute(cache, "testuser", opts);
+
+        opts = options();
+        opts.storageOptions = new ProjectStorageOptions();
+        execute(cache, "testuser", opts);
+        execute(cache, "testuser", opts);
+
+        assertEquals(4, fake.getCallCount("executeScript"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void keysOnOutputOptions() {
+
+        String key = ResultKey.forScript("scope", "dataIO.R",
+                        "example-data-io", "testuser", null, options());
+        assertNotNull(key);
+        assertEquals(key, ResultKey.forScript("scope", "dataIO.R",
+                        "example-data-io", "testuser", null, options()));
+
+        AnonymousProjectExecutionOptions opts = options();
+        opts.routputs = Arrays.asList("hipDim");
+        assertKeyDiffers(key, opts);
+        opts = options();
+        opts.blackbox = true;
+        assertKeyDiffers(key, opts);
+        opts = options();
+        opts.graphicsDevice = "svg";
+        assertKeyDiffers(key, opts);
+        assertFalse(key.equals(ResultKey.forScript("other", "dataIO.R",
+                        "example-data-io", "testuser", null, options())));
+    }
+
+    private ExecutionResult execute(ResultCache cache, String user,
+                                    AnonymousProjectExecutionOptions opts)
+        throws Exception {
+        return cache.executeScript(rClient, user, "dataIO.R",
+                                   "example-data-io", "testuser", null, opts);
+    }
+
+    private static ExecutionResult executeOnProject(ResultCache cache,
+                                                    RProject rProject,
+                                                    PreloadSpec preloads)
+        throws Exception {
+        return cache.executeScript(rProject, "testuser", preloads,
+            "dataIO.R", "example-data-io", "testuser", null, options());
+    }
+
+    private static AnonymousProjectExecutionOptions options() {
+        AnonymousProjectExecutionOptions opts =
+                                    new AnonymousProjectExecutionOptions();
+        opts.routputs = Arrays.asList("hipDim", "hipNames");
+        opts.artifactsoff = true;
+        return opts;
+    }
+
+    private static void assertKeyDiffers(String key,
+                                         ProjectExecutionOptions opts) {
+        assertFalse(key.equals(ResultKey.forScript("scope", "dataIO.R",
+                                "example-data-io", "testuser", null, opts)));
+    }
+
+}
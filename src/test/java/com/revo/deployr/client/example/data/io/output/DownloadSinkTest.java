@@ -0,0 +1,218 @@
+/*
+ * DownloadSinkTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.output;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/*
+ * DownloadSinkTest
+ *
+ * Concurrent downloads into one sink, more of them than it has
+ * pooled buffers: writers of the same filename never interleave,
+ * executions keep their own files, no ".part" file outlives its
+ * download, and a discarding sink reads every byte but writes none.
+ */
+public class DownloadSinkTest {
+
+    private static final int WRITERS = 32;
+    private static final int SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService threads =
+                                    Executors.newFixedThreadPool(WRITERS);
+
+    @After
+    public void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void concurrentWritesOfSameFileDoNotInterleave()
+        throws Exception {
+
+        DownloadSink sink = new DownloadSink(folder.getRoot(), 8 * 1024, 4);
+        List<DownloadStats> stats = writeConcurrently(sink, "EXEC-1", 1);
+
+        File file = new File(new File(folder.getRoot(), "EXEC-1"),
+                             "hip.rData");
+        for(DownloadStats downloaded : stats) {
+            assertEquals(file, downloaded.getFile());
+            assertEquals(SIZE, downloaded.getBytes());
+        }
+        assertUniform(file);
+        assertEquals(WRITERS, sink.getTotalFiles());
+        assertEquals((long) WRITERS * SIZE, sink.getTotalBytes());
+        assertNoPartFiles();
+    }
+
+    @Test
+    public void concurrentExecutionsKeepTheirOwnFiles() throws Exception {
+
+        DownloadSink sink = new DownloadSink(folder.getRoot(), 8 * 1024, 4);
+        writeConcurrently(sink, "EXEC-", WRITERS);
+
+        for(int i = 0; i < WRITERS; i++) {
+            File file = new File(new File(folder.getRoot(), "EXEC-" + i),
+                                 "hip.rData");
+            assertEquals(i, assertUniform(file));
+        }
+        assertNoPartFiles();
+    }
+
+    @Test
+    public void confinesServerSuppliedNames() throws Exception {
+
+        File root = folder.newFolder("downloads");
+        DownloadSink sink = new DownloadSink(root);
+
+        DownloadStats stats = sink.write("../EXEC-1", "../../hip.csv",
+                                         payload(7));
+
+        assertEquals(new File(new File(root, "EXEC-1"), "hip.csv"),
+                     stats.getFile());
+        assertTrue(stats.getFile().isFile());
+    }
+
+    @Test
+    public void removesPartFileOnFailure() throws Exception {
+
+        DownloadSink sink = new DownloadSink(folder.getRoot());
+        InputStream failing = new SequenceInputStream(payload(1),
+            new InputStream() {
+                public int read() throws IOException {
+                    throw new IOException("Connection reset.");
+                }
+            });
+
+        try {
+            sink.write("EXEC-1", "hip.rData", failing);
+            fail("Expected IOException.");
+        } catch(IOException ioex) {
+        }
+
+        assertFalse(new File(new File(folder.getRoot(), "EXEC-1"),
+                             "hip.rData").exists());
+        assertEquals(0, sink.getTotalFiles());
+        assertNoPartFiles();
+    }
+
+    @Test
+    public void removesPartFileWhenMoveFails() throws Exception {
+
+        DownloadSink sink = new DownloadSink(folder.getRoot());
+        File target = new File(new File(folder.getRoot(), "EXEC-1"),
+                               "hip.rData");
+        assertTrue(new File(target, "occupied").mkdirs());
+
+        try {
+            sink.write("EXEC-1", "hip.rData", payload(1));
+            fail("Expected IOException.");
+        } catch(IOException ioex) {
+        }
+
+        assertTrue(target.isDirectory());
+        assertEquals(0, sink.getTotalFiles());
+        assertNoPartFiles();
+    }
+
+    @Test
+    public void discardingSinkReadsWithoutWriting() throws Exception {
+
+        DownloadSink sink = DownloadSink.discarding();
+        List<DownloadStats> stats = writeConcurrently(sink, "EXEC-1", 1);
+
+        for(DownloadStats downloaded : stats) {
+            assertNull(downloaded.getFile());
+            assertEquals(SIZE, downloaded.getBytes());
+        }
+        assertEquals((long) WRITERS * SIZE, sink.getTotalBytes());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    /*
+     * Starts WRITERS downloads of hip.rData together, writer i
+     * streaming SIZE bytes of value i into execution prefix + i, or
+     * prefix alone when executions is 1.
+     */
+    private List<DownloadStats> writeConcurrently(final DownloadSink sink,
+                                                  final String prefix,
+                                                  final int executions)
+        throws Exception {
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<DownloadStats>> writes =
+                                new ArrayList<Future<DownloadStats>>();
+        for(int i = 0; i < WRITERS; i++) {
+            final int writer = i;
+            writes.add(threads.submit(new Callable<DownloadStats>() {
+                public DownloadStats call() throws Exception {
+                    start.await();
+                    return sink.write(executions == 1 ?
+                                        prefix : prefix + writer,
+                                      "hip.rData", payload(writer));
+                }
+            }));
+        }
+        start.countDown();
+
+        List<DownloadStats> stats = new ArrayList<DownloadStats>();
+        for(Future<DownloadStats> write : writes) {
+            stats.add(write.get(30, TimeUnit.SECONDS));
+        }
+        return stats;
+    }
+
+    private static InputStream payload(int value) {
+        byte[] bytes = new byte[SIZE];
+        Arrays.fill(bytes, (byte) value);
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /*
+     * Asserts file holds exactly one writer's payload, returning the
+     * writer.
+     */
+    private static int assertUniform(File file) throws IOException {
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(SIZE, bytes.length);
+        for(byte b : bytes) {
+            assertEquals(bytes[0], b);
+        }
+        return bytes[0];
+    }
+
+    private void assertNoPartFiles() {
+        assertNoPartFiles(folder.getRoot());
+    }
+
+    private static void assertNoPartFiles(File directory) {
+        for(File file : directory.listFiles()) {
+            assertFalse(file.getPath(), file.getName().endsWith(".part"));
+            if(file.isDirectory()) {
+                assertNoPartFiles(file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * PolicyProxyTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.policy;
+
+import com.revo.deployr.client.*;
+import com.revo.deployr.client.auth.basic.RBasicAuthentication;
+import com.revo.deployr.client.params.*;
+import com.revo.deployr.client.example.data.io.fake.*;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/*
+ * PolicyProxyTest
+ *
+ * Counts the executions FakeDeployR receives through a PolicyProxy:
+ * anonymous executions failing on the transport are retried, R
+ * execution errors raised at once, slow ones hedged within
+ * maxHedgeFraction, and executions with side effects pass through
+ * exactly once. Latencies and the injected error rate are set on the
+ * stand-in's options between calls.
+ */
+public class PolicyProxyTest {
+
+    private FakeDeployROptions fakeOptions;
+    private FakeDeployR fake;
+    private ExecutionPolicyOptions policyOptions;
+
+    @Before
+    public void setUp() {
+
+        fakeOptions = new FakeDeployROptions();
+        fakeOptions.loginLatencyMillis = 0;
+        fakeOptions.executeLatencyMillis = 5;
+        fakeOptions.latencyJitter = 0.0;
+        fake = new FakeDeployR(fakeOptions);
+
+        policyOptions = new ExecutionPolicyOptions();
+        policyOptions.enabled = true;
+        policyOptions.backoffMillis = 1L;
+        policyOptions.maxBackoffMillis = 5L;
+        policyOptions.minSamples = 5;
+        policyOptions.minHedgeDelayMillis = 20L;
+        policyOptions.deadlineMillis = 10000L;
+    }
+
+    @Test
+    public void retriesTransportFailures() throws Exception {
+
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = client(policy);
+        fakeOptions.transportErrorRate = 1.0;
+
+        try {
+            rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+            fail("Expected RClientException.");
+        } catch(RClientException rex) {
+        }
+
+        assertEquals(policyOptions.maxRetries + 1,
+                     fake.getCallCount("executeCode"));
+        assertEquals(policyOptions.maxRetries, policy.getRetryCount());
+        assertEquals(1, policy.getExecutionCount());
+    }
+
+    @Test
+    public void raisesExecutionErrors() throws Exception {
+
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = client(policy);
+        fakeOptions.errorRate = 1.0;
+
+        try {
+            rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+            fail("Expected RClientException.");
+        } catch(RClientException rex) {
+        }
+
+        assertEquals(1, fake.getCallCount("executeCode"));
+        assertEquals(0, policy.getRetryCount());
+        assertEquals(1, policy.getExecutionCount());
+    }
+
+    @Test
+    public void issuesOnceWhenDisabled() throws Exception {
+
+        policyOptions.enabled = false;
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = client(policy);
+        fakeOptions.transportErrorRate = 1.0;
+
+        try {
+            rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+            fail("Expected RClientException.");
+        } catch(RClientException rex) {
+        }
+
+        assertEquals(1, fake.getCallCount("executeCode"));
+        assertEquals(0, policy.getRetryCount());
+    }
+
+    @Test
+    public void hedgesSlowExecution() throws Exception {
+
+        policyOptions.maxHedgeFraction = 1.0;
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = warmUp(policy);
+
+        fakeOptions.executeLatencyMillis = 300;
+        assertNotNull(rClient.executeCode("x",
+                            new AnonymousProjectExecutionOptions()));
+
+        assertEquals(1, policy.getHedgeCount());
+        assertEquals(policyOptions.minSamples + 2,
+                     fake.getCallCount("executeCode"));
+        assertEquals(0, policy.getRetryCount());
+    }
+
+    @Test
+    public void limitsHedgesToFraction() throws Exception {
+
+        policyOptions.maxHedgeFraction = 0.1;
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = warmUp(policy);
+
+        fakeOptions.executeLatencyMillis = 100;
+        rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+
+        assertEquals(0, policy.getHedgeCount());
+        assertEquals(policyOptions.minSamples + 1,
+                     fake.getCallCount("executeCode"));
+    }
+
+    @Test
+    public void passesStoringExecutionsThrough() throws Exception {
+
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = client(policy);
+        fakeOptions.errorRate = 1.0;
+
+        AnonymousProjectExecutionOptions options =
+                                    new AnonymousProjectExecutionOptions();
+        options.storageOptions = new ProjectStorageOptions();
+        try {
+            rClient.executeCode("x", options);
+            fail("Expected RClientException.");
+        } catch(RClientException rex) {
+        }
+
+        assertEquals(1, fake.getCallCount("executeCode"));
+        assertEquals(0, policy.getExecutionCount());
+    }
+
+    @Test
+    public void passesAuthenticatedExecutionsThrough() throws Exception {
+
+        ExecutionPolicy policy = new ExecutionPolicy(policyOptions);
+        RClient rClient = client(policy);
+        rClient.login(new RBasicAuthentication("testuser", "secret"));
+        fakeOptions.errorRate = 1.0;
+
+        try {
+            rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+            fail("Expected RClientException.");
+        } catch(RClientException rex) {
+        }
+
+        assertEquals(1, fake.getCallCount("executeCode"));
+        assertEquals(0, policy.getExecutionCount());
+    }
+
+    private RClient client(ExecutionPolicy policy) throws RClientException {
+        return PolicyProxy.wrap(fake.createClient(FakeDeployR.ENDPOINT),
+                                policy);
+    }
+
+    /*
+     * Records minSamples fast executions, so the next slow one is
+     * eligible for a hedge.
+     */
+    private RClient warmUp(ExecutionPolicy policy) throws Exception {
+
+        RClient rClient = client(policy);
+        for(int i = 0; i < policyOptions.minSamples; i++) {
+            rClient.executeCode("x", new AnonymousProjectExecutionOptions());
+        }
+        assertEquals(0, policy.getHedgeCount());
+        return rClient;
+    }
+
+}
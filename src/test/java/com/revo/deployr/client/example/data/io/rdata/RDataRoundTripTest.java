@@ -0,0 +1,157 @@
+/*
+ * RDataRoundTripTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.rdata;
+
+import com.revo.deployr.client.example.data.io.table.*;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/*
+ * RDataRoundTripTest
+ *
+ * Decodes analytics/hipStar.rData, as saved by R, and writes it back
+ * with RDataWriter. The uncompressed serialization must match R's
+ * byte for byte, so a workspace written client-side loads exactly
+ * like one saved on the server.
+ */
+public class RDataRoundTripTest {
+
+    private static final File HIP_WORKSPACE =
+                                new File("analytics/hipStar.rData");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsHipDataFrame() throws IOException {
+
+        ColumnarTable hip = readHip();
+
+        assertEquals(2719, hip.getRowCount());
+        assertArrayEquals(new String[] { "HIP", "Vmag", "RA", "DE", "Plx",
+                                         "pmRA", "pmDE", "e_Plx", "B.V" },
+                          hip.getColumnNames());
+        assertEquals(ColumnType.INTEGER, hip.getColumnType(0));
+        for(int col = 1; col < hip.getColumnCount(); col++) {
+            assertEquals(ColumnType.DOUBLE, hip.getColumnType(col));
+        }
+        assertEquals(2, hip.getIntColumn(0)[0]);
+        assertEquals(9.27, hip.getDouble(1, 0), 0.0);
+        assertEquals(0.999, hip.getDouble(8, 0), 0.0);
+    }
+
+    @Test
+    public void matchesWhitespaceTable() throws IOException {
+
+        ColumnarTable hip = readHip();
+        ColumnarTable dat;
+        try(InputStream in = new FileInputStream("analytics/hipStar.dat")) {
+            dat = WhitespaceTableReader.read(in);
+        }
+
+        assertEquals(dat.getRowCount(), hip.getRowCount());
+        assertArrayEquals(dat.getColumnNames(), hip.getColumnNames());
+        for(int col = 0; col < hip.getColumnCount(); col++) {
+            assertEquals(dat.getColumnType(col), hip.getColumnType(col));
+            for(int row = 0; row < hip.getRowCount(); row++) {
+                assertEquals(hip.getColumnName(col) + "[" + row + "]",
+                             dat.getDouble(col, row),
+                             hip.getDouble(col, row), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void writesHipByteForByte() throws IOException {
+
+        File written = folder.newFile("hip.rData");
+        RDataWriter.write(written, "hip", readHip());
+
+        assertArrayEquals(uncompressed(HIP_WORKSPACE),
+                          uncompressed(written));
+    }
+
+    @Test
+    public void roundTripsVectorsFactorsAndMissingValues()
+        throws IOException {
+
+        File written = folder.newFile("multi.rData");
+        try(RDataWriter writer =
+                    new RDataWriter(new FileOutputStream(written))) {
+            writer.write("f", new DictionaryColumn(
+                        new int[] { 0, 1, ColumnType.NA_INTEGER, 1 },
+                        new String[] { "a", "\u00e9" }))
+                  .write("s", new String[] { "x", null, "" })
+                  .write("d", new double[] { 1.5, Double.NaN, -0.0 })
+                  .write("i", new int[] { 7, ColumnType.NA_INTEGER });
+        }
+
+        RWorkspace workspace;
+        try(InputStream in = new FileInputStream(written)) {
+            workspace = RDataReader.read(in);
+        }
+
+        assertEquals(4, workspace.getNames().size());
+        DictionaryColumn factor = workspace.getFactor("f");
+        assertArrayEquals(new String[] { "a", "\u00e9" },
+                          factor.getLevels());
+        assertArrayEquals(new int[] { 0, 1, ColumnType.NA_INTEGER, 1 },
+                          factor.getCodes());
+        assertArrayEquals(new String[] { "x", null, "" },
+                          workspace.getStrings("s"));
+        double[] doubles = workspace.getDoubles("d");
+        assertEquals(1.5, doubles[0], 0.0);
+        assertTrue(Double.isNaN(doubles[1]));
+        assertArrayEquals(new int[] { 7, ColumnType.NA_INTEGER },
+                          workspace.getInts("i"));
+    }
+
+    @Test
+    public void readsOnlyNamedObjects() throws IOException {
+
+        File written = folder.newFile("named.rData");
+        try(RDataWriter writer =
+                    new RDataWriter(new FileOutputStream(written))) {
+            writer.write("a", new int[] { 1 })
+                  .write("b", new double[] { 2.0 });
+        }
+
+        RWorkspace workspace;
+        try(InputStream in = new FileInputStream(written)) {
+            workspace = RDataReader.read(in, "b");
+        }
+
+        assertFalse(workspace.contains("a"));
+        assertEquals(2.0, workspace.getDoubles("b")[0], 0.0);
+    }
+
+    private static ColumnarTable readHip() throws IOException {
+        try(InputStream in = new FileInputStream(HIP_WORKSPACE)) {
+            return RDataReader.read(in, "hip").getDataFrame("hip");
+        }
+    }
+
+    private static byte[] uncompressed(File file) throws IOException {
+        try(InputStream in = new GZIPInputStream(
+                                        new FileInputStream(file))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+}
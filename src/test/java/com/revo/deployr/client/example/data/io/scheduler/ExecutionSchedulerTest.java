@@ -0,0 +1,204 @@
+/*
+ * ExecutionSchedulerTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.scheduler;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/*
+ * ExecutionSchedulerTest
+ *
+ * Admission against per-server and per-user limits, rejection once
+ * the queue is full or the wait is exceeded, and round-robin
+ * dispatch of queued executions across callers.
+ */
+public class ExecutionSchedulerTest {
+
+    private static final String SERVER = "http://localhost:8050/deployr";
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void admitsUpToServerLimit() {
+
+        ExecutionScheduler scheduler = scheduler(2, 8, 16);
+
+        ExecutionScheduler.Permit first = scheduler.tryAcquire(SERVER, "a");
+        ExecutionScheduler.Permit second = scheduler.tryAcquire(SERVER, "b");
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(scheduler.tryAcquire(SERVER, "c"));
+        assertEquals(2, scheduler.getInFlight(SERVER));
+
+        first.close();
+        first.close();
+        assertEquals(1, scheduler.getInFlight(SERVER));
+        assertNotNull(scheduler.tryAcquire(SERVER, "c"));
+        assertEquals(3, scheduler.getAdmittedCount());
+    }
+
+    @Test
+    public void admitsUpToUserLimit() {
+
+        ExecutionScheduler scheduler = scheduler(8, 1, 16);
+
+        assertNotNull(scheduler.tryAcquire(SERVER, "a"));
+        assertNull(scheduler.tryAcquire(SERVER, "a"));
+        assertNotNull(scheduler.tryAcquire(SERVER, "b"));
+        assertNotNull(scheduler.tryAcquire("http://other/deployr", "a"));
+    }
+
+    @Test
+    public void appliesServerOverride() {
+
+        SchedulerOptions options = options(8, 8, 16);
+        options.serverLimits.put(SERVER, 1);
+        ExecutionScheduler scheduler = new ExecutionScheduler(options);
+
+        assertNotNull(scheduler.tryAcquire(SERVER, "a"));
+        assertNull(scheduler.tryAcquire(SERVER, "b"));
+    }
+
+    @Test
+    public void rejectsWhenQueueFull() throws Exception {
+
+        ExecutionScheduler scheduler = scheduler(1, 8, 0);
+        scheduler.tryAcquire(SERVER, "a");
+
+        try {
+            scheduler.acquire(SERVER, "b");
+            fail("Expected SchedulerRejectedException.");
+        } catch(SchedulerRejectedException srex) {
+            assertEquals(1, scheduler.getRejectedCount());
+        }
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void rejectsAfterQueueWait() throws Exception {
+
+        SchedulerOptions options = options(1, 8, 4);
+        options.maxQueueWaitMillis = 50L;
+        ExecutionScheduler scheduler = new ExecutionScheduler(options);
+        scheduler.tryAcquire(SERVER, "a");
+
+        long start = System.nanoTime();
+        try {
+            scheduler.acquire(SERVER, "b");
+            fail("Expected SchedulerRejectedException.");
+        } catch(SchedulerRejectedException srex) {
+            assertTrue(System.nanoTime() - start >=
+                            TimeUnit.MILLISECONDS.toNanos(50L));
+        }
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void admitsQueuedExecutionOnRelease() throws Exception {
+
+        final ExecutionScheduler scheduler = scheduler(1, 8, 4);
+        ExecutionScheduler.Permit held = scheduler.tryAcquire(SERVER, "a");
+
+        Future<ExecutionScheduler.Permit> waiting = threads.submit(
+            new Callable<ExecutionScheduler.Permit>() {
+                public ExecutionScheduler.Permit call() throws Exception {
+                    return scheduler.acquire(SERVER, "b");
+                }
+            });
+        awaitQueued(scheduler, 1);
+        assertNull("Queued executions are not overtaken.",
+                   scheduler.tryAcquire(SERVER, "c"));
+
+        held.close();
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueued());
+        assertEquals(1, scheduler.getInFlight(SERVER));
+    }
+
+    @Test
+    public void dispatchesRoundRobinAcrossCallers() throws Exception {
+
+        final ExecutionScheduler scheduler = scheduler(1, 8, 16);
+        final List<String> order =
+                        Collections.synchronizedList(new ArrayList<String>());
+        ExecutionScheduler.Permit held = scheduler.tryAcquire(SERVER, "a");
+
+        String[] callers = { "batch", "batch", "batch", "interactive" };
+        List<Future<?>> executions = new ArrayList<Future<?>>();
+        for(int i = 0; i < callers.length; i++) {
+            final String caller = callers[i];
+            executions.add(threads.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    ExecutionScheduler.setCaller(caller);
+                    ExecutionScheduler.Permit permit;
+                    try {
+                        permit = scheduler.acquire(SERVER, "a");
+                    } finally {
+                        ExecutionScheduler.setCaller(null);
+                    }
+                    try {
+                        order.add(caller);
+                    } finally {
+                        permit.close();
+                    }
+                    return null;
+                }
+            }));
+            awaitQueued(scheduler, i + 1);
+        }
+
+        held.close();
+        for(Future<?> execution : executions) {
+            execution.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList("batch", "interactive", "batch", "batch"),
+                     order);
+    }
+
+    private static ExecutionScheduler scheduler(int perServer, int perUser,
+                                                int queueCapacity) {
+        return new ExecutionScheduler(
+                        options(perServer, perUser, queueCapacity));
+    }
+
+    private static SchedulerOptions options(int perServer, int perUser,
+                                            int queueCapacity) {
+        SchedulerOptions options = new SchedulerOptions();
+        options.maxInFlightPerServer = perServer;
+        options.maxInFlightPerUser = perUser;
+        options.queueCapacity = queueCapacity;
+        options.maxQueueWaitMillis = 5000L;
+        return options;
+    }
+
+    private static void awaitQueued(ExecutionScheduler scheduler, int queued)
+        throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(scheduler.getQueued() < queued) {
+            assertTrue("Timed out waiting for " + queued +
+                       " queued executions.", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+}
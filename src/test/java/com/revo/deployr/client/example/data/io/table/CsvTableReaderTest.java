@@ -0,0 +1,97 @@
+/*
+ * CsvTableReaderTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import com.revo.deployr.client.example.data.io.stream.CsvFileSink;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/*
+ * CsvTableReaderTest
+ *
+ * Reads a hip.csv artifact, as written by CsvFileSink from
+ * analytics/hipStar.dat, and the quoting and row names of R's
+ * write.csv output.
+ */
+public class CsvTableReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsHipCsv() throws IOException {
+
+        ColumnarTable hip;
+        try(InputStream in = new FileInputStream("analytics/hipStar.dat")) {
+            hip = WhitespaceTableReader.read(in);
+        }
+        File csv = new File(folder.getRoot(), "hip.csv");
+        CsvFileSink sink = new CsvFileSink(csv);
+        sink.accept(hip);
+        sink.end(null);
+
+        ColumnarTable read;
+        try(InputStream in = new FileInputStream(csv)) {
+            read = CsvTableReader.read(in);
+        }
+
+        assertEquals(hip.getRowCount(), read.getRowCount());
+        assertArrayEquals(hip.getColumnNames(), read.getColumnNames());
+        for(int col = 0; col < hip.getColumnCount(); col++) {
+            assertEquals(hip.getColumnType(col), read.getColumnType(col));
+            for(int row = 0; row < hip.getRowCount(); row++) {
+                assertEquals(hip.getDouble(col, row),
+                             read.getDouble(col, row), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void readsWriteCsvOutput() throws IOException {
+
+        ColumnarTable table = read("\"\",\"name\",\"v\"\n" +
+                                   "\"1\",\"a, \"\"b\"\"\",1\r\n" +
+                                   "\"2\",,2.5\n" +
+                                   "\"3\",\"c\",NA\n");
+
+        assertArrayEquals(new String[] { "X", "name", "v" },
+                          table.getColumnNames());
+        assertEquals(3, table.getRowCount());
+        assertEquals("a, \"b\"", table.getString(1, 0));
+        assertTrue(table.isNA(1, 1));
+        assertEquals(ColumnType.DOUBLE, table.getColumnType(2));
+        assertEquals(2.5, table.getDouble(2, 1), 0.0);
+        assertTrue(table.isNA(2, 2));
+    }
+
+    @Test
+    public void trailingSeparatorAddsMissingField() throws IOException {
+
+        ColumnarTable table = read("a,b\n1,\n2,3\n");
+
+        assertEquals(2, table.getRowCount());
+        assertTrue(table.isNA(1, 0));
+        assertEquals(3.0, table.getDouble(1, 1), 0.0);
+    }
+
+    private static ColumnarTable read(String text) throws IOException {
+        return CsvTableReader.read(new ByteArrayInputStream(
+                            text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * WhitespaceTableReaderTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.table;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/*
+ * WhitespaceTableReaderTest
+ *
+ * Reads analytics/hipStar.dat as read.table(file, header=T, fill=T)
+ * does in dataIO.R, whole and in chunks, and checks the typing rules
+ * on small inline tables.
+ */
+public class WhitespaceTableReaderTest {
+
+    private static final File HIP_DATA = new File("analytics/hipStar.dat");
+
+    @Test
+    public void readsHipStarDat() throws IOException {
+
+        ColumnarTable hip = readHip();
+
+        assertEquals(2719, hip.getRowCount());
+        assertArrayEquals(new String[] { "HIP", "Vmag", "RA", "DE", "Plx",
+                                         "pmRA", "pmDE", "e_Plx", "B.V" },
+                          hip.getColumnNames());
+        assertEquals(ColumnType.INTEGER, hip.getColumnType(0));
+        for(int col = 1; col < hip.getColumnCount(); col++) {
+            assertEquals(ColumnType.DOUBLE, hip.getColumnType(col));
+        }
+
+        assertEquals(2, hip.getIntColumn(0)[0]);
+        assertEquals(-19.498837, hip.getDouble(3, 0), 0.0);
+        int last = hip.getRowCount() - 1;
+        assertEquals(118311, hip.getIntColumn(0)[last]);
+        assertEquals(-112.81, hip.getDouble(6, last), 0.0);
+        assertEquals(1.391, hip.getDouble(8, last), 0.0);
+    }
+
+    @Test
+    public void chunksMatchWholeTable() throws IOException {
+
+        ColumnarTable hip = readHip();
+        int offset = 0;
+        int chunks = 0;
+        try(InputStream in = new FileInputStream(HIP_DATA)) {
+            WhitespaceTableReader reader =
+                                new WhitespaceTableReader(in, true);
+            ColumnarTable chunk;
+            while((chunk = reader.readChunk(1000)) != null) {
+                assertTrue(chunk.getRowCount() <= 1000);
+                assertArrayEquals(hip.getColumnNames(),
+                                  chunk.getColumnNames());
+                for(int col = 0; col < hip.getColumnCount(); col++) {
+                    for(int row = 0; row < chunk.getRowCount(); row++) {
+                        assertEquals(hip.getDouble(col, offset + row),
+                                     chunk.getDouble(col, row), 0.0);
+                    }
+                }
+                offset += chunk.getRowCount();
+                chunks++;
+            }
+        }
+        assertEquals(3, chunks);
+        assertEquals(hip.getRowCount(), offset);
+    }
+
+    @Test
+    public void fillsShortRowsAndSkipsComments() throws IOException {
+
+        ColumnarTable table = read("a b c\n" +
+                                   "# comment\n" +
+                                   "1 2.5 'x y'\n" +
+                                   "\n" +
+                                   "2\n" +
+                                   "NA 3 z\n");
+
+        assertEquals(3, table.getRowCount());
+        assertEquals(ColumnType.INTEGER, table.getColumnType(0));
+        assertEquals(ColumnType.DOUBLE, table.getColumnType(1));
+        assertEquals("x y", table.getString(2, 0));
+        assertTrue(table.isNA(1, 1));
+        assertTrue(table.isNA(2, 1));
+        assertTrue(table.isNA(0, 2));
+        assertEquals("z", table.getString(2, 2));
+    }
+
+    @Test
+    public void promotesIntegerToDouble() throws IOException {
+
+        ColumnarTable table = read("v\n1\n2.5\n-3\n");
+
+        assertEquals(ColumnType.DOUBLE, table.getColumnType(0));
+        assertArrayEquals(new double[] { 1.0, 2.5, -3.0 },
+            Arrays.copyOf(table.getDoubleColumn(0), 3), 0.0);
+    }
+
+    @Test
+    public void promotesToStringKeepingFieldText() throws IOException {
+
+        ColumnarTable table = read("id v\n" +
+                                   "1 007\n" +
+                                   "2 1.50\n" +
+                                   "3 1e10\n" +
+                                   "4 NaN\n" +
+                                   "5 NA\n" +
+                                   "6 star\n");
+
+        assertEquals(ColumnType.INTEGER, table.getColumnType(0));
+        assertEquals(ColumnType.STRING, table.getColumnType(1));
+        assertEquals("007", table.getString(1, 0));
+        assertEquals("1.50", table.getString(1, 1));
+        assertEquals("1e10", table.getString(1, 2));
+        assertEquals("NaN", table.getString(1, 3));
+        assertNull(table.getString(1, 4));
+        assertEquals("star", table.getString(1, 5));
+    }
+
+    private static ColumnarTable readHip() throws IOException {
+        try(InputStream in = new FileInputStream(HIP_DATA)) {
+            return WhitespaceTableReader.read(in);
+        }
+    }
+
+    private static ColumnarTable read(String text) throws IOException {
+        return WhitespaceTableReader.read(new ByteArrayInputStream(
+                            text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * TransportSelectorTest.java
+ *
+ * Copyright (C) 2010-2015 by Revolution Analytics Inc.
+ *
+ * This program is licensed to you under the terms of Version 2.0 of the
+ * Apache License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * Apache License 2.0 (http://www.apache.org/licenses/LICENSE-2.0) for more details.
+ *
+ */
+package com.revo.deployr.client.example.data.io.transport;
+
+import java.io.File;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/*
+ * TransportSelectorTest
+ *
+ * Rate estimates follow transfer time only: script run time shared
+ * by every transport never lowers the rate of the transport used.
+ */
+public class TransportSelectorTest {
+
+    private static final String SCRIPT = "/testuser/example-data-io/dataIO.R";
+
+    private TransportOptions options;
+    private TransportSelector selector;
+
+    @Before
+    public void setUp() {
+        options = new TransportOptions();
+        options.uploadBytesPerMilli = 1000;
+        options.uploadOverheadMillis = 50;
+        options.encodedOverheadMillis = 0;
+        options.smoothing = 0.5;
+        selector = new TransportSelector(options);
+    }
+
+    @Test
+    public void observesUploadWithoutScriptRunTime() {
+
+        selector.observeExecution(SCRIPT, selection(InputTransport.UPLOAD,
+                                                    100000), 150, 10000);
+
+        assertEquals(1000.0, selector.getRate(InputTransport.UPLOAD), 0.0);
+        assertEquals(10000.0, selector.getBaseline(SCRIPT), 0.0);
+    }
+
+    @Test
+    public void skipsEncodedWithoutBaseline() {
+
+        selector.observeExecution(SCRIPT, selection(InputTransport.ENCODED,
+                                                    100000), 0, 10000);
+
+        assertEquals(1000.0, selector.getRate(InputTransport.ENCODED), 0.0);
+        assertEquals(-1.0, selector.getBaseline(SCRIPT), 0.0);
+    }
+
+    @Test
+    public void observesEncodedInExcessOfBaseline() {
+
+        selector.observeExecution(SCRIPT, null, 0, 1000);
+        selector.observeExecution(SCRIPT, selection(InputTransport.ENCODED,
+                                                    100000), 0, 1050);
+
+        assertEquals(1000.0 + 0.5 * (2000.0 - 1000.0),
+                     selector.getRate(InputTransport.ENCODED), 1e-9);
+        assertEquals(1000.0, selector.getBaseline(SCRIPT), 0.0);
+    }
+
+    @Test
+    public void selectsCheapestEligibleTransport() {
+
+        DatasetInput input = new DatasetInput();
+        input.file = new File("analytics/hipStar.dat");
+        input.objectName = "hip";
+        input.filename = "hipStar.dat";
+
+        assertEquals(InputTransport.ENCODED,
+            selector.select(input, false, false, false).getTransport());
+        assertEquals(InputTransport.UPLOAD,
+            selector.select(input, true, false, true).getTransport());
+
+        options.force = InputTransport.WORKSPACE;
+        assertEquals(InputTransport.WORKSPACE,
+            selector.select(input, true, true, true).getTransport());
+    }
+
+    private static TransportSelector.Selection selection(
+                                InputTransport transport, long bytes) {
+        return new TransportSelector.Selection(transport, bytes, 0);
+    }
+
+}